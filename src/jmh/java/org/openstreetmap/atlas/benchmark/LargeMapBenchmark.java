@@ -0,0 +1,138 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongOpenHashMap;
+
+/**
+ * Benchmarks {@link LongToLongMap} against the {@link LongToLongOpenHashMap}, which backs all the
+ * identifier to index lookups of a
+ * {@link org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas}.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LargeMapBenchmark
+{
+    private static final int LOOKUPS = 65_536;
+    private static final int LOOKUPS_MASK = LOOKUPS - 1;
+
+    @Param({ "1000000" })
+    public int size;
+
+    private LongToLongMap map;
+    private LongToLongOpenHashMap openMap;
+    private long[] keys;
+    private long[] presentKeys;
+    private long[] absentKeys;
+    private int cursor;
+
+    /**
+     * @return A new map, filled with all the keys
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongToLongMap fill()
+    {
+        final LongToLongMap result = new LongToLongMap("fill", this.size);
+        for (int index = 0; index < this.size; index++)
+        {
+            result.put(this.keys[index], (long) index);
+        }
+        return result;
+    }
+
+    /**
+     * @return A new open addressing map, filled with all the keys
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public LongToLongOpenHashMap fillOpen()
+    {
+        final LongToLongOpenHashMap result = new LongToLongOpenHashMap("fill", this.size);
+        for (int index = 0; index < this.size; index++)
+        {
+            result.put(this.keys[index], index);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Long getAbsent()
+    {
+        this.cursor = this.cursor + 1 & LOOKUPS_MASK;
+        return this.map.get(this.absentKeys[this.cursor]);
+    }
+
+    @Benchmark
+    public long getAbsentOpen()
+    {
+        this.cursor = this.cursor + 1 & LOOKUPS_MASK;
+        return this.openMap.getOrDefault(this.absentKeys[this.cursor], -1L);
+    }
+
+    @Benchmark
+    public Long getPresent()
+    {
+        this.cursor = this.cursor + 1 & LOOKUPS_MASK;
+        return this.map.get(this.presentKeys[this.cursor]);
+    }
+
+    @Benchmark
+    public long getPresentOpen()
+    {
+        this.cursor = this.cursor + 1 & LOOKUPS_MASK;
+        return this.openMap.getOrDefault(this.presentKeys[this.cursor], -1L);
+    }
+
+    /**
+     * Overwrite the value of an existing key
+     */
+    @Benchmark
+    public void putExisting()
+    {
+        this.cursor = this.cursor + 1 & LOOKUPS_MASK;
+        this.map.put(this.presentKeys[this.cursor], (long) this.cursor);
+    }
+
+    @Setup
+    public void setup()
+    {
+        final Random random = new Random(this.size);
+        this.map = new LongToLongMap("benchmark", this.size);
+        this.openMap = new LongToLongOpenHashMap("benchmark", this.size);
+        this.keys = new long[this.size];
+        for (int index = 0; index < this.size; index++)
+        {
+            // Sparse, positive, OSM-like identifiers
+            this.keys[index] = random.nextLong() >>> 2;
+            this.map.put(this.keys[index], (long) index);
+            this.openMap.put(this.keys[index], index);
+        }
+        this.presentKeys = new long[LOOKUPS];
+        this.absentKeys = new long[LOOKUPS];
+        for (int index = 0; index < LOOKUPS; index++)
+        {
+            this.presentKeys[index] = this.keys[random.nextInt(this.size)];
+            this.absentKeys[index] = -1L - (random.nextLong() >>> 2);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.multi.MultiAtlas;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
+
+/**
+ * Benchmarks the construction of a {@link MultiAtlas} over a square of adjacent shards.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MultiAtlasBenchmark
+{
+    @Param({ "3" })
+    public int shardsPerSide;
+
+    @Param({ "50" })
+    public int gridSize;
+
+    private List<Atlas> shards;
+
+    @Benchmark
+    public MultiAtlas construct()
+    {
+        return new MultiAtlas(this.shards);
+    }
+
+    /**
+     * @return The number of edges of a new {@link MultiAtlas}, which are all visited
+     */
+    @Benchmark
+    public long constructAndIterateEdges()
+    {
+        return Iterables.size(new MultiAtlas(this.shards).edges());
+    }
+
+    @Setup
+    public void setup()
+    {
+        this.shards = SyntheticAtlasGenerator.shards(this.shardsPerSide, this.gridSize);
+    }
+}
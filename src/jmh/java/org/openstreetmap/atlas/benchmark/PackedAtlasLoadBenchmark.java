@@ -0,0 +1,125 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.nio.file.FileSystems;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas.AtlasSerializationFormat;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.streaming.resource.TemporaryFile;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
+
+/**
+ * Benchmarks {@link PackedAtlas#load} from a file, and the lazy loading of the fields by the
+ * {@link org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer} on first access.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackedAtlasLoadBenchmark
+{
+    @Param({ "100" })
+    public int gridSize;
+
+    @Param({ "PROTOBUF", "MAPPED" })
+    public AtlasSerializationFormat format;
+
+    private TemporaryFile file;
+    private Rectangle box;
+
+    /**
+     * Load an atlas and run a spatial query, which only needs the packed edge spatial index and the
+     * geometries of the edges found
+     *
+     * @return The number of edges found
+     */
+    @Benchmark
+    public long loadAndQueryEdges()
+    {
+        final PackedAtlas atlas = PackedAtlas.load(this.file);
+        return Iterables.size(atlas.edgesIntersecting(this.box));
+    }
+
+    /**
+     * Load an atlas, read all the edge geometries, tags and connected nodes
+     *
+     * @param blackhole
+     *            The consumer of the results
+     */
+    @Benchmark
+    public void loadAndReadEdges(final Blackhole blackhole)
+    {
+        final PackedAtlas atlas = PackedAtlas.load(this.file);
+        for (final Edge edge : atlas.edges())
+        {
+            blackhole.consume(edge.asPolyLine());
+            blackhole.consume(edge.getTags());
+            blackhole.consume(edge.end().getIdentifier());
+        }
+    }
+
+    /**
+     * Load an atlas and look up nodes by identifier, which only loads the node fields
+     *
+     * @param blackhole
+     *            The consumer of the results
+     */
+    @Benchmark
+    public void loadAndReadNodes(final Blackhole blackhole)
+    {
+        final PackedAtlas atlas = PackedAtlas.load(this.file);
+        for (int row = 0; row < this.gridSize; row++)
+        {
+            final Node node = atlas.node(
+                    SyntheticAtlasGenerator.nodeIdentifier(this.gridSize, 0L, row, row));
+            blackhole.consume(node.getLocation());
+        }
+    }
+
+    /**
+     * @return An atlas with only its meta data loaded
+     */
+    @Benchmark
+    public Object loadMetaData()
+    {
+        return PackedAtlas.load(this.file).metaData();
+    }
+
+    @Setup
+    public void setup()
+    {
+        final PackedAtlas atlas = SyntheticAtlasGenerator.grid(this.gridSize);
+        atlas.setSaveSerializationFormat(this.format);
+        this.file = File.temporary(FileSystems.getDefault());
+        atlas.save(this.file);
+        this.box = SyntheticAtlasGenerator.randomBox(this.gridSize, new Random(this.gridSize));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        this.file.close();
+    }
+}
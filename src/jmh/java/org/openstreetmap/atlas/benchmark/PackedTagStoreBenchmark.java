@@ -0,0 +1,100 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedTagStore;
+import org.openstreetmap.atlas.utilities.compression.IntegerDictionary;
+
+/**
+ * Benchmarks the lookups of a {@link PackedTagStore}, filled with the edge tags of a synthetic
+ * atlas.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackedTagStoreBenchmark
+{
+    private static final int LOOKUPS = 65_536;
+    private static final int LOOKUPS_MASK = LOOKUPS - 1;
+    private static final int BLOCK_SIZE = 1024;
+
+    @Param({ "200" })
+    public int gridSize;
+
+    private PackedTagStore store;
+    private long[] indices;
+    private int cursor;
+
+    @Benchmark
+    public boolean containsKey()
+    {
+        return this.store.containsKey(nextIndex(), SyntheticAtlasGenerator.SURFACE);
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return this.store.get(nextIndex(), SyntheticAtlasGenerator.HIGHWAY);
+    }
+
+    @Benchmark
+    public String getAbsent()
+    {
+        return this.store.get(nextIndex(), "absent");
+    }
+
+    @Benchmark
+    public Map<String, String> keyValuePairs()
+    {
+        return this.store.keyValuePairs(nextIndex());
+    }
+
+    @Setup
+    public void setup()
+    {
+        final PackedAtlas atlas = SyntheticAtlasGenerator.grid(this.gridSize);
+        this.store = new PackedTagStore(atlas.numberOfEdges(), BLOCK_SIZE, Integer.MAX_VALUE,
+                new IntegerDictionary<>());
+        long index = 0L;
+        for (final Edge edge : atlas.edges())
+        {
+            for (final Map.Entry<String, String> tag : edge.getTags().entrySet())
+            {
+                this.store.add(index, tag.getKey(), tag.getValue());
+            }
+            index++;
+        }
+        final Random random = new Random(this.gridSize);
+        this.indices = new long[LOOKUPS];
+        for (int lookup = 0; lookup < LOOKUPS; lookup++)
+        {
+            this.indices[lookup] = (long) (random.nextDouble() * index);
+        }
+    }
+
+    private long nextIndex()
+    {
+        this.cursor = this.cursor + 1 & LOOKUPS_MASK;
+        return this.indices[this.cursor];
+    }
+}
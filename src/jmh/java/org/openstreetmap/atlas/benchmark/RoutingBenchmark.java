@@ -0,0 +1,122 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.geography.atlas.items.Route;
+import org.openstreetmap.atlas.geography.atlas.routing.AStarRouter;
+import org.openstreetmap.atlas.geography.atlas.routing.ContractionHierarchy;
+import org.openstreetmap.atlas.geography.atlas.routing.ContractionHierarchyRouter;
+import org.openstreetmap.atlas.geography.atlas.routing.IndexedAStarRouter;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Benchmarks {@link AStarRouter#route(Node, Node)}, {@link IndexedAStarRouter#route(Node, Node)}
+ * and {@link ContractionHierarchyRouter#route(Node, Node)} between random pairs of nodes of a grid
+ * atlas, at most a quarter of the grid apart in each direction. The contraction hierarchy is built
+ * during the setup.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutingBenchmark
+{
+    private static final int PAIRS = 128;
+    private static final int MAXIMUM_OFFSET_RATIO = 4;
+
+    @Param({ "100" })
+    public int gridSize;
+
+    @Param({ "1000" })
+    public int thresholdMeters;
+
+    private Node[] starts;
+    private Node[] ends;
+    private AStarRouter balanced;
+    private AStarRouter dijkstra;
+    private ContractionHierarchyRouter contractionHierarchy;
+    private IndexedAStarRouter indexedBalanced;
+    private IndexedAStarRouter indexedDijkstra;
+    private int cursor;
+
+    @Benchmark
+    public Route balanced()
+    {
+        this.cursor = (this.cursor + 1) % PAIRS;
+        return this.balanced.route(this.starts[this.cursor], this.ends[this.cursor]);
+    }
+
+    @Benchmark
+    public Route contractionHierarchy()
+    {
+        this.cursor = (this.cursor + 1) % PAIRS;
+        return this.contractionHierarchy.route(this.starts[this.cursor],
+                this.ends[this.cursor]);
+    }
+
+    @Benchmark
+    public Route dijkstra()
+    {
+        this.cursor = (this.cursor + 1) % PAIRS;
+        return this.dijkstra.route(this.starts[this.cursor], this.ends[this.cursor]);
+    }
+
+    @Benchmark
+    public Route indexedBalanced()
+    {
+        this.cursor = (this.cursor + 1) % PAIRS;
+        return this.indexedBalanced.route(this.starts[this.cursor], this.ends[this.cursor]);
+    }
+
+    @Benchmark
+    public Route indexedDijkstra()
+    {
+        this.cursor = (this.cursor + 1) % PAIRS;
+        return this.indexedDijkstra.route(this.starts[this.cursor], this.ends[this.cursor]);
+    }
+
+    @Setup
+    public void setup()
+    {
+        final Atlas atlas = SyntheticAtlasGenerator.grid(this.gridSize);
+        final Distance threshold = Distance.meters(this.thresholdMeters);
+        this.balanced = AStarRouter.balanced(atlas, threshold);
+        this.dijkstra = AStarRouter.dijkstra(atlas, threshold);
+        this.indexedBalanced = IndexedAStarRouter.balanced(atlas, threshold);
+        this.indexedDijkstra = IndexedAStarRouter.dijkstra(atlas, threshold);
+        this.contractionHierarchy = new ContractionHierarchyRouter(atlas, threshold,
+                ContractionHierarchy.build(atlas));
+        final Random random = new Random(this.gridSize);
+        final int maximumOffset = Math.max(1, this.gridSize / MAXIMUM_OFFSET_RATIO);
+        this.starts = new Node[PAIRS];
+        this.ends = new Node[PAIRS];
+        for (int index = 0; index < PAIRS; index++)
+        {
+            final int row = random.nextInt(this.gridSize - maximumOffset);
+            final int column = random.nextInt(this.gridSize - maximumOffset);
+            this.starts[index] = atlas.node(
+                    SyntheticAtlasGenerator.nodeIdentifier(this.gridSize, 0L, row, column));
+            this.ends[index] = atlas.node(SyntheticAtlasGenerator.nodeIdentifier(this.gridSize,
+                    0L, row + random.nextInt(maximumOffset) + 1,
+                    column + random.nextInt(maximumOffset) + 1));
+        }
+    }
+}
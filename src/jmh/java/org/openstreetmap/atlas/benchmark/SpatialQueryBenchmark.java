@@ -0,0 +1,80 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
+
+/**
+ * Benchmarks the spatial queries of {@link org.openstreetmap.atlas.geography.atlas.AbstractAtlas},
+ * with boxes of about a tenth of the side of the atlas. The spatial indices are built during the
+ * warmup.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpatialQueryBenchmark
+{
+    private static final int BOXES = 1024;
+
+    @Param({ "300" })
+    public int gridSize;
+
+    private Atlas atlas;
+    private Rectangle[] boxes;
+    private int cursor;
+
+    @Benchmark
+    public long areasIntersecting()
+    {
+        return Iterables.size(this.atlas.areasIntersecting(nextBox()));
+    }
+
+    @Benchmark
+    public long edgesIntersecting()
+    {
+        return Iterables.size(this.atlas.edgesIntersecting(nextBox()));
+    }
+
+    @Benchmark
+    public long nodesWithin()
+    {
+        return Iterables.size(this.atlas.nodesWithin(nextBox()));
+    }
+
+    @Setup
+    public void setup()
+    {
+        this.atlas = SyntheticAtlasGenerator.grid(this.gridSize);
+        final Random random = new Random(this.gridSize);
+        this.boxes = new Rectangle[BOXES];
+        for (int index = 0; index < BOXES; index++)
+        {
+            this.boxes[index] = SyntheticAtlasGenerator.randomBox(this.gridSize, random);
+        }
+    }
+
+    private Rectangle nextBox()
+    {
+        this.cursor = (this.cursor + 1) % BOXES;
+        return this.boxes[this.cursor];
+    }
+}
@@ -0,0 +1,216 @@
+package org.openstreetmap.atlas.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openstreetmap.atlas.geography.Latitude;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Longitude;
+import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Polygon;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.builder.AtlasSize;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+
+/**
+ * Generates deterministic synthetic {@link PackedAtlas}es for benchmarks. Each atlas is a square
+ * grid of {@link org.openstreetmap.atlas.geography.atlas.items.Node}s, connected to their east and
+ * north neighbours by two-way {@link org.openstreetmap.atlas.geography.atlas.items.Edge}s, so that
+ * any two nodes are routable. Every grid cell also has a
+ * {@link org.openstreetmap.atlas.geography.atlas.items.Point} at its center, and every other cell
+ * an {@link org.openstreetmap.atlas.geography.atlas.items.Area}.
+ *
+ * @author agent
+ */
+public final class SyntheticAtlasGenerator
+{
+    public static final String HIGHWAY = "highway";
+    public static final String NAME = "name";
+    public static final String SURFACE = "surface";
+
+    /**
+     * Distance between two neighbouring nodes, in degrees
+     */
+    public static final double SPACING = 0.001;
+
+    private static final long SEED = 42L;
+    private static final String[] HIGHWAY_VALUES = { "motorway", "trunk", "primary", "secondary",
+            "tertiary", "residential", "service" };
+    private static final String[] SURFACE_VALUES = { "asphalt", "concrete", "gravel", "paved",
+            "unpaved" };
+    private static final int NAMES = 500;
+    private static final int EDGES_PER_NODE = 4;
+    private static final int AREA_CELL_MODULO = 2;
+    private static final double HALF = 0.5;
+    private static final double AREA_MARGIN = 0.2;
+
+    /**
+     * @param gridSize
+     *            The number of nodes on each side of the grid
+     * @return The atlas, with its south west node at the origin
+     */
+    public static PackedAtlas grid(final int gridSize)
+    {
+        return grid(gridSize, 0, 0, 0L);
+    }
+
+    /**
+     * @param gridSize
+     *            The number of nodes on each side of the grid
+     * @param originRow
+     *            The row of the south west node, in number of {@link #SPACING}s from the origin
+     * @param originColumn
+     *            The column of the south west node, in number of {@link #SPACING}s from the origin
+     * @param startIdentifier
+     *            The offset of all the identifiers in this atlas
+     * @return The atlas
+     */
+    public static PackedAtlas grid(final int gridSize, final int originRow,
+            final int originColumn, final long startIdentifier)
+    {
+        final Random random = new Random(SEED + startIdentifier);
+        final long cells = (long) gridSize * gridSize;
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+        builder.setSizeEstimates(
+                new AtlasSize(cells * EDGES_PER_NODE, cells, cells, 0L, cells, 0L));
+
+        for (int row = 0; row < gridSize; row++)
+        {
+            for (int column = 0; column < gridSize; column++)
+            {
+                builder.addNode(nodeIdentifier(gridSize, startIdentifier, row, column),
+                        location(originRow + row, originColumn + column), new HashMap<>());
+            }
+        }
+        long edgeIdentifier = startIdentifier + 1;
+        for (int row = 0; row < gridSize; row++)
+        {
+            for (int column = 0; column < gridSize; column++)
+            {
+                final Location here = location(originRow + row, originColumn + column);
+                if (column + 1 < gridSize)
+                {
+                    final Location east = location(originRow + row, originColumn + column + 1);
+                    addTwoWayEdge(builder, edgeIdentifier++, here, east, random);
+                }
+                if (row + 1 < gridSize)
+                {
+                    final Location north = location(originRow + row + 1, originColumn + column);
+                    addTwoWayEdge(builder, edgeIdentifier++, here, north, random);
+                }
+            }
+        }
+        long featureIdentifier = startIdentifier + 1;
+        for (int row = 0; row + 1 < gridSize; row++)
+        {
+            for (int column = 0; column + 1 < gridSize; column++)
+            {
+                final double latitude = (originRow + row + HALF) * SPACING;
+                final double longitude = (originColumn + column + HALF) * SPACING;
+                final Map<String, String> tags = new HashMap<>();
+                tags.put(NAME, "feature " + random.nextInt(NAMES));
+                builder.addPoint(featureIdentifier, location(latitude, longitude), tags);
+                if ((row + column) % AREA_CELL_MODULO == 0)
+                {
+                    final double margin = SPACING * AREA_MARGIN;
+                    final List<Location> shell = new ArrayList<>();
+                    shell.add(location(latitude - margin, longitude - margin));
+                    shell.add(location(latitude + margin, longitude - margin));
+                    shell.add(location(latitude + margin, longitude + margin));
+                    shell.add(location(latitude - margin, longitude + margin));
+                    final Map<String, String> areaTags = new HashMap<>();
+                    areaTags.put("building", "yes");
+                    builder.addArea(featureIdentifier, new Polygon(shell), areaTags);
+                }
+                featureIdentifier++;
+            }
+        }
+        return (PackedAtlas) builder.get();
+    }
+
+    /**
+     * @param gridSize
+     *            The number of nodes on each side of the grid
+     * @param startIdentifier
+     *            The offset of all the identifiers in the atlas
+     * @param row
+     *            The row of the node in the grid
+     * @param column
+     *            The column of the node in the grid
+     * @return The identifier of that node in an atlas generated with the same parameters
+     */
+    public static long nodeIdentifier(final int gridSize, final long startIdentifier,
+            final int row, final int column)
+    {
+        return startIdentifier + (long) row * gridSize + column + 1;
+    }
+
+    /**
+     * @param gridSize
+     *            The number of nodes on each side of the grid
+     * @param random
+     *            The source of randomness
+     * @return A random box in the grid, of about a tenth of its side
+     */
+    public static Rectangle randomBox(final int gridSize, final Random random)
+    {
+        final double side = Math.max(1, gridSize / 10) * SPACING;
+        final double latitude = random.nextDouble() * (gridSize - 1) * SPACING;
+        final double longitude = random.nextDouble() * (gridSize - 1) * SPACING;
+        return Rectangle.forCorners(location(latitude, longitude),
+                location(latitude + side, longitude + side));
+    }
+
+    /**
+     * @param shardsPerSide
+     *            The number of shards on each side of the square of shards
+     * @param gridSize
+     *            The number of nodes on each side of each shard
+     * @return Adjacent shards that do not share any identifier, from west to east and south to
+     *         north
+     */
+    public static List<Atlas> shards(final int shardsPerSide, final int gridSize)
+    {
+        final List<Atlas> result = new ArrayList<>();
+        final long shardIdentifiers = (long) gridSize * gridSize * EDGES_PER_NODE;
+        for (int shardRow = 0; shardRow < shardsPerSide; shardRow++)
+        {
+            for (int shardColumn = 0; shardColumn < shardsPerSide; shardColumn++)
+            {
+                result.add(grid(gridSize, shardRow * gridSize, shardColumn * gridSize,
+                        (shardRow * shardsPerSide + shardColumn) * shardIdentifiers));
+            }
+        }
+        return result;
+    }
+
+    private static void addTwoWayEdge(final PackedAtlasBuilder builder, final long identifier,
+            final Location start, final Location end, final Random random)
+    {
+        final Map<String, String> tags = new HashMap<>();
+        tags.put(HIGHWAY, HIGHWAY_VALUES[random.nextInt(HIGHWAY_VALUES.length)]);
+        tags.put(SURFACE, SURFACE_VALUES[random.nextInt(SURFACE_VALUES.length)]);
+        tags.put(NAME, "street " + random.nextInt(NAMES));
+        builder.addEdge(identifier, new PolyLine(start, end), tags);
+        builder.addEdge(-identifier, new PolyLine(end, start), tags);
+    }
+
+    private static Location location(final int row, final int column)
+    {
+        return location(row * SPACING, column * SPACING);
+    }
+
+    private static Location location(final double latitude, final double longitude)
+    {
+        return new Location(Latitude.degrees(latitude), Longitude.degrees(longitude));
+    }
+
+    private SyntheticAtlasGenerator()
+    {
+    }
+}
@@ -1,13 +1,19 @@
 package org.openstreetmap.atlas.geography.atlas;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.GeometricSurface;
+import org.openstreetmap.atlas.geography.Located;
 import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.PolyLine;
 import org.openstreetmap.atlas.geography.Polygon;
@@ -175,6 +181,37 @@ public abstract class AbstractAtlas extends BareAtlas
         });
     }
 
+    /**
+     * Build all the spatial indices of this {@link Atlas} concurrently on the common
+     * {@link ForkJoinPool}, instead of one at a time on the thread running the first spatial query
+     * of each type.
+     *
+     * @return A future completed when all the spatial indices are ready
+     */
+    public CompletableFuture<Void> buildSpatialIndicesAsync()
+    {
+        return buildSpatialIndicesAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build all the spatial indices of this {@link Atlas} concurrently, instead of one at a time on
+     * the thread running the first spatial query of each type. Spatial queries issued before the
+     * future completes are still valid, they wait for the index they need only.
+     *
+     * @param executor
+     *            The executor to build the spatial indices on
+     * @return A future completed when all the spatial indices are ready
+     */
+    public CompletableFuture<Void> buildSpatialIndicesAsync(final Executor executor)
+    {
+        return CompletableFuture.allOf(Stream
+                .<Runnable> of(this::getNodeSpatialIndex, this::getEdgeSpatialIndex,
+                        this::getAreaSpatialIndex, this::getLineSpatialIndex,
+                        this::getPointSpatialIndex, this::getRelationSpatialIndex)
+                .map(builder -> CompletableFuture.runAsync(builder, executor))
+                .toArray(CompletableFuture[]::new));
+    }
+
     @Override
     public Iterable<Edge> edgesContaining(final Location location)
     {
@@ -442,6 +479,19 @@ public abstract class AbstractAtlas extends BareAtlas
                 newSpatialIndex -> this.relationSpatialIndex = newSpatialIndex);
     }
 
+    /**
+     * Release the node, edge, area, line and point spatial indices, for subclasses that answer the
+     * spatial queries with other indices once built. The relation spatial index is kept.
+     */
+    protected void clearSpatialIndices()
+    {
+        this.nodeSpatialIndex = null;
+        this.edgeSpatialIndex = null;
+        this.areaSpatialIndex = null;
+        this.lineSpatialIndex = null;
+        this.pointSpatialIndex = null;
+    }
+
     /**
      * @return The spatial index as new (meaning empty). This has to be used only in the protected
      *         constructors, to not conflict with the thread safe methods that re-build spatial
@@ -451,7 +501,7 @@ public abstract class AbstractAtlas extends BareAtlas
     {
         if (this.areaSpatialIndex == null)
         {
-            this.areaSpatialIndex = newAreaSpatialIndex();
+            this.areaSpatialIndex = newAreaSpatialIndex(new RTree<>());
         }
         return this.areaSpatialIndex;
     }
@@ -465,7 +515,7 @@ public abstract class AbstractAtlas extends BareAtlas
     {
         if (this.edgeSpatialIndex == null)
         {
-            this.edgeSpatialIndex = newEdgeSpatialIndex();
+            this.edgeSpatialIndex = newEdgeSpatialIndex(new RTree<>());
         }
         return this.edgeSpatialIndex;
     }
@@ -479,7 +529,7 @@ public abstract class AbstractAtlas extends BareAtlas
     {
         if (this.lineSpatialIndex == null)
         {
-            this.lineSpatialIndex = newLineSpatialIndex();
+            this.lineSpatialIndex = newLineSpatialIndex(new RTree<>());
         }
         return this.lineSpatialIndex;
     }
@@ -493,7 +543,7 @@ public abstract class AbstractAtlas extends BareAtlas
     {
         if (this.nodeSpatialIndex == null)
         {
-            this.nodeSpatialIndex = newNodeSpatialIndex();
+            this.nodeSpatialIndex = newNodeSpatialIndex(new RTree<>());
         }
         return this.nodeSpatialIndex;
     }
@@ -507,7 +557,7 @@ public abstract class AbstractAtlas extends BareAtlas
     {
         if (this.pointSpatialIndex == null)
         {
-            this.pointSpatialIndex = newPointSpatialIndex();
+            this.pointSpatialIndex = newPointSpatialIndex(new RTree<>());
         }
         return this.pointSpatialIndex;
     }
@@ -521,7 +571,7 @@ public abstract class AbstractAtlas extends BareAtlas
     {
         if (this.relationSpatialIndex == null)
         {
-            this.relationSpatialIndex = newRelationSpatialIndex();
+            this.relationSpatialIndex = newRelationSpatialIndex(new RTree<>());
         }
         return this.relationSpatialIndex;
     }
@@ -534,8 +584,8 @@ public abstract class AbstractAtlas extends BareAtlas
      *            An object to lock on. Needs to be a global static variable.
      * @param type
      *            The type of the Spatial Index object to create
-     * @param newIndexSupplier
-     *            A function that returns a new built-out index
+     * @param newIndexFunction
+     *            A function that returns a new index backed by the given tree
      * @param globalIndexSupplier
      *            A function that returns the existing global index
      * @param globalIndexConsumer
@@ -543,7 +593,7 @@ public abstract class AbstractAtlas extends BareAtlas
      */
     @SuppressWarnings("unchecked")
     private <M extends AtlasEntity> void buildSpatialIndexIfNecessary(final Object lock,
-            final ItemType type, final Supplier<SpatialIndex<M>> newIndexSupplier,
+            final ItemType type, final Function<RTree<Long>, SpatialIndex<M>> newIndexFunction,
             final Supplier<SpatialIndex<M>> globalIndexSupplier,
             final Consumer<SpatialIndex<M>> globalIndexConsumer)
     {
@@ -558,10 +608,13 @@ public abstract class AbstractAtlas extends BareAtlas
                 if (localIndex == null)
                 {
                     logger.info("Re-Building {} Spatial Index...", type);
-                    final SpatialIndex<M> temporaryIndex = newIndexSupplier.get();
-                    Iterables.stream(this.entities(type, type.getMemberClass()))
-                            .map(entity -> (M) entity).forEach(temporaryIndex::add);
-                    globalIndexConsumer.accept(temporaryIndex);
+                    // Bulk load the tree, which computes the bounds of the members in parallel
+                    // and packs the tree before it is published.
+                    final List<M> members = Iterables
+                            .stream(this.entities(type, type.getMemberClass()))
+                            .map(entity -> (M) entity).collectToList();
+                    globalIndexConsumer.accept(newIndexFunction.apply(RTree.bulkLoad(members,
+                            Located::bounds, AtlasEntity::getIdentifier)));
                 }
             }
         }
@@ -570,77 +623,94 @@ public abstract class AbstractAtlas extends BareAtlas
     /**
      * Create a new spatial index
      *
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @return A newly created spatial index
      */
-    private SpatialIndex<Area> newAreaSpatialIndex()
+    private SpatialIndex<Area> newAreaSpatialIndex(final RTree<Long> tree)
     {
-        return newSpatialIndex((item, bounds) -> bounds.overlaps(item.asPolygon()), this::area);
+        return newSpatialIndex(tree, (item, bounds) -> bounds.overlaps(item.asPolygon()),
+                this::area);
     }
 
     /**
      * Create a new spatial index
      *
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @return A newly created spatial index
      */
-    private SpatialIndex<Edge> newEdgeSpatialIndex()
+    private SpatialIndex<Edge> newEdgeSpatialIndex(final RTree<Long> tree)
     {
-        return newSpatialIndex((item, bounds) -> bounds.overlaps(item.asPolyLine()), this::edge);
+        return newSpatialIndex(tree, (item, bounds) -> bounds.overlaps(item.asPolyLine()),
+                this::edge);
     }
 
     /**
      * Create a new spatial index
      *
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @return A newly created spatial index
      */
-    private SpatialIndex<Line> newLineSpatialIndex()
+    private SpatialIndex<Line> newLineSpatialIndex(final RTree<Long> tree)
     {
-        return newSpatialIndex((item, bounds) -> bounds.overlaps(item.asPolyLine()), this::line);
+        return newSpatialIndex(tree, (item, bounds) -> bounds.overlaps(item.asPolyLine()),
+                this::line);
     }
 
     /**
      * Create a new spatial index
      *
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @return A newly created spatial index
      */
-    private SpatialIndex<Node> newNodeSpatialIndex()
+    private SpatialIndex<Node> newNodeSpatialIndex(final RTree<Long> tree)
     {
-        return newSpatialIndex((item, bounds) -> bounds.fullyGeometricallyEncloses(item),
+        return newSpatialIndex(tree, (item, bounds) -> bounds.fullyGeometricallyEncloses(item),
                 this::node);
     }
 
     /**
      * Create a new spatial index
      *
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @return A newly created spatial index
      */
-    private SpatialIndex<Point> newPointSpatialIndex()
+    private SpatialIndex<Point> newPointSpatialIndex(final RTree<Long> tree)
     {
-        return newSpatialIndex((item, bounds) -> bounds.fullyGeometricallyEncloses(item),
+        return newSpatialIndex(tree, (item, bounds) -> bounds.fullyGeometricallyEncloses(item),
                 this::point);
     }
 
     /**
      * Create a new spatial index
      *
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @return A newly created spatial index
      */
-    private SpatialIndex<Relation> newRelationSpatialIndex()
+    private SpatialIndex<Relation> newRelationSpatialIndex(final RTree<Long> tree)
     {
-        return newSpatialIndex((item, bounds) -> item.intersects(bounds), this::relation);
+        return newSpatialIndex(tree, (item, bounds) -> item.intersects(bounds), this::relation);
     }
 
     /**
+     * @param tree
+     *            The tree of identifiers backing the spatial index
      * @param memberValidForBounds
      *            A function that decides if a member is included in bounds or not.
      * @param memberFromIdentifier
      *            A function that re-builds a member from its identifier.
      * @return A {@link SpatialIndex} tailored to the specified type
      */
-    private <M extends AtlasEntity> SpatialIndex<M> newSpatialIndex(
+    private <M extends AtlasEntity> SpatialIndex<M> newSpatialIndex(final RTree<Long> tree,
             final BiFunction<M, Rectangle, Boolean> memberValidForBounds,
             final Function<Long, M> memberFromIdentifier)
     {
-        return new PackedSpatialIndex<M, Long>(new RTree<>())
+        return new PackedSpatialIndex<M, Long>(tree)
         {
             private static final long serialVersionUID = 6569644967280192054L;
 
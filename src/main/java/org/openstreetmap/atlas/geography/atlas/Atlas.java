@@ -10,6 +10,8 @@ import java.util.function.BiConsumer;
 import java.util.function.LongFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.openstreetmap.atlas.geography.GeometricSurface;
 import org.openstreetmap.atlas.geography.Located;
@@ -35,6 +37,7 @@ import org.openstreetmap.atlas.geography.atlas.sub.AtlasCutType;
 import org.openstreetmap.atlas.geography.geojson.GeoJsonFeatureCollection;
 import org.openstreetmap.atlas.geography.geojson.GeoJsonObject;
 import org.openstreetmap.atlas.streaming.resource.WritableResource;
+import org.openstreetmap.atlas.tags.filters.TaggableFilter;
 import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 import com.google.gson.JsonObject;
@@ -134,6 +137,30 @@ public interface Atlas
      */
     Iterable<Area> areasIntersecting(GeometricSurface surface, Predicate<Area> matcher);
 
+    /**
+     * Return all the {@link Area}s that a {@link TaggableFilter} accepts. Atlases with an inverted
+     * tag index answer this without testing the tags of each {@link Area}.
+     *
+     * @param filter
+     *            The filter to consider
+     * @return All the {@link Area}s that the filter accepts
+     */
+    default Iterable<Area> areasMatching(final TaggableFilter filter)
+    {
+        return areas(filter::test);
+    }
+
+    /**
+     * @param parallel
+     *            {@code true} to return a parallel stream
+     * @return A {@link Stream} of all the {@link Area}s in this {@link Atlas}, that can be
+     *         split to scan them in parallel
+     */
+    default Stream<Area> areasStream(final boolean parallel)
+    {
+        return StreamSupport.stream(areas().spliterator(), parallel);
+    }
+
     /**
      * Return all the {@link Area}s fully within some surface.
      *
@@ -239,6 +266,30 @@ public interface Atlas
      */
     Iterable<Edge> edgesIntersecting(GeometricSurface surface, Predicate<Edge> matcher);
 
+    /**
+     * Return all the {@link Edge}s that a {@link TaggableFilter} accepts. Atlases with an inverted
+     * tag index answer this without testing the tags of each {@link Edge}.
+     *
+     * @param filter
+     *            The filter to consider
+     * @return All the {@link Edge}s that the filter accepts
+     */
+    default Iterable<Edge> edgesMatching(final TaggableFilter filter)
+    {
+        return edges(filter::test);
+    }
+
+    /**
+     * @param parallel
+     *            {@code true} to return a parallel stream
+     * @return A {@link Stream} of all the {@link Edge}s in this {@link Atlas}, that can be
+     *         split to scan them in parallel
+     */
+    default Stream<Edge> edgesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(edges().spliterator(), parallel);
+    }
+
     /**
      * Return all the {@link Edge}s fully within some surface.
      *
@@ -558,6 +609,30 @@ public interface Atlas
      */
     Iterable<Line> linesIntersecting(GeometricSurface surface, Predicate<Line> matcher);
 
+    /**
+     * Return all the {@link Line}s that a {@link TaggableFilter} accepts. Atlases with an inverted
+     * tag index answer this without testing the tags of each {@link Line}.
+     *
+     * @param filter
+     *            The filter to consider
+     * @return All the {@link Line}s that the filter accepts
+     */
+    default Iterable<Line> linesMatching(final TaggableFilter filter)
+    {
+        return lines(filter::test);
+    }
+
+    /**
+     * @param parallel
+     *            {@code true} to return a parallel stream
+     * @return A {@link Stream} of all the {@link Line}s in this {@link Atlas}, that can be
+     *         split to scan them in parallel
+     */
+    default Stream<Line> linesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(lines().spliterator(), parallel);
+    }
+
     /**
      * Return all the {@link Line}s fully within some surface.
      *
@@ -612,6 +687,51 @@ public interface Atlas
      */
     AtlasMetaData metaData();
 
+    /**
+     * @param location
+     *            The {@link Location} to search around
+     * @param count
+     *            The maximum number of {@link Edge}s to return
+     * @param maximumDistance
+     *            The maximum {@link Distance} from the {@link Location} to the returned
+     *            {@link Edge}s
+     * @param matcher
+     *            The matcher to consider
+     * @return The matching {@link Edge}s closest to the {@link Location}, nearest first
+     */
+    List<Edge> nearestEdges(Location location, int count, Distance maximumDistance,
+            Predicate<Edge> matcher);
+
+    /**
+     * @param location
+     *            The {@link Location} to search around
+     * @param count
+     *            The maximum number of {@link AtlasItem}s to return
+     * @param maximumDistance
+     *            The maximum {@link Distance} from the {@link Location} to the returned
+     *            {@link AtlasItem}s
+     * @param matcher
+     *            The matcher to consider
+     * @return The matching {@link AtlasItem}s closest to the {@link Location}, nearest first
+     */
+    List<AtlasItem> nearestItems(Location location, int count, Distance maximumDistance,
+            Predicate<AtlasItem> matcher);
+
+    /**
+     * @param location
+     *            The {@link Location} to search around
+     * @param count
+     *            The maximum number of {@link Node}s to return
+     * @param maximumDistance
+     *            The maximum {@link Distance} from the {@link Location} to the returned
+     *            {@link Node}s
+     * @param matcher
+     *            The matcher to consider
+     * @return The matching {@link Node}s closest to the {@link Location}, nearest first
+     */
+    List<Node> nearestNodes(Location location, int count, Distance maximumDistance,
+            Predicate<Node> matcher);
+
     /**
      * @param identifier
      *            The {@link Node}'s identifier
@@ -654,6 +774,30 @@ public interface Atlas
      */
     Iterable<Node> nodesAt(Location location);
 
+    /**
+     * Return all the {@link Node}s that a {@link TaggableFilter} accepts. Atlases with an inverted
+     * tag index answer this without testing the tags of each {@link Node}.
+     *
+     * @param filter
+     *            The filter to consider
+     * @return All the {@link Node}s that the filter accepts
+     */
+    default Iterable<Node> nodesMatching(final TaggableFilter filter)
+    {
+        return nodes(filter::test);
+    }
+
+    /**
+     * @param parallel
+     *            {@code true} to return a parallel stream
+     * @return A {@link Stream} of all the {@link Node}s in this {@link Atlas}, that can be
+     *         split to scan them in parallel
+     */
+    default Stream<Node> nodesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(nodes().spliterator(), parallel);
+    }
+
     /**
      * Return all the {@link Node}s within and/or intersecting some surface. Note: results may vary,
      * for an identical boundary, depending on the type, {@link Rectangle} or
@@ -751,6 +895,30 @@ public interface Atlas
      */
     Iterable<Point> pointsAt(Location location);
 
+    /**
+     * Return all the {@link Point}s that a {@link TaggableFilter} accepts. Atlases with an inverted
+     * tag index answer this without testing the tags of each {@link Point}.
+     *
+     * @param filter
+     *            The filter to consider
+     * @return All the {@link Point}s that the filter accepts
+     */
+    default Iterable<Point> pointsMatching(final TaggableFilter filter)
+    {
+        return points(filter::test);
+    }
+
+    /**
+     * @param parallel
+     *            {@code true} to return a parallel stream
+     * @return A {@link Stream} of all the {@link Point}s in this {@link Atlas}, that can be
+     *         split to scan them in parallel
+     */
+    default Stream<Point> pointsStream(final boolean parallel)
+    {
+        return StreamSupport.stream(points().spliterator(), parallel);
+    }
+
     /**
      * Return all the {@link Point}s within some surface. Note: results may vary, for an identical
      * boundary, depending on the type, {@link Rectangle} or {@link GeometricSurface} of the input.
@@ -816,6 +984,30 @@ public interface Atlas
      */
     Iterable<Relation> relationsLowerOrderFirst();
 
+    /**
+     * Return all the {@link Relation}s that a {@link TaggableFilter} accepts. Atlases with an
+     * inverted tag index answer this without testing the tags of each {@link Relation}.
+     *
+     * @param filter
+     *            The filter to consider
+     * @return All the {@link Relation}s that the filter accepts
+     */
+    default Iterable<Relation> relationsMatching(final TaggableFilter filter)
+    {
+        return relations(filter::test);
+    }
+
+    /**
+     * @param parallel
+     *            {@code true} to return a parallel stream
+     * @return A {@link Stream} of all the {@link Relation}s in this {@link Atlas}, that can be
+     *         split to scan them in parallel
+     */
+    default Stream<Relation> relationsStream(final boolean parallel)
+    {
+        return StreamSupport.stream(relations().spliterator(), parallel);
+    }
+
     /**
      * Return all the {@link Relation}s which have at least one feature intersecting some surface.
      *
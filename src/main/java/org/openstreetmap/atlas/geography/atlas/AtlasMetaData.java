@@ -37,6 +37,11 @@ public final class AtlasMetaData
     public static final String OSM_PBF_RELATION_CONFIGURATION = "osmPbfRelationConfiguration";
     /** Set to "true" if -keepAll was passed on the command line */
     public static final String KEEP_ALL_CONFIGURATION = "keepAll";
+    /**
+     * Comma separated types whose features are sorted by identifier in a packed atlas, and which
+     * are looked up without an identifier map
+     */
+    public static final String SORTED_IDENTIFIERS = "sortedIdentifiers";
     private static final long serialVersionUID = -285346019736489425L;
     private static final String UNKNOWN_VALUE = "unknown";
 
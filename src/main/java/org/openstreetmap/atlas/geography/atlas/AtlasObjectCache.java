@@ -0,0 +1,523 @@
+package org.openstreetmap.atlas.geography.atlas;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.builder.AtlasSize;
+import org.openstreetmap.atlas.geography.sharding.Shard;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Cache of loaded {@link Atlas} objects, to share them between the consumers of the same JVM, for
+ * example the {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas}es of checks
+ * running on neighboring shards. A resource cache avoids downloading a shard again, this cache
+ * avoids loading it again.
+ * <p>
+ * The cache is bounded by the estimated heap size of the {@link Atlas}es it holds, from their
+ * {@link AtlasSize} by default. Once the bound is exceeded, the least recently used {@link Atlas}es
+ * are evicted, except the ones which are leased with {@link #acquire(String, Supplier)} and not
+ * released yet. An {@link Atlas} returned by {@link #get(String, Supplier)} is not leased: it can
+ * be evicted while still in use, and then be loaded again by the next request. The same goes for
+ * the shard fetchers: the {@link Atlas}es of {@link #atlasFetcher(String, Function)} are not
+ * protected while a {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas} uses them,
+ * the ones of {@link #leasingFetcher(String, Function)} are.
+ * <p>
+ * Loading is single-flight per key: concurrent requests for a key which is being loaded wait for
+ * that load. Loads which return nothing are cached as such, at no cost in the bound, so a shard
+ * without data is not looked up again. Loads which fail are not cached.
+ *
+ * @author agent
+ */
+public class AtlasObjectCache
+{
+    /**
+     * A leased {@link Atlas}, which is not evicted until the lease is closed
+     *
+     * @author agent
+     */
+    public static final class Lease implements AutoCloseable
+    {
+        private final AtlasObjectCache cache;
+        private final CachedAtlas cachedAtlas;
+        private final Atlas atlas;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private Lease(final AtlasObjectCache cache, final CachedAtlas cachedAtlas,
+                final Atlas atlas)
+        {
+            this.cache = cache;
+            this.cachedAtlas = cachedAtlas;
+            this.atlas = atlas;
+        }
+
+        /**
+         * Release the {@link Atlas}, which can then be evicted. Closing a lease again does
+         * nothing.
+         */
+        @Override
+        public void close()
+        {
+            if (this.closed.compareAndSet(false, true))
+            {
+                this.cache.release(this.cachedAtlas);
+            }
+        }
+
+        public Atlas getAtlas()
+        {
+            return this.atlas;
+        }
+    }
+
+    /**
+     * A shard fetcher which leases the {@link Atlas} of each shard it fetches, so they are not
+     * evicted while the {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas} using
+     * it is in use. The leases are released when the fetcher is closed, or else once the fetcher,
+     * and so the {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas}, is garbage
+     * collected.
+     *
+     * @author agent
+     */
+    public static final class LeasingFetcher
+            implements Function<Shard, Optional<Atlas>>, AutoCloseable
+    {
+        private final AtlasObjectCache cache;
+        private final String source;
+        private final Function<Shard, Optional<Resource>> resourceFetcher;
+        private final HeldLeases leases = new HeldLeases();
+        private final Cleaner.Cleanable cleanable;
+
+        private LeasingFetcher(final AtlasObjectCache cache, final String source,
+                final Function<Shard, Optional<Resource>> resourceFetcher)
+        {
+            this.cache = cache;
+            this.source = source;
+            this.resourceFetcher = resourceFetcher;
+            this.cleanable = CLEANER.register(this, this.leases);
+        }
+
+        @Override
+        public Optional<Atlas> apply(final Shard shard)
+        {
+            final Optional<Atlas> held = this.leases.get(shard);
+            if (held.isPresent())
+            {
+                return held;
+            }
+            return this.cache
+                    .acquire(key(this.source, shard), shardLoader(shard, this.resourceFetcher))
+                    .map(lease -> this.leases.add(shard, lease));
+        }
+
+        /**
+         * Release all the leases. Fetching shards after this fails.
+         */
+        @Override
+        public void close()
+        {
+            this.cleanable.clean();
+        }
+    }
+
+    /**
+     * An entry of the cache. All the fields but the load are guarded by the lock on the entries.
+     *
+     * @author agent
+     */
+    private static final class CachedAtlas
+    {
+        private final CompletableFuture<Optional<Atlas>> load = new CompletableFuture<>();
+        private long bytes;
+        private int leases;
+    }
+
+    /**
+     * The leases of a {@link LeasingFetcher}. It does not refer to the fetcher, so it can release
+     * the leases once the fetcher is unreachable.
+     *
+     * @author agent
+     */
+    private static final class HeldLeases implements Runnable
+    {
+        // Guarded by itself
+        private final Map<Shard, Lease> leases = new HashMap<>();
+        private boolean released;
+
+        /**
+         * Keep a new lease, unless the same shard was leased meanwhile by another thread
+         *
+         * @return The leased {@link Atlas} of the shard
+         */
+        Atlas add(final Shard shard, final Lease lease)
+        {
+            final boolean closed;
+            final Lease existing;
+            synchronized (this.leases)
+            {
+                closed = this.released;
+                existing = closed ? null : this.leases.putIfAbsent(shard, lease);
+            }
+            if (closed || existing != null)
+            {
+                lease.close();
+            }
+            if (closed)
+            {
+                throw new CoreException("Unable to lease shard {}, the fetcher is closed",
+                        shard.getName());
+            }
+            return existing == null ? lease.getAtlas() : existing.getAtlas();
+        }
+
+        Optional<Atlas> get(final Shard shard)
+        {
+            synchronized (this.leases)
+            {
+                if (this.released)
+                {
+                    throw new CoreException("Unable to lease shard {}, the fetcher is closed",
+                            shard.getName());
+                }
+                return Optional.ofNullable(this.leases.get(shard)).map(Lease::getAtlas);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            final List<Lease> held;
+            synchronized (this.leases)
+            {
+                this.released = true;
+                held = new ArrayList<>(this.leases.values());
+                this.leases.clear();
+            }
+            held.forEach(Lease::close);
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlasObjectCache.class);
+    // Rough heap footprint of each type of entity in a loaded PackedAtlas, including its share of
+    // the identifier maps, spatial indices, tags and relation maps.
+    private static final long NODE_BYTES = 150L;
+    private static final long EDGE_BYTES = 250L;
+    private static final long AREA_BYTES = 300L;
+    private static final long LINE_BYTES = 250L;
+    private static final long POINT_BYTES = 100L;
+    private static final long RELATION_BYTES = 300L;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75F;
+    private static final String KEY_SEPARATOR = "/";
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final long maximumBytes;
+    private final ToLongFunction<Atlas> weigher;
+    // In order of use, the least recently used first. Guards the fields below as well.
+    private final LinkedHashMap<String, CachedAtlas> entries = new LinkedHashMap<>(
+            INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long totalBytes;
+    private long hitCount;
+    private long missCount;
+    private long loadSuccessCount;
+    private long loadExceptionCount;
+    private long totalLoadTime;
+    private long evictionCount;
+
+    /**
+     * @param size
+     *            The size of an {@link Atlas}
+     * @return A rough estimate of the heap size of that {@link Atlas} once loaded, in bytes
+     */
+    public static long estimatedBytes(final AtlasSize size)
+    {
+        return size.getNodeNumber() * NODE_BYTES + size.getEdgeNumber() * EDGE_BYTES
+                + size.getAreaNumber() * AREA_BYTES + size.getLineNumber() * LINE_BYTES
+                + size.getPointNumber() * POINT_BYTES
+                + size.getRelationNumber() * RELATION_BYTES;
+    }
+
+    private static Optional<Atlas> join(final String key, final CachedAtlas cachedAtlas)
+    {
+        try
+        {
+            return cachedAtlas.load.join();
+        }
+        catch (final CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+            throw new CoreException("Unable to load atlas {}", e.getCause(), key);
+        }
+    }
+
+    private static String key(final String source, final Shard shard)
+    {
+        return source + KEY_SEPARATOR + shard.getName();
+    }
+
+    private static Supplier<Optional<Atlas>> shardLoader(final Shard shard,
+            final Function<Shard, Optional<Resource>> resourceFetcher)
+    {
+        return () -> resourceFetcher.apply(shard)
+                .map(resource -> new AtlasResourceLoader().load(resource));
+    }
+
+    /**
+     * @param maximumBytes
+     *            The maximum estimated heap size of the cached {@link Atlas}es
+     */
+    public AtlasObjectCache(final long maximumBytes)
+    {
+        this(maximumBytes, atlas -> estimatedBytes(atlas.size()));
+    }
+
+    /**
+     * @param maximumBytes
+     *            The maximum heap size of the cached {@link Atlas}es
+     * @param weigher
+     *            The heap size of an {@link Atlas}
+     */
+    public AtlasObjectCache(final long maximumBytes, final ToLongFunction<Atlas> weigher)
+    {
+        this.maximumBytes = maximumBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Get an {@link Atlas}, loading it if it is not cached, and lease it so it is not evicted
+     * while it is in use.
+     *
+     * @param key
+     *            The key of the {@link Atlas}, for example the source and the shard
+     * @param loader
+     *            Loads the {@link Atlas} if it is not cached
+     * @return The lease on the {@link Atlas} to close once done with it, or empty if the loader
+     *         returned nothing
+     */
+    public Optional<Lease> acquire(final String key, final Supplier<Optional<Atlas>> loader)
+    {
+        final CachedAtlas cachedAtlas = this.cachedAtlas(key, loader, true);
+        final Optional<Atlas> atlas = join(key, cachedAtlas);
+        if (atlas.isEmpty())
+        {
+            this.release(cachedAtlas);
+            return Optional.empty();
+        }
+        return Optional.of(new Lease(this, cachedAtlas, atlas.get()));
+    }
+
+    /**
+     * Wrap a shard fetcher, so the {@link Atlas} of each shard is loaded once and shared with the
+     * other fetchers of the same source using this cache. The {@link Atlas}es are not leased: the
+     * cache can evict them while a
+     * {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas} still uses them, which
+     * then keeps them in memory outside of the budget of the cache, and loads them again if it
+     * needs them again. Use {@link #leasingFetcher(String, Function)} to prevent that.
+     *
+     * @param source
+     *            Where the shards come from, for example the atlas directory. Two sources with the
+     *            same name must give the same {@link Atlas} for each shard.
+     * @param resourceFetcher
+     *            Fetches the resource of a shard, for example from a resource cache
+     * @return A fetcher that can be given to a
+     *         {@link org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy}
+     */
+    public Function<Shard, Optional<Atlas>> atlasFetcher(final String source,
+            final Function<Shard, Optional<Resource>> resourceFetcher)
+    {
+        return shard -> this.get(key(source, shard), shardLoader(shard, resourceFetcher));
+    }
+
+    /**
+     * Get an {@link Atlas}, loading it if it is not cached, without leasing it.
+     *
+     * @param key
+     *            The key of the {@link Atlas}, for example the source and the shard
+     * @param loader
+     *            Loads the {@link Atlas} if it is not cached
+     * @return The {@link Atlas}, or empty if the loader returned nothing
+     */
+    public Optional<Atlas> get(final String key, final Supplier<Optional<Atlas>> loader)
+    {
+        return join(key, this.cachedAtlas(key, loader, false));
+    }
+
+    /**
+     * @return The hits, misses, loads and evictions of this cache since it was created
+     */
+    public CacheStats getStatistics()
+    {
+        synchronized (this.entries)
+        {
+            return new CacheStats(this.hitCount, this.missCount, this.loadSuccessCount,
+                    this.loadExceptionCount, this.totalLoadTime, this.evictionCount);
+        }
+    }
+
+    /**
+     * @return The estimated heap size of the cached {@link Atlas}es
+     */
+    public long getTotalBytes()
+    {
+        synchronized (this.entries)
+        {
+            return this.totalBytes;
+        }
+    }
+
+    /**
+     * Wrap a shard fetcher like {@link #atlasFetcher(String, Function)} does, but lease the
+     * {@link Atlas} of each shard, so it is not evicted while in use. Use one leasing fetcher per
+     * {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas}, and close it once done
+     * with that {@link org.openstreetmap.atlas.geography.atlas.dynamic.DynamicAtlas}.
+     *
+     * @param source
+     *            Where the shards come from, for example the atlas directory. Two sources with the
+     *            same name must give the same {@link Atlas} for each shard.
+     * @param resourceFetcher
+     *            Fetches the resource of a shard, for example from a resource cache
+     * @return A fetcher that can be given to a
+     *         {@link org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy}
+     */
+    public LeasingFetcher leasingFetcher(final String source,
+            final Function<Shard, Optional<Resource>> resourceFetcher)
+    {
+        return new LeasingFetcher(this, source, resourceFetcher);
+    }
+
+    /**
+     * Forget all the cached {@link Atlas}es. The leases already handed out stay valid.
+     */
+    public void invalidate()
+    {
+        synchronized (this.entries)
+        {
+            this.entries.clear();
+            this.totalBytes = 0L;
+        }
+    }
+
+    /**
+     * Find the entry of a key, or create it and load it on the calling thread.
+     */
+    private CachedAtlas cachedAtlas(final String key, final Supplier<Optional<Atlas>> loader,
+            final boolean lease)
+    {
+        final CachedAtlas cachedAtlas;
+        synchronized (this.entries)
+        {
+            final CachedAtlas existing = this.entries.get(key);
+            if (existing != null)
+            {
+                this.hitCount++;
+                if (lease)
+                {
+                    existing.leases++;
+                }
+                return existing;
+            }
+            this.missCount++;
+            cachedAtlas = new CachedAtlas();
+            if (lease)
+            {
+                cachedAtlas.leases++;
+            }
+            this.entries.put(key, cachedAtlas);
+        }
+        this.load(key, loader, cachedAtlas);
+        return cachedAtlas;
+    }
+
+    /**
+     * Evict the least recently used {@link Atlas}es which are loaded and not leased, until the
+     * total size fits. Must be called while holding the lock on the entries.
+     */
+    private void evict()
+    {
+        final Iterator<Map.Entry<String, CachedAtlas>> iterator = this.entries.entrySet()
+                .iterator();
+        while (this.totalBytes > this.maximumBytes && iterator.hasNext())
+        {
+            final Map.Entry<String, CachedAtlas> eldest = iterator.next();
+            final CachedAtlas cachedAtlas = eldest.getValue();
+            if (cachedAtlas.leases == 0 && cachedAtlas.load.isDone())
+            {
+                iterator.remove();
+                this.totalBytes -= cachedAtlas.bytes;
+                this.evictionCount++;
+                logger.debug("Evicted atlas {} ({} bytes)", eldest.getKey(), cachedAtlas.bytes);
+            }
+        }
+    }
+
+    private void load(final String key, final Supplier<Optional<Atlas>> loader,
+            final CachedAtlas cachedAtlas)
+    {
+        final long start = System.nanoTime();
+        final Optional<Atlas> atlas;
+        final long bytes;
+        try
+        {
+            atlas = loader.get();
+            bytes = atlas.map(this.weigher::applyAsLong).orElse(0L);
+        }
+        catch (final Throwable e)
+        {
+            // Errors too, so the key can be loaded again and the waiting requests do not hang
+            synchronized (this.entries)
+            {
+                this.entries.remove(key, cachedAtlas);
+                this.loadExceptionCount++;
+                this.totalLoadTime += System.nanoTime() - start;
+            }
+            cachedAtlas.load.completeExceptionally(e);
+            return;
+        }
+        synchronized (this.entries)
+        {
+            this.totalLoadTime += System.nanoTime() - start;
+            // An empty result, a shard with no data for example, is cached too, with no weight
+            this.loadSuccessCount++;
+            cachedAtlas.bytes = bytes;
+            // The cache might have been invalidated during the load
+            if (this.entries.get(key) == cachedAtlas)
+            {
+                this.totalBytes += bytes;
+            }
+            cachedAtlas.load.complete(atlas);
+            this.evict();
+        }
+    }
+
+    private void release(final CachedAtlas cachedAtlas)
+    {
+        synchronized (this.entries)
+        {
+            cachedAtlas.leases--;
+            this.evict();
+        }
+    }
+}
@@ -6,14 +6,18 @@ import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.GeometricSurface;
@@ -74,6 +78,36 @@ public abstract class BareAtlas implements Atlas
     private transient String name;
     private final UUID identifier;
 
+    /**
+     * Keep the candidates closest to a {@link Location}, nearest first. Candidates found more than
+     * once are considered only once.
+     *
+     * @param candidates
+     *            The candidate items
+     * @param location
+     *            The {@link Location} to measure from
+     * @param count
+     *            The maximum number of items to keep
+     * @param maximumDistance
+     *            The maximum {@link Distance} of the items to keep
+     * @param <T>
+     *            The type of item
+     * @return The closest candidates
+     */
+    protected static <T extends AtlasItem> List<T> nearest(final Iterable<T> candidates,
+            final Location location, final int count, final Distance maximumDistance)
+    {
+        final Map<T, Distance> distances = new LinkedHashMap<>();
+        for (final T candidate : candidates)
+        {
+            distances.computeIfAbsent(candidate, item -> item.distanceTo(location));
+        }
+        return distances.entrySet().stream()
+                .filter(entry -> entry.getValue().isLessThanOrEqualTo(maximumDistance))
+                .sorted(Comparator.comparingDouble(entry -> entry.getValue().asMillimeters()))
+                .limit(Math.max(count, 0)).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
     protected BareAtlas()
     {
         this.identifier = UUID.randomUUID();
@@ -442,6 +476,30 @@ public abstract class BareAtlas implements Atlas
         return Iterables.filter(locationItemsWithin(surface), matcher);
     }
 
+    @Override
+    public List<Edge> nearestEdges(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Edge> matcher)
+    {
+        return nearest(this.edgesIntersecting(location.boxAround(maximumDistance), matcher),
+                location, count, maximumDistance);
+    }
+
+    @Override
+    public List<AtlasItem> nearestItems(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<AtlasItem> matcher)
+    {
+        return nearest(this.itemsIntersecting(location.boxAround(maximumDistance), matcher),
+                location, count, maximumDistance);
+    }
+
+    @Override
+    public List<Node> nearestNodes(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Node> matcher)
+    {
+        return nearest(this.nodesWithin(location.boxAround(maximumDistance), matcher), location,
+                count, maximumDistance);
+    }
+
     @Override
     public Iterable<Node> nodes(final Predicate<Node> matcher)
     {
@@ -1,8 +1,12 @@
 package org.openstreetmap.atlas.geography.atlas.change;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -10,6 +14,7 @@ import java.util.function.LongFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.Location;
@@ -63,6 +68,10 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
     private transient Long numberOfLines;
     private transient Long numberOfPoints;
     private transient Long numberOfRelations;
+    // The untouched source edges and relations that this change removes indirectly, by removing
+    // their start or end node, or all their members.
+    private transient Set<Long> implicitlyRemovedEdges;
+    private transient Set<Long> implicitlyRemovedRelations;
 
     // Computing relations in ChangeAtlas is very expensive, so we cache them here.
     private transient Map<Long, ChangeRelation> relationsCache;
@@ -189,6 +198,13 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return entitiesFor(ItemType.AREA, this::area, this.source.areas());
     }
 
+    @Override
+    public Stream<Area> areasStream(final boolean parallel)
+    {
+        return entitiesStreamFor(ItemType.AREA, this::area,
+                this.source.areasStream(parallel));
+    }
+
     @Override
     public synchronized Rectangle bounds()
     {
@@ -228,6 +244,13 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return entitiesFor(ItemType.EDGE, this::edge, this.source.edges());
     }
 
+    @Override
+    public Stream<Edge> edgesStream(final boolean parallel)
+    {
+        return entitiesStreamFor(ItemType.EDGE, this::edge,
+                this.source.edgesStream(parallel));
+    }
+
     @Override
     public String getName()
     {
@@ -255,6 +278,13 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return entitiesFor(ItemType.LINE, this::line, this.source.lines());
     }
 
+    @Override
+    public Stream<Line> linesStream(final boolean parallel)
+    {
+        return entitiesStreamFor(ItemType.LINE, this::line,
+                this.source.linesStream(parallel));
+    }
+
     @Override
     public synchronized AtlasMetaData metaData()
     {
@@ -288,12 +318,20 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return entitiesFor(ItemType.NODE, this::node, this.source.nodes());
     }
 
+    @Override
+    public Stream<Node> nodesStream(final boolean parallel)
+    {
+        return entitiesStreamFor(ItemType.NODE, this::node,
+                this.source.nodesStream(parallel));
+    }
+
     @Override
     public synchronized long numberOfAreas()
     {
         if (this.numberOfAreas == null)
         {
-            this.numberOfAreas = Iterables.size(areas());
+            this.numberOfAreas = countFor(ItemType.AREA, this.source.numberOfAreas(),
+                    this::area, 0);
         }
         return this.numberOfAreas;
     }
@@ -303,7 +341,8 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
     {
         if (this.numberOfEdges == null)
         {
-            this.numberOfEdges = Iterables.size(edges());
+            this.numberOfEdges = countFor(ItemType.EDGE, this.source.numberOfEdges(), this::edge,
+                    implicitlyRemovedEdges().size());
         }
         return this.numberOfEdges;
     }
@@ -313,7 +352,8 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
     {
         if (this.numberOfLines == null)
         {
-            this.numberOfLines = Iterables.size(lines());
+            this.numberOfLines = countFor(ItemType.LINE, this.source.numberOfLines(),
+                    this::line, 0);
         }
         return this.numberOfLines;
     }
@@ -323,7 +363,8 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
     {
         if (this.numberOfNodes == null)
         {
-            this.numberOfNodes = Iterables.size(nodes());
+            this.numberOfNodes = countFor(ItemType.NODE, this.source.numberOfNodes(),
+                    this::node, 0);
         }
         return this.numberOfNodes;
     }
@@ -333,7 +374,8 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
     {
         if (this.numberOfPoints == null)
         {
-            this.numberOfPoints = Iterables.size(points());
+            this.numberOfPoints = countFor(ItemType.POINT, this.source.numberOfPoints(),
+                    this::point, 0);
         }
         return this.numberOfPoints;
     }
@@ -343,7 +385,8 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
     {
         if (this.numberOfRelations == null)
         {
-            this.numberOfRelations = Iterables.size(relations());
+            this.numberOfRelations = countFor(ItemType.RELATION, this.source.numberOfRelations(),
+                    this::relation, implicitlyRemovedRelations().size());
         }
         return this.numberOfRelations;
     }
@@ -365,6 +408,13 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return entitiesFor(ItemType.POINT, this::point, this.source.points());
     }
 
+    @Override
+    public Stream<Point> pointsStream(final boolean parallel)
+    {
+        return entitiesStreamFor(ItemType.POINT, this::point,
+                this.source.pointsStream(parallel));
+    }
+
     @Override
     public Relation relation(final long identifier)
     {
@@ -393,6 +443,13 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return entitiesFor(ItemType.RELATION, this::relation, this.source.relations());
     }
 
+    @Override
+    public Stream<Relation> relationsStream(final boolean parallel)
+    {
+        return entitiesStreamFor(ItemType.RELATION, this::relation,
+                this.source.relationsStream(parallel));
+    }
+
     public void validate()
     {
         if (!this.validated)
@@ -408,6 +465,41 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return this;
     }
 
+    /**
+     * Count the entities of one type without iterating through all of them. Only the entities the
+     * {@link Change} touches are looked at, on top of the source count.
+     *
+     * @param itemType
+     *            The type of entity
+     * @param sourceCount
+     *            The number of entities of that type in the source atlas
+     * @param entityForIdentifier
+     *            A function that gets the entity of that type in this atlas from its identifier.
+     * @param implicitlyRemoved
+     *            The number of untouched source entities that this atlas drops
+     * @return The number of entities of that type in this atlas
+     */
+    private long countFor(final ItemType itemType, final long sourceCount,
+            final LongFunction<? extends AtlasEntity> entityForIdentifier,
+            final long implicitlyRemoved)
+    {
+        long result = sourceCount - implicitlyRemoved;
+        for (final FeatureChange featureChange : this.change.changesFor(itemType)
+                .collect(Collectors.toList()))
+        {
+            final long identifier = featureChange.getIdentifier();
+            if (itemType.entityForIdentifier(this.source, identifier) != null)
+            {
+                result--;
+            }
+            if (entityForIdentifier.apply(identifier) != null)
+            {
+                result++;
+            }
+        }
+        return result;
+    }
+
     /**
      * Get the {@link Iterable} of entities corresponding to the right type. This takes care of
      * surfacing only the ones not deleted, or if added or modified, the new ones.
@@ -439,6 +531,37 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
                         .filter(Objects::nonNull).collect());
     }
 
+    /**
+     * Same as {@link #entitiesFor(ItemType, LongFunction, Iterable)}, as a {@link Stream} that
+     * splits like the stream of the source entities, without materializing them.
+     *
+     * @param <M>
+     *            The {@link AtlasEntity} subclass.
+     * @param itemType
+     *            The type of entity
+     * @param entityForIdentifier
+     *            A function that creates a new object from its identifier.
+     * @param sourceEntities
+     *            All the corresponding entities from the source atlas.
+     * @return All the corresponding entities in this atlas.
+     */
+    private <M extends AtlasEntity> Stream<M> entitiesStreamFor(final ItemType itemType,
+            final LongFunction<M> entityForIdentifier, final Stream<M> sourceEntities)
+    {
+        return Stream.concat(
+                this.change.getFeatureChanges().stream()
+                        .filter(featureChange -> featureChange.getItemType() == itemType
+                                && featureChange.getChangeType() == ChangeType.ADD)
+                        .map(featureChange -> entityForIdentifier
+                                .apply(featureChange.getIdentifier()))
+                        .filter(Objects::nonNull),
+                sourceEntities
+                        .filter(entity -> !this.change.changeFor(itemType, entity.getIdentifier())
+                                .isPresent())
+                        .map(entity -> entityForIdentifier.apply(entity.getIdentifier()))
+                        .filter(Objects::nonNull));
+    }
+
     /**
      * Build a "Change" feature for this {@link ChangeAtlas} by querying the change object for
      * matching features. Use the source atlas otherwise.
@@ -491,6 +614,68 @@ public class ChangeAtlas extends AbstractAtlas // NOSONAR
         return null;
     }
 
+    /**
+     * @return The identifiers of the source edges untouched by the {@link Change} which are not in
+     *         this atlas, because their start or end node was removed.
+     */
+    private synchronized Set<Long> implicitlyRemovedEdges()
+    {
+        if (this.implicitlyRemovedEdges == null)
+        {
+            final Set<Long> result = new HashSet<>();
+            this.change.changesFor(ItemType.NODE)
+                    .filter(featureChange -> featureChange.getChangeType() == ChangeType.REMOVE)
+                    .map(featureChange -> this.source.node(featureChange.getIdentifier()))
+                    .filter(Objects::nonNull)
+                    .flatMap(removedNode -> removedNode.connectedEdges().stream())
+                    .map(Edge::getIdentifier)
+                    .filter(identifier -> !this.change.changeFor(ItemType.EDGE, identifier)
+                            .isPresent() && edge(identifier) == null)
+                    .forEach(result::add);
+            this.implicitlyRemovedEdges = result;
+        }
+        return this.implicitlyRemovedEdges;
+    }
+
+    /**
+     * @return The identifiers of the source relations untouched by the {@link Change} which are
+     *         not in this atlas, because all their members were removed, directly or not.
+     */
+    private synchronized Set<Long> implicitlyRemovedRelations()
+    {
+        if (this.implicitlyRemovedRelations == null)
+        {
+            final Set<Long> result = new HashSet<>();
+            // The source entities which are not in this atlas, and whose parent relations might
+            // have lost all their members
+            final Deque<AtlasEntity> removedEntities = new ArrayDeque<>();
+            this.change.changes()
+                    .filter(featureChange -> entity(featureChange.getIdentifier(),
+                            featureChange.getItemType()) == null)
+                    .map(featureChange -> featureChange.getItemType()
+                            .entityForIdentifier(this.source, featureChange.getIdentifier()))
+                    .filter(Objects::nonNull).forEach(removedEntities::add);
+            implicitlyRemovedEdges().forEach(
+                    identifier -> removedEntities.add(this.source.edge(identifier)));
+            while (!removedEntities.isEmpty())
+            {
+                for (final Relation parent : removedEntities.poll().relations())
+                {
+                    final long identifier = parent.getIdentifier();
+                    if (!result.contains(identifier)
+                            && !this.change.changeFor(ItemType.RELATION, identifier).isPresent()
+                            && relation(identifier) == null)
+                    {
+                        result.add(identifier);
+                        removedEntities.add(parent);
+                    }
+                }
+            }
+            this.implicitlyRemovedRelations = result;
+        }
+        return this.implicitlyRemovedRelations;
+    }
+
     private <E> E getFromCacheOrCreate(final Map<Long, E> cache,
             final Consumer<Map<Long, E>> cacheSetter, final Object lock, final E nullPlaceholder,
             final Long identifier, final Supplier<E> creator)
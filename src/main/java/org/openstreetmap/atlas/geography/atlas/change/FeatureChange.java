@@ -523,6 +523,16 @@ public class FeatureChange implements Located, Taggable, Serializable, Comparabl
         return new HashMap<>(this.metaData);
     }
 
+    public Set<Options> getOptions()
+    {
+        return EnumSet.copyOf(this.options);
+    }
+
+    public Optional<String> getOsc()
+    {
+        return Optional.ofNullable(this.osc);
+    }
+
     /**
      * Get a tag based on a key, taking the changes into account.
      *
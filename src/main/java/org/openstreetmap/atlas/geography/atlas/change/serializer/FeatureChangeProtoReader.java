@@ -0,0 +1,136 @@
+package org.openstreetmap.atlas.geography.atlas.change.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.change.FeatureChange;
+import org.openstreetmap.atlas.proto.ProtoFeatureChange;
+import org.openstreetmap.atlas.proto.converters.ProtoFeatureChangeConverter;
+import org.openstreetmap.atlas.streaming.Streams;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Read the {@link FeatureChange}s written by a {@link FeatureChangeProtoWriter}, one record at a
+ * time. Each iteration reads the {@link Resource} again from the start, and only holds the current
+ * record in memory.
+ *
+ * @author agent
+ */
+public class FeatureChangeProtoReader implements Iterable<FeatureChange>
+{
+    private static final ProtoFeatureChangeConverter CONVERTER = new ProtoFeatureChangeConverter();
+
+    private final Resource resource;
+
+    /**
+     * Merge some streams of {@link FeatureChange}s sorted in their natural order, into one sorted
+     * stream. The {@link FeatureChange}s of the same entity with the same change type are merged
+     * with {@link FeatureChange#merge(FeatureChange)}, like in a
+     * {@link org.openstreetmap.atlas.geography.atlas.change.Change}. Only the current record of
+     * each stream is held in memory.
+     *
+     * @param sortedFeatureChanges
+     *            The sorted streams, for example some {@link FeatureChangeProtoReader}s
+     * @return The merged stream
+     */
+    public static Iterable<FeatureChange> merge(
+            final Iterable<? extends Iterable<FeatureChange>> sortedFeatureChanges)
+    {
+        return () ->
+        {
+            final PeekingIterator<FeatureChange> merged = Iterators.peekingIterator(
+                    Iterables.mergeSorted(sortedFeatureChanges, FeatureChange::compareTo)
+                            .iterator());
+            return new Iterator<FeatureChange>()
+            {
+                private FeatureChange previous;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return merged.hasNext();
+                }
+
+                @Override
+                public FeatureChange next()
+                {
+                    FeatureChange result = merged.next();
+                    while (merged.hasNext() && merged.peek().compareTo(result) == 0)
+                    {
+                        result = result.merge(merged.next());
+                    }
+                    if (this.previous != null && result.compareTo(this.previous) < 0)
+                    {
+                        throw new CoreException(
+                                "Feature changes are not sorted: {} {} {} came after {} {} {}",
+                                result.getChangeType(), result.getItemType(),
+                                result.getIdentifier(), this.previous.getChangeType(),
+                                this.previous.getItemType(), this.previous.getIdentifier());
+                    }
+                    this.previous = result;
+                    return result;
+                }
+            };
+        };
+    }
+
+    public FeatureChangeProtoReader(final Resource resource)
+    {
+        this.resource = resource;
+    }
+
+    @Override
+    public Iterator<FeatureChange> iterator()
+    {
+        final InputStream input = new BufferedInputStream(this.resource.read());
+        return new Iterator<FeatureChange>()
+        {
+            private ProtoFeatureChange next = readNext();
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.next != null;
+            }
+
+            @Override
+            public FeatureChange next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                final ProtoFeatureChange result = this.next;
+                this.next = readNext();
+                return CONVERTER.convert(result);
+            }
+
+            private ProtoFeatureChange readNext()
+            {
+                try
+                {
+                    final ProtoFeatureChange result = ProtoFeatureChange.parseDelimitedFrom(input);
+                    if (result == null)
+                    {
+                        Streams.close(input);
+                    }
+                    return result;
+                }
+                catch (final IOException e)
+                {
+                    Streams.close(input);
+                    throw new CoreException("Unable to read feature change from {}", e,
+                            FeatureChangeProtoReader.this.resource.getName());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package org.openstreetmap.atlas.geography.atlas.change.serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.change.FeatureChange;
+import org.openstreetmap.atlas.proto.converters.ProtoFeatureChangeConverter;
+import org.openstreetmap.atlas.streaming.resource.WritableResource;
+
+/**
+ * Write {@link FeatureChange}s to a {@link WritableResource} one record at a time, in a compact
+ * binary format: each record is a ProtoFeatureChange prefixed with its length as a varint. The
+ * records can be read back one at a time with a {@link FeatureChangeProtoReader}.
+ * <p>
+ * The {@link FeatureChange}s are written in the order they are given. Writing them in their
+ * natural order allows the resulting streams to be merged with
+ * {@link FeatureChangeProtoReader#merge(Iterable)}.
+ *
+ * @author agent
+ */
+public class FeatureChangeProtoWriter implements Closeable
+{
+    private static final ProtoFeatureChangeConverter CONVERTER = new ProtoFeatureChangeConverter();
+
+    private final WritableResource resource;
+    private final OutputStream output;
+    private long numberOfFeatureChanges = 0;
+
+    public FeatureChangeProtoWriter(final WritableResource resource)
+    {
+        this.resource = resource;
+        this.output = new BufferedOutputStream(resource.write());
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            this.output.close();
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to close {}", e, this.resource.getName());
+        }
+    }
+
+    public long getNumberOfFeatureChanges()
+    {
+        return this.numberOfFeatureChanges;
+    }
+
+    /**
+     * @param featureChange
+     *            The {@link FeatureChange} to append
+     */
+    public void write(final FeatureChange featureChange)
+    {
+        try
+        {
+            CONVERTER.backwardConvert(featureChange).writeDelimitedTo(this.output);
+            this.numberOfFeatureChanges++;
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to write {} to {}", e, featureChange,
+                    this.resource.getName());
+        }
+    }
+
+    /**
+     * @param featureChanges
+     *            The {@link FeatureChange}s to append, in order
+     */
+    public void writeAll(final Iterable<FeatureChange> featureChanges)
+    {
+        featureChanges.forEach(this::write);
+    }
+}
@@ -702,6 +702,23 @@ public class CompleteRelation extends Relation implements CompleteEntity<Complet
         return this;
     }
 
+    /**
+     * Restore the geometry added and removed by member changes. Used by deserialization.
+     *
+     * @param addedGeometry
+     *            The geometry added by new members
+     * @param removedGeometry
+     *            The geometry removed with members
+     * @return this, for easy chaining
+     */
+    public CompleteRelation withMemberGeometryChanges(final Collection<LineString> addedGeometry,
+            final Collection<LineString> removedGeometry)
+    {
+        this.addedGeometry.addAll(addedGeometry);
+        this.removedGeometry.addAll(removedGeometry);
+        return this;
+    }
+
     public CompleteRelation withOsmRelationIdentifier(final Long osmRelationIdentifier)
     {
         this.osmRelationIdentifier = osmRelationIdentifier;
@@ -435,6 +435,27 @@ public class EmptyAtlas implements Atlas
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<Edge> nearestEdges(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Edge> matcher)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<AtlasItem> nearestItems(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<AtlasItem> matcher)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Node> nearestNodes(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Node> matcher)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Node node(final long identifier)
     {
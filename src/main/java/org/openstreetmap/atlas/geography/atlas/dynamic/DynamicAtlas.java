@@ -2,6 +2,7 @@ package org.openstreetmap.atlas.geography.atlas.dynamic;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -18,6 +19,7 @@ import org.openstreetmap.atlas.geography.atlas.AtlasMetaData;
 import org.openstreetmap.atlas.geography.atlas.BareAtlas;
 import org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
@@ -27,6 +29,7 @@ import org.openstreetmap.atlas.geography.atlas.multi.MultiAtlas;
 import org.openstreetmap.atlas.geography.sharding.Shard;
 import org.openstreetmap.atlas.streaming.resource.WritableResource;
 import org.openstreetmap.atlas.utilities.collections.Iterables;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 /**
  * This is not thread safe!
@@ -289,6 +292,36 @@ public class DynamicAtlas extends BareAtlas // NOSONAR
         return this.current.metaData();
     }
 
+    @Override
+    public List<Edge> nearestEdges(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Edge> matcher)
+    {
+        return Iterables.asList(this.expander.expand(
+                () -> this.current.nearestEdges(location, count, maximumDistance,
+                        edge -> matcher.test(newEdge(edge))),
+                this.expander::lineItemCovered, this::newEdge));
+    }
+
+    @Override
+    public List<AtlasItem> nearestItems(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<AtlasItem> matcher)
+    {
+        return Iterables.asList(this.expander.expand(
+                () -> this.current.nearestItems(location, count, maximumDistance,
+                        item -> matcher.test(newItem(item))),
+                this.expander::itemCovered, this::newItem));
+    }
+
+    @Override
+    public List<Node> nearestNodes(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Node> matcher)
+    {
+        return Iterables.asList(this.expander.expand(
+                () -> this.current.nearestNodes(location, count, maximumDistance,
+                        node -> matcher.test(newNode(node))),
+                this.expander::locationItemCovered, this::newNode));
+    }
+
     @Override
     public Node node(final long identifier)
     {
@@ -513,6 +546,25 @@ public class DynamicAtlas extends BareAtlas // NOSONAR
         return new DynamicEdge(this, edge.getIdentifier());
     }
 
+    private AtlasItem newItem(final AtlasItem item)
+    {
+        switch (item.getType())
+        {
+            case NODE:
+                return newNode((Node) item);
+            case EDGE:
+                return newEdge((Edge) item);
+            case AREA:
+                return newArea((Area) item);
+            case LINE:
+                return newLine((Line) item);
+            case POINT:
+                return newPoint((Point) item);
+            default:
+                throw new CoreException("Unknown item type {}", item.getType());
+        }
+    }
+
     private DynamicLine newLine(final Line line)
     {
         return new DynamicLine(this, line.getIdentifier());
@@ -2,10 +2,10 @@ package org.openstreetmap.atlas.geography.atlas.dynamic;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -25,6 +25,7 @@ import org.openstreetmap.atlas.geography.atlas.builder.RelationBean.RelationBean
 import org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
 import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.LineItem;
 import org.openstreetmap.atlas.geography.atlas.items.LocationItem;
@@ -52,7 +53,7 @@ class DynamicAtlasExpander
 
     private Set<Shard> shardsUsedForCurrent;
     private final Map<Shard, Atlas> loadedShards;
-    private final Function<Shard, Optional<Atlas>> atlasFetcher;
+    private final DynamicAtlasShardFetcher shardFetcher;
     private final Sharding sharding;
     private final DynamicAtlasPolicy policy;
     // This is true when the loading of the initial shard has been completed
@@ -63,6 +64,8 @@ class DynamicAtlasExpander
     private boolean preemptiveLoadDone = false;
     // Number of times the udnerlying Multi-Atlas has been built.
     private int timesMultiAtlasWasBuiltUnderneath;
+    // The MultiAtlas currently backing the DynamicAtlas, if any, which new shards are appended to
+    private MultiAtlas multiAtlas;
     private final Set<Long> areaCoveredCache;
     private final Set<Long> edgeCoveredCache;
     private final Set<Long> lineCoveredCache;
@@ -75,7 +78,7 @@ class DynamicAtlasExpander
         this.sharding = policy.getSharding();
         this.loadedShards = new HashMap<>();
         this.shardsUsedForCurrent = new HashSet<>();
-        this.atlasFetcher = policy.getAtlasFetcher();
+        this.shardFetcher = new DynamicAtlasShardFetcher(policy);
         // Still keep the policy
         this.policy = policy;
         this.addNewShards(policy.getInitialShards());
@@ -134,8 +137,27 @@ class DynamicAtlasExpander
             this.policy.getShardSetChecker().accept(nonNullShards());
             if (nonNullAtlasShards.size() == 1)
             {
+                this.multiAtlas = null;
                 this.dynamicAtlas.swapCurrentAtlas(nonNullAtlasShards.get(0));
             }
+            else if (this.multiAtlas != null
+                    && nonNullShards.containsAll(this.shardsUsedForCurrent))
+            {
+                // Only shards were added since the MultiAtlas was built, append them to a copy of
+                // it instead of stitching all the shards again. The current one is left untouched,
+                // as it may still be read, by this expansion among others.
+                final List<Atlas> newAtlasShards = nonNullShards.stream()
+                        .filter(shard -> !this.shardsUsedForCurrent.contains(shard))
+                        .map(this.loadedShards::get).collect(Collectors.toList());
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("{}: Appending {} shard(s) to MultiAtlas",
+                            this.dynamicAtlas.getName(), newAtlasShards.size());
+                }
+                this.multiAtlas = this.multiAtlas.append(newAtlasShards);
+                this.dynamicAtlas.swapCurrentAtlas(this.multiAtlas);
+                this.timesMultiAtlasWasBuiltUnderneath++;
+            }
             else
             {
                 if (logger.isDebugEnabled())
@@ -144,7 +166,8 @@ class DynamicAtlasExpander
                             nonNullShards().stream().map(Shard::getName)
                                     .collect(Collectors.toList()));
                 }
-                this.dynamicAtlas.swapCurrentAtlas(new MultiAtlas(nonNullAtlasShards));
+                this.multiAtlas = new MultiAtlas(nonNullAtlasShards);
+                this.dynamicAtlas.swapCurrentAtlas(this.multiAtlas);
                 this.timesMultiAtlasWasBuiltUnderneath++;
             }
             this.shardsUsedForCurrent = nonNullShards;
@@ -209,6 +232,22 @@ class DynamicAtlasExpander
         return this.timesMultiAtlasWasBuiltUnderneath;
     }
 
+    boolean itemCovered(final AtlasItem item)
+    {
+        if (item instanceof Area)
+        {
+            return areaCovered((Area) item);
+        }
+        else if (item instanceof LineItem)
+        {
+            return lineItemCovered((LineItem) item);
+        }
+        else
+        {
+            return locationItemCovered((LocationItem) item);
+        }
+    }
+
     boolean lineItemCovered(final LineItem item)
     {
         if (!entityNotCached(item))
@@ -352,14 +391,27 @@ class DynamicAtlasExpander
     private void addNewShards(final Iterable<? extends Shard> shards)
     {
         final Set<Shard> initialNonEmptyLoadedShards = nonNullShards();
+        final Set<Shard> newShards = new LinkedHashSet<>();
         for (final Shard shard : shards)
         {
             if (!this.loadedShards.containsKey(shard))
             {
-                this.loadedShards.put(shard, this.atlasFetcher.apply(shard).orElse(null));
-                addNewShardLog(shard);
+                newShards.add(shard);
             }
         }
+        this.shardFetcher.fetch(newShards).forEach((shard, atlas) ->
+        {
+            this.loadedShards.put(shard, atlas.orElse(null));
+            addNewShardLog(shard);
+        });
+        if (this.policy.isPrefetchNeighboringShards())
+        {
+            final Set<Shard> neighboringShards = new LinkedHashSet<>();
+            newShards.forEach(
+                    shard -> this.sharding.neighbors(shard).forEach(neighboringShards::add));
+            neighboringShards.removeAll(this.loadedShards.keySet());
+            this.shardFetcher.prefetch(neighboringShards);
+        }
         final List<Atlas> nonNullAtlasShards = getNonNullAtlasShards();
         if (!nonNullAtlasShards.isEmpty())
         {
@@ -558,14 +610,18 @@ class DynamicAtlasExpander
             final Set<Shard> neighboringShardCandidates)
     {
         final Set<Shard> neighboringShardsContainingRelation = new HashSet<>();
-        neighboringShardCandidates
-                .forEach(shard -> this.policy.getAtlasFetcher().apply(shard).ifPresent(atlas ->
+        this.shardFetcher.fetch(neighboringShardCandidates).forEach((shard, fetched) ->
+        {
+            fetched.ifPresent(atlas ->
+            {
+                if (neighboringAtlasContainingInitialRelation(atlas))
                 {
-                    if (neighboringAtlasContainingInitialRelation(atlas))
-                    {
-                        neighboringShardsContainingRelation.add(shard);
-                    }
-                }));
+                    neighboringShardsContainingRelation.add(shard);
+                    // Do not fetch it again when adding it
+                    this.shardFetcher.retain(shard, fetched);
+                }
+            });
+        });
         return neighboringShardsContainingRelation;
     }
 
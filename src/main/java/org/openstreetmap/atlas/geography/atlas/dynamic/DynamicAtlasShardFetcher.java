@@ -0,0 +1,170 @@
+package org.openstreetmap.atlas.geography.atlas.dynamic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy;
+import org.openstreetmap.atlas.geography.sharding.Shard;
+
+/**
+ * Fetch the {@link Atlas} of {@link Shard}s for a {@link DynamicAtlas}. By default, the shards
+ * are fetched one at a time on the calling thread. When the {@link DynamicAtlasPolicy} asks for
+ * more than one fetching thread, all the shards requested at once are fetched in parallel, and
+ * shards can be prefetched in the background ahead of being requested.
+ * <p>
+ * The pool threads are daemon threads which time out when idle, so a {@link DynamicAtlas} does not
+ * need to be closed. At most {@link #MAXIMUM_PENDING_SHARDS} prefetched shards are kept waiting to
+ * be requested; the oldest ones are dropped beyond that, and fetched again if they are requested
+ * later.
+ *
+ * @author agent
+ */
+class DynamicAtlasShardFetcher
+{
+    static final int MAXIMUM_PENDING_SHARDS = 64;
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+    private final Function<Shard, Optional<Atlas>> atlasFetcher;
+    private final ExecutorService pool;
+    // The shards being prefetched, or already fetched but not requested yet, the oldest first
+    private final Map<Shard, CompletableFuture<Optional<Atlas>>> pending = new LinkedHashMap<>()
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<Shard, CompletableFuture<Optional<Atlas>>> eldest)
+        {
+            return size() > MAXIMUM_PENDING_SHARDS;
+        }
+    };
+
+    private static ExecutorService newPool(final int numberOfThreads)
+    {
+        final String namePrefix = "DynamicAtlasShardFetcher(" + POOL_NUMBER.getAndIncrement()
+                + ")-thread-";
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        final ThreadPoolExecutor result = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable ->
+                {
+                    final Thread thread = new Thread(runnable,
+                            namePrefix + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        result.allowCoreThreadTimeOut(true);
+        return result;
+    }
+
+    DynamicAtlasShardFetcher(final DynamicAtlasPolicy policy)
+    {
+        this.atlasFetcher = policy.getAtlasFetcher();
+        final int numberOfThreads = policy.getShardFetchingThreads();
+        if (numberOfThreads > 1 || policy.isPrefetchNeighboringShards())
+        {
+            this.pool = newPool(Math.max(numberOfThreads, 1));
+        }
+        else
+        {
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Fetch some shards, in parallel if the policy allows it.
+     *
+     * @param shards
+     *            The shards to fetch
+     * @return The {@link Atlas} of each shard, if any, in the order of the shards
+     */
+    Map<Shard, Optional<Atlas>> fetch(final Iterable<? extends Shard> shards)
+    {
+        final Map<Shard, CompletableFuture<Optional<Atlas>>> futures = new LinkedHashMap<>();
+        shards.forEach(shard ->
+        {
+            final CompletableFuture<Optional<Atlas>> prefetched = this.pending.remove(shard);
+            if (prefetched != null)
+            {
+                futures.put(shard, prefetched);
+            }
+            else if (this.pool == null)
+            {
+                futures.put(shard,
+                        CompletableFuture.completedFuture(this.atlasFetcher.apply(shard)));
+            }
+            else
+            {
+                futures.put(shard, submit(shard));
+            }
+        });
+        final Map<Shard, Optional<Atlas>> result = new LinkedHashMap<>();
+        futures.forEach((shard, future) -> result.put(shard, join(shard, future)));
+        return result;
+    }
+
+    /**
+     * Start fetching some shards in the background, so that a later {@link #fetch(Iterable)} of
+     * those shards does not have to wait as long. This does nothing when the policy does not
+     * allow background fetching.
+     *
+     * @param shards
+     *            The shards to prefetch
+     */
+    void prefetch(final Iterable<? extends Shard> shards)
+    {
+        if (this.pool == null)
+        {
+            return;
+        }
+        shards.forEach(shard -> this.pending.computeIfAbsent(shard, this::submit));
+    }
+
+    /**
+     * Keep an {@link Atlas} which was already fetched for a later {@link #fetch(Iterable)}
+     *
+     * @param shard
+     *            The shard
+     * @param atlas
+     *            The {@link Atlas} fetched for that shard
+     */
+    void retain(final Shard shard, final Optional<Atlas> atlas)
+    {
+        this.pending.put(shard, CompletableFuture.completedFuture(atlas));
+    }
+
+    private Optional<Atlas> join(final Shard shard,
+            final CompletableFuture<Optional<Atlas>> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (final CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CoreException("Unable to fetch shard {}", e.getCause(), shard.getName());
+        }
+    }
+
+    private CompletableFuture<Optional<Atlas>> submit(final Shard shard)
+    {
+        return CompletableFuture.supplyAsync(() -> this.atlasFetcher.apply(shard), this.pool);
+    }
+}
@@ -37,6 +37,8 @@ public class DynamicAtlasPolicy
     };
     private Predicate<AtlasEntity> atlasEntitiesToConsiderForExpansion = entity -> true;
     private boolean aggressivelyExploreRelations = false;
+    private int shardFetchingThreads = 1;
+    private boolean prefetchNeighboringShards = false;
     // In case the initial shards were found using a Polygon or a MultiPolygon, remember it to
     // provide the initial shards shape. This will be useful to not over-extend when using
     // extendIndefinitely=false
@@ -133,6 +135,11 @@ public class DynamicAtlasPolicy
         return this.maximumBounds;
     }
 
+    public int getShardFetchingThreads()
+    {
+        return this.shardFetchingThreads;
+    }
+
     public Consumer<Set<Shard>> getShardSetChecker()
     {
         return this.shardSetChecker;
@@ -158,6 +165,11 @@ public class DynamicAtlasPolicy
         return this.extendIndefinitely;
     }
 
+    public boolean isPrefetchNeighboringShards()
+    {
+        return this.prefetchNeighboringShards;
+    }
+
     /**
      * This switch tells the {@link DynamicAtlas} to preemptively and temporarily load the
      * neighboring shards to see if they contain the relation in the current shard and if the member
@@ -217,6 +229,37 @@ public class DynamicAtlasPolicy
         return this;
     }
 
+    /**
+     * Prefetch the neighbors of the newly loaded shards in the background, betting that the
+     * features crossing the boundary of the loaded shards will need them next. The prefetched
+     * shards that turn out to be needed are then loaded without waiting as long for the fetcher.
+     *
+     * @param prefetchNeighboringShards
+     *            True to prefetch the neighboring shards
+     * @return The modified policy
+     */
+    public DynamicAtlasPolicy withNeighboringShardsPrefetching(
+            final boolean prefetchNeighboringShards)
+    {
+        this.prefetchNeighboringShards = prefetchNeighboringShards;
+        return this;
+    }
+
+    /**
+     * @param shardFetchingThreads
+     *            The number of threads fetching shards. With more than one thread, all the shards
+     *            needed at once by an expansion are fetched in parallel. The default is one, which
+     *            fetches shards one after the other on the calling thread. The atlas fetcher has to
+     *            be thread safe when this is more than one, or when prefetching neighboring
+     *            shards.
+     * @return The modified policy
+     */
+    public DynamicAtlasPolicy withShardFetchingThreads(final int shardFetchingThreads)
+    {
+        this.shardFetchingThreads = shardFetchingThreads;
+        return this;
+    }
+
     /**
      * @param shardSetChecker
      *            A function that will inspect the shards prior to loading them in a MultiAtlas. The
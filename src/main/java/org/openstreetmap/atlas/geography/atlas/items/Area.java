@@ -12,6 +12,7 @@ import org.openstreetmap.atlas.geography.atlas.Atlas;
 import org.openstreetmap.atlas.geography.geojson.GeoJsonBuilder;
 import org.openstreetmap.atlas.geography.geojson.GeoJsonBuilder.LocationIterableProperties;
 import org.openstreetmap.atlas.utilities.collections.StringList;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 import com.google.gson.JsonObject;
 
@@ -46,6 +47,17 @@ public abstract class Area extends AtlasItem
         return asPolygon().bounds();
     }
 
+    @Override
+    public Distance distanceTo(final Location location)
+    {
+        final Polygon polygon = asPolygon();
+        if (polygon.fullyGeometricallyEncloses(location))
+        {
+            return Distance.ZERO;
+        }
+        return location.snapTo(polygon).getDistance();
+    }
+
     /**
      * @return The closed {@link Polygon}, with the end {@link Location} equal to the start
      *         {@link Location}.
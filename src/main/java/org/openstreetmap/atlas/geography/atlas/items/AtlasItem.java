@@ -6,6 +6,7 @@ import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.PolyLine;
 import org.openstreetmap.atlas.geography.Polygon;
 import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 /**
  * A flyweight item in an Atlas.
@@ -21,6 +22,13 @@ public abstract class AtlasItem extends AtlasEntity implements Iterable<Location
         super(atlas);
     }
 
+    /**
+     * @param location
+     *            A {@link Location}
+     * @return The distance from the {@link Location} to the closest point of this item
+     */
+    public abstract Distance distanceTo(Location location);
+
     /**
      * @return The raw geometry, as {@link Location}, {@link PolyLine} or {@link Polygon}.
      */
@@ -51,6 +51,12 @@ public abstract class LineItem extends AtlasItem
         return asPolyLine().bounds();
     }
 
+    @Override
+    public Distance distanceTo(final Location location)
+    {
+        return location.snapTo(asPolyLine()).getDistance();
+    }
+
     @Override
     public Iterable<Location> getRawGeometry()
     {
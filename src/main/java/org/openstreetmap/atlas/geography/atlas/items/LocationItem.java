@@ -10,6 +10,7 @@ import org.openstreetmap.atlas.geography.atlas.Atlas;
 import org.openstreetmap.atlas.geography.geojson.GeoJsonBuilder;
 import org.openstreetmap.atlas.geography.geojson.GeoJsonBuilder.LocationIterableProperties;
 import org.openstreetmap.atlas.utilities.collections.StringList;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 import com.google.gson.JsonObject;
 
@@ -39,6 +40,12 @@ public abstract class LocationItem extends AtlasItem
         return getLocation().bounds();
     }
 
+    @Override
+    public Distance distanceTo(final Location location)
+    {
+        return getLocation().distanceTo(location);
+    }
+
     /**
      * @return The item's {@link Location}
      */
@@ -3,14 +3,21 @@ package org.openstreetmap.atlas.geography.atlas.multi;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.Polygon;
 import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.AbstractAtlas;
@@ -19,7 +26,9 @@ import org.openstreetmap.atlas.geography.atlas.AtlasMetaData;
 import org.openstreetmap.atlas.geography.atlas.builder.AtlasSize;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
 import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.ItemType;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
 import org.openstreetmap.atlas.geography.atlas.items.Point;
@@ -28,6 +37,7 @@ import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasCloner;
 import org.openstreetmap.atlas.geography.atlas.sub.AtlasCutType;
 import org.openstreetmap.atlas.geography.index.RTree;
+import org.openstreetmap.atlas.geography.index.SpatialIndex;
 import org.openstreetmap.atlas.streaming.resource.Resource;
 import org.openstreetmap.atlas.streaming.resource.WritableResource;
 import org.openstreetmap.atlas.utilities.collections.Iterables;
@@ -36,7 +46,9 @@ import org.openstreetmap.atlas.utilities.collections.StringList;
 import org.openstreetmap.atlas.utilities.maps.LongToIntegerMultiMap;
 import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
 import org.openstreetmap.atlas.utilities.maps.LongToLongMultiMap;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 import org.openstreetmap.atlas.utilities.scalars.Ratio;
+import org.openstreetmap.atlas.utilities.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,46 +68,56 @@ public class MultiAtlas extends AbstractAtlas
 
     private final List<Atlas> atlases;
 
-    private final AtlasMetaData metaData;
+    private AtlasMetaData metaData;
 
-    private final long numberOfEdges;
-    private final long numberOfNodes;
-    private final long numberOfAreas;
-    private final long numberOfLines;
-    private final long numberOfPoints;
-    private final long numberOfRelations;
-    private final RTree<Integer> atlasSpatialIndex;
+    private long numberOfEdges;
+    private long numberOfNodes;
+    private long numberOfAreas;
+    private long numberOfLines;
+    private long numberOfPoints;
+    private long numberOfRelations;
+    private RTree<Integer> atlasSpatialIndex;
 
     // The identifiers of the Nodes, and the Atlases we can find them into. Only shared nodes, used
     // for connectivity will be referenced in more than one Atlas (for real time stitching of the
     // navigable network).
-    private final LongToIntegerMultiMap nodeIdentifierToAtlasIndices;
-    private final LongToIntegerMultiMap edgeIdentifierToAtlasIndices;
-    private final LongToIntegerMultiMap areaIdentifierToAtlasIndices;
-    private final LongToIntegerMultiMap lineIdentifierToAtlasIndices;
-    private final LongToIntegerMultiMap pointIdentifierToAtlasIndices;
-    private final LongToIntegerMultiMap relationIdentifierToAtlasIndices;
+    private LongToIntegerMultiMap nodeIdentifierToAtlasIndices;
+    private LongToIntegerMultiMap edgeIdentifierToAtlasIndices;
+    private LongToIntegerMultiMap areaIdentifierToAtlasIndices;
+    private LongToIntegerMultiMap lineIdentifierToAtlasIndices;
+    private LongToIntegerMultiMap pointIdentifierToAtlasIndices;
+    private LongToIntegerMultiMap relationIdentifierToAtlasIndices;
 
     // Re-build relations with the same OSM identifier
-    private final LongToLongMultiMap relationOsmIdentifierToRelationIdentifiers;
-    private final LongToLongMap relationIdentifierToRelationOsmIdentifier;
+    private LongToLongMultiMap relationOsmIdentifierToRelationIdentifiers;
+    private LongToLongMap relationIdentifierToRelationOsmIdentifier;
 
     private final int subArraySize;
     private final long maximumSize;
 
-    private final int nodeMemoryBlockSize;
-    private final int edgeMemoryBlockSize;
-    private final int areaMemoryBlockSize;
-    private final int lineMemoryBlockSize;
-    private final int pointMemoryBlockSize;
-    private final int relationMemoryBlockSize;
-
-    private final int nodeHashSize;
-    private final int edgeHashSize;
-    private final int areaHashSize;
-    private final int lineHashSize;
-    private final int pointHashSize;
-    private final int relationHashSize;
+    private int nodeMemoryBlockSize;
+    private int edgeMemoryBlockSize;
+    private int areaMemoryBlockSize;
+    private int lineMemoryBlockSize;
+    private int pointMemoryBlockSize;
+    private int relationMemoryBlockSize;
+
+    private int nodeHashSize;
+    private int edgeHashSize;
+    private int areaHashSize;
+    private int lineHashSize;
+    private int pointHashSize;
+    private int relationHashSize;
+
+    // Spatial indices which grow with appended sub-atlases. Like the other spatial indices they are
+    // not serialized, and are re-built on first use after de-serialization.
+    private transient volatile MultiAtlasSpatialIndex<Node> nodeSpatialIndex;
+    private transient volatile MultiAtlasSpatialIndex<Edge> edgeSpatialIndex;
+    private transient volatile MultiAtlasSpatialIndex<Area> areaSpatialIndex;
+    private transient volatile MultiAtlasSpatialIndex<Line> lineSpatialIndex;
+    private transient volatile MultiAtlasSpatialIndex<Point> pointSpatialIndex;
+    private transient volatile MultiAtlasSpatialIndex<Relation> relationSpatialIndex;
+    private transient volatile boolean spatialIndicesBuilt;
 
     // Custom fixers for crossing edges and overlapping nodes
     private final MultiAtlasOverlappingNodesFixer nodesFixer;
@@ -335,7 +357,7 @@ public class MultiAtlas extends AbstractAtlas
         {
             throw new CoreException("An Atlas is Located, and therefore cannot be empty.");
         }
-        this.atlases = atlases;
+        this.atlases = new ArrayList<>(atlases);
         this.atlasSpatialIndex = newPackedAtlasSpatialIndex();
         long numberOfNodes;
         long numberOfEdges;
@@ -383,65 +405,8 @@ public class MultiAtlas extends AbstractAtlas
 
         this.subArraySize = Integer.MAX_VALUE;
         this.maximumSize = Long.MAX_VALUE;
-
-        this.nodeMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
-                numberOfNodes % Integer.MAX_VALUE);
-        this.edgeMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
-                numberOfEdges % Integer.MAX_VALUE);
-        this.areaMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
-                numberOfAreas % Integer.MAX_VALUE);
-        this.lineMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
-                numberOfLines % Integer.MAX_VALUE);
-        this.pointMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
-                numberOfPoints % Integer.MAX_VALUE);
-        this.relationMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
-                numberOfRelations % Integer.MAX_VALUE);
-
-        this.nodeHashSize = (int) Math
-                .max(Math.min(numberOfNodes / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
-        this.edgeHashSize = (int) Math
-                .max(Math.min(numberOfEdges / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
-        this.areaHashSize = (int) Math
-                .max(Math.min(numberOfAreas / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
-        this.lineHashSize = (int) Math
-                .max(Math.min(numberOfLines / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
-        this.pointHashSize = (int) Math
-                .max(Math.min(numberOfPoints / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
-        this.relationHashSize = (int) Math
-                .max(Math.min(numberOfRelations / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
-
-        this.nodeIdentifierToAtlasIndices = new LongToIntegerMultiMap(
-                "MultiAtlas - nodeIdentifierToAtlasIndices", this.maximumSize, this.nodeHashSize,
-                this.nodeMemoryBlockSize, this.subArraySize, this.nodeMemoryBlockSize,
-                this.subArraySize);
-        this.edgeIdentifierToAtlasIndices = new LongToIntegerMultiMap(
-                "MultiAtlas - edgeIdentifierToAtlasIndex", this.maximumSize, this.edgeHashSize,
-                this.edgeMemoryBlockSize, this.subArraySize, this.edgeMemoryBlockSize,
-                this.subArraySize);
-        this.areaIdentifierToAtlasIndices = new LongToIntegerMultiMap(
-                "MultiAtlas - areaIdentifierToAtlasIndex", this.maximumSize, this.areaHashSize,
-                this.areaMemoryBlockSize, this.subArraySize, this.areaMemoryBlockSize,
-                this.subArraySize);
-        this.lineIdentifierToAtlasIndices = new LongToIntegerMultiMap(
-                "MultiAtlas - lineIdentifierToAtlasIndex", this.maximumSize, this.lineHashSize,
-                this.lineMemoryBlockSize, this.subArraySize, this.lineMemoryBlockSize,
-                this.subArraySize);
-        this.pointIdentifierToAtlasIndices = new LongToIntegerMultiMap(
-                "MultiAtlas - pointIdentifierToAtlasIndex", this.maximumSize, this.pointHashSize,
-                this.pointMemoryBlockSize, this.subArraySize, this.pointMemoryBlockSize,
-                this.subArraySize);
-        this.relationIdentifierToAtlasIndices = new LongToIntegerMultiMap(
-                "MultiAtlas - relationIdentifierToAtlasIndices", this.maximumSize,
-                this.relationHashSize, this.relationMemoryBlockSize, this.subArraySize,
-                this.relationMemoryBlockSize, this.subArraySize);
-        this.relationOsmIdentifierToRelationIdentifiers = new LongToLongMultiMap(
-                "MultiAtlas - relationOsmIdentifierToRelationIdentifier", this.maximumSize,
-                this.relationHashSize, this.relationMemoryBlockSize, this.subArraySize,
-                this.relationMemoryBlockSize, this.subArraySize);
-        this.relationIdentifierToRelationOsmIdentifier = new LongToLongMap(
-                "MultiAtlas - relationIdentifierToRelationOsmIdentifier", this.maximumSize,
-                this.relationHashSize, this.relationMemoryBlockSize, this.subArraySize,
-                this.relationMemoryBlockSize, this.subArraySize);
+        newIdentifierMaps(numberOfNodes, numberOfEdges, numberOfAreas, numberOfLines,
+                numberOfPoints, numberOfRelations);
 
         // Populate the pointers
         int atlasIndex = 0;
@@ -452,34 +417,12 @@ public class MultiAtlas extends AbstractAtlas
         }
 
         // Build the spatial indices
-        this.getAsNewNodeSpatialIndex();
-        this.getAsNewEdgeSpatialIndex();
-        this.getAsNewAreaSpatialIndex();
-        this.getAsNewLineSpatialIndex();
-        this.getAsNewPointSpatialIndex();
-        this.getAsNewRelationSpatialIndex();
-        this.nodeIdentifierToAtlasIndices
-                .forEach(identifier -> this.getNodeSpatialIndex().add(node(identifier)));
-        this.edgeIdentifierToAtlasIndices
-                .forEach(identifier -> this.getEdgeSpatialIndex().add(edge(identifier)));
-        this.areaIdentifierToAtlasIndices
-                .forEach(identifier -> this.getAreaSpatialIndex().add(area(identifier)));
-        this.lineIdentifierToAtlasIndices
-                .forEach(identifier -> this.getLineSpatialIndex().add(line(identifier)));
-        this.pointIdentifierToAtlasIndices
-                .forEach(identifier -> this.getPointSpatialIndex().add(point(identifier)));
-        this.relationIdentifierToAtlasIndices.forEach(identifier ->
-        {
-            final Relation relation = relation(identifier);
-            if (!relation.members().isEmpty() && relation.bounds() != null)
-            {
-                // The relation is not empty, hence it is located
-                this.getRelationSpatialIndex().add(relation);
-            }
-            final long osmIdentifier = relation.osmRelationIdentifier();
-            this.relationOsmIdentifierToRelationIdentifiers.add(osmIdentifier, identifier);
-            this.relationIdentifierToRelationOsmIdentifier.put(identifier, osmIdentifier);
-        });
+        newSpatialIndices();
+        indexEntities(this.nodeIdentifierToAtlasIndices, this.edgeIdentifierToAtlasIndices,
+                this.areaIdentifierToAtlasIndices, this.lineIdentifierToAtlasIndices,
+                this.pointIdentifierToAtlasIndices, this.relationIdentifierToAtlasIndices,
+                new ArrayList<>());
+        populateRelationOsmIdentifiers(this.relationIdentifierToAtlasIndices);
 
         // Find the overlapping nodes. Main to alternate has a one to many relationship. A main
         // cannot be an alternate and vice versa
@@ -488,12 +431,7 @@ public class MultiAtlas extends AbstractAtlas
         this.nodesFixer.aggregateSameLocationNodes();
 
         // At this point de-duplication has been done already.
-        this.numberOfEdges = this.edgeIdentifierToAtlasIndices.size();
-        this.numberOfNodes = this.nodeIdentifierToAtlasIndices.size();
-        this.numberOfAreas = this.areaIdentifierToAtlasIndices.size();
-        this.numberOfLines = this.lineIdentifierToAtlasIndices.size();
-        this.numberOfPoints = this.pointIdentifierToAtlasIndices.size();
-        this.numberOfRelations = this.relationIdentifierToAtlasIndices.size();
+        updateNumberOfEntities();
 
         if (!lotsOfOverlap)
         {
@@ -514,6 +452,107 @@ public class MultiAtlas extends AbstractAtlas
         this.metaData = mergeMetaData();
     }
 
+    /**
+     * Build a {@link MultiAtlas} from a base one and new sub-{@link Atlas}es, leaving the base
+     * unchanged. The identifier maps are filled again for all the sub-{@link Atlas}es, the rest is
+     * copied from the base and only extended with the new entities.
+     *
+     * @param base
+     *            The {@link MultiAtlas} to append to
+     * @param newAtlases
+     *            The {@link Atlas}es to append
+     */
+    private MultiAtlas(final MultiAtlas base, final List<Atlas> newAtlases)
+    {
+        final Time appendTime = Time.now();
+        // Find the entities which are new to the base, and the relations which gain members
+        final Set<Long> newNodes = base.newIdentifiers(newAtlases, Atlas::nodes,
+                base.nodeIdentifierToAtlasIndices);
+        final Set<Long> newEdges = base.newIdentifiers(newAtlases, Atlas::edges,
+                base.edgeIdentifierToAtlasIndices);
+        final Set<Long> newAreas = base.newIdentifiers(newAtlases, Atlas::areas,
+                base.areaIdentifierToAtlasIndices);
+        final Set<Long> newLines = base.newIdentifiers(newAtlases, Atlas::lines,
+                base.lineIdentifierToAtlasIndices);
+        final Set<Long> newPoints = base.newIdentifiers(newAtlases, Atlas::points,
+                base.pointIdentifierToAtlasIndices);
+        final Set<Long> newRelations = base.newIdentifiers(newAtlases, Atlas::relations,
+                base.relationIdentifierToAtlasIndices);
+        final Set<Long> changedRelations = new LinkedHashSet<>();
+        newAtlases.forEach(atlas -> atlas.relations()
+                .forEach(relation -> changedRelations.add(relation.getIdentifier())));
+        changedRelations.removeAll(newRelations);
+
+        this.atlases = new ArrayList<>(base.atlases);
+        this.atlases.addAll(newAtlases);
+        this.atlasSpatialIndex = newPackedAtlasSpatialIndex();
+        for (int index = 0; index < this.atlases.size(); index++)
+        {
+            this.atlasSpatialIndex.add(this.atlases.get(index).bounds(), index);
+        }
+
+        this.subArraySize = base.subArraySize;
+        this.maximumSize = base.maximumSize;
+        newIdentifierMaps(
+                Math.round((base.numberOfNodes + newNodes.size()) * ARRAY_SIZE_MULTIPLIER),
+                Math.round((base.numberOfEdges + newEdges.size()) * ARRAY_SIZE_MULTIPLIER),
+                Math.round((base.numberOfAreas + newAreas.size()) * ARRAY_SIZE_MULTIPLIER),
+                Math.round((base.numberOfLines + newLines.size()) * ARRAY_SIZE_MULTIPLIER),
+                Math.round((base.numberOfPoints + newPoints.size()) * ARRAY_SIZE_MULTIPLIER),
+                Math.round(
+                        (base.numberOfRelations + newRelations.size()) * ARRAY_SIZE_MULTIPLIER));
+        for (int atlasIndex = 0; atlasIndex < this.atlases.size(); atlasIndex++)
+        {
+            populateReferences(this.atlases.get(atlasIndex), atlasIndex);
+        }
+        base.relationIdentifierToRelationOsmIdentifier.forEach(identifier ->
+        {
+            final long osmIdentifier = base.relationIdentifierToRelationOsmIdentifier
+                    .get(identifier);
+            this.relationOsmIdentifierToRelationIdentifiers.add(osmIdentifier, identifier);
+            this.relationIdentifierToRelationOsmIdentifier.put(identifier, osmIdentifier);
+        });
+        populateRelationOsmIdentifiers(newRelations);
+
+        this.nodesFixer = new MultiAtlasOverlappingNodesFixer(this, base.nodesFixer);
+        base.buildSpatialIndicesIfNecessary();
+        this.nodeSpatialIndex = new MultiAtlasSpatialIndex<>(this, base.nodeSpatialIndex);
+        this.edgeSpatialIndex = new MultiAtlasSpatialIndex<>(this, base.edgeSpatialIndex);
+        this.areaSpatialIndex = new MultiAtlasSpatialIndex<>(this, base.areaSpatialIndex);
+        this.lineSpatialIndex = new MultiAtlasSpatialIndex<>(this, base.lineSpatialIndex);
+        this.pointSpatialIndex = new MultiAtlasSpatialIndex<>(this, base.pointSpatialIndex);
+        this.relationSpatialIndex = new MultiAtlasSpatialIndex<>(this,
+                base.relationSpatialIndex);
+        indexEntities(newNodes, newEdges, newAreas, newLines, newPoints, newRelations,
+                changedRelations);
+
+        this.nodesFixer.aggregateSameLocationNodes(newNodes);
+        updateNumberOfEntities();
+        this.metaData = mergeMetaData();
+        logger.trace("Appended {} atlases to MultiAtlas of {} atlases in {}", newAtlases.size(),
+                base.atlases.size(), appendTime.elapsedSince());
+    }
+
+    /**
+     * Create a {@link MultiAtlas} of the sub-{@link Atlas}es of this one and of new ones, without
+     * changing this one, so that other threads can keep reading it. The spatial indices and the
+     * overlapping nodes are copied, and only the entities of the appended {@link Atlas}es are
+     * added to them, so growing a {@link MultiAtlas} one shard at a time does not re-build it from
+     * scratch every time.
+     *
+     * @param newAtlases
+     *            The {@link Atlas}es to append
+     * @return The new {@link MultiAtlas}, or this one if there is nothing to append
+     */
+    public MultiAtlas append(final List<Atlas> newAtlases)
+    {
+        if (newAtlases.isEmpty())
+        {
+            return this;
+        }
+        return new MultiAtlas(this, newAtlases);
+    }
+
     @Override
     public Area area(final long identifier)
     {
@@ -530,6 +569,13 @@ public class MultiAtlas extends AbstractAtlas
         return Iterables.translate(this.areaIdentifierToAtlasIndices, this::area);
     }
 
+    @Override
+    public Stream<Area> areasStream(final boolean parallel)
+    {
+        return entitiesStream(atlas -> atlas.areasStream(parallel),
+                this.areaIdentifierToAtlasIndices, this::area);
+    }
+
     /**
      * Get all the Atlas intersecting some bounds
      *
@@ -569,6 +615,55 @@ public class MultiAtlas extends AbstractAtlas
         return Iterables.translate(this.edgeIdentifierToAtlasIndices, this::edge);
     }
 
+    @Override
+    public Stream<Edge> edgesStream(final boolean parallel)
+    {
+        return entitiesStream(atlas -> atlas.edgesStream(parallel),
+                this.edgeIdentifierToAtlasIndices, this::edge);
+    }
+
+    @Override
+    public SpatialIndex<Area> getAreaSpatialIndex()
+    {
+        buildSpatialIndicesIfNecessary();
+        return this.areaSpatialIndex;
+    }
+
+    @Override
+    public SpatialIndex<Edge> getEdgeSpatialIndex()
+    {
+        buildSpatialIndicesIfNecessary();
+        return this.edgeSpatialIndex;
+    }
+
+    @Override
+    public SpatialIndex<Line> getLineSpatialIndex()
+    {
+        buildSpatialIndicesIfNecessary();
+        return this.lineSpatialIndex;
+    }
+
+    @Override
+    public SpatialIndex<Node> getNodeSpatialIndex()
+    {
+        buildSpatialIndicesIfNecessary();
+        return this.nodeSpatialIndex;
+    }
+
+    @Override
+    public SpatialIndex<Point> getPointSpatialIndex()
+    {
+        buildSpatialIndicesIfNecessary();
+        return this.pointSpatialIndex;
+    }
+
+    @Override
+    public SpatialIndex<Relation> getRelationSpatialIndex()
+    {
+        buildSpatialIndicesIfNecessary();
+        return this.relationSpatialIndex;
+    }
+
     @Override
     public Line line(final long identifier)
     {
@@ -585,12 +680,51 @@ public class MultiAtlas extends AbstractAtlas
         return Iterables.translate(this.lineIdentifierToAtlasIndices, this::line);
     }
 
+    @Override
+    public Stream<Line> linesStream(final boolean parallel)
+    {
+        return entitiesStream(atlas -> atlas.linesStream(parallel),
+                this.lineIdentifierToAtlasIndices, this::line);
+    }
+
     @Override
     public AtlasMetaData metaData()
     {
         return this.metaData;
     }
 
+    @Override
+    public List<Edge> nearestEdges(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Edge> matcher)
+    {
+        return nearestInSubAtlases(location, count, maximumDistance,
+                (atlas, subAtlasMatcher) -> atlas.nearestEdges(location, count, maximumDistance,
+                        subAtlasMatcher),
+                edge -> this.edge(edge.getIdentifier()), matcher);
+    }
+
+    @Override
+    public List<AtlasItem> nearestItems(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<AtlasItem> matcher)
+    {
+        return nearestInSubAtlases(location, count, maximumDistance,
+                (atlas, subAtlasMatcher) -> atlas.nearestItems(location, count, maximumDistance,
+                        subAtlasMatcher),
+                item -> (AtlasItem) item.getType().entityForIdentifier(this,
+                        item.getIdentifier()),
+                matcher);
+    }
+
+    @Override
+    public List<Node> nearestNodes(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Node> matcher)
+    {
+        return nearestInSubAtlases(location, count, maximumDistance,
+                (atlas, subAtlasMatcher) -> atlas.nearestNodes(location, count, maximumDistance,
+                        subAtlasMatcher),
+                node -> this.node(node.getIdentifier()), matcher);
+    }
+
     @Override
     public Node node(final long identifier)
     {
@@ -608,6 +742,13 @@ public class MultiAtlas extends AbstractAtlas
         return Iterables.translate(this.nodeIdentifierToAtlasIndices, this::node);
     }
 
+    @Override
+    public Stream<Node> nodesStream(final boolean parallel)
+    {
+        return entitiesStream(atlas -> atlas.nodesStream(parallel),
+                this.nodeIdentifierToAtlasIndices, this::node);
+    }
+
     @Override
     public long numberOfAreas()
     {
@@ -665,6 +806,13 @@ public class MultiAtlas extends AbstractAtlas
         return Iterables.translate(this.pointIdentifierToAtlasIndices, this::point);
     }
 
+    @Override
+    public Stream<Point> pointsStream(final boolean parallel)
+    {
+        return entitiesStream(atlas -> atlas.pointsStream(parallel),
+                this.pointIdentifierToAtlasIndices, this::point);
+    }
+
     @Override
     public Relation relation(final long identifier)
     {
@@ -681,6 +829,13 @@ public class MultiAtlas extends AbstractAtlas
         return Iterables.translate(this.relationIdentifierToAtlasIndices, this::relation);
     }
 
+    @Override
+    public Stream<Relation> relationsStream(final boolean parallel)
+    {
+        return entitiesStream(atlas -> atlas.relationsStream(parallel),
+                this.relationIdentifierToAtlasIndices, this::relation);
+    }
+
     @Override
     public void save(final WritableResource writableResource)
     {
@@ -944,6 +1099,105 @@ public class MultiAtlas extends AbstractAtlas
         return new SubRelationList(subRelations);
     }
 
+    /**
+     * The spatial indices are not serialized. When de-serialized, they will be null, until this
+     * method is called.
+     */
+    private void buildSpatialIndicesIfNecessary()
+    {
+        if (!this.spatialIndicesBuilt)
+        {
+            synchronized (this)
+            {
+                if (!this.spatialIndicesBuilt)
+                {
+                    newSpatialIndices();
+                    indexEntities(this.nodeIdentifierToAtlasIndices,
+                            this.edgeIdentifierToAtlasIndices, this.areaIdentifierToAtlasIndices,
+                            this.lineIdentifierToAtlasIndices, this.pointIdentifierToAtlasIndices,
+                            this.relationIdentifierToAtlasIndices, new ArrayList<>());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream the entities of one type from all the sub atlases. Each entity is streamed only from
+     * the first sub atlas that contains it, so that the sub atlas streams can split independently,
+     * without any de-duplication state.
+     *
+     * @param subAtlasEntities
+     *            The function that streams the entities of a sub atlas
+     * @param identifierToAtlasIndices
+     *            The sub atlas indices of each identifier of that type
+     * @param entityForIdentifier
+     *            The function that creates the multi entity from its identifier
+     * @return All the entities of that type in this {@link MultiAtlas}
+     */
+    private <M extends AtlasEntity> Stream<M> entitiesStream(
+            final Function<Atlas, Stream<M>> subAtlasEntities,
+            final LongToIntegerMultiMap identifierToAtlasIndices,
+            final LongFunction<M> entityForIdentifier)
+    {
+        return subAtlasesStream(0, this.atlases.size(),
+                atlasIndex -> subAtlasEntities.apply(this.atlases.get(atlasIndex))
+                        .filter(entity -> identifierToAtlasIndices
+                                .get(entity.getIdentifier())[0] == atlasIndex)
+                        .map(entity -> entityForIdentifier.apply(entity.getIdentifier())));
+    }
+
+    /**
+     * Add entities to the spatial indices
+     *
+     * @param nodes
+     *            The identifiers of the nodes to index
+     * @param edges
+     *            The identifiers of the edges to index
+     * @param areas
+     *            The identifiers of the areas to index
+     * @param lines
+     *            The identifiers of the lines to index
+     * @param points
+     *            The identifiers of the points to index
+     * @param relations
+     *            The identifiers of the relations to index
+     * @param changedRelations
+     *            The identifiers of the already indexed relations which gained members
+     */
+    private void indexEntities(final Iterable<Long> nodes, final Iterable<Long> edges,
+            final Iterable<Long> areas, final Iterable<Long> lines, final Iterable<Long> points,
+            final Iterable<Long> relations, final Iterable<Long> changedRelations)
+    {
+        this.nodeSpatialIndex.append(Iterables.asList(Iterables.translate(nodes, this::node)),
+                new ArrayList<>());
+        this.edgeSpatialIndex.append(Iterables.asList(Iterables.translate(edges, this::edge)),
+                new ArrayList<>());
+        this.areaSpatialIndex.append(Iterables.asList(Iterables.translate(areas, this::area)),
+                new ArrayList<>());
+        this.lineSpatialIndex.append(Iterables.asList(Iterables.translate(lines, this::line)),
+                new ArrayList<>());
+        this.pointSpatialIndex.append(
+                Iterables.asList(Iterables.translate(points, this::point)), new ArrayList<>());
+        this.relationSpatialIndex.append(locatedRelations(relations),
+                locatedRelations(changedRelations));
+        this.spatialIndicesBuilt = true;
+    }
+
+    private List<Relation> locatedRelations(final Iterable<Long> identifiers)
+    {
+        final List<Relation> result = new ArrayList<>();
+        for (final Long identifier : identifiers)
+        {
+            final Relation relation = relation(identifier);
+            if (!relation.members().isEmpty() && relation.bounds() != null)
+            {
+                // The relation is not empty, hence it is located
+                result.add(relation);
+            }
+        }
+        return result;
+    }
+
     private AtlasMetaData mergeMetaData()
     {
         final AtlasSize size = new AtlasSize(this.numberOfEdges, this.numberOfNodes,
@@ -1017,8 +1271,172 @@ public class MultiAtlas extends AbstractAtlas
                 countries.isEmpty() ? null : countries.join(","), shardName, tags);
     }
 
+    /**
+     * Search the nearest items in each sub {@link Atlas} close enough to the {@link Location}, and
+     * keep the nearest of all. The matcher is applied to the items of this {@link MultiAtlas}, so
+     * each sub {@link Atlas} returns its nearest items that match.
+     */
+    private <T extends AtlasItem> List<T> nearestInSubAtlases(final Location location,
+            final int count, final Distance maximumDistance,
+            final BiFunction<Atlas, Predicate<T>, List<T>> subAtlasNearest,
+            final Function<T, T> multiItem, final Predicate<T> matcher)
+    {
+        final Predicate<T> subAtlasMatcher = item ->
+        {
+            final T multi = multiItem.apply(item);
+            return multi != null && matcher.test(multi);
+        };
+        final List<T> candidates = new ArrayList<>();
+        for (final Atlas atlas : atlasIntersecting(location.boxAround(maximumDistance)))
+        {
+            subAtlasNearest.apply(atlas, subAtlasMatcher).stream().map(multiItem)
+                    .forEach(candidates::add);
+        }
+        return nearest(candidates, location, count, maximumDistance);
+    }
+
+    /**
+     * Allocate empty identifier maps sized for the given number of items
+     */
+    private void newIdentifierMaps(final long numberOfNodes, final long numberOfEdges,
+            final long numberOfAreas, final long numberOfLines, final long numberOfPoints,
+            final long numberOfRelations)
+    {
+        this.nodeMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
+                numberOfNodes % Integer.MAX_VALUE);
+        this.edgeMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
+                numberOfEdges % Integer.MAX_VALUE);
+        this.areaMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
+                numberOfAreas % Integer.MAX_VALUE);
+        this.lineMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
+                numberOfLines % Integer.MAX_VALUE);
+        this.pointMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
+                numberOfPoints % Integer.MAX_VALUE);
+        this.relationMemoryBlockSize = (int) Math.max(DEFAULT_NUMBER_OF_ITEMS,
+                numberOfRelations % Integer.MAX_VALUE);
+
+        this.nodeHashSize = (int) Math
+                .max(Math.min(numberOfNodes / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
+        this.edgeHashSize = (int) Math
+                .max(Math.min(numberOfEdges / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
+        this.areaHashSize = (int) Math
+                .max(Math.min(numberOfAreas / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
+        this.lineHashSize = (int) Math
+                .max(Math.min(numberOfLines / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
+        this.pointHashSize = (int) Math
+                .max(Math.min(numberOfPoints / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
+        this.relationHashSize = (int) Math
+                .max(Math.min(numberOfRelations / HASH_MODULO_RATIO, Integer.MAX_VALUE), 1);
+
+        this.nodeIdentifierToAtlasIndices = new LongToIntegerMultiMap(
+                "MultiAtlas - nodeIdentifierToAtlasIndices", this.maximumSize, this.nodeHashSize,
+                this.nodeMemoryBlockSize, this.subArraySize, this.nodeMemoryBlockSize,
+                this.subArraySize);
+        this.edgeIdentifierToAtlasIndices = new LongToIntegerMultiMap(
+                "MultiAtlas - edgeIdentifierToAtlasIndex", this.maximumSize, this.edgeHashSize,
+                this.edgeMemoryBlockSize, this.subArraySize, this.edgeMemoryBlockSize,
+                this.subArraySize);
+        this.areaIdentifierToAtlasIndices = new LongToIntegerMultiMap(
+                "MultiAtlas - areaIdentifierToAtlasIndex", this.maximumSize, this.areaHashSize,
+                this.areaMemoryBlockSize, this.subArraySize, this.areaMemoryBlockSize,
+                this.subArraySize);
+        this.lineIdentifierToAtlasIndices = new LongToIntegerMultiMap(
+                "MultiAtlas - lineIdentifierToAtlasIndex", this.maximumSize, this.lineHashSize,
+                this.lineMemoryBlockSize, this.subArraySize, this.lineMemoryBlockSize,
+                this.subArraySize);
+        this.pointIdentifierToAtlasIndices = new LongToIntegerMultiMap(
+                "MultiAtlas - pointIdentifierToAtlasIndex", this.maximumSize, this.pointHashSize,
+                this.pointMemoryBlockSize, this.subArraySize, this.pointMemoryBlockSize,
+                this.subArraySize);
+        this.relationIdentifierToAtlasIndices = new LongToIntegerMultiMap(
+                "MultiAtlas - relationIdentifierToAtlasIndices", this.maximumSize,
+                this.relationHashSize, this.relationMemoryBlockSize, this.subArraySize,
+                this.relationMemoryBlockSize, this.subArraySize);
+        this.relationOsmIdentifierToRelationIdentifiers = new LongToLongMultiMap(
+                "MultiAtlas - relationOsmIdentifierToRelationIdentifier", this.maximumSize,
+                this.relationHashSize, this.relationMemoryBlockSize, this.subArraySize,
+                this.relationMemoryBlockSize, this.subArraySize);
+        this.relationIdentifierToRelationOsmIdentifier = new LongToLongMap(
+                "MultiAtlas - relationIdentifierToRelationOsmIdentifier", this.maximumSize,
+                this.relationHashSize, this.relationMemoryBlockSize, this.subArraySize,
+                this.relationMemoryBlockSize, this.subArraySize);
+    }
+
+    /**
+     * @return The identifiers of the entities of one type in the new {@link Atlas}es that are not
+     *         in this {@link MultiAtlas} yet
+     */
+    private <M extends AtlasEntity> Set<Long> newIdentifiers(final List<Atlas> newAtlases,
+            final Function<Atlas, Iterable<M>> entities,
+            final LongToIntegerMultiMap identifierToAtlasIndices)
+    {
+        final Set<Long> result = new LinkedHashSet<>();
+        for (final Atlas atlas : newAtlases)
+        {
+            for (final M entity : entities.apply(atlas))
+            {
+                final long identifier = entity.getIdentifier();
+                if (!identifierToAtlasIndices.containsKey(identifier))
+                {
+                    result.add(identifier);
+                }
+            }
+        }
+        return result;
+    }
+
     private RTree<Integer> newPackedAtlasSpatialIndex()
     {
         return new RTree<>();
     }
+
+    private void newSpatialIndices()
+    {
+        this.nodeSpatialIndex = new MultiAtlasSpatialIndex<>(this, ItemType.NODE);
+        this.edgeSpatialIndex = new MultiAtlasSpatialIndex<>(this, ItemType.EDGE);
+        this.areaSpatialIndex = new MultiAtlasSpatialIndex<>(this, ItemType.AREA);
+        this.lineSpatialIndex = new MultiAtlasSpatialIndex<>(this, ItemType.LINE);
+        this.pointSpatialIndex = new MultiAtlasSpatialIndex<>(this, ItemType.POINT);
+        this.relationSpatialIndex = new MultiAtlasSpatialIndex<>(this, ItemType.RELATION);
+    }
+
+    private void populateRelationOsmIdentifiers(final Iterable<Long> identifiers)
+    {
+        identifiers.forEach(identifier ->
+        {
+            final long osmIdentifier = relation(identifier).osmRelationIdentifier();
+            this.relationOsmIdentifierToRelationIdentifiers.add(osmIdentifier, identifier);
+            this.relationIdentifierToRelationOsmIdentifier.put(identifier, osmIdentifier);
+        });
+    }
+
+    /**
+     * Concatenate the streams of a range of sub atlases as a balanced tree, so that a parallel
+     * stream splits across sub atlases first, and then within each sub atlas.
+     */
+    private <M extends AtlasEntity> Stream<M> subAtlasesStream(final int from, final int until,
+            final IntFunction<Stream<M>> atlasStream)
+    {
+        if (until <= from)
+        {
+            return Stream.empty();
+        }
+        if (until - from == 1)
+        {
+            return atlasStream.apply(from);
+        }
+        final int middle = (from + until) >>> 1;
+        return Stream.concat(subAtlasesStream(from, middle, atlasStream),
+                subAtlasesStream(middle, until, atlasStream));
+    }
+
+    private void updateNumberOfEntities()
+    {
+        this.numberOfEdges = this.edgeIdentifierToAtlasIndices.size();
+        this.numberOfNodes = this.nodeIdentifierToAtlasIndices.size();
+        this.numberOfAreas = this.areaIdentifierToAtlasIndices.size();
+        this.numberOfLines = this.lineIdentifierToAtlasIndices.size();
+        this.numberOfPoints = this.pointIdentifierToAtlasIndices.size();
+        this.numberOfRelations = this.relationIdentifierToAtlasIndices.size();
+    }
 }
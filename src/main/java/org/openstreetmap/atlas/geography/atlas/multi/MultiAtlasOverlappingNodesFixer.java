@@ -49,18 +49,54 @@ public class MultiAtlasOverlappingNodesFixer implements Serializable
         this.fixNodesOnOppositeAntiMeridians = fixNodesOnOppositeAntiMeridians;
     }
 
+    /**
+     * Copy the overlapping nodes found for another parent, which the new parent extends
+     *
+     * @param parent
+     *            The new parent
+     * @param other
+     *            The fixer of the other parent
+     */
+    protected MultiAtlasOverlappingNodesFixer(final MultiAtlas parent,
+            final MultiAtlasOverlappingNodesFixer other)
+    {
+        this(parent, other.fixNodesOnOppositeAntiMeridians);
+        this.overlappingNodeIdentifierToMainNodeIdentifier
+                .putAll(other.overlappingNodeIdentifierToMainNodeIdentifier);
+        // The sets of overlapping nodes are updated in place, so they are copied too
+        other.mainNodeIdentifierToOverlappingNodeIdentifier.forEach((main, overlapping) ->
+        {
+            overlapping.forEach(
+                    node -> this.mainNodeIdentifierToOverlappingNodeIdentifier.add(main, node));
+        });
+    }
+
     /**
      * This is to build maps of nodes that are at the same location, and to pick the main node based
      * on point identifier
      */
     protected void aggregateSameLocationNodes()
     {
-        this.parent.getNodeIdentifierToAtlasIndices().forEach(identifier ->
+        aggregateSameLocationNodes(this.parent.getNodeIdentifierToAtlasIndices());
+    }
+
+    /**
+     * Same as {@link #aggregateSameLocationNodes()} but only looks at the nodes with the given
+     * identifiers, and the nodes they overlap. This is used when sub-atlases are appended to the
+     * parent, in which case a new node can overlap nodes that are already aggregated.
+     *
+     * @param identifiers
+     *            The identifiers of the nodes to aggregate
+     */
+    protected void aggregateSameLocationNodes(final Iterable<Long> identifiers)
+    {
+        final Set<Long> visited = new HashSet<>();
+        identifiers.forEach(identifier ->
         {
-            // if this identifier is in the map, then skip. otherwise, poll all
+            // if this identifier was already visited, then skip. otherwise, poll all
             // overlapping nodes here, pick a main node based on identifier,
             // and update the map
-            if (!this.overlappingNodeIdentifierToMainNodeIdentifier.containsKey(identifier))
+            if (!visited.contains(identifier))
             {
                 final Node current = this.parent.node(identifier);
                 final SortedSet<Node> overlapping = new TreeSet<>((final Node a, final Node b) ->
@@ -76,8 +112,18 @@ public class MultiAtlasOverlappingNodesFixer implements Serializable
                     return 0;
                 });
                 overlapping.addAll(nodesOverlapping(current));
+                overlapping.forEach(node -> visited.add(node.getIdentifier()));
                 if (overlapping.size() > 1)
                 {
+                    // Forget any previous aggregation of those nodes, as a new node might have
+                    // become the main one
+                    overlapping.forEach(node ->
+                    {
+                        this.overlappingNodeIdentifierToMainNodeIdentifier
+                                .remove(node.getIdentifier());
+                        this.mainNodeIdentifierToOverlappingNodeIdentifier
+                                .remove(node.getIdentifier());
+                    });
                     final Node main = overlapping.first();
                     final long mainIdentifier = main.getIdentifier();
                     overlapping.remove(main);
@@ -0,0 +1,219 @@
+package org.openstreetmap.atlas.geography.atlas.multi;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Located;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.ItemType;
+import org.openstreetmap.atlas.geography.index.RTree;
+import org.openstreetmap.atlas.geography.index.SpatialIndex;
+
+/**
+ * {@link SpatialIndex} of the entities of a {@link MultiAtlas}, which grows when
+ * sub-{@link Atlas}es are appended to the {@link MultiAtlas}. Each batch of entities is packed in
+ * its own {@link RTree} layer, and a layer is merged with the previous one as soon as it is as
+ * large, so there are at most a logarithmic number of layers and each entity is packed a
+ * logarithmic number of times overall.
+ * <p>
+ * An entity whose bounds changed (a relation which gained members in an appended
+ * sub-{@link Atlas}) is indexed again in the newest layer, and its entries in the older layers are
+ * then ignored.
+ *
+ * @param <M>
+ *            The type of entity
+ * @author agent
+ */
+final class MultiAtlasSpatialIndex<M extends AtlasEntity> implements SpatialIndex<M>
+{
+    /**
+     * A packed {@link RTree} of entity identifiers, with the identifiers it contains for merging.
+     *
+     * @author agent
+     */
+    private static final class Layer implements Serializable
+    {
+        private static final long serialVersionUID = -3051417393906318307L;
+
+        private final RTree<Long> tree;
+        private final long[] identifiers;
+        private final int generation;
+
+        Layer(final RTree<Long> tree, final long[] identifiers, final int generation)
+        {
+            this.tree = tree;
+            this.identifiers = identifiers;
+            this.generation = generation;
+        }
+    }
+
+    private static final long serialVersionUID = 2806591961468812014L;
+
+    private final MultiAtlas atlas;
+    private final ItemType type;
+    private final List<Layer> layers = new ArrayList<>();
+    // The identifiers of the entities indexed again after their bounds changed, and the generation
+    // of the layer holding their current entry
+    private final Map<Long, Integer> reindexedIdentifierToGeneration = new HashMap<>();
+    private int nextGeneration = 0;
+
+    MultiAtlasSpatialIndex(final MultiAtlas atlas, final ItemType type)
+    {
+        this.atlas = atlas;
+        this.type = type;
+    }
+
+    /**
+     * Copy the index of a {@link MultiAtlas} for another {@link MultiAtlas} which contains the same
+     * entities and more. The layers are never changed once packed, so they are shared.
+     *
+     * @param atlas
+     *            The {@link MultiAtlas} of the copy
+     * @param other
+     *            The index to copy
+     */
+    MultiAtlasSpatialIndex(final MultiAtlas atlas, final MultiAtlasSpatialIndex<M> other)
+    {
+        this.atlas = atlas;
+        this.type = other.type;
+        this.layers.addAll(other.layers);
+        this.reindexedIdentifierToGeneration.putAll(other.reindexedIdentifierToGeneration);
+        this.nextGeneration = other.nextGeneration;
+    }
+
+    @Override
+    public void add(final M item)
+    {
+        append(List.of(item), List.of());
+    }
+
+    @Override
+    public Rectangle bounds()
+    {
+        final List<Rectangle> bounds = this.layers.stream().map(layer -> layer.tree.bounds())
+                .filter(Objects::nonNull).collect(Collectors.toList());
+        return bounds.isEmpty() ? null : Rectangle.forLocated(bounds);
+    }
+
+    @Override
+    public Iterable<M> get(final Rectangle bounds)
+    {
+        return get(bounds, item -> true);
+    }
+
+    @Override
+    public Iterable<M> get(final Rectangle bounds, final Predicate<M> predicate)
+    {
+        final List<M> result = new ArrayList<>();
+        for (final Layer layer : this.layers)
+        {
+            for (final Long identifier : layer.tree.get(bounds))
+            {
+                if (isCurrent(identifier, layer.generation))
+                {
+                    final M item = entity(identifier);
+                    if (predicate.test(item))
+                    {
+                        result.add(item);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index a batch of entities
+     *
+     * @param newItems
+     *            The entities which are not indexed yet
+     * @param changedItems
+     *            The entities which are already indexed, but whose bounds changed
+     */
+    void append(final List<M> newItems, final List<M> changedItems)
+    {
+        if (newItems.isEmpty() && changedItems.isEmpty())
+        {
+            return;
+        }
+        final List<M> items = new ArrayList<>(newItems.size() + changedItems.size());
+        items.addAll(newItems);
+        items.addAll(changedItems);
+        final Layer layer = newLayer(items);
+        changedItems.forEach(item -> this.reindexedIdentifierToGeneration
+                .put(item.getIdentifier(), layer.generation));
+        this.layers.add(layer);
+        while (this.layers.size() > 1
+                && this.layers.get(this.layers.size() - 1).identifiers.length >= this.layers
+                        .get(this.layers.size() - 2).identifiers.length)
+        {
+            mergeLastLayers();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private M entity(final long identifier)
+    {
+        final M result = (M) this.type.entityForIdentifier(this.atlas, identifier);
+        if (result == null)
+        {
+            throw new CoreException("{} {} is indexed but not in the {}", this.type, identifier,
+                    MultiAtlas.class.getSimpleName());
+        }
+        return result;
+    }
+
+    private boolean isCurrent(final long identifier, final int generation)
+    {
+        final Integer current = this.reindexedIdentifierToGeneration.get(identifier);
+        return current == null || current == generation;
+    }
+
+    /**
+     * Merge the two newest layers, dropping the entries of the older one that the newer one
+     * re-indexed.
+     */
+    private void mergeLastLayers()
+    {
+        final Layer newer = this.layers.remove(this.layers.size() - 1);
+        final Layer older = this.layers.remove(this.layers.size() - 1);
+        final List<M> items = new ArrayList<>(older.identifiers.length + newer.identifiers.length);
+        for (final long identifier : older.identifiers)
+        {
+            if (isCurrent(identifier, older.generation))
+            {
+                items.add(entity(identifier));
+            }
+        }
+        for (final long identifier : newer.identifiers)
+        {
+            if (isCurrent(identifier, newer.generation))
+            {
+                items.add(entity(identifier));
+            }
+        }
+        final Layer merged = newLayer(items);
+        this.reindexedIdentifierToGeneration.replaceAll((identifier,
+                generation) -> generation == older.generation || generation == newer.generation
+                        ? merged.generation
+                        : generation);
+        this.layers.add(merged);
+    }
+
+    private Layer newLayer(final List<M> items)
+    {
+        final RTree<Long> tree = RTree.bulkLoad(items, Located::bounds,
+                AtlasEntity::getIdentifier);
+        return new Layer(tree, items.stream().mapToLong(AtlasEntity::getIdentifier).toArray(),
+                this.nextGeneration++);
+    }
+}
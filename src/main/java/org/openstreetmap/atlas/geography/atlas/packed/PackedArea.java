@@ -1,18 +1,23 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
+import org.openstreetmap.atlas.geography.GeometricSurface;
 import org.openstreetmap.atlas.geography.Polygon;
+import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
+import org.openstreetmap.atlas.tags.cache.DictionaryTaggable;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
 
 /**
  * {@link Area} from a {@link PackedAtlas}
  *
  * @author matthieun
  */
-public class PackedArea extends Area
+public class PackedArea extends Area implements DictionaryTaggable
 {
     private static final long serialVersionUID = 4578525310383858728L;
 
@@ -30,18 +35,48 @@ public class PackedArea extends Area
         return packedAtlas().areaPolygon(this.index);
     }
 
+    @Override
+    public Rectangle bounds()
+    {
+        return packedAtlas().areaBounds(this.index);
+    }
+
+    @Override
+    public EnumTagTables getEnumTagTables()
+    {
+        return packedAtlas().enumTagTables();
+    }
+
     @Override
     public long getIdentifier()
     {
         return packedAtlas().areaIdentifier(this.index);
     }
 
+    @Override
+    public Optional<String> getTag(final String key)
+    {
+        return packedAtlas().areaTag(this.index, key);
+    }
+
+    @Override
+    public int getTagValueIndex(final int keyIndex)
+    {
+        return packedAtlas().areaTagValueIndex(this.index, keyIndex);
+    }
+
     @Override
     public Map<String, String> getTags()
     {
         return packedAtlas().areaTags(this.index);
     }
 
+    @Override
+    public boolean intersects(final GeometricSurface surface)
+    {
+        return packedAtlas().areaIntersects(this.index, surface);
+    }
+
     @Override
     public Set<Relation> relations()
     {
@@ -2,6 +2,7 @@ package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -12,12 +13,17 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.GeometricSurface;
 import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.PolyLine;
 import org.openstreetmap.atlas.geography.Polygon;
@@ -29,6 +35,7 @@ import org.openstreetmap.atlas.geography.atlas.builder.AtlasSize;
 import org.openstreetmap.atlas.geography.atlas.exception.AtlasIntegrityException;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
 import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.ItemType;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
@@ -37,21 +44,27 @@ import org.openstreetmap.atlas.geography.atlas.items.Point;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
 import org.openstreetmap.atlas.geography.atlas.items.RelationMember;
 import org.openstreetmap.atlas.geography.atlas.items.RelationMemberList;
+import org.openstreetmap.atlas.geography.index.PackedRTree;
+import org.openstreetmap.atlas.geography.index.SpatialIndex;
 import org.openstreetmap.atlas.streaming.compression.Compressor;
 import org.openstreetmap.atlas.streaming.compression.Decompressor;
 import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
 import org.openstreetmap.atlas.streaming.resource.Resource;
 import org.openstreetmap.atlas.streaming.resource.WritableResource;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
+import org.openstreetmap.atlas.tags.filters.TaggableFilter;
 import org.openstreetmap.atlas.utilities.arrays.ByteArrayOfArrays;
+import org.openstreetmap.atlas.utilities.arrays.FlatPolyLineArray;
 import org.openstreetmap.atlas.utilities.arrays.IntegerArrayOfArrays;
 import org.openstreetmap.atlas.utilities.arrays.LongArray;
 import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
 import org.openstreetmap.atlas.utilities.arrays.PolyLineArray;
 import org.openstreetmap.atlas.utilities.arrays.PolygonArray;
+import org.openstreetmap.atlas.utilities.collections.IndexSpliterator;
 import org.openstreetmap.atlas.utilities.collections.Iterables;
 import org.openstreetmap.atlas.utilities.compression.IntegerDictionary;
-import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
 import org.openstreetmap.atlas.utilities.maps.LongToLongMultiMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongOpenHashMap;
 import org.openstreetmap.atlas.utilities.scalars.Distance;
 import org.openstreetmap.atlas.utilities.time.Time;
 import org.slf4j.Logger;
@@ -75,7 +88,13 @@ public final class PackedAtlas extends AbstractAtlas
     public enum AtlasSerializationFormat
     {
         PROTOBUF,
-        JAVA
+        JAVA,
+        /**
+         * Uncompressed and aligned primitive blocks, that are memory mapped and read in place
+         * instead of being copied to the heap when loading from an uncompressed file. The resulting
+         * arrays and maps are read-only.
+         */
+        MAPPED
     }
 
     // Keep track of the field names for reflection code in the Serializer.
@@ -168,7 +187,37 @@ public final class PackedAtlas extends AbstractAtlas
     private transient Object fieldRelationOsmIdentifiersLock = new Object();
     protected static final String FIELD_RELATION_GEOMETRIES = "relationGeometries";
     private transient Object fieldRelationGeometriesLock = new Object();
+    protected static final String FIELD_NODE_R_TREE = "nodeRTree";
+    private transient Object fieldNodeRTreeLock = new Object();
+    protected static final String FIELD_EDGE_R_TREE = "edgeRTree";
+    private transient Object fieldEdgeRTreeLock = new Object();
+    protected static final String FIELD_AREA_R_TREE = "areaRTree";
+    private transient Object fieldAreaRTreeLock = new Object();
+    protected static final String FIELD_LINE_R_TREE = "lineRTree";
+    private transient Object fieldLineRTreeLock = new Object();
+    protected static final String FIELD_POINT_R_TREE = "pointRTree";
+    private transient Object fieldPointRTreeLock = new Object();
+    protected static final String FIELD_AREA_TAG_INDEX = "areaTagIndex";
+    private transient Object fieldAreaTagIndexLock = new Object();
+    protected static final String FIELD_EDGE_TAG_INDEX = "edgeTagIndex";
+    private transient Object fieldEdgeTagIndexLock = new Object();
+    protected static final String FIELD_LINE_TAG_INDEX = "lineTagIndex";
+    private transient Object fieldLineTagIndexLock = new Object();
+    protected static final String FIELD_NODE_TAG_INDEX = "nodeTagIndex";
+    private transient Object fieldNodeTagIndexLock = new Object();
+    protected static final String FIELD_POINT_TAG_INDEX = "pointTagIndex";
+    private transient Object fieldPointTagIndexLock = new Object();
+    protected static final String FIELD_RELATION_TAG_INDEX = "relationTagIndex";
+    private transient Object fieldRelationTagIndexLock = new Object();
+    protected static final String FIELD_AREA_FLAT_POLYGONS = "areaFlatPolygons";
+    private transient Object fieldAreaFlatPolygonsLock = new Object();
+    protected static final String FIELD_EDGE_FLAT_POLY_LINES = "edgeFlatPolyLines";
+    private transient Object fieldEdgeFlatPolyLinesLock = new Object();
+    protected static final String FIELD_LINE_FLAT_POLY_LINES = "lineFlatPolyLines";
+    private transient Object fieldLineFlatPolyLinesLock = new Object();
     protected static final String FIELD_BUILT_RELATION_GEOMETRIES = "builtRelationGeometries";
+    protected static final String FIELD_SORTED_IDENTIFIER_TYPES = "sortedIdentifierTypes";
+    protected static final String FIELD_ENUM_TAG_TABLES = "enumTagTables";
 
     private static final long serialVersionUID = -7582554057580336684L;
     private static final Logger logger = LoggerFactory.getLogger(PackedAtlas.class);
@@ -195,13 +244,16 @@ public final class PackedAtlas extends AbstractAtlas
     private final LongArray pointIdentifiers;
     private final LongArray relationIdentifiers;
 
-    // The maps from edge index to index in the arrays above, and in the attributes
-    private final LongToLongMap edgeIdentifierToEdgeArrayIndex;
-    private final LongToLongMap nodeIdentifierToNodeArrayIndex;
-    private final LongToLongMap areaIdentifierToAreaArrayIndex;
-    private final LongToLongMap lineIdentifierToLineArrayIndex;
-    private final LongToLongMap pointIdentifierToPointArrayIndex;
-    private final LongToLongMap relationIdentifierToRelationArrayIndex;
+    // The maps from identifier to index in the arrays above, and in the attributes. They are
+    // null for the types whose identifiers are sorted, when built with sorted identifiers.
+    private LongToLongOpenHashMap edgeIdentifierToEdgeArrayIndex;
+    private LongToLongOpenHashMap nodeIdentifierToNodeArrayIndex;
+    private LongToLongOpenHashMap areaIdentifierToAreaArrayIndex;
+    private LongToLongOpenHashMap lineIdentifierToLineArrayIndex;
+    private LongToLongOpenHashMap pointIdentifierToPointArrayIndex;
+    private LongToLongOpenHashMap relationIdentifierToRelationArrayIndex;
+    // The types listed in the sortedIdentifiers meta data tag, read on first use
+    private transient volatile Set<ItemType> sortedIdentifierTypes;
 
     // Node attributes
     private final LongArray nodeLocations;
@@ -213,17 +265,18 @@ public final class PackedAtlas extends AbstractAtlas
     // Edge attributes
     private final LongArray edgeStartNodeIndex;
     private final LongArray edgeEndNodeIndex;
-    private final PolyLineArray edgePolyLines;
+    // The compressed shapes are null when built with flat geometry
+    private PolyLineArray edgePolyLines;
     private final PackedTagStore edgeTags;
     private final LongToLongMultiMap edgeIndexToRelationIndices;
 
     // Areas attributes
-    private final PolygonArray areaPolygons;
+    private PolygonArray areaPolygons;
     private final PackedTagStore areaTags;
     private final LongToLongMultiMap areaIndexToRelationIndices;
 
     // Line attributes
-    private final PolyLineArray linePolyLines;
+    private PolyLineArray linePolyLines;
     private final PackedTagStore lineTags;
     private final LongToLongMultiMap lineIndexToRelationIndices;
 
@@ -242,6 +295,30 @@ public final class PackedAtlas extends AbstractAtlas
     private final LongArray relationOsmIdentifiers;
     private ByteArrayOfArrays relationGeometries;
     private transient Map<Long, MultiPolygon> builtRelationGeometries = new HashMap<>();
+    // Resolves the enum tags of the entities from the dictionary indices, created on first use
+    private transient volatile EnumTagTables enumTagTables;
+
+    // Spatial indices, over the array indices. Atlases saved before those existed do not have
+    // them, and fall back to the spatial indices of the AbstractAtlas.
+    private PackedRTree nodeRTree;
+    private PackedRTree edgeRTree;
+    private PackedRTree areaRTree;
+    private PackedRTree lineRTree;
+    private PackedRTree pointRTree;
+
+    // Inverted tag indices, over the array indices. They are optional, and the atlases built
+    // without them test the tags of each entity instead.
+    private PackedTagIndex areaTagIndex;
+    private PackedTagIndex edgeTagIndex;
+    private PackedTagIndex lineTagIndex;
+    private PackedTagIndex nodeTagIndex;
+    private PackedTagIndex pointTagIndex;
+    private PackedTagIndex relationTagIndex;
+
+    // Flat shapes, which replace the compressed shapes when built with flat geometry
+    private FlatPolyLineArray areaFlatPolygons;
+    private FlatPolyLineArray edgeFlatPolyLines;
+    private FlatPolyLineArray lineFlatPolyLines;
 
     // Bounds of the Atlas
     private Rectangle bounds;
@@ -379,25 +456,18 @@ public final class PackedAtlas extends AbstractAtlas
         this.relationIdentifiers = new LongArray(maximumSize, relationMemoryBlockSize,
                 subArraySize);
 
-        this.edgeIdentifierToEdgeArrayIndex = new LongToLongMap(
-                "PackedAtlas - edgeIdentifierToEdgeArrayIndex", maximumSize, edgeHashSize,
-                edgeMemoryBlockSize, subArraySize, edgeMemoryBlockSize, subArraySize);
-        this.nodeIdentifierToNodeArrayIndex = new LongToLongMap(
-                "PackedAtlas - nodeIdentifierToNodeArrayIndex", maximumSize, nodeHashSize,
-                nodeMemoryBlockSize, subArraySize, nodeMemoryBlockSize, subArraySize);
-        this.areaIdentifierToAreaArrayIndex = new LongToLongMap(
-                "PackedAtlas - areaIdentifierToAreaArrayIndex", maximumSize, areaHashSize,
-                areaMemoryBlockSize, subArraySize, areaMemoryBlockSize, subArraySize);
-        this.lineIdentifierToLineArrayIndex = new LongToLongMap(
-                "PackedAtlas - lineIdentifierToLineArrayIndex", maximumSize, lineHashSize,
-                lineMemoryBlockSize, subArraySize, lineMemoryBlockSize, subArraySize);
-        this.pointIdentifierToPointArrayIndex = new LongToLongMap(
-                "PackedAtlas - pointIdentifierToPointArrayIndex", maximumSize, pointHashSize,
-                pointMemoryBlockSize, subArraySize, pointMemoryBlockSize, subArraySize);
-        this.relationIdentifierToRelationArrayIndex = new LongToLongMap(
-                "PackedAtlas - relationIdentifierToRelationArrayIndex", maximumSize,
-                relationHashSize, relationMemoryBlockSize, subArraySize, relationMemoryBlockSize,
-                subArraySize);
+        this.edgeIdentifierToEdgeArrayIndex = new LongToLongOpenHashMap(
+                "PackedAtlas - edgeIdentifierToEdgeArrayIndex", edgeNumberEstimate);
+        this.nodeIdentifierToNodeArrayIndex = new LongToLongOpenHashMap(
+                "PackedAtlas - nodeIdentifierToNodeArrayIndex", nodeNumberEstimate);
+        this.areaIdentifierToAreaArrayIndex = new LongToLongOpenHashMap(
+                "PackedAtlas - areaIdentifierToAreaArrayIndex", areaNumberEstimate);
+        this.lineIdentifierToLineArrayIndex = new LongToLongOpenHashMap(
+                "PackedAtlas - lineIdentifierToLineArrayIndex", lineNumberEstimate);
+        this.pointIdentifierToPointArrayIndex = new LongToLongOpenHashMap(
+                "PackedAtlas - pointIdentifierToPointArrayIndex", pointNumberEstimate);
+        this.relationIdentifierToRelationArrayIndex = new LongToLongOpenHashMap(
+                "PackedAtlas - relationIdentifierToRelationArrayIndex", relationNumberEstimate);
 
         this.nodeInEdgesIndices = new LongArrayOfArrays(subArraySize, nodeMemoryBlockSize,
                 subArraySize);
@@ -495,9 +565,10 @@ public final class PackedAtlas extends AbstractAtlas
     @Override
     public Area area(final long identifier)
     {
-        if (this.areaIdentifierToAreaArrayIndex().containsKey(identifier))
+        final long index = this.areaArrayIndex(identifier);
+        if (index >= 0)
         {
-            return new PackedArea(this, this.areaIdentifierToAreaArrayIndex().get(identifier));
+            return new PackedArea(this, index);
         }
         return null;
     }
@@ -509,6 +580,21 @@ public final class PackedAtlas extends AbstractAtlas
                 index -> new PackedArea(this, index));
     }
 
+    @Override
+    public Iterable<Area> areasMatching(final TaggableFilter filter)
+    {
+        return this.<Area> matching(this.areaTagIndex(), filter,
+                index -> new PackedArea(this, index))
+                .orElseGet(() -> this.areas(filter::test));
+    }
+
+    @Override
+    public Stream<Area> areasStream(final boolean parallel)
+    {
+        return StreamSupport.stream(new IndexSpliterator<>(this.areaIdentifiers().size(),
+                index -> new PackedArea(this, index)), parallel);
+    }
+
     @Override
     public Rectangle bounds()
     {
@@ -529,9 +615,10 @@ public final class PackedAtlas extends AbstractAtlas
     @Override
     public Edge edge(final long identifier)
     {
-        if (this.edgeIdentifierToEdgeArrayIndex().containsKey(identifier))
+        final long index = this.edgeArrayIndex(identifier);
+        if (index >= 0)
         {
-            return new PackedEdge(this, this.edgeIdentifierToEdgeArrayIndex().get(identifier));
+            return new PackedEdge(this, index);
         }
         return null;
     }
@@ -543,6 +630,76 @@ public final class PackedAtlas extends AbstractAtlas
                 index -> new PackedEdge(this, index));
     }
 
+    @Override
+    public Iterable<Edge> edgesMatching(final TaggableFilter filter)
+    {
+        return this.<Edge> matching(this.edgeTagIndex(), filter,
+                index -> new PackedEdge(this, index))
+                .orElseGet(() -> this.edges(filter::test));
+    }
+
+    @Override
+    public Stream<Edge> edgesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(new IndexSpliterator<>(this.edgeIdentifiers().size(),
+                index -> new PackedEdge(this, index)), parallel);
+    }
+
+    @Override
+    public SpatialIndex<Area> getAreaSpatialIndex()
+    {
+        final PackedRTree tree = areaRTree();
+        if (tree == null)
+        {
+            return super.getAreaSpatialIndex();
+        }
+        return new PackedRTreeSpatialIndex<>(tree, index -> new PackedArea(this, index));
+    }
+
+    @Override
+    public SpatialIndex<Edge> getEdgeSpatialIndex()
+    {
+        final PackedRTree tree = edgeRTree();
+        if (tree == null)
+        {
+            return super.getEdgeSpatialIndex();
+        }
+        return new PackedRTreeSpatialIndex<>(tree, index -> new PackedEdge(this, index));
+    }
+
+    @Override
+    public SpatialIndex<Line> getLineSpatialIndex()
+    {
+        final PackedRTree tree = lineRTree();
+        if (tree == null)
+        {
+            return super.getLineSpatialIndex();
+        }
+        return new PackedRTreeSpatialIndex<>(tree, index -> new PackedLine(this, index));
+    }
+
+    @Override
+    public SpatialIndex<Node> getNodeSpatialIndex()
+    {
+        final PackedRTree tree = nodeRTree();
+        if (tree == null)
+        {
+            return super.getNodeSpatialIndex();
+        }
+        return new PackedRTreeSpatialIndex<>(tree, index -> new PackedNode(this, index));
+    }
+
+    @Override
+    public SpatialIndex<Point> getPointSpatialIndex()
+    {
+        final PackedRTree tree = pointRTree();
+        if (tree == null)
+        {
+            return super.getPointSpatialIndex();
+        }
+        return new PackedRTreeSpatialIndex<>(tree, index -> new PackedPoint(this, index));
+    }
+
     /**
      * Get the serialization format used for saving this {@link PackedAtlas}. By default use Java
      * serialization.
@@ -567,9 +724,10 @@ public final class PackedAtlas extends AbstractAtlas
     @Override
     public Line line(final long identifier)
     {
-        if (this.lineIdentifierToLineArrayIndex().containsKey(identifier))
+        final long index = this.lineArrayIndex(identifier);
+        if (index >= 0)
         {
-            return new PackedLine(this, this.lineIdentifierToLineArrayIndex().get(identifier));
+            return new PackedLine(this, index);
         }
         return null;
     }
@@ -581,6 +739,21 @@ public final class PackedAtlas extends AbstractAtlas
                 index -> new PackedLine(this, index));
     }
 
+    @Override
+    public Iterable<Line> linesMatching(final TaggableFilter filter)
+    {
+        return this.<Line> matching(this.lineTagIndex(), filter,
+                index -> new PackedLine(this, index))
+                .orElseGet(() -> this.lines(filter::test));
+    }
+
+    @Override
+    public Stream<Line> linesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(new IndexSpliterator<>(this.lineIdentifiers().size(),
+                index -> new PackedLine(this, index)), parallel);
+    }
+
     @Override
     public AtlasMetaData metaData()
     {
@@ -591,12 +764,68 @@ public final class PackedAtlas extends AbstractAtlas
         return this.metaData;
     }
 
+    @Override
+    public List<Edge> nearestEdges(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Edge> matcher)
+    {
+        final PackedRTree tree = edgeRTree();
+        if (tree == null)
+        {
+            return super.nearestEdges(location, count, maximumDistance, matcher);
+        }
+        return nearestInTree(tree, location, count, maximumDistance,
+                index -> new PackedEdge(this, index), matcher);
+    }
+
+    @Override
+    public List<AtlasItem> nearestItems(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<AtlasItem> matcher)
+    {
+        final PackedRTree nodeTree = nodeRTree();
+        final PackedRTree edgeTree = edgeRTree();
+        final PackedRTree areaTree = areaRTree();
+        final PackedRTree lineTree = lineRTree();
+        final PackedRTree pointTree = pointRTree();
+        if (nodeTree == null || edgeTree == null || areaTree == null || lineTree == null
+                || pointTree == null)
+        {
+            return super.nearestItems(location, count, maximumDistance, matcher);
+        }
+        // The nearest items of each type contain the nearest items overall
+        final List<AtlasItem> candidates = new ArrayList<>();
+        candidates.addAll(nearestInTree(nodeTree, location, count, maximumDistance,
+                index -> new PackedNode(this, index), matcher));
+        candidates.addAll(nearestInTree(edgeTree, location, count, maximumDistance,
+                index -> new PackedEdge(this, index), matcher));
+        candidates.addAll(nearestInTree(areaTree, location, count, maximumDistance,
+                index -> new PackedArea(this, index), matcher));
+        candidates.addAll(nearestInTree(lineTree, location, count, maximumDistance,
+                index -> new PackedLine(this, index), matcher));
+        candidates.addAll(nearestInTree(pointTree, location, count, maximumDistance,
+                index -> new PackedPoint(this, index), matcher));
+        return nearest(candidates, location, count, maximumDistance);
+    }
+
+    @Override
+    public List<Node> nearestNodes(final Location location, final int count,
+            final Distance maximumDistance, final Predicate<Node> matcher)
+    {
+        final PackedRTree tree = nodeRTree();
+        if (tree == null)
+        {
+            return super.nearestNodes(location, count, maximumDistance, matcher);
+        }
+        return nearestInTree(tree, location, count, maximumDistance,
+                index -> new PackedNode(this, index), matcher);
+    }
+
     @Override
     public Node node(final long identifier)
     {
-        if (this.nodeIdentifierToNodeArrayIndex().containsKey(identifier))
+        final long index = this.nodeArrayIndex(identifier);
+        if (index >= 0)
         {
-            return new PackedNode(this, this.nodeIdentifierToNodeArrayIndex().get(identifier));
+            return new PackedNode(this, index);
         }
         return null;
     }
@@ -608,6 +837,21 @@ public final class PackedAtlas extends AbstractAtlas
                 index -> new PackedNode(this, index));
     }
 
+    @Override
+    public Iterable<Node> nodesMatching(final TaggableFilter filter)
+    {
+        return this.<Node> matching(this.nodeTagIndex(), filter,
+                index -> new PackedNode(this, index))
+                .orElseGet(() -> this.nodes(filter::test));
+    }
+
+    @Override
+    public Stream<Node> nodesStream(final boolean parallel)
+    {
+        return StreamSupport.stream(new IndexSpliterator<>(this.nodeIdentifiers().size(),
+                index -> new PackedNode(this, index)), parallel);
+    }
+
     @Override
     public long numberOfAreas()
     {
@@ -647,9 +891,10 @@ public final class PackedAtlas extends AbstractAtlas
     @Override
     public Point point(final long identifier)
     {
-        if (this.pointIdentifierToPointArrayIndex().containsKey(identifier))
+        final long index = this.pointArrayIndex(identifier);
+        if (index >= 0)
         {
-            return new PackedPoint(this, this.pointIdentifierToPointArrayIndex().get(identifier));
+            return new PackedPoint(this, index);
         }
         return null;
     }
@@ -661,13 +906,28 @@ public final class PackedAtlas extends AbstractAtlas
                 index -> new PackedPoint(this, index));
     }
 
+    @Override
+    public Iterable<Point> pointsMatching(final TaggableFilter filter)
+    {
+        return this.<Point> matching(this.pointTagIndex(), filter,
+                index -> new PackedPoint(this, index))
+                .orElseGet(() -> this.points(filter::test));
+    }
+
+    @Override
+    public Stream<Point> pointsStream(final boolean parallel)
+    {
+        return StreamSupport.stream(new IndexSpliterator<>(this.pointIdentifiers().size(),
+                index -> new PackedPoint(this, index)), parallel);
+    }
+
     @Override
     public Relation relation(final long identifier)
     {
-        if (this.relationIdentifierToRelationArrayIndex().containsKey(identifier))
+        final long index = this.relationArrayIndex(identifier);
+        if (index >= 0)
         {
-            return new PackedRelation(this,
-                    this.relationIdentifierToRelationArrayIndex().get(identifier));
+            return new PackedRelation(this, index);
         }
         return null;
     }
@@ -679,6 +939,21 @@ public final class PackedAtlas extends AbstractAtlas
                 index -> new PackedRelation(this, index));
     }
 
+    @Override
+    public Iterable<Relation> relationsMatching(final TaggableFilter filter)
+    {
+        return this.<Relation> matching(this.relationTagIndex(), filter,
+                index -> new PackedRelation(this, index))
+                .orElseGet(() -> this.relations(filter::test));
+    }
+
+    @Override
+    public Stream<Relation> relationsStream(final boolean parallel)
+    {
+        return StreamSupport.stream(new IndexSpliterator<>(this.relationIdentifiers().size(),
+                index -> new PackedRelation(this, index)), parallel);
+    }
+
     @Override
     public void save(final WritableResource writableResource)
     {
@@ -694,12 +969,51 @@ public final class PackedAtlas extends AbstractAtlas
     public void setSaveSerializationFormat(final AtlasSerializationFormat format)
     {
         this.saveSerializationFormat = format;
-        if (this.saveSerializationFormat != AtlasSerializationFormat.PROTOBUF)
+        if (this.saveSerializationFormat == AtlasSerializationFormat.JAVA)
         {
             this.containsEnhancedRelationGeometry = false;
         }
     }
 
+    /**
+     * Look up one tag key for all the entities of a type at once. Along with
+     * {@link #tagWordIndex(String)}, this lets tag checks compare dictionary indices instead of
+     * creating a tag map for each entity.
+     *
+     * @param type
+     *            The type of entity
+     * @param key
+     *            The tag key
+     * @return For each entity, in the order of iteration, the dictionary index of the value of the
+     *         key, or {@link PackedTagStore#NO_INDEX} if the entity does not have the key
+     */
+    public int[] tagValueIndices(final ItemType type, final String key)
+    {
+        final PackedTagStore tags = tags(type);
+        return tags.valueIndexColumn(tags.keyIndex(key));
+    }
+
+    /**
+     * @param index
+     *            The dictionary index of a tag key or value
+     * @return The tag key or value
+     */
+    public String tagWord(final int index)
+    {
+        return dictionary().word(index);
+    }
+
+    /**
+     * @param word
+     *            A tag key or value
+     * @return The dictionary index of the tag key or value, or {@link PackedTagStore#NO_INDEX} if
+     *         no entity has it
+     */
+    public int tagWordIndex(final String word)
+    {
+        return dictionary().lookup(word).orElse(PackedTagStore.NO_INDEX);
+    }
+
     /**
      * Trim this Atlas' arrays with the proper size. WARNING! This could potentially temporarily
      * double the amount of memory used by each array.
@@ -716,12 +1030,10 @@ public final class PackedAtlas extends AbstractAtlas
         this.pointIdentifiers.trim();
         this.relationIdentifiers.trim();
 
-        this.edgeIdentifierToEdgeArrayIndex.trim();
-        this.nodeIdentifierToNodeArrayIndex.trim();
-        this.areaIdentifierToAreaArrayIndex.trim();
-        this.lineIdentifierToLineArrayIndex.trim();
-        this.pointIdentifierToPointArrayIndex.trim();
-        this.relationIdentifierToRelationArrayIndex.trim();
+        Stream.of(this.edgeIdentifierToEdgeArrayIndex, this.nodeIdentifierToNodeArrayIndex,
+                this.areaIdentifierToAreaArrayIndex, this.lineIdentifierToLineArrayIndex,
+                this.pointIdentifierToPointArrayIndex, this.relationIdentifierToRelationArrayIndex)
+                .filter(Objects::nonNull).forEach(LongToLongOpenHashMap::trim);
 
         this.nodeLocations.trim();
         this.nodeInEdgesIndices.trim();
@@ -731,15 +1043,24 @@ public final class PackedAtlas extends AbstractAtlas
 
         this.edgeStartNodeIndex.trim();
         this.edgeEndNodeIndex.trim();
-        this.edgePolyLines.trim();
+        if (this.edgePolyLines != null)
+        {
+            this.edgePolyLines.trim();
+        }
         this.edgeTags.trim();
         this.edgeIndexToRelationIndices.trim();
 
-        this.areaPolygons.trim();
+        if (this.areaPolygons != null)
+        {
+            this.areaPolygons.trim();
+        }
         this.areaTags.trim();
         this.areaIndexToRelationIndices.trim();
 
-        this.linePolyLines.trim();
+        if (this.linePolyLines != null)
+        {
+            this.linePolyLines.trim();
+        }
         this.lineTags.trim();
         this.lineIndexToRelationIndices.trim();
 
@@ -758,6 +1079,7 @@ public final class PackedAtlas extends AbstractAtlas
         {
             this.relationGeometries.trim();
         }
+        this.dictionary.trim();
 
         logger.info("Trimmed Atlas {} in {}.", this.getName(), start.elapsedSince());
     }
@@ -782,7 +1104,7 @@ public final class PackedAtlas extends AbstractAtlas
             this.getAsNewAreaSpatialIndex().add(new PackedArea(this, index));
 
             // Tags
-            updatePackedTagStore(this.areaTags, index, tags);
+            this.areaTags.add(index, tags);
         }
     }
 
@@ -822,7 +1144,7 @@ public final class PackedAtlas extends AbstractAtlas
             this.getAsNewEdgeSpatialIndex().add(new PackedEdge(this, index));
 
             // Tags
-            updatePackedTagStore(this.edgeTags, index, tags);
+            this.edgeTags.add(index, tags);
         }
     }
 
@@ -846,7 +1168,7 @@ public final class PackedAtlas extends AbstractAtlas
             this.getAsNewLineSpatialIndex().add(new PackedLine(this, index));
 
             // Tags
-            updatePackedTagStore(this.lineTags, index, tags);
+            this.lineTags.add(index, tags);
         }
     }
 
@@ -874,7 +1196,7 @@ public final class PackedAtlas extends AbstractAtlas
             this.getAsNewNodeSpatialIndex().add(new PackedNode(this, index));
 
             // Tags
-            updatePackedTagStore(this.nodeTags, index, tags);
+            this.nodeTags.add(index, tags);
         }
     }
 
@@ -898,7 +1220,7 @@ public final class PackedAtlas extends AbstractAtlas
             this.getAsNewPointSpatialIndex().add(new PackedPoint(this, index));
 
             // Tags
-            updatePackedTagStore(this.pointTags, index, tags);
+            this.pointTags.add(index, tags);
         }
     }
 
@@ -1034,17 +1356,39 @@ public final class PackedAtlas extends AbstractAtlas
             this.relationMemberRoles.add(roleValues);
 
             // Tags
-            updatePackedTagStore(this.relationTags, index, tags);
+            this.relationTags.add(index, tags);
         }
     }
 
+    protected Rectangle areaBounds(final long index)
+    {
+        final FlatPolyLineArray flatPolygons = this.areaFlatPolygons();
+        return flatPolygons == null ? this.areaPolygon(index).bounds()
+                : flatPolygons.bounds(index);
+    }
+
     protected long areaIdentifier(final long index)
     {
         return this.areaIdentifiers().get(index);
     }
 
+    protected boolean areaIntersects(final long index, final GeometricSurface surface)
+    {
+        final FlatPolyLineArray flatPolygons = this.areaFlatPolygons();
+        if (flatPolygons != null && surface instanceof Rectangle)
+        {
+            return flatPolygons.intersects(index, (Rectangle) surface);
+        }
+        return surface.overlaps(this.areaPolygon(index));
+    }
+
     protected Polygon areaPolygon(final long index)
     {
+        final FlatPolyLineArray flatPolygons = this.areaFlatPolygons();
+        if (flatPolygons != null)
+        {
+            return (Polygon) flatPolygons.polyLine(index);
+        }
         return this.areaPolygons().get(index);
     }
 
@@ -1053,23 +1397,157 @@ public final class PackedAtlas extends AbstractAtlas
         return itemRelations(this.areaIndexToRelationIndices().get(index));
     }
 
+    protected Optional<String> areaTag(final long index, final String key)
+    {
+        return tag(this.areaTags(), index, key);
+    }
+
     protected Map<String, String> areaTags(final long index)
     {
         return this.areaTags().keyValuePairs(index);
     }
 
+    protected int areaTagValueIndex(final long index, final int keyIndex)
+    {
+        return this.areaTags().valueIndex(index, keyIndex);
+    }
+
+    /**
+     * Pack the spatial indices of the nodes, edges, areas, lines and points in {@link PackedRTree}s
+     * that are saved with this {@link PackedAtlas}, so they do not have to be re-built after
+     * loading. The spatial indices populated while adding the features are released. This has to
+     * be called once all the features have been added.
+     */
+    protected void buildPackedSpatialIndices()
+    {
+        final Time start = Time.now();
+        this.nodeRTree = PackedRTree.build(this.numberOfNodes(),
+                index -> this.nodeLocation(index).bounds());
+        this.edgeRTree = PackedRTree.build(this.numberOfEdges(), this::edgeBounds);
+        this.areaRTree = PackedRTree.build(this.numberOfAreas(), this::areaBounds);
+        this.lineRTree = PackedRTree.build(this.numberOfLines(), this::lineBounds);
+        this.pointRTree = PackedRTree.build(this.numberOfPoints(),
+                index -> this.pointLocation(index).bounds());
+        this.clearSpatialIndices();
+        logger.trace("Built packed spatial indices of Atlas {} in {}", this.getName(),
+                start.elapsedSince());
+    }
+
+    /**
+     * Build the inverted tag indices of all the entity types, which are saved with this
+     * {@link PackedAtlas} and answer the xxxMatching({@link TaggableFilter}) queries with bitmap
+     * operations. This has to be called once all the features have been added.
+     */
+    protected void buildTagIndices()
+    {
+        final Time start = Time.now();
+        this.nodeTagIndex = PackedTagIndex.build(this.nodeTags());
+        this.edgeTagIndex = PackedTagIndex.build(this.edgeTags());
+        this.areaTagIndex = PackedTagIndex.build(this.areaTags());
+        this.lineTagIndex = PackedTagIndex.build(this.lineTags());
+        this.pointTagIndex = PackedTagIndex.build(this.pointTags());
+        this.relationTagIndex = PackedTagIndex.build(this.relationTags());
+        logger.trace("Built tag indices of Atlas {} in {}", this.getName(), start.elapsedSince());
+    }
+
+    /**
+     * Release the identifier maps of the types whose identifiers are strictly increasing in their
+     * arrays. The identifiers of those types are then looked up by searching the sorted
+     * identifiers. This has to be called once all the features have been added.
+     *
+     * @return The types whose identifier maps were released
+     */
+    protected Set<ItemType> dropSortedIdentifierMaps()
+    {
+        final Set<ItemType> result = EnumSet.noneOf(ItemType.class);
+        for (final ItemType type : ItemType.values())
+        {
+            if (this.hasSortedIdentifiers(type))
+            {
+                result.add(type);
+            }
+        }
+        if (result.contains(ItemType.NODE))
+        {
+            this.nodeIdentifierToNodeArrayIndex = null;
+        }
+        if (result.contains(ItemType.EDGE))
+        {
+            this.edgeIdentifierToEdgeArrayIndex = null;
+        }
+        if (result.contains(ItemType.AREA))
+        {
+            this.areaIdentifierToAreaArrayIndex = null;
+        }
+        if (result.contains(ItemType.LINE))
+        {
+            this.lineIdentifierToLineArrayIndex = null;
+        }
+        if (result.contains(ItemType.POINT))
+        {
+            this.pointIdentifierToPointArrayIndex = null;
+        }
+        if (result.contains(ItemType.RELATION))
+        {
+            this.relationIdentifierToRelationArrayIndex = null;
+        }
+        logger.trace("Released the identifier maps of {} in Atlas {}", result, this.getName());
+        return result;
+    }
+
+    protected Rectangle edgeBounds(final long index)
+    {
+        final FlatPolyLineArray flatPolyLines = this.edgeFlatPolyLines();
+        return flatPolyLines == null ? this.edgePolyLine(index).bounds()
+                : flatPolyLines.bounds(index);
+    }
+
     protected Node edgeEndNode(final long index)
     {
         return new PackedNode(this, this.edgeEndNodeIndex().get(index));
     }
 
+    protected long edgeEndNodeArrayIndex(final long index)
+    {
+        return this.edgeEndNodeIndex().get(index);
+    }
+
     protected long edgeIdentifier(final long index)
     {
         return this.edgeIdentifiers().get(index);
     }
 
+    protected boolean edgeIntersects(final long index, final GeometricSurface surface)
+    {
+        final FlatPolyLineArray flatPolyLines = this.edgeFlatPolyLines();
+        if (flatPolyLines != null && surface instanceof Rectangle)
+        {
+            return flatPolyLines.intersects(index, (Rectangle) surface);
+        }
+        return surface.overlaps(this.edgePolyLine(index));
+    }
+
+    protected Distance edgeLength(final long index)
+    {
+        final FlatPolyLineArray flatPolyLines = this.edgeFlatPolyLines();
+        return flatPolyLines == null ? this.edgePolyLine(index).length()
+                : flatPolyLines.length(index);
+    }
+
+    protected int edgeNumberOfShapePoints(final long index)
+    {
+        final FlatPolyLineArray flatPolyLines = this.edgeFlatPolyLines();
+        return flatPolyLines == null ? this.edgePolyLine(index).size()
+                : flatPolyLines.numberOfVertices(index);
+    }
+
     protected PolyLine edgePolyLine(final long index)
     {
+        final FlatPolyLineArray flatPolyLines = this.edgeFlatPolyLines();
+        if (flatPolyLines != null)
+        {
+            return flatPolyLines.polyLine(index);
+        }
         return this.edgePolyLines().get(index);
     }
 
@@ -1083,11 +1561,52 @@ public final class PackedAtlas extends AbstractAtlas
         return new PackedNode(this, this.edgeStartNodeIndex().get(index));
     }
 
+    protected Optional<String> edgeTag(final long index, final String key)
+    {
+        return tag(this.edgeTags(), index, key);
+    }
+
     protected Map<String, String> edgeTags(final long index)
     {
         return this.edgeTags().keyValuePairs(index);
     }
 
+    protected int edgeTagValueIndex(final long index, final int keyIndex)
+    {
+        return this.edgeTags().valueIndex(index, keyIndex);
+    }
+
+    protected EnumTagTables enumTagTables()
+    {
+        EnumTagTables result = this.enumTagTables;
+        if (result == null)
+        {
+            result = newEnumTagTables();
+        }
+        return result;
+    }
+
+    /**
+     * Replace the compressed shapes of the edges, areas and lines with {@link FlatPolyLineArray}s,
+     * which answer the bounds, length and rectangle intersection queries without decoding the
+     * shapes. This has to be called once all the features have been added.
+     */
+    protected void flattenGeometry()
+    {
+        final Time start = Time.now();
+        this.edgeFlatPolyLines = FlatPolyLineArray.build(this.numberOfEdges(),
+                this::edgePolyLine, false);
+        this.areaFlatPolygons = FlatPolyLineArray.build(this.numberOfAreas(), this::areaPolygon,
+                true);
+        this.lineFlatPolyLines = FlatPolyLineArray.build(this.numberOfLines(),
+                this::linePolyLine, false);
+        this.edgePolyLines = null;
+        this.areaPolygons = null;
+        this.linePolyLines = null;
+        logger.trace("Flattened the geometry of Atlas {} in {}", this.getName(),
+                start.elapsedSince());
+    }
+
     /**
      * Get the serialization format used for loading this {@link PackedAtlas}.
      *
@@ -1103,6 +1622,16 @@ public final class PackedAtlas extends AbstractAtlas
         return Optional.ofNullable(this.serializer);
     }
 
+    /**
+     * @param type
+     *            The type of feature
+     * @return True if the identifiers of that type are strictly increasing in their array
+     */
+    protected boolean hasSortedIdentifiers(final ItemType type)
+    {
+        return this.identifiers(type).isStrictlyIncreasing();
+    }
+
     protected boolean isEmpty()
     {
         return this.nodeIdentifiers().isEmpty() && this.edgeIdentifiers().isEmpty()
@@ -1110,13 +1639,49 @@ public final class PackedAtlas extends AbstractAtlas
                 && this.pointIdentifiers().isEmpty() && this.relationIdentifiers().isEmpty();
     }
 
+    protected Rectangle lineBounds(final long index)
+    {
+        final FlatPolyLineArray flatPolyLines = this.lineFlatPolyLines();
+        return flatPolyLines == null ? this.linePolyLine(index).bounds()
+                : flatPolyLines.bounds(index);
+    }
+
     protected long lineIdentifier(final long index)
     {
         return this.lineIdentifiers().get(index);
     }
 
+    protected boolean lineIntersects(final long index, final GeometricSurface surface)
+    {
+        final FlatPolyLineArray flatPolyLines = this.lineFlatPolyLines();
+        if (flatPolyLines != null && surface instanceof Rectangle)
+        {
+            return flatPolyLines.intersects(index, (Rectangle) surface);
+        }
+        return surface.overlaps(this.linePolyLine(index));
+    }
+
+    protected Distance lineLength(final long index)
+    {
+        final FlatPolyLineArray flatPolyLines = this.lineFlatPolyLines();
+        return flatPolyLines == null ? this.linePolyLine(index).length()
+                : flatPolyLines.length(index);
+    }
+
+    protected int lineNumberOfShapePoints(final long index)
+    {
+        final FlatPolyLineArray flatPolyLines = this.lineFlatPolyLines();
+        return flatPolyLines == null ? this.linePolyLine(index).size()
+                : flatPolyLines.numberOfVertices(index);
+    }
+
     protected PolyLine linePolyLine(final long index)
     {
+        final FlatPolyLineArray flatPolyLines = this.lineFlatPolyLines();
+        if (flatPolyLines != null)
+        {
+            return flatPolyLines.polyLine(index);
+        }
         return this.linePolyLines().get(index);
     }
 
@@ -1125,11 +1690,32 @@ public final class PackedAtlas extends AbstractAtlas
         return itemRelations(this.lineIndexToRelationIndices().get(index));
     }
 
+    protected Optional<String> lineTag(final long index, final String key)
+    {
+        return tag(this.lineTags(), index, key);
+    }
+
     protected Map<String, String> lineTags(final long index)
     {
         return this.lineTags().keyValuePairs(index);
     }
 
+    protected int lineTagValueIndex(final long index, final int keyIndex)
+    {
+        return this.lineTags().valueIndex(index, keyIndex);
+    }
+
+    /**
+     * @param identifier
+     *            The identifier of a {@link Node}
+     * @return The index of that {@link Node} in the node arrays, or -1 if it is not in this atlas
+     */
+    protected long nodeArrayIndex(final long identifier)
+    {
+        return arrayIndex(ItemType.NODE, this.nodeIdentifierToNodeArrayIndex(),
+                this::nodeIdentifiers, identifier);
+    }
+
     protected long nodeIdentifier(final long index)
     {
         return this.nodeIdentifiers().get(index);
@@ -1152,7 +1738,6 @@ public final class PackedAtlas extends AbstractAtlas
             final Distance searchDistance, final Distance toleranceDistance)
     {
         final Rectangle locationBounds = location.bounds().expand(searchDistance);
-        buildNodeSpatialIndexIfNecessary();
         final SortedSet<Node> nodes = new TreeSet<>((node1, node2) ->
         {
             final Distance distance1 = location.distanceTo(node1.getLocation());
@@ -1193,8 +1778,6 @@ public final class PackedAtlas extends AbstractAtlas
      */
     protected Long nodeIdentifierForLocation(final Location location)
     {
-        buildNodeSpatialIndexIfNecessary();
-
         final Rectangle locationBounds = location.bounds();
         final SortedSet<Node> nodesByAscendingIdentifier = new TreeSet<>((node1, node2) ->
         {
@@ -1231,6 +1814,11 @@ public final class PackedAtlas extends AbstractAtlas
         return result;
     }
 
+    protected long[] nodeInEdgesArrayIndices(final long index)
+    {
+        return this.nodeInEdgesIndices().get(index);
+    }
+
     protected Location nodeLocation(final long index)
     {
         return new Location(this.nodeLocations().get(index));
@@ -1246,16 +1834,31 @@ public final class PackedAtlas extends AbstractAtlas
         return result;
     }
 
+    protected long[] nodeOutEdgesArrayIndices(final long index)
+    {
+        return this.nodeOutEdgesIndices().get(index);
+    }
+
     protected Set<Relation> nodeRelations(final long index)
     {
         return itemRelations(this.nodeIndexToRelationIndices().get(index));
     }
 
+    protected Optional<String> nodeTag(final long index, final String key)
+    {
+        return tag(this.nodeTags(), index, key);
+    }
+
     protected Map<String, String> nodeTags(final long index)
     {
         return this.nodeTags().keyValuePairs(index);
     }
 
+    protected int nodeTagValueIndex(final long index, final int keyIndex)
+    {
+        return this.nodeTags().valueIndex(index, keyIndex);
+    }
+
     protected long pointIdentifier(final long index)
     {
         return this.pointIdentifiers().get(index);
@@ -1271,19 +1874,28 @@ public final class PackedAtlas extends AbstractAtlas
         return itemRelations(this.pointIndexToRelationIndices().get(index));
     }
 
+    protected Optional<String> pointTag(final long index, final String key)
+    {
+        return tag(this.pointTags(), index, key);
+    }
+
     protected Map<String, String> pointTags(final long index)
     {
         return this.pointTags().keyValuePairs(index);
     }
 
+    protected int pointTagValueIndex(final long index, final int keyIndex)
+    {
+        return this.pointTags().valueIndex(index, keyIndex);
+    }
+
     protected RelationMemberList relationAllKnownOsmMembers(final long index)
     {
         final List<RelationMember> result = new ArrayList<>();
         for (final long candidateIdentifier : this.relationOsmIdentifierToRelationIdentifiers()
                 .get(relationOsmIdentifier(index)))
         {
-            final long candidateIndex = this.relationIdentifierToRelationArrayIndex()
-                    .get(candidateIdentifier);
+            final long candidateIndex = this.relationArrayIndex(candidateIdentifier);
             result.addAll(relationMembers(candidateIndex));
         }
         return new RelationMemberList(result);
@@ -1295,8 +1907,7 @@ public final class PackedAtlas extends AbstractAtlas
         for (final long candidateIdentifier : this.relationOsmIdentifierToRelationIdentifiers()
                 .get(relationOsmIdentifier(index)))
         {
-            final long candidateIndex = this.relationIdentifierToRelationArrayIndex()
-                    .get(candidateIdentifier);
+            final long candidateIndex = this.relationArrayIndex(candidateIdentifier);
             result.add(new PackedRelation(this, candidateIndex));
         }
         return result;
@@ -1396,11 +2007,21 @@ public final class PackedAtlas extends AbstractAtlas
         return itemRelations(this.relationIndexToRelationIndices().get(index));
     }
 
+    protected Optional<String> relationTag(final long index, final String key)
+    {
+        return tag(this.relationTags(), index, key);
+    }
+
     protected Map<String, String> relationTags(final long index)
     {
         return this.relationTags().keyValuePairs(index);
     }
 
+    protected int relationTagValueIndex(final long index, final int keyIndex)
+    {
+        return this.relationTags().valueIndex(index, keyIndex);
+    }
+
     /**
      * Set the serialization format for loading this {@link PackedAtlas}.
      *
@@ -1421,6 +2042,7 @@ public final class PackedAtlas extends AbstractAtlas
     protected void setMetaData(final AtlasMetaData metaData)
     {
         this.metaData = metaData;
+        this.sortedIdentifierTypes = null;
     }
 
     @Override
@@ -1457,7 +2079,8 @@ public final class PackedAtlas extends AbstractAtlas
      */
     private void addRelationMember(final String type, final long relationIndex,
             final Long memberIdentifier, final int relationMemberListIndex,
-            final long[] relationMemberIndexArray, final LongToLongMap memberIdentifierToArrayIndex,
+            final long[] relationMemberIndexArray,
+            final LongToLongOpenHashMap memberIdentifierToArrayIndex,
             final LongToLongMultiMap memberIndicesToRelationIndices)
     {
         if (memberIdentifierToArrayIndex.containsKey(memberIdentifier))
@@ -1474,9 +2097,21 @@ public final class PackedAtlas extends AbstractAtlas
         }
     }
 
-    private LongToLongMap areaIdentifierToAreaArrayIndex()
+    private long areaArrayIndex(final long identifier)
+    {
+        return arrayIndex(ItemType.AREA, this.areaIdentifierToAreaArrayIndex(),
+                this::areaIdentifiers, identifier);
+    }
+
+    private FlatPolyLineArray areaFlatPolygons()
+    {
+        return deserializedIfPresent(() -> this.areaFlatPolygons, this.fieldAreaFlatPolygonsLock,
+                FIELD_AREA_FLAT_POLYGONS);
+    }
+
+    private LongToLongOpenHashMap areaIdentifierToAreaArrayIndex()
     {
-        return deserializedIfNeeded(() -> this.areaIdentifierToAreaArrayIndex,
+        return deserializedIfPresent(() -> this.areaIdentifierToAreaArrayIndex,
                 this.fieldAreaIdentifierToAreaArrayIndexLock,
                 FIELD_AREA_IDENTIFIER_TO_AREA_ARRAY_INDEX);
     }
@@ -1499,12 +2134,52 @@ public final class PackedAtlas extends AbstractAtlas
                 FIELD_AREA_POLYGONS);
     }
 
+    private PackedRTree areaRTree()
+    {
+        return deserializedIfPresent(() -> this.areaRTree, this.fieldAreaRTreeLock,
+                FIELD_AREA_R_TREE);
+    }
+
+    private PackedTagIndex areaTagIndex()
+    {
+        return withDictionary(deserializedIfPresent(() -> this.areaTagIndex,
+                this.fieldAreaTagIndexLock, FIELD_AREA_TAG_INDEX), this.fieldAreaTagIndexLock);
+    }
+
     private PackedTagStore areaTags()
     {
         return deserializedIfNeeded(() -> this.areaTags, tags -> tags.setDictionary(dictionary()),
                 this.fieldAreaTagsLock, FIELD_AREA_TAGS);
     }
 
+    /**
+     * @param type
+     *            The type of the identifier
+     * @param identifierToArrayIndex
+     *            The map from identifier to array index, or null if the identifiers are sorted
+     * @param identifiers
+     *            The identifiers of the same type
+     * @param identifier
+     *            The identifier to look up
+     * @return The array index of the identifier, or -1 if it is not in this atlas
+     */
+    private long arrayIndex(final ItemType type,
+            final LongToLongOpenHashMap identifierToArrayIndex,
+            final Supplier<LongArray> identifiers, final long identifier)
+    {
+        if (identifierToArrayIndex != null)
+        {
+            return identifierToArrayIndex.getOrDefault(identifier, -1L);
+        }
+        // Without the map, only a search of identifiers known to be sorted is correct
+        if (!this.sortedIdentifierTypes().contains(type))
+        {
+            throw new CoreException("Atlas {} is missing its {} identifier map", this.getName(),
+                    type);
+        }
+        return identifiers.get().sortedIndexOf(identifier);
+    }
+
     private <T> T deserializedIfNeeded(final Supplier<T> supplier, final Consumer<T> consumer,
             final Object lock, final String fieldName)
     {
@@ -1531,21 +2206,56 @@ public final class PackedAtlas extends AbstractAtlas
         return deserializedIfNeeded(supplier, null, lock, fieldName);
     }
 
+    /**
+     * Same as {@link #deserializedIfNeeded(Supplier, Object, String)}, for the fields that older
+     * atlases might not contain.
+     *
+     * @return The field, or null if this {@link PackedAtlas} was built without it
+     */
+    private <T> T deserializedIfPresent(final Supplier<T> supplier, final Object lock,
+            final String fieldName)
+    {
+        if (supplier.get() == null && this.serializer != null
+                && !this.serializer.isAbsent(fieldName))
+        {
+            synchronized (lock) // NOSONAR
+            {
+                if (supplier.get() == null)
+                {
+                    this.serializer.deserializeIfPresent(fieldName);
+                }
+            }
+        }
+        return supplier.get();
+    }
+
     private IntegerDictionary<String> dictionary()
     {
         return deserializedIfNeeded(() -> this.dictionary, this.fieldDictionaryLock,
                 FIELD_DICTIONARY);
     }
 
+    private long edgeArrayIndex(final long identifier)
+    {
+        return arrayIndex(ItemType.EDGE, this.edgeIdentifierToEdgeArrayIndex(),
+                this::edgeIdentifiers, identifier);
+    }
+
     private LongArray edgeEndNodeIndex()
     {
         return deserializedIfNeeded(() -> this.edgeEndNodeIndex, this.fieldEdgeEndNodeIndexLock,
                 FIELD_EDGE_END_NODE_INDEX);
     }
 
-    private LongToLongMap edgeIdentifierToEdgeArrayIndex()
+    private FlatPolyLineArray edgeFlatPolyLines()
     {
-        return deserializedIfNeeded(() -> this.edgeIdentifierToEdgeArrayIndex,
+        return deserializedIfPresent(() -> this.edgeFlatPolyLines,
+                this.fieldEdgeFlatPolyLinesLock, FIELD_EDGE_FLAT_POLY_LINES);
+    }
+
+    private LongToLongOpenHashMap edgeIdentifierToEdgeArrayIndex()
+    {
+        return deserializedIfPresent(() -> this.edgeIdentifierToEdgeArrayIndex,
                 this.fieldEdgeIdentifierToEdgeArrayIndexLock,
                 FIELD_EDGE_IDENTIFIER_TO_EDGE_ARRAY_INDEX);
     }
@@ -1568,18 +2278,51 @@ public final class PackedAtlas extends AbstractAtlas
                 FIELD_EDGE_POLY_LINES);
     }
 
+    private PackedRTree edgeRTree()
+    {
+        return deserializedIfPresent(() -> this.edgeRTree, this.fieldEdgeRTreeLock,
+                FIELD_EDGE_R_TREE);
+    }
+
     private LongArray edgeStartNodeIndex()
     {
         return deserializedIfNeeded(() -> this.edgeStartNodeIndex, this.fieldEdgeStartNodeIndexLock,
                 FIELD_EDGE_START_NODE_INDEX);
     }
 
+    private PackedTagIndex edgeTagIndex()
+    {
+        return withDictionary(deserializedIfPresent(() -> this.edgeTagIndex,
+                this.fieldEdgeTagIndexLock, FIELD_EDGE_TAG_INDEX), this.fieldEdgeTagIndexLock);
+    }
+
     private PackedTagStore edgeTags()
     {
         return deserializedIfNeeded(() -> this.edgeTags, tags -> tags.setDictionary(dictionary()),
                 this.fieldEdgeTagsLock, FIELD_EDGE_TAGS);
     }
 
+    private LongArray identifiers(final ItemType type)
+    {
+        switch (type)
+        {
+            case NODE:
+                return this.nodeIdentifiers();
+            case EDGE:
+                return this.edgeIdentifiers();
+            case AREA:
+                return this.areaIdentifiers();
+            case LINE:
+                return this.lineIdentifiers();
+            case POINT:
+                return this.pointIdentifiers();
+            case RELATION:
+                return this.relationIdentifiers();
+            default:
+                throw new CoreException("Unknown type {}", type);
+        }
+    }
+
     private Set<Relation> itemRelations(final long[] relationIndices)
     {
         final Set<Relation> result = new LinkedHashSet<>();
@@ -1594,9 +2337,21 @@ public final class PackedAtlas extends AbstractAtlas
         return result;
     }
 
-    private LongToLongMap lineIdentifierToLineArrayIndex()
+    private long lineArrayIndex(final long identifier)
+    {
+        return arrayIndex(ItemType.LINE, this.lineIdentifierToLineArrayIndex(),
+                this::lineIdentifiers, identifier);
+    }
+
+    private FlatPolyLineArray lineFlatPolyLines()
+    {
+        return deserializedIfPresent(() -> this.lineFlatPolyLines,
+                this.fieldLineFlatPolyLinesLock, FIELD_LINE_FLAT_POLY_LINES);
+    }
+
+    private LongToLongOpenHashMap lineIdentifierToLineArrayIndex()
     {
-        return deserializedIfNeeded(() -> this.lineIdentifierToLineArrayIndex,
+        return deserializedIfPresent(() -> this.lineIdentifierToLineArrayIndex,
                 this.fieldLineIdentifierToLineArrayIndexLock,
                 FIELD_LINE_IDENTIFIER_TO_LINE_ARRAY_INDEX);
     }
@@ -1619,12 +2374,68 @@ public final class PackedAtlas extends AbstractAtlas
                 FIELD_LINE_POLYLINES);
     }
 
+    private PackedRTree lineRTree()
+    {
+        return deserializedIfPresent(() -> this.lineRTree, this.fieldLineRTreeLock,
+                FIELD_LINE_R_TREE);
+    }
+
+    private PackedTagIndex lineTagIndex()
+    {
+        return withDictionary(deserializedIfPresent(() -> this.lineTagIndex,
+                this.fieldLineTagIndexLock, FIELD_LINE_TAG_INDEX), this.fieldLineTagIndexLock);
+    }
+
     private PackedTagStore lineTags()
     {
         return deserializedIfNeeded(() -> this.lineTags, tags -> tags.setDictionary(dictionary()),
                 this.fieldLineTagsLock, FIELD_LINE_TAGS);
     }
 
+    /**
+     * @return The entities that match the filter, from the bitmap of the tag index, or empty if
+     *         there is no tag index or the filter cannot be evaluated against it
+     */
+    private <T> Optional<Iterable<T>> matching(final PackedTagIndex tagIndex,
+            final TaggableFilter filter, final LongFunction<T> entity)
+    {
+        if (tagIndex == null)
+        {
+            return Optional.empty();
+        }
+        return filter.evaluate(tagIndex)
+                .map(bitmap -> () -> bitmap.stream().mapToObj(entity).iterator());
+    }
+
+    /**
+     * @return The items of the tree that the matcher accepts, closest to the location first
+     */
+    private <T extends AtlasItem> List<T> nearestInTree(final PackedRTree tree,
+            final Location location, final int count, final Distance maximumDistance,
+            final LongFunction<T> feature, final Predicate<? super T> matcher)
+    {
+        final List<T> result = new ArrayList<>();
+        for (final long index : tree.nearest(location, count, maximumDistance, candidate ->
+        {
+            final T item = feature.apply(candidate);
+            return matcher.test(item) ? item.distanceTo(location) : null;
+        }))
+        {
+            result.add(feature.apply(index));
+        }
+        return result;
+    }
+
+    private synchronized EnumTagTables newEnumTagTables()
+    {
+        if (this.enumTagTables == null)
+        {
+            this.enumTagTables = new EnumTagTables(this::tagWordIndex,
+                    () -> dictionary().size());
+        }
+        return this.enumTagTables;
+    }
+
     // Keep this method around so legacy Atlas files can still be deserialized.
     @SuppressWarnings("unused")
     private PackedTagStore newPackedTagStore(final long maximumSize, final int memoryBlockSize,
@@ -1636,9 +2447,9 @@ public final class PackedAtlas extends AbstractAtlas
         };
     }
 
-    private LongToLongMap nodeIdentifierToNodeArrayIndex()
+    private LongToLongOpenHashMap nodeIdentifierToNodeArrayIndex()
     {
-        return deserializedIfNeeded(() -> this.nodeIdentifierToNodeArrayIndex,
+        return deserializedIfPresent(() -> this.nodeIdentifierToNodeArrayIndex,
                 this.fieldNodeIdentifierToNodeArrayIndexLock,
                 FIELD_NODE_IDENTIFIER_TO_NODE_ARRAY_INDEX);
     }
@@ -1673,15 +2484,33 @@ public final class PackedAtlas extends AbstractAtlas
                 this.fieldNodeOutEdgesIndicesLock, FIELD_NODE_OUT_EDGES_INDICES);
     }
 
+    private PackedRTree nodeRTree()
+    {
+        return deserializedIfPresent(() -> this.nodeRTree, this.fieldNodeRTreeLock,
+                FIELD_NODE_R_TREE);
+    }
+
+    private PackedTagIndex nodeTagIndex()
+    {
+        return withDictionary(deserializedIfPresent(() -> this.nodeTagIndex,
+                this.fieldNodeTagIndexLock, FIELD_NODE_TAG_INDEX), this.fieldNodeTagIndexLock);
+    }
+
     private PackedTagStore nodeTags()
     {
         return deserializedIfNeeded(() -> this.nodeTags, tags -> tags.setDictionary(dictionary()),
                 this.fieldNodeTagsLock, FIELD_NODE_TAGS);
     }
 
-    private LongToLongMap pointIdentifierToPointArrayIndex()
+    private long pointArrayIndex(final long identifier)
+    {
+        return arrayIndex(ItemType.POINT, this.pointIdentifierToPointArrayIndex(),
+                this::pointIdentifiers, identifier);
+    }
+
+    private LongToLongOpenHashMap pointIdentifierToPointArrayIndex()
     {
-        return deserializedIfNeeded(() -> this.pointIdentifierToPointArrayIndex,
+        return deserializedIfPresent(() -> this.pointIdentifierToPointArrayIndex,
                 this.fieldPointIdentifierToPointArrayIndexLock,
                 FIELD_POINT_IDENTIFIER_TO_POINT_ARRAY_INDEX);
     }
@@ -1704,6 +2533,18 @@ public final class PackedAtlas extends AbstractAtlas
                 FIELD_POINT_LOCATIONS);
     }
 
+    private PackedRTree pointRTree()
+    {
+        return deserializedIfPresent(() -> this.pointRTree, this.fieldPointRTreeLock,
+                FIELD_POINT_R_TREE);
+    }
+
+    private PackedTagIndex pointTagIndex()
+    {
+        return withDictionary(deserializedIfPresent(() -> this.pointTagIndex,
+                this.fieldPointTagIndexLock, FIELD_POINT_TAG_INDEX), this.fieldPointTagIndexLock);
+    }
+
     private PackedTagStore pointTags()
     {
         return deserializedIfNeeded(() -> this.pointTags, tags -> tags.setDictionary(dictionary()),
@@ -1874,6 +2715,68 @@ public final class PackedAtlas extends AbstractAtlas
         {
             this.fieldRelationGeometriesLock = new Object();
         }
+        if (this.fieldNodeRTreeLock == null)
+        {
+            this.fieldNodeRTreeLock = new Object();
+        }
+        if (this.fieldEdgeRTreeLock == null)
+        {
+            this.fieldEdgeRTreeLock = new Object();
+        }
+        if (this.fieldAreaRTreeLock == null)
+        {
+            this.fieldAreaRTreeLock = new Object();
+        }
+        if (this.fieldLineRTreeLock == null)
+        {
+            this.fieldLineRTreeLock = new Object();
+        }
+        if (this.fieldPointRTreeLock == null)
+        {
+            this.fieldPointRTreeLock = new Object();
+        }
+        if (this.fieldAreaTagIndexLock == null)
+        {
+            this.fieldAreaTagIndexLock = new Object();
+        }
+        if (this.fieldEdgeTagIndexLock == null)
+        {
+            this.fieldEdgeTagIndexLock = new Object();
+        }
+        if (this.fieldLineTagIndexLock == null)
+        {
+            this.fieldLineTagIndexLock = new Object();
+        }
+        if (this.fieldNodeTagIndexLock == null)
+        {
+            this.fieldNodeTagIndexLock = new Object();
+        }
+        if (this.fieldPointTagIndexLock == null)
+        {
+            this.fieldPointTagIndexLock = new Object();
+        }
+        if (this.fieldRelationTagIndexLock == null)
+        {
+            this.fieldRelationTagIndexLock = new Object();
+        }
+        if (this.fieldAreaFlatPolygonsLock == null)
+        {
+            this.fieldAreaFlatPolygonsLock = new Object();
+        }
+        if (this.fieldEdgeFlatPolyLinesLock == null)
+        {
+            this.fieldEdgeFlatPolyLinesLock = new Object();
+        }
+        if (this.fieldLineFlatPolyLinesLock == null)
+        {
+            this.fieldLineFlatPolyLinesLock = new Object();
+        }
+    }
+
+    private long relationArrayIndex(final long identifier)
+    {
+        return arrayIndex(ItemType.RELATION, this.relationIdentifierToRelationArrayIndex(),
+                this::relationIdentifiers, identifier);
     }
 
     private ByteArrayOfArrays relationGeometries()
@@ -1882,9 +2785,9 @@ public final class PackedAtlas extends AbstractAtlas
                 FIELD_RELATION_GEOMETRIES);
     }
 
-    private LongToLongMap relationIdentifierToRelationArrayIndex()
+    private LongToLongOpenHashMap relationIdentifierToRelationArrayIndex()
     {
-        return deserializedIfNeeded(() -> this.relationIdentifierToRelationArrayIndex,
+        return deserializedIfPresent(() -> this.relationIdentifierToRelationArrayIndex,
                 this.fieldRelationIdentifierToRelationArrayIndexLock,
                 FIELD_RELATION_IDENTIFIER_TO_RELATION_ARRAY_INDEX);
     }
@@ -1933,6 +2836,13 @@ public final class PackedAtlas extends AbstractAtlas
                 this.fieldRelationOsmIdentifiersLock, FIELD_RELATION_OSM_IDENTIFIERS);
     }
 
+    private PackedTagIndex relationTagIndex()
+    {
+        return withDictionary(deserializedIfPresent(() -> this.relationTagIndex,
+                this.fieldRelationTagIndexLock, FIELD_RELATION_TAG_INDEX),
+                this.fieldRelationTagIndexLock);
+    }
+
     private PackedTagStore relationTags()
     {
         return deserializedIfNeeded(() -> this.relationTags,
@@ -1940,6 +2850,56 @@ public final class PackedAtlas extends AbstractAtlas
                 FIELD_RELATION_TAGS);
     }
 
+    /**
+     * @return The types whose identifiers were sorted when this atlas was built, and which have no
+     *         identifier map
+     */
+    private Set<ItemType> sortedIdentifierTypes()
+    {
+        Set<ItemType> result = this.sortedIdentifierTypes;
+        if (result == null)
+        {
+            result = EnumSet.noneOf(ItemType.class);
+            final String names = this.metaData().getTag(AtlasMetaData.SORTED_IDENTIFIERS)
+                    .orElse("");
+            for (final String name : names.split(","))
+            {
+                if (!name.isEmpty())
+                {
+                    result.add(ItemType.valueOf(name));
+                }
+            }
+            this.sortedIdentifierTypes = result;
+        }
+        return result;
+    }
+
+    private Optional<String> tag(final PackedTagStore tags, final long index, final String key)
+    {
+        return key == null ? Optional.empty() : Optional.ofNullable(tags.get(index, key));
+    }
+
+    private PackedTagStore tags(final ItemType type)
+    {
+        switch (type)
+        {
+            case NODE:
+                return this.nodeTags();
+            case EDGE:
+                return this.edgeTags();
+            case AREA:
+                return this.areaTags();
+            case LINE:
+                return this.lineTags();
+            case POINT:
+                return this.pointTags();
+            case RELATION:
+                return this.relationTags();
+            default:
+                throw new CoreException("Unknown type {}", type);
+        }
+    }
+
     /**
      * Update references for Node in/out edges
      *
@@ -1959,20 +2919,29 @@ public final class PackedAtlas extends AbstractAtlas
         nodeEdgesIndices.set(nodeIndex, newNodeEdges);
     }
 
-    private void updatePackedTagStore(final PackedTagStore packedTagStore, final long index,
-            final Map<String, String> tags)
+    /**
+     * Give a tag index the dictionary of this atlas the first time it is used. Indices built with
+     * this atlas already have it, while indices read from a file or a Java stream do not.
+     *
+     * @param tagIndex
+     *            The tag index, or null if this atlas has none
+     * @param lock
+     *            The lock of the tag index field
+     * @return The tag index, ready to be queried
+     */
+    private PackedTagIndex withDictionary(final PackedTagIndex tagIndex, final Object lock)
     {
-        if (tags.isEmpty())
+        if (tagIndex != null && !tagIndex.hasDictionary())
         {
-            packedTagStore.add(index, null, null);
-        }
-        else
-        {
-            for (final Map.Entry<String, String> entry : tags.entrySet())
+            synchronized (lock) // NOSONAR
             {
-                packedTagStore.add(index, entry.getKey(), entry.getValue());
+                if (!tagIndex.hasDictionary())
+                {
+                    tagIndex.setDictionary(dictionary());
+                }
             }
         }
+        return tagIndex;
     }
 
     private void writeObject(final java.io.ObjectOutputStream out) throws IOException
@@ -1,6 +1,12 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.locationtech.jts.geom.MultiPolygon;
 import org.openstreetmap.atlas.exception.CoreException;
@@ -13,11 +19,15 @@ import org.openstreetmap.atlas.geography.atlas.builder.AtlasBuilder;
 import org.openstreetmap.atlas.geography.atlas.builder.AtlasSize;
 import org.openstreetmap.atlas.geography.atlas.builder.RelationBean;
 import org.openstreetmap.atlas.geography.atlas.exception.AtlasIntegrityException;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
 import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
+import org.openstreetmap.atlas.geography.atlas.items.ItemType;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
 import org.openstreetmap.atlas.geography.atlas.items.RelationMember;
 import org.openstreetmap.atlas.utilities.collections.Iterables;
+import org.openstreetmap.atlas.utilities.collections.Maps;
 import org.openstreetmap.atlas.utilities.scalars.Distance;
+import org.openstreetmap.atlas.utilities.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,14 +46,28 @@ public final class PackedAtlasBuilder implements AtlasBuilder
     // and use them instead.
     private static final Distance NODE_SEARCH_DISTANCE = Distance.ONE_METER;
     private static final Distance NODE_TOLERANCE_DISTANCE = Distance.meters(0.1);
+    // The types that are re-ordered by identifier when building with sorted identifiers. Relations
+    // are added after their members, so they keep their order.
+    private static final Set<ItemType> SORTABLE_TYPES = EnumSet.of(ItemType.NODE, ItemType.EDGE,
+            ItemType.AREA, ItemType.LINE, ItemType.POINT);
 
     private PackedAtlas atlas;
     private AtlasSize sizeEstimates = AtlasSize.DEFAULT;
     private boolean locked = false;
     private String name;
+    private boolean flatGeometry = false;
+    private boolean sortedIdentifiers = false;
+    private boolean tagIndex = false;
 
     private AtlasMetaData metaData = new AtlasMetaData();
 
+    private static <E extends AtlasEntity> Iterable<E> byIdentifier(final Iterable<E> entities)
+    {
+        return StreamSupport.stream(entities.spliterator(), false)
+                .sorted(Comparator.comparingLong(AtlasEntity::getIdentifier))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void addArea(final long identifier, final Polygon geometry,
             final Map<String, String> tags)
@@ -248,11 +272,35 @@ public final class PackedAtlasBuilder implements AtlasBuilder
                         relation.getIdentifier(), e);
             }
         });
+        if (this.sortedIdentifiers
+                && !SORTABLE_TYPES.stream().allMatch(this.atlas::hasSortedIdentifiers))
+        {
+            this.atlas = sortedByIdentifier();
+        }
+        if (this.flatGeometry)
+        {
+            this.atlas.flattenGeometry();
+        }
+        this.atlas.buildPackedSpatialIndices();
+        if (this.tagIndex)
+        {
+            this.atlas.buildTagIndices();
+        }
         // Update the meta data so the Atlas sizes are correct.
         final AtlasSize updatedAtlasSize = new AtlasSize(this.atlas.numberOfEdges(),
                 this.atlas.numberOfNodes(), this.atlas.numberOfAreas(), this.atlas.numberOfLines(),
                 this.atlas.numberOfPoints(), this.atlas.numberOfRelations());
-        this.atlas.setMetaData(this.metaData.copyWithNewSize(updatedAtlasSize));
+        AtlasMetaData updatedMetaData = this.metaData.copyWithNewSize(updatedAtlasSize);
+        if (this.sortedIdentifiers)
+        {
+            final Set<ItemType> sortedTypes = this.atlas.dropSortedIdentifierMaps();
+            final Map<String, String> tags = Maps.hashMap();
+            tags.putAll(updatedMetaData.getTags());
+            tags.put(AtlasMetaData.SORTED_IDENTIFIERS, sortedTypes.stream().map(ItemType::name)
+                    .collect(Collectors.joining(",")));
+            updatedMetaData = updatedMetaData.copyWithNewTags(tags);
+        }
+        this.atlas.setMetaData(updatedMetaData);
         return this.atlas;
     }
 
@@ -280,6 +328,19 @@ public final class PackedAtlasBuilder implements AtlasBuilder
         return this;
     }
 
+    /**
+     * Build the {@link PackedAtlas} with the shapes of its edges, areas and lines stored as flat
+     * dm7 coordinates with cached bounds, instead of compressed polylines. This takes more space,
+     * but the bounds, length and rectangle intersection queries do not decode the shapes.
+     *
+     * @return This builder
+     */
+    public PackedAtlasBuilder withFlatGeometry()
+    {
+        this.flatGeometry = true;
+        return this;
+    }
+
     public PackedAtlasBuilder withMetaData(final AtlasMetaData metaData)
     {
         setMetaData(metaData);
@@ -298,6 +359,34 @@ public final class PackedAtlasBuilder implements AtlasBuilder
         return this;
     }
 
+    /**
+     * Build the {@link PackedAtlas} with its nodes, edges, areas, lines and points sorted by
+     * identifier. The identifier maps of the sorted types are then not kept, and the identifiers
+     * are looked up by searching the sorted identifier arrays instead. Relations are sorted only
+     * if they were added in identifier order. The sorted types are recorded in the
+     * {@link AtlasMetaData#SORTED_IDENTIFIERS} meta data tag.
+     *
+     * @return This builder
+     */
+    public PackedAtlasBuilder withSortedIdentifiers()
+    {
+        this.sortedIdentifiers = true;
+        return this;
+    }
+
+    /**
+     * Build the {@link PackedAtlas} with an inverted index of the tags of each entity type, from
+     * the tag keys and values to bitmaps of array indices. The index is saved with the atlas, and
+     * lets the xxxMatching(TaggableFilter) queries skip the entities that do not match.
+     *
+     * @return This builder
+     */
+    public PackedAtlasBuilder withTagIndex()
+    {
+        this.tagIndex = true;
+        return this;
+    }
+
     private void initialize()
     {
         initialize(false);
@@ -316,6 +405,49 @@ public final class PackedAtlasBuilder implements AtlasBuilder
         }
     }
 
+    /**
+     * @return A copy of the atlas built so far, with the features of each type added in identifier
+     *         order. Relations are added lower order first, so their members always exist.
+     */
+    private PackedAtlas sortedByIdentifier()
+    {
+        final Time start = Time.now();
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder()
+                .withSizeEstimates(this.sizeEstimates).withName(this.name);
+        final boolean enhanced = this.atlas.containsEnhancedRelationGeometry();
+        builder.initialize(enhanced);
+        byIdentifier(this.atlas.nodes()).forEach(
+                node -> builder.addNode(node.getIdentifier(), node.getLocation(), node.getTags()));
+        byIdentifier(this.atlas.edges()).forEach(
+                edge -> builder.addEdge(edge.getIdentifier(), edge.asPolyLine(), edge.getTags()));
+        byIdentifier(this.atlas.areas()).forEach(
+                area -> builder.addArea(area.getIdentifier(), area.asPolygon(), area.getTags()));
+        byIdentifier(this.atlas.lines()).forEach(
+                line -> builder.addLine(line.getIdentifier(), line.asPolyLine(), line.getTags()));
+        byIdentifier(this.atlas.points()).forEach(point -> builder
+                .addPoint(point.getIdentifier(), point.getLocation(), point.getTags()));
+        this.atlas.relationsLowerOrderFirst().forEach(relation ->
+        {
+            final RelationBean bean = new RelationBean();
+            relation.members().forEach(member -> bean.addItem(member.getEntity().getIdentifier(),
+                    member.getRole(), member.getEntity().getType()));
+            final Optional<MultiPolygon> geometry = enhanced ? relation.asMultiPolygon()
+                    : Optional.empty();
+            if (geometry.isPresent())
+            {
+                builder.addRelation(relation.getIdentifier(), relation.osmRelationIdentifier(),
+                        bean, relation.getTags(), geometry.get());
+            }
+            else
+            {
+                builder.addRelation(relation.getIdentifier(), relation.osmRelationIdentifier(),
+                        bean, relation.getTags());
+            }
+        });
+        logger.trace("Sorted Atlas {} by identifier in {}", this.name, start.elapsedSince());
+        return builder.peek();
+    }
+
     /**
      * Recursive call to make sure that the relations are really bounded and do not loop on each
      * other.
@@ -20,6 +20,9 @@ public class PackedAtlasCloner
 {
     private String shardName = null;
     private Optional<Map<String, String>> additionalMetaDataTags = Optional.empty();
+    private boolean flatGeometry = false;
+    private boolean sortedIdentifiers = false;
+    private boolean tagIndex = false;
 
     public PackedAtlasCloner()
     {
@@ -60,6 +63,18 @@ public class PackedAtlasCloner
 
         builder.setMetaData(metaData);
         builder.withEnhancedRelationGeometry();
+        if (this.flatGeometry)
+        {
+            builder.withFlatGeometry();
+        }
+        if (this.sortedIdentifiers)
+        {
+            builder.withSortedIdentifiers();
+        }
+        if (this.tagIndex)
+        {
+            builder.withTagIndex();
+        }
         atlas.nodes().forEach(
                 node -> builder.addNode(node.getIdentifier(), node.getLocation(), node.getTags()));
         atlas.edges().forEach(
@@ -94,6 +109,43 @@ public class PackedAtlasCloner
         return this;
     }
 
+    /**
+     * Clone into a {@link PackedAtlas} with flat geometry.
+     *
+     * @return The updated {@link PackedAtlasCloner}
+     * @see PackedAtlasBuilder#withFlatGeometry()
+     */
+    public PackedAtlasCloner withFlatGeometry()
+    {
+        this.flatGeometry = true;
+        return this;
+    }
+
+    /**
+     * Clone into a {@link PackedAtlas} sorted by identifier, which looks up its features without
+     * identifier maps.
+     *
+     * @return The updated {@link PackedAtlasCloner}
+     * @see PackedAtlasBuilder#withSortedIdentifiers()
+     */
+    public PackedAtlasCloner withSortedIdentifiers()
+    {
+        this.sortedIdentifiers = true;
+        return this;
+    }
+
+    /**
+     * Clone into a {@link PackedAtlas} with inverted tag indices.
+     *
+     * @return The updated {@link PackedAtlasCloner}
+     * @see PackedAtlasBuilder#withTagIndex()
+     */
+    public PackedAtlasCloner withTagIndex()
+    {
+        this.tagIndex = true;
+        return this;
+    }
+
     private void addRelation(final PackedAtlasBuilder builder, final Relation relation)
     {
         final RelationBean bean = new RelationBean();
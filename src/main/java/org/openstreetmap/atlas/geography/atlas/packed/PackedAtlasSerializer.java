@@ -8,10 +8,18 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.atlas.Atlas;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas.AtlasSerializationFormat;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive.BlockEncoding;
+import org.openstreetmap.atlas.mapped.MappedBlockArchiveWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
 import org.openstreetmap.atlas.proto.ProtoSerializable;
 import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
 import org.openstreetmap.atlas.streaming.CounterOutputStream;
@@ -29,12 +37,15 @@ import org.openstreetmap.atlas.utilities.collections.Iterables;
 import org.openstreetmap.atlas.utilities.collections.MultiIterable;
 import org.openstreetmap.atlas.utilities.collections.StreamIterable;
 import org.openstreetmap.atlas.utilities.collections.StringList;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongOpenHashMap;
 import org.openstreetmap.atlas.utilities.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Class that serializes and deserializes {@link PackedAtlas}s to a {@link ZipResource}
+ * Class that serializes and deserializes {@link PackedAtlas}s to a {@link ZipResource}, or to a
+ * {@link MappedBlockArchive} for the {@link AtlasSerializationFormat#MAPPED} format.
  *
  * @author matthieun
  * @author lcram
@@ -75,10 +86,39 @@ public final class PackedAtlasSerializer
             PackedAtlas.FIELD_SERIALIZER, PackedAtlas.FIELD_SAVE_SERIALIZATION_FORMAT,
             PackedAtlas.FIELD_LOAD_SERIALIZATION_FORMAT, PackedAtlas.FIELD_PREFIX,
             PackedAtlas.FIELD_CONTAINS_ENHANCED_RELATION_GEOMETRY,
-            PackedAtlas.FIELD_BUILT_RELATION_GEOMETRIES,
+            PackedAtlas.FIELD_BUILT_RELATION_GEOMETRIES, PackedAtlas.FIELD_SORTED_IDENTIFIER_TYPES,
+            PackedAtlas.FIELD_ENUM_TAG_TABLES,
             /* https://stackoverflow.com/a/39037512/1558687 */"$jacocoData");
+    // The fields that atlases saved with older versions, or with sorted identifiers, might not
+    // contain. An absent identifier map is only accepted for the types the meta data lists as
+    // sorted.
+    private static final StringList OPTIONAL_FIELDS = new StringList(PackedAtlas.FIELD_NODE_R_TREE,
+            PackedAtlas.FIELD_EDGE_R_TREE, PackedAtlas.FIELD_AREA_R_TREE,
+            PackedAtlas.FIELD_LINE_R_TREE, PackedAtlas.FIELD_POINT_R_TREE,
+            PackedAtlas.FIELD_NODE_IDENTIFIER_TO_NODE_ARRAY_INDEX,
+            PackedAtlas.FIELD_EDGE_IDENTIFIER_TO_EDGE_ARRAY_INDEX,
+            PackedAtlas.FIELD_AREA_IDENTIFIER_TO_AREA_ARRAY_INDEX,
+            PackedAtlas.FIELD_LINE_IDENTIFIER_TO_LINE_ARRAY_INDEX,
+            PackedAtlas.FIELD_POINT_IDENTIFIER_TO_POINT_ARRAY_INDEX,
+            PackedAtlas.FIELD_RELATION_IDENTIFIER_TO_RELATION_ARRAY_INDEX,
+            PackedAtlas.FIELD_NODE_TAG_INDEX, PackedAtlas.FIELD_EDGE_TAG_INDEX,
+            PackedAtlas.FIELD_AREA_TAG_INDEX, PackedAtlas.FIELD_LINE_TAG_INDEX,
+            PackedAtlas.FIELD_POINT_TAG_INDEX, PackedAtlas.FIELD_RELATION_TAG_INDEX,
+            PackedAtlas.FIELD_EDGE_FLAT_POLY_LINES, PackedAtlas.FIELD_AREA_FLAT_POLYGONS,
+            PackedAtlas.FIELD_LINE_FLAT_POLY_LINES);
+    // The compressed shapes, which are required unless the atlas was built with flat geometry and
+    // has their flat replacement instead
+    private static final Map<String, String> REPLACED_FIELDS = Map.of(
+            PackedAtlas.FIELD_EDGE_POLY_LINES, PackedAtlas.FIELD_EDGE_FLAT_POLY_LINES,
+            PackedAtlas.FIELD_AREA_POLYGONS, PackedAtlas.FIELD_AREA_FLAT_POLYGONS,
+            PackedAtlas.FIELD_LINE_POLYLINES, PackedAtlas.FIELD_LINE_FLAT_POLY_LINES);
     private final PackedAtlas atlas;
     private final ZipResource source;
+    private final Resource resource;
+    private MappedBlockArchive archive;
+    private final Set<String> absentFields = ConcurrentHashMap.newKeySet();
+    // The names of the entries of a randomly accessed zip file, listed once when first needed
+    private Set<String> entryNames;
 
     /**
      * Use reflection to create a {@link PackedAtlas} from a serialized resource.
@@ -128,10 +168,11 @@ public final class PackedAtlasSerializer
             logger.trace("Using load format {} for atlas {}", candidateFormat, atlas.getName());
 
             /*
-             * Now, if we are PROTOBUF, let's check for the enhanced relation geometry that some
-             * atlases may contain.
+             * Now, if we are PROTOBUF or MAPPED, let's check for the enhanced relation geometry
+             * that some atlases may contain.
              */
-            if (atlas.getLoadSerializationFormat() == AtlasSerializationFormat.PROTOBUF)
+            if (atlas.getLoadSerializationFormat() == AtlasSerializationFormat.PROTOBUF
+                    || atlas.getLoadSerializationFormat() == AtlasSerializationFormat.MAPPED)
             {
                 try
                 {
@@ -174,6 +215,7 @@ public final class PackedAtlasSerializer
     protected PackedAtlasSerializer(final PackedAtlas atlas, final Resource resource)
     {
         this.atlas = atlas;
+        this.resource = resource;
         if (resource instanceof File && !resource.isGzipped())
         {
             // Make sure to use ZipFileWritableResource to take advantage of the random access.
@@ -194,7 +236,25 @@ public final class PackedAtlasSerializer
      */
     protected void deserializeAllFieldsIfNeeded()
     {
-        fields().map(Field::getName).forEach(this::deserializeIfNeeded);
+        fields().map(Field::getName).forEach(name ->
+        {
+            if (OPTIONAL_FIELDS.contains(name))
+            {
+                deserializeIfPresent(name);
+            }
+            else if (REPLACED_FIELDS.containsKey(name))
+            {
+                deserializeIfPresent(REPLACED_FIELDS.get(name));
+                if (getField(readField(REPLACED_FIELDS.get(name))) == null)
+                {
+                    deserializeIfNeeded(name);
+                }
+            }
+            else
+            {
+                deserializeIfNeeded(name);
+            }
+        });
     }
 
     /**
@@ -228,6 +288,44 @@ public final class PackedAtlasSerializer
         }
     }
 
+    /**
+     * Same as {@link #deserializeIfNeeded(String)}, for the fields that are not in atlases saved
+     * with older versions. When the resource does not contain the field, it is left null, and it
+     * is not looked for again. A field which is in the resource but cannot be read still fails.
+     *
+     * @param name
+     *            The name of the field
+     */
+    protected void deserializeIfPresent(final String name)
+    {
+        if (this.absentFields.contains(name))
+        {
+            return;
+        }
+        if (!containsField(name))
+        {
+            logger.debug("Field {} is not in {}", name, this.resource.getName());
+            this.absentFields.add(name);
+            return;
+        }
+        deserializeIfNeeded(name);
+        // Without random access, all the fields are read at once, and an absent one stays null
+        if (getField(readField(name)) == null)
+        {
+            this.absentFields.add(name);
+        }
+    }
+
+    /**
+     * @param name
+     *            The name of an optional field
+     * @return True if that field was found to be absent from the resource
+     */
+    protected boolean isAbsent(final String name)
+    {
+        return this.absentFields.contains(name);
+    }
+
     /**
      * Save an Atlas file to a {@link ZipWritableResource}. This method uses reflection to identify
      * all the fields in the {@link PackedAtlas}, and stores each field into a separate zip entry,
@@ -235,7 +333,11 @@ public final class PackedAtlasSerializer
      */
     protected void save()
     {
-        if (this.source instanceof ZipWritableResource)
+        if (this.atlas.getSaveSerializationFormat() == AtlasSerializationFormat.MAPPED)
+        {
+            saveMapped();
+        }
+        else if (this.source instanceof ZipWritableResource)
         {
             // Load the Atlas completely if it has not been loaded yet
             this.atlas.getSerializer()
@@ -244,21 +346,8 @@ public final class PackedAtlasSerializer
             // Isolate the metaData field
             final Field metaData = readField(PackedAtlas.FIELD_META_DATA);
             final Iterable<Resource> firstResource = Iterables.from(fieldTranslator(metaData));
-            final Iterable<Resource> fieldResources = fields().filter(field ->
-            {
-                final String fieldName = field.getName();
-                /*
-                 * If this atlas does not contain enhanced relation geometries, skip serialization
-                 */
-                if (!this.atlas.containsEnhancedRelationGeometry()
-                        && PackedAtlas.FIELD_RELATION_GEOMETRIES.equals(fieldName))
-                {
-                    return false;
-                }
-                return !PackedAtlas.FIELD_META_DATA.equals(fieldName)
-                        && !EXCLUDED_FIELDS.startsWithContains(fieldName)
-                        && !fieldName.contains("Lock");
-            }).map(this::fieldTranslator).collect();
+            final Iterable<Resource> fieldResources = fieldsToSave().map(this::fieldTranslator)
+                    .collect();
             // Put the metaData field first, always.
             final Iterable<Resource> result = new MultiIterable<>(firstResource, fieldResources);
             destination.writeAndClose(result);
@@ -269,6 +358,18 @@ public final class PackedAtlasSerializer
         }
     }
 
+    /**
+     * @return The {@link MappedBlockArchive} to load the fields from, opened on first use
+     */
+    private synchronized MappedBlockArchive archive()
+    {
+        if (this.archive == null)
+        {
+            this.archive = new MappedBlockArchive(this.resource);
+        }
+        return this.archive;
+    }
+
     /**
      * Assign itself as the Atlas' official serializer
      */
@@ -291,6 +392,25 @@ public final class PackedAtlasSerializer
         return out;
     }
 
+    /**
+     * @param name
+     *            The name of a field
+     * @return False if the resource is known not to contain that field. Without random access,
+     *         this is only known once all the fields are read.
+     */
+    private boolean containsField(final String name)
+    {
+        if (this.atlas.getLoadSerializationFormat() == AtlasSerializationFormat.MAPPED)
+        {
+            return archive().contains(name);
+        }
+        if (canLoadWithRandomAccess())
+        {
+            return entryNames().contains(name);
+        }
+        return true;
+    }
+
     private InputStream decompress(final InputStream input) throws IOException
     {
         return input;
@@ -335,36 +455,50 @@ public final class PackedAtlasSerializer
         }
     }
 
-    private Object deserializeProtoResource(final Resource resource, final String fieldName)
+    /**
+     * Deserialize a specific field from the {@link MappedBlockArchive} and assign it to the Atlas.
+     * Primitive blocks are read in place, and protobuf blocks are decoded as in the
+     * {@link AtlasSerializationFormat#PROTOBUF} format.
+     *
+     * @param name
+     *            The name of the field.
+     */
+    private void deserializeMappedField(final String name)
     {
-        final Field field = readField(fieldName);
-        final Class<?> fieldClass = field.getType();
-        Constructor<?> fieldClassConstructor = null;
-
-        // We need to obtain a dummy instance of the field we want to deserialize. We then use this
-        // dummy instance as a handle to get the correct {@link ProtoAdapter}.
-        try
+        if (PackedAtlas.FIELD_RELATION_GEOMETRIES.equals(name)
+                && !this.atlas.containsEnhancedRelationGeometry())
         {
-            fieldClassConstructor = fieldClass.getDeclaredConstructor();
-        }
-        catch (final Exception exception)
-        {
-            throw new CoreException("Class {} does not implement a nullary constructor",
-                    fieldClass.getName(), exception);
-        }
-        fieldClassConstructor.setAccessible(true);
-
-        Object handle = null;
-        try
-        {
-            handle = fieldClassConstructor.newInstance();
+            return;
         }
-        catch (final Exception exception)
+        final MappedBlockArchive mappedArchive = archive();
+        final Object handle = fieldHandle(name);
+        final Object result;
+        try (MappedBlock block = mappedArchive.block(name).orElseThrow(
+                () -> new CoreException("Field {} is not in {}", name, this.resource.getName())))
         {
-            throw new CoreException("Failed to create instance of {}", fieldClass.getName(),
-                    exception);
+            final BlockEncoding encoding = mappedArchive.encoding(name);
+            if (encoding == BlockEncoding.PRIMITIVE && handle instanceof MappedSerializable)
+            {
+                result = ((MappedSerializable) handle).getMappedAdapter().deserialize(block);
+            }
+            else if (encoding == BlockEncoding.PROTOBUF && handle instanceof ProtoSerializable)
+            {
+                result = ((ProtoSerializable) handle).getProtoAdapter()
+                        .deserialize(block.readBytes(Math.toIntExact(block.length())));
+            }
+            else
+            {
+                throw new CoreException("Field {} of type {} cannot be read from a {} block", name,
+                        handle.getClass().getName(), encoding);
+            }
         }
+        logger.trace("Loaded Field {} from {}", name, mappedArchive);
+        setField(readField(name), result);
+    }
 
+    private Object deserializeProtoResource(final Resource resource, final String fieldName)
+    {
+        final Object handle = fieldHandle(fieldName);
         ProtoSerializable protoHandle = null;
         try
         {
@@ -372,7 +506,8 @@ public final class PackedAtlasSerializer
         }
         catch (final ClassCastException exception)
         {
-            throw new CoreException("{} is not ProtoSerializable", fieldClass.getName(), exception);
+            throw new CoreException("{} is not ProtoSerializable", handle.getClass().getName(),
+                    exception);
         }
 
         return protoHandle.getProtoAdapter().deserialize(resource.readBytesAndClose());
@@ -443,6 +578,42 @@ public final class PackedAtlasSerializer
         setField(readField(name), result);
     }
 
+    /**
+     * We need to obtain a dummy instance of the field we want to deserialize. We then use this
+     * dummy instance as a handle to get the correct {@link ProtoAdapter} or
+     * {@link org.openstreetmap.atlas.mapped.adapters.MappedAdapter}.
+     *
+     * @param fieldName
+     *            The name of the field
+     * @return A dummy instance of the field's type, created with its nullary constructor
+     */
+    private Object fieldHandle(final String fieldName)
+    {
+        final Field field = readField(fieldName);
+        final Class<?> fieldClass = field.getType();
+        Constructor<?> fieldClassConstructor = null;
+        try
+        {
+            fieldClassConstructor = fieldClass.getDeclaredConstructor();
+        }
+        catch (final Exception exception)
+        {
+            throw new CoreException("Class {} does not implement a nullary constructor",
+                    fieldClass.getName(), exception);
+        }
+        fieldClassConstructor.setAccessible(true);
+
+        try
+        {
+            return fieldClassConstructor.newInstance();
+        }
+        catch (final Exception exception)
+        {
+            throw new CoreException("Failed to create instance of {}", fieldClass.getName(),
+                    exception);
+        }
+    }
+
     /**
      * The function that translates a reflection {@link Field} into a {@link Resource}
      *
@@ -478,6 +649,53 @@ public final class PackedAtlasSerializer
                 });
     }
 
+    /**
+     * @return All the fields to save, except the metaData field which is always saved first
+     */
+    private StreamIterable<Field> fieldsToSave()
+    {
+        return fields().filter(field ->
+        {
+            final String fieldName = field.getName();
+            /*
+             * If this atlas does not contain enhanced relation geometries, skip serialization
+             */
+            if (!this.atlas.containsEnhancedRelationGeometry()
+                    && PackedAtlas.FIELD_RELATION_GEOMETRIES.equals(fieldName))
+            {
+                return false;
+            }
+            /*
+             * Optional fields that are absent from the source atlas are not saved either
+             */
+            if (OPTIONAL_FIELDS.contains(fieldName) && getField(field) == null)
+            {
+                return false;
+            }
+            /*
+             * Compressed shapes replaced by flat geometry are not saved
+             */
+            if (REPLACED_FIELDS.containsKey(fieldName) && getField(field) == null
+                    && getField(readField(REPLACED_FIELDS.get(fieldName))) != null)
+            {
+                return false;
+            }
+            return !PackedAtlas.FIELD_META_DATA.equals(fieldName)
+                    && !EXCLUDED_FIELDS.startsWithContains(fieldName)
+                    && !fieldName.contains("Lock");
+        });
+    }
+
+    private synchronized Set<String> entryNames()
+    {
+        if (this.entryNames == null)
+        {
+            this.entryNames = Iterables.stream(this.source.entries()).map(Resource::getName)
+                    .collectToSet();
+        }
+        return this.entryNames;
+    }
+
     private Object getField(final Field field)
     {
         try
@@ -499,7 +717,11 @@ public final class PackedAtlasSerializer
      */
     private void load(final String name)
     {
-        if (canLoadWithRandomAccess() || PackedAtlas.FIELD_META_DATA.equals(name))
+        if (this.atlas.getLoadSerializationFormat() == AtlasSerializationFormat.MAPPED)
+        {
+            deserializeMappedField(name);
+        }
+        else if (canLoadWithRandomAccess() || PackedAtlas.FIELD_META_DATA.equals(name))
         {
             deserializeSingleField(name);
         }
@@ -591,6 +813,51 @@ public final class PackedAtlasSerializer
         }
     }
 
+    /**
+     * Save the Atlas to a {@link MappedBlockArchive}, one block per field, with the metaData field
+     * first. Fields that can be laid out as primitive blocks are, and the others are stored as
+     * protobuf payloads.
+     */
+    private void saveMapped()
+    {
+        if (!(this.resource instanceof WritableResource))
+        {
+            throw new CoreException("The Resource {} is not writable.", this.resource);
+        }
+        // Load the Atlas completely if it has not been loaded yet
+        this.atlas.getSerializer().ifPresent(PackedAtlasSerializer::deserializeAllFieldsIfNeeded);
+        try (MappedBlockArchiveWriter writer = new MappedBlockArchiveWriter(
+                (WritableResource) this.resource))
+        {
+            final Iterable<Field> result = new MultiIterable<>(
+                    Iterables.from(readField(PackedAtlas.FIELD_META_DATA)), fieldsToSave());
+            for (final Field field : result)
+            {
+                final Object value = getField(field);
+                logger.trace("Saving field {}", field.getName());
+                if (value instanceof MappedSerializable)
+                {
+                    final MappedSerializable candidate = (MappedSerializable) value;
+                    writer.writeBlock(field.getName(), BlockEncoding.PRIMITIVE,
+                            blockWriter -> candidate.getMappedAdapter().serialize(candidate,
+                                    blockWriter));
+                }
+                else if (value instanceof ProtoSerializable)
+                {
+                    final ProtoSerializable candidate = (ProtoSerializable) value;
+                    final byte[] contents = candidate.getProtoAdapter().serialize(candidate);
+                    writer.writeBlock(field.getName(), BlockEncoding.PROTOBUF,
+                            blockWriter -> blockWriter.writeBytes(contents));
+                }
+                else
+                {
+                    throw new CoreException("Field {} of atlas {} cannot be saved as {}",
+                            field.getName(), this.atlas.getName(), AtlasSerializationFormat.MAPPED);
+                }
+            }
+        }
+    }
+
     /**
      * Assign a field to the Atlas
      *
@@ -601,9 +868,15 @@ public final class PackedAtlasSerializer
      */
     private void setField(final Field field, final Object object)
     {
+        Object value = object;
+        if (object instanceof LongToLongMap && field.getType() == LongToLongOpenHashMap.class)
+        {
+            // Legacy JAVA atlases have LongToLongMap identifier maps
+            value = LongToLongOpenHashMap.copyOf((LongToLongMap) object);
+        }
         try
         {
-            field.set(this.atlas, object);
+            field.set(this.atlas, value);
         }
         catch (final Exception e)
         {
@@ -1,19 +1,25 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
+import org.openstreetmap.atlas.geography.GeometricSurface;
 import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
+import org.openstreetmap.atlas.tags.cache.DictionaryTaggable;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 /**
  * {@link Edge} from a {@link PackedAtlas}
  *
  * @author matthieun
  */
-public class PackedEdge extends Edge
+public class PackedEdge extends Edge implements DictionaryTaggable
 {
     private static final long serialVersionUID = -7425733302988626570L;
 
@@ -31,24 +37,66 @@ public class PackedEdge extends Edge
         return packedAtlas().edgePolyLine(this.index);
     }
 
+    @Override
+    public Rectangle bounds()
+    {
+        return packedAtlas().edgeBounds(this.index);
+    }
+
     @Override
     public Node end()
     {
         return packedAtlas().edgeEndNode(this.index);
     }
 
+    @Override
+    public EnumTagTables getEnumTagTables()
+    {
+        return packedAtlas().enumTagTables();
+    }
+
     @Override
     public long getIdentifier()
     {
         return packedAtlas().edgeIdentifier(this.index);
     }
 
+    @Override
+    public Optional<String> getTag(final String key)
+    {
+        return packedAtlas().edgeTag(this.index, key);
+    }
+
+    @Override
+    public int getTagValueIndex(final int keyIndex)
+    {
+        return packedAtlas().edgeTagValueIndex(this.index, keyIndex);
+    }
+
     @Override
     public Map<String, String> getTags()
     {
         return packedAtlas().edgeTags(this.index);
     }
 
+    @Override
+    public boolean intersects(final GeometricSurface surface)
+    {
+        return packedAtlas().edgeIntersects(this.index, surface);
+    }
+
+    @Override
+    public Distance length()
+    {
+        return packedAtlas().edgeLength(this.index);
+    }
+
+    @Override
+    public int numberOfShapePoints()
+    {
+        return packedAtlas().edgeNumberOfShapePoints(this.index);
+    }
+
     @Override
     public Set<Relation> relations()
     {
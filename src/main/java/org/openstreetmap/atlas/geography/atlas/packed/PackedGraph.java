@@ -0,0 +1,119 @@
+package org.openstreetmap.atlas.geography.atlas.packed;
+
+import java.util.Optional;
+
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+
+/**
+ * Read-only view of the connectivity of a {@link PackedAtlas}, where {@link Node}s and
+ * {@link Edge}s are addressed by their index in the atlas' arrays instead of flyweight items. Graph
+ * algorithms can work on primitives only, and build items for their result only.
+ *
+ * @author agent
+ */
+public final class PackedGraph
+{
+    private final PackedAtlas atlas;
+
+    /**
+     * @param atlas
+     *            The {@link Atlas} to view
+     * @return The graph of the atlas, if it is a {@link PackedAtlas}
+     */
+    public static Optional<PackedGraph> from(final Atlas atlas)
+    {
+        if (atlas instanceof PackedAtlas)
+        {
+            return Optional.of(new PackedGraph((PackedAtlas) atlas));
+        }
+        return Optional.empty();
+    }
+
+    private PackedGraph(final PackedAtlas atlas)
+    {
+        this.atlas = atlas;
+    }
+
+    /**
+     * @param edgeIndex
+     *            The index of an {@link Edge}
+     * @return The {@link Edge}
+     */
+    public Edge edge(final long edgeIndex)
+    {
+        return new PackedEdge(this.atlas, edgeIndex);
+    }
+
+    /**
+     * @param edgeIndex
+     *            The index of an {@link Edge}
+     * @return The index of the end {@link Node} of that {@link Edge}
+     */
+    public long edgeEnd(final long edgeIndex)
+    {
+        return this.atlas.edgeEndNodeArrayIndex(edgeIndex);
+    }
+
+    public PackedAtlas getAtlas()
+    {
+        return this.atlas;
+    }
+
+    /**
+     * @param nodeIndex
+     *            The index of a {@link Node}
+     * @return The indices of the in {@link Edge}s of that {@link Node}. The array is shared, and
+     *         must not be modified.
+     */
+    public long[] inEdges(final long nodeIndex)
+    {
+        return this.atlas.nodeInEdgesArrayIndices(nodeIndex);
+    }
+
+    /**
+     * @param nodeIndex
+     *            The index of a {@link Node}
+     * @return The {@link Node}
+     */
+    public Node node(final long nodeIndex)
+    {
+        return new PackedNode(this.atlas, nodeIndex);
+    }
+
+    /**
+     * @param node
+     *            A {@link Node}
+     * @return The index of that {@link Node} in this graph, or -1 if it does not belong to the
+     *         viewed atlas
+     */
+    public long nodeIndex(final Node node)
+    {
+        if (node.getAtlas() != this.atlas)
+        {
+            return -1L;
+        }
+        if (node instanceof PackedNode)
+        {
+            return ((PackedNode) node).getIndex();
+        }
+        return this.atlas.nodeArrayIndex(node.getIdentifier());
+    }
+
+    public long numberOfNodes()
+    {
+        return this.atlas.numberOfNodes();
+    }
+
+    /**
+     * @param nodeIndex
+     *            The index of a {@link Node}
+     * @return The indices of the out {@link Edge}s of that {@link Node}. The array is shared, and
+     *         must not be modified.
+     */
+    public long[] outEdges(final long nodeIndex)
+    {
+        return this.atlas.nodeOutEdgesArrayIndices(nodeIndex);
+    }
+}
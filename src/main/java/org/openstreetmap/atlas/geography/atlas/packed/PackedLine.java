@@ -1,19 +1,25 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
+import org.openstreetmap.atlas.geography.GeometricSurface;
 import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
+import org.openstreetmap.atlas.tags.cache.DictionaryTaggable;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 
 /**
  * {@link Edge} from a {@link PackedAtlas}
  *
  * @author matthieun
  */
-public class PackedLine extends Line
+public class PackedLine extends Line implements DictionaryTaggable
 {
     private static final long serialVersionUID = 3087755941210424968L;
 
@@ -31,18 +37,60 @@ public class PackedLine extends Line
         return packedAtlas().linePolyLine(this.index);
     }
 
+    @Override
+    public Rectangle bounds()
+    {
+        return packedAtlas().lineBounds(this.index);
+    }
+
+    @Override
+    public EnumTagTables getEnumTagTables()
+    {
+        return packedAtlas().enumTagTables();
+    }
+
     @Override
     public long getIdentifier()
     {
         return packedAtlas().lineIdentifier(this.index);
     }
 
+    @Override
+    public Optional<String> getTag(final String key)
+    {
+        return packedAtlas().lineTag(this.index, key);
+    }
+
+    @Override
+    public int getTagValueIndex(final int keyIndex)
+    {
+        return packedAtlas().lineTagValueIndex(this.index, keyIndex);
+    }
+
     @Override
     public Map<String, String> getTags()
     {
         return packedAtlas().lineTags(this.index);
     }
 
+    @Override
+    public boolean intersects(final GeometricSurface surface)
+    {
+        return packedAtlas().lineIntersects(this.index, surface);
+    }
+
+    @Override
+    public Distance length()
+    {
+        return packedAtlas().lineLength(this.index);
+    }
+
+    @Override
+    public int numberOfShapePoints()
+    {
+        return packedAtlas().lineNumberOfShapePoints(this.index);
+    }
+
     @Override
     public Set<Relation> relations()
     {
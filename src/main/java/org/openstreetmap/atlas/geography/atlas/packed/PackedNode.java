@@ -1,6 +1,7 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -8,13 +9,15 @@ import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
+import org.openstreetmap.atlas.tags.cache.DictionaryTaggable;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
 
 /**
  * {@link Node} built from a {@link PackedAtlas}
  *
  * @author matthieun
  */
-public class PackedNode extends Node
+public class PackedNode extends Node implements DictionaryTaggable
 {
     private static final long serialVersionUID = -4505441893548672843L;
 
@@ -26,6 +29,12 @@ public class PackedNode extends Node
         this.index = index;
     }
 
+    @Override
+    public EnumTagTables getEnumTagTables()
+    {
+        return packedAtlas().enumTagTables();
+    }
+
     @Override
     public long getIdentifier()
     {
@@ -38,6 +47,18 @@ public class PackedNode extends Node
         return packedAtlas().nodeLocation(this.index);
     }
 
+    @Override
+    public Optional<String> getTag(final String key)
+    {
+        return packedAtlas().nodeTag(this.index, key);
+    }
+
+    @Override
+    public int getTagValueIndex(final int keyIndex)
+    {
+        return packedAtlas().nodeTagValueIndex(this.index, keyIndex);
+    }
+
     @Override
     public Map<String, String> getTags()
     {
@@ -62,6 +83,11 @@ public class PackedNode extends Node
         return packedAtlas().nodeRelations(this.index);
     }
 
+    long getIndex()
+    {
+        return this.index;
+    }
+
     private PackedAtlas packedAtlas()
     {
         return (PackedAtlas) getAtlas();
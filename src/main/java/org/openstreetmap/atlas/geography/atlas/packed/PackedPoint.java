@@ -1,19 +1,22 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Point;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
+import org.openstreetmap.atlas.tags.cache.DictionaryTaggable;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
 
 /**
  * {@link Edge} from a {@link PackedAtlas}
  *
  * @author matthieun
  */
-public class PackedPoint extends Point
+public class PackedPoint extends Point implements DictionaryTaggable
 {
     private static final long serialVersionUID = -7143958478767647582L;
 
@@ -25,6 +28,12 @@ public class PackedPoint extends Point
         this.index = index;
     }
 
+    @Override
+    public EnumTagTables getEnumTagTables()
+    {
+        return packedAtlas().enumTagTables();
+    }
+
     @Override
     public long getIdentifier()
     {
@@ -37,6 +46,18 @@ public class PackedPoint extends Point
         return packedAtlas().pointLocation(this.index);
     }
 
+    @Override
+    public Optional<String> getTag(final String key)
+    {
+        return packedAtlas().pointTag(this.index, key);
+    }
+
+    @Override
+    public int getTagValueIndex(final int keyIndex)
+    {
+        return packedAtlas().pointTagValueIndex(this.index, keyIndex);
+    }
+
     @Override
     public Map<String, String> getTags()
     {
@@ -0,0 +1,72 @@
+package org.openstreetmap.atlas.geography.atlas.packed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.index.PackedRTree;
+import org.openstreetmap.atlas.geography.index.SpatialIndex;
+
+/**
+ * Read-only {@link SpatialIndex} view of a {@link PackedRTree} built over the array indices of a
+ * {@link PackedAtlas}. The features are created from their array index when found, and are
+ * returned in the order of their array index, so the results do not depend on the tree layout.
+ *
+ * @param <T>
+ *            The type of feature
+ * @author agent
+ */
+final class PackedRTreeSpatialIndex<T extends AtlasEntity> implements SpatialIndex<T>
+{
+    private static final long serialVersionUID = -2934860531232817385L;
+
+    private final PackedRTree tree;
+    private final transient LongFunction<T> feature;
+
+    PackedRTreeSpatialIndex(final PackedRTree tree, final LongFunction<T> feature)
+    {
+        this.tree = tree;
+        this.feature = feature;
+    }
+
+    @Override
+    public void add(final T item)
+    {
+        throw new CoreException("Cannot add {} to a read-only {}", item,
+                PackedRTree.class.getSimpleName());
+    }
+
+    @Override
+    public Rectangle bounds()
+    {
+        return this.tree.bounds();
+    }
+
+    @Override
+    public Iterable<T> get(final Rectangle bounds)
+    {
+        return get(bounds, item -> true);
+    }
+
+    @Override
+    public Iterable<T> get(final Rectangle bounds, final Predicate<T> predicate)
+    {
+        final LongStream.Builder indices = LongStream.builder();
+        this.tree.search(bounds, indices::add);
+        final List<T> result = new ArrayList<>();
+        indices.build().sorted().forEach(index ->
+        {
+            final T item = this.feature.apply(index);
+            if (predicate.test(item))
+            {
+                result.add(item);
+            }
+        });
+        return result;
+    }
+}
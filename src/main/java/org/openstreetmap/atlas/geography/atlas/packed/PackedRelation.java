@@ -8,11 +8,13 @@ import java.util.Set;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
 import org.openstreetmap.atlas.geography.atlas.items.RelationMemberList;
+import org.openstreetmap.atlas.tags.cache.DictionaryTaggable;
+import org.openstreetmap.atlas.tags.cache.EnumTagTables;
 
 /**
  * @author matthieun
  */
-public class PackedRelation extends Relation
+public class PackedRelation extends Relation implements DictionaryTaggable
 {
     private static final long serialVersionUID = -1912941368972318403L;
 
@@ -57,12 +59,30 @@ public class PackedRelation extends Relation
         return Optional.ofNullable(relationGeometry);
     }
 
+    @Override
+    public EnumTagTables getEnumTagTables()
+    {
+        return packedAtlas().enumTagTables();
+    }
+
     @Override
     public long getIdentifier()
     {
         return packedAtlas().relationIdentifier(this.index);
     }
 
+    @Override
+    public Optional<String> getTag(final String key)
+    {
+        return packedAtlas().relationTag(this.index, key);
+    }
+
+    @Override
+    public int getTagValueIndex(final int keyIndex)
+    {
+        return packedAtlas().relationTagValueIndex(this.index, keyIndex);
+    }
+
     @Override
     public Map<String, String> getTags()
     {
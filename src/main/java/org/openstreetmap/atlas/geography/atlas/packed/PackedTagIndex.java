@@ -0,0 +1,250 @@
+package org.openstreetmap.atlas.geography.atlas.packed;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedPackedTagIndexAdapter;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoPackedTagIndexAdapter;
+import org.openstreetmap.atlas.tags.filters.TagIndex;
+import org.openstreetmap.atlas.utilities.arrays.IndexBitmap;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.compression.IntegerDictionary;
+
+/**
+ * Inverted index of a {@link PackedTagStore}. Each key/value pair of dictionary indices, and each
+ * key with any value, maps to an {@link IndexBitmap} of the array indices that have it. The entries
+ * are the sorted pairs, with the key index in the upper 32 bits, and {@link #ANY_VALUE} in the
+ * lower bits for the key bitmaps. The bitmaps are stored one after the other in a single
+ * {@link LongArray}, at the offsets of their entries.
+ *
+ * @author agent
+ */
+public class PackedTagIndex
+        implements TagIndex, Serializable, ProtoSerializable, MappedSerializable
+{
+    // Value index of the entries of the key bitmaps, larger than any dictionary index
+    public static final long ANY_VALUE = 0xFFFFFFFFL;
+
+    private static final long serialVersionUID = -2960587206834004575L;
+
+    private final long size;
+    private final LongArray entries;
+    private final LongArray offsets;
+    private final LongArray data;
+    private transient volatile IntegerDictionary<String> dictionary;
+
+    /**
+     * Build the inverted index of a {@link PackedTagStore}
+     *
+     * @param tags
+     *            The tag store to index
+     * @return The inverted index
+     */
+    public static PackedTagIndex build(final PackedTagStore tags)
+    {
+        final Map<Long, IndexBitmap.Builder> builders = new HashMap<>();
+        final long size = tags.size();
+        for (long index = 0; index < size; index++)
+        {
+            final int[] keys = tags.keyIndices(index);
+            final int[] values = tags.valueIndices(index);
+            for (int position = 0; position < keys.length; position++)
+            {
+                final long keyEntry = (long) keys[position] << Integer.SIZE;
+                builders.computeIfAbsent(keyEntry | values[position],
+                        entry -> new IndexBitmap.Builder()).add(index);
+                builders.computeIfAbsent(keyEntry | ANY_VALUE, entry -> new IndexBitmap.Builder())
+                        .add(index);
+            }
+        }
+        final List<Long> sortedEntries = new ArrayList<>(builders.keySet());
+        sortedEntries.sort(null);
+        final List<IndexBitmap> bitmaps = new ArrayList<>(sortedEntries.size());
+        final long[] length = new long[1];
+        sortedEntries.forEach(entry ->
+        {
+            final IndexBitmap bitmap = builders.remove(entry).build();
+            bitmap.write(word -> length[0]++);
+            bitmaps.add(bitmap);
+        });
+        final int count = sortedEntries.size();
+        final LongArray entries = newArray(count);
+        final LongArray offsets = newArray(count);
+        final LongArray data = newArray(length[0]);
+        for (int position = 0; position < count; position++)
+        {
+            entries.add(sortedEntries.get(position));
+            offsets.add(data.size());
+            bitmaps.get(position).write(data::add);
+        }
+        final PackedTagIndex result = new PackedTagIndex(size, entries, offsets, data);
+        result.setDictionary(tags.keysDictionary());
+        return result;
+    }
+
+    private static LongArray newArray(final long size)
+    {
+        final int blockSize = (int) Math.max(1, Math.min(size, MappedBlock.MAXIMUM_MAPPED_LONGS));
+        return new LongArray(size, blockSize, blockSize);
+    }
+
+    /**
+     * @param size
+     *            The number of indexed taggables
+     * @param entries
+     *            The sorted key/value entries
+     * @param offsets
+     *            The offsets of the entry bitmaps in the data
+     * @param data
+     *            The bitmaps
+     */
+    public PackedTagIndex(final long size, final LongArray entries, final LongArray offsets,
+            final LongArray data)
+    {
+        this.size = size;
+        this.entries = entries;
+        this.offsets = offsets;
+        this.data = data;
+    }
+
+    /**
+     * Nullary constructor for the {@link PackedAtlasSerializer}, which needs a handle to get the
+     * adapters of this type. The object is not usable otherwise.
+     */
+    @SuppressWarnings("unused")
+    private PackedTagIndex()
+    {
+        this(0L, null, null, null);
+    }
+
+    @Override
+    public IndexBitmap all()
+    {
+        return IndexBitmap.all(this.size);
+    }
+
+    public LongArray getData()
+    {
+        return this.data;
+    }
+
+    public LongArray getEntries()
+    {
+        return this.entries;
+    }
+
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedPackedTagIndexAdapter();
+    }
+
+    public LongArray getOffsets()
+    {
+        return this.offsets;
+    }
+
+    @Override
+    public ProtoAdapter getProtoAdapter()
+    {
+        return new ProtoPackedTagIndexAdapter();
+    }
+
+    /**
+     * @return True if this index was given the dictionary of its atlas
+     */
+    public boolean hasDictionary()
+    {
+        return this.dictionary != null;
+    }
+
+    public void setDictionary(final IntegerDictionary<String> dictionary)
+    {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return The number of indexed taggables
+     */
+    public long size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public IndexBitmap withKey(final String key)
+    {
+        final Optional<Integer> keyIndex = this.dictionary.lookup(key);
+        if (!keyIndex.isPresent())
+        {
+            return IndexBitmap.empty();
+        }
+        final long keyEntry = (long) keyIndex.get() << Integer.SIZE | ANY_VALUE;
+        final long position = lowerBound(keyEntry);
+        if (position < this.entries.size() && this.entries.get(position) == keyEntry)
+        {
+            return IndexBitmap.read(this.data, this.offsets.get(position));
+        }
+        return IndexBitmap.empty();
+    }
+
+    @Override
+    public IndexBitmap withValue(final String key, final Predicate<String> valueMatcher)
+    {
+        final Optional<Integer> keyIndex = this.dictionary.lookup(key);
+        if (!keyIndex.isPresent())
+        {
+            return IndexBitmap.empty();
+        }
+        final long keyEntry = (long) keyIndex.get() << Integer.SIZE;
+        IndexBitmap result = IndexBitmap.empty();
+        final long entryCount = this.entries.size();
+        for (long position = lowerBound(keyEntry); position < entryCount; position++)
+        {
+            final long entry = this.entries.get(position);
+            if (entry >= (keyEntry | ANY_VALUE))
+            {
+                break;
+            }
+            if (valueMatcher.test(this.dictionary.word((int) entry)))
+            {
+                result = result.union(IndexBitmap.read(this.data, this.offsets.get(position)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param entry
+     *            An entry
+     * @return The position of the first entry that is larger than or equal to that entry
+     */
+    private long lowerBound(final long entry)
+    {
+        long low = 0L;
+        long high = this.entries.size();
+        while (low < high)
+        {
+            final long middle = (low + high) >>> 1;
+            if (this.entries.get(middle) < entry)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
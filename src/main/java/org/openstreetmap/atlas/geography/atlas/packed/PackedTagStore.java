@@ -19,6 +19,11 @@ import org.openstreetmap.atlas.utilities.compression.IntegerDictionary;
  * Store OSM Key-Value pairs, relying on the sub-class to provide Dictionaries. This allows for
  * sharing dictionaries if necessary. The key/value storage is in arrays to minimize space, which
  * assumes each item will have a reasonably small number of key-value pairs.
+ * <p>
+ * The keys of each item are sorted by dictionary index, so that looking up a key is a binary
+ * search over integers once the key has been resolved to its dictionary index. Stores written
+ * before the keys were sorted are still read, with a linear search, after scanning them once to
+ * find out.
  *
  * @author matthieun
  * @author lcram
@@ -29,13 +34,58 @@ public class PackedTagStore implements Serializable, ProtoSerializable
     public static final String FIELD_KEYS = "keys";
     public static final String FIELD_VALUES = "values";
     public static final String FIELD_INDEX = "index";
+    public static final String FIELD_SORTED_KEYS = "sortedKeys";
+    // The dictionary index of a word which is not in the dictionary, or of a missing tag
+    public static final int NO_INDEX = -1;
     private static final long serialVersionUID = -5240324410665237846L;
     private final IntegerArrayOfArrays keys;
     private final IntegerArrayOfArrays values;
     private transient IntegerDictionary<String> dictionary;
+    // Whether the keys of each item are sorted, saved with the store. Null for the stores saved
+    // before it was, and then computed on first use.
+    private volatile Boolean sortedKeys;
 
     private long index = 0L;
 
+    private static boolean isSorted(final int[] keyArray)
+    {
+        for (int position = 1; position < keyArray.length; position++)
+        {
+            if (keyArray[position - 1] > keyArray[position])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sort the keys of an item by dictionary index, keeping each value with its key
+     *
+     * @param keyArray
+     *            The keys of the item
+     * @param valueArray
+     *            The values of the item, in the order of the keys
+     */
+    private static void sort(final int[] keyArray, final int[] valueArray)
+    {
+        // Items have a few tags, and new tags are added one at a time to already sorted keys
+        for (int position = 1; position < keyArray.length; position++)
+        {
+            final int key = keyArray[position];
+            final int value = valueArray[position];
+            int target = position;
+            while (target > 0 && keyArray[target - 1] > key)
+            {
+                keyArray[target] = keyArray[target - 1];
+                valueArray[target] = valueArray[target - 1];
+                target--;
+            }
+            keyArray[target] = key;
+            valueArray[target] = value;
+        }
+    }
+
     public PackedTagStore()
     {
         this.keys = null;
@@ -49,6 +99,7 @@ public class PackedTagStore implements Serializable, ProtoSerializable
         this.keys = new IntegerArrayOfArrays(maximumSize, memoryBlockSize, subArraySize);
         this.values = new IntegerArrayOfArrays(maximumSize, memoryBlockSize, subArraySize);
         this.dictionary = dictionary;
+        this.sortedKeys = true;
     }
 
     /**
@@ -101,11 +152,70 @@ public class PackedTagStore implements Serializable, ProtoSerializable
             }
             keyArray = Arrays.addNewItem(this.keys.get(index), keyIndex);
             valueArray = Arrays.addNewItem(this.values.get(index), valueIndex);
+            if (sortedKeys())
+            {
+                sort(keyArray, valueArray);
+            }
             this.keys.set(index, keyArray);
             this.values.set(index, valueArray);
         }
     }
 
+    /**
+     * Add all the key/value pairs of a new row at once. This is equivalent to adding them one by
+     * one, but allocates the row only once.
+     *
+     * @param index
+     *            The index of the new row, which has to be the size of this tag store
+     * @param tags
+     *            The key/value pairs of the new row
+     */
+    public void add(final long index, final Map<String, String> tags)
+    {
+        if (index != size())
+        {
+            throw new CoreException("Cannot add a new row at index {}, the size is {}", index,
+                    size());
+        }
+        if (tags.isEmpty())
+        {
+            add(index, null, null);
+            return;
+        }
+        final int[] keyArray = new int[tags.size()];
+        final int[] valueArray = new int[tags.size()];
+        int rowSize = 0;
+        for (final Map.Entry<String, String> entry : tags.entrySet())
+        {
+            final int keyIndex = keysDictionary().add(entry.getKey());
+            final int valueIndex = valuesDictionary().add(entry.getValue());
+            if (entry.getKey() != null && entry.getValue() != null)
+            {
+                keyArray[rowSize] = keyIndex;
+                valueArray[rowSize] = valueIndex;
+                rowSize++;
+            }
+        }
+        if (rowSize < keyArray.length)
+        {
+            // Some pairs had a null key or value
+            final int[] trimmedKeyArray = new int[rowSize];
+            final int[] trimmedValueArray = new int[rowSize];
+            System.arraycopy(keyArray, 0, trimmedKeyArray, 0, rowSize);
+            System.arraycopy(valueArray, 0, trimmedValueArray, 0, rowSize);
+            sort(trimmedKeyArray, trimmedValueArray);
+            this.keys.add(trimmedKeyArray);
+            this.values.add(trimmedValueArray);
+        }
+        else
+        {
+            sort(keyArray, valueArray);
+            this.keys.add(keyArray);
+            this.values.add(valueArray);
+        }
+        this.index++;
+    }
+
     /**
      * @param index
      *            The index to check for
@@ -119,15 +229,20 @@ public class PackedTagStore implements Serializable, ProtoSerializable
         {
             throw new CoreException("Cannot test if a null key is contained");
         }
-        final int[] keyArray = this.keys.get(index);
-        for (final int keyIndex : keyArray)
-        {
-            if (key.equals(keysDictionary().word(keyIndex)))
-            {
-                return true;
-            }
-        }
-        return false;
+        return containsKeyIndex(index, keyIndex(key));
+    }
+
+    /**
+     * @param index
+     *            The index to check for
+     * @param keyIndex
+     *            The dictionary index of the key to test the presence of, from
+     *            {@link #keyIndex(String)}
+     * @return True if the key is present at the specified index
+     */
+    public boolean containsKeyIndex(final long index, final int keyIndex)
+    {
+        return keyIndex != NO_INDEX && position(this.keys.get(index), keyIndex) >= 0;
     }
 
     @Override
@@ -175,17 +290,8 @@ public class PackedTagStore implements Serializable, ProtoSerializable
         {
             throw new CoreException("Cannot get a null key's value");
         }
-        final int[] keyArray = this.keys.get(index);
-        for (int i = 0; i < keyArray.length; i++)
-        {
-            final int keyIndex = keyArray[i];
-            if (key.equals(keysDictionary().word(keyIndex)))
-            {
-                final int valueIndex = this.values.get(index)[i];
-                return valuesDictionary().word(valueIndex);
-            }
-        }
-        return null;
+        final int valueIndex = valueIndex(index, keyIndex(key));
+        return valueIndex == NO_INDEX ? null : valuesDictionary().word(valueIndex);
     }
 
     @Override
@@ -214,6 +320,30 @@ public class PackedTagStore implements Serializable, ProtoSerializable
         return hash;
     }
 
+    /**
+     * Resolve a key once, to test it against many items with {@link #containsKeyIndex(long, int)}
+     * or {@link #valueIndex(long, int)} without comparing strings.
+     *
+     * @param key
+     *            The key
+     * @return The dictionary index of the key, or {@link #NO_INDEX} if no item has that key
+     */
+    public int keyIndex(final String key)
+    {
+        return keysDictionary().lookup(key).orElse(NO_INDEX);
+    }
+
+    /**
+     * @param index
+     *            The index to look for
+     * @return The dictionary indices of the keys at a specified index. The array is not a copy and
+     *         must not be modified.
+     */
+    public int[] keyIndices(final long index)
+    {
+        return this.keys.get(index);
+    }
+
     /**
      * @param index
      *            The index to look for
@@ -281,6 +411,64 @@ public class PackedTagStore implements Serializable, ProtoSerializable
         this.values.trim();
     }
 
+    /**
+     * @param index
+     *            The index to look for
+     * @param keyIndex
+     *            The dictionary index of the key, from {@link #keyIndex(String)}
+     * @return The dictionary index of the value of the key at the specified index, or
+     *         {@link #NO_INDEX} if the key is not present
+     */
+    public int valueIndex(final long index, final int keyIndex)
+    {
+        if (keyIndex == NO_INDEX)
+        {
+            return NO_INDEX;
+        }
+        final int position = position(this.keys.get(index), keyIndex);
+        return position < 0 ? NO_INDEX : this.values.get(index)[position];
+    }
+
+    /**
+     * @param value
+     *            The value
+     * @return The dictionary index of the value, or {@link #NO_INDEX} if no item has that value
+     */
+    public int valueIndex(final String value)
+    {
+        return valuesDictionary().lookup(value).orElse(NO_INDEX);
+    }
+
+    /**
+     * Look up one key for all the items at once, to test many items without creating a tag map
+     * for each one.
+     *
+     * @param keyIndex
+     *            The dictionary index of the key, from {@link #keyIndex(String)}
+     * @return For each index, the dictionary index of the value of the key, or {@link #NO_INDEX}
+     *         if the key is not present
+     */
+    public int[] valueIndexColumn(final int keyIndex)
+    {
+        final int[] result = new int[Math.toIntExact(size())];
+        for (int index = 0; index < result.length; index++)
+        {
+            result[index] = valueIndex(index, keyIndex);
+        }
+        return result;
+    }
+
+    /**
+     * @param index
+     *            The index to look for
+     * @return The dictionary indices of the values at a specified index, in the order of the keys.
+     *         The array is not a copy and must not be modified.
+     */
+    public int[] valueIndices(final long index)
+    {
+        return this.values.get(index);
+    }
+
     /**
      * @return The dictionary for values
      */
@@ -288,4 +476,43 @@ public class PackedTagStore implements Serializable, ProtoSerializable
     {
         return this.dictionary;
     }
+
+    /**
+     * @param keyArray
+     *            The keys of an item
+     * @param keyIndex
+     *            The dictionary index of the key to look for
+     * @return The position of the key in the item, or a negative number if it is not present
+     */
+    private int position(final int[] keyArray, final int keyIndex)
+    {
+        if (sortedKeys())
+        {
+            return java.util.Arrays.binarySearch(keyArray, keyIndex);
+        }
+        for (int position = 0; position < keyArray.length; position++)
+        {
+            if (keyArray[position] == keyIndex)
+            {
+                return position;
+            }
+        }
+        return NO_INDEX;
+    }
+
+    private boolean sortedKeys()
+    {
+        final Boolean known = this.sortedKeys;
+        if (known != null)
+        {
+            return known;
+        }
+        boolean result = true;
+        for (long index = 0; index < size() && result; index++)
+        {
+            result = isSorted(this.keys.get(index));
+        }
+        this.sortedKeys = result;
+        return result;
+    }
 }
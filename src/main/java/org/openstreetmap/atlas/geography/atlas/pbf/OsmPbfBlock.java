@@ -0,0 +1,538 @@
+package org.openstreetmap.atlas.geography.atlas.pbf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Latitude;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Longitude;
+import org.openstreetmap.osmosis.core.domain.v0_6.CommonEntityData;
+import org.openstreetmap.osmosis.core.domain.v0_6.EntityType;
+import org.openstreetmap.osmosis.core.domain.v0_6.OsmUser;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+
+/**
+ * A decoded OSM PBF PrimitiveBlock, held in primitive columns instead of Osmosis entities. The
+ * elements are indexed in the exact order the Osmosis reader would have emitted them, and every
+ * value (coordinates, timestamps, users) is computed with the same arithmetic, so that consumers
+ * of this block see the same data as consumers of the Osmosis {@link EntityType}s. Only
+ * {@link Relation}s, which are few and usually staged by the consumers, are materialized on
+ * demand.
+ *
+ * @author agent
+ */
+public final class OsmPbfBlock
+{
+    /**
+     * Single use decoder that fills the columns of an {@link OsmPbfBlock}, following the element
+     * order and arithmetic of the Osmosis binary parser.
+     *
+     * @author agent
+     */
+    private static final class Decoder
+    {
+        private final Osmformat.PrimitiveBlock block;
+        private final String[] strings;
+        private final int granularity;
+        private final long latitudeOffset;
+        private final long longitudeOffset;
+        private final int dateGranularity;
+
+        private final EntityType[] types;
+        private final long[] identifiers;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int[] tagOffsets;
+        private final int[] versions;
+        private final long[] timestamps;
+        private final long[] changesets;
+        private final int[] userIdentifiers;
+        private final int[] userNames;
+        private final int[] referenceOffsets;
+        private int[] tagStrings;
+        private long[] references;
+        private int[] memberRoles;
+        private EntityType[] memberTypes;
+        private int index;
+        private int tagIndex;
+        private int referenceIndex;
+
+        Decoder(final Osmformat.PrimitiveBlock block)
+        {
+            this.block = block;
+            final Osmformat.StringTable table = block.getStringtable();
+            this.strings = new String[table.getSCount()];
+            for (int string = 0; string < this.strings.length; string++)
+            {
+                this.strings[string] = table.getS(string).toStringUtf8();
+            }
+            this.granularity = block.getGranularity();
+            this.latitudeOffset = block.getLatOffset();
+            this.longitudeOffset = block.getLonOffset();
+            this.dateGranularity = block.getDateGranularity();
+
+            int elements = 0;
+            for (final Osmformat.PrimitiveGroup group : block.getPrimitivegroupList())
+            {
+                elements += group.getNodesCount() + group.getWaysCount()
+                        + group.getRelationsCount()
+                        + (group.hasDense() ? group.getDense().getIdCount() : 0);
+            }
+            this.types = new EntityType[elements];
+            this.identifiers = new long[elements];
+            this.latitudes = new double[elements];
+            this.longitudes = new double[elements];
+            this.tagOffsets = new int[elements + 1];
+            this.versions = new int[elements];
+            this.timestamps = new long[elements];
+            this.changesets = new long[elements];
+            this.userIdentifiers = new int[elements];
+            this.userNames = new int[elements];
+            this.referenceOffsets = new int[elements + 1];
+            this.tagStrings = new int[elements * 2];
+            this.references = new long[elements];
+            this.memberRoles = new int[0];
+            this.memberTypes = new EntityType[0];
+        }
+
+        OsmPbfBlock decode()
+        {
+            // Same group order as the Osmosis parser: nodes, ways, relations, then dense nodes
+            for (final Osmformat.PrimitiveGroup group : this.block.getPrimitivegroupList())
+            {
+                group.getNodesList().forEach(this::node);
+                group.getWaysList().forEach(this::way);
+                group.getRelationsList().forEach(this::relation);
+                if (group.hasDense())
+                {
+                    dense(group.getDense());
+                }
+            }
+            return new OsmPbfBlock(this);
+        }
+
+        private void addReference(final long reference)
+        {
+            if (this.referenceIndex == this.references.length)
+            {
+                this.references = Arrays.copyOf(this.references, this.references.length * 2 + 1);
+            }
+            this.references[this.referenceIndex++] = reference;
+        }
+
+        private void addTag(final int key, final int value)
+        {
+            if (this.tagIndex + 2 > this.tagStrings.length)
+            {
+                this.tagStrings = Arrays.copyOf(this.tagStrings, this.tagStrings.length * 2 + 2);
+            }
+            this.tagStrings[this.tagIndex++] = key;
+            this.tagStrings[this.tagIndex++] = value;
+        }
+
+        private void dense(final Osmformat.DenseNodes nodes)
+        {
+            final boolean hasInfo = nodes.hasDenseinfo();
+            final Osmformat.DenseInfo info = nodes.getDenseinfo();
+            long identifier = 0;
+            long latitude = 0;
+            long longitude = 0;
+            long timestamp = 0;
+            long changeset = 0;
+            int userIdentifier = 0;
+            int userName = 0;
+            int keyValue = 0;
+            for (int node = 0; node < nodes.getIdCount(); node++)
+            {
+                identifier += nodes.getId(node);
+                latitude += nodes.getLat(node);
+                longitude += nodes.getLon(node);
+                this.types[this.index] = EntityType.Node;
+                this.identifiers[this.index] = identifier;
+                this.latitudes[this.index] = parseLatitude(latitude);
+                this.longitudes[this.index] = parseLongitude(longitude);
+                if (hasInfo)
+                {
+                    timestamp += info.getTimestamp(node);
+                    changeset += info.getChangeset(node);
+                    userIdentifier += info.getUid(node);
+                    userName += info.getUserSid(node);
+                    this.versions[this.index] = info.getVersion(node);
+                    this.timestamps[this.index] = this.dateGranularity * timestamp;
+                    this.changesets[this.index] = changeset;
+                    this.userIdentifiers[this.index] = userIdentifier;
+                    this.userNames[this.index] = userIdentifier < 0 ? NO_VALUE : userName;
+                }
+                else
+                {
+                    noInfo();
+                }
+                if (nodes.getKeysValsCount() > 0)
+                {
+                    while (nodes.getKeysVals(keyValue) != 0)
+                    {
+                        addTag(nodes.getKeysVals(keyValue), nodes.getKeysVals(keyValue + 1));
+                        keyValue += 2;
+                    }
+                    // Skip the delimiter
+                    keyValue++;
+                }
+                endElement();
+            }
+        }
+
+        private void endElement()
+        {
+            this.index++;
+            this.tagOffsets[this.index] = this.tagIndex;
+            this.referenceOffsets[this.index] = this.referenceIndex;
+        }
+
+        private void info(final boolean hasInfo, final Osmformat.Info info)
+        {
+            if (hasInfo)
+            {
+                this.versions[this.index] = info.getVersion();
+                this.timestamps[this.index] = info.hasTimestamp()
+                        ? this.dateGranularity * info.getTimestamp()
+                        : NO_VALUE;
+                this.changesets[this.index] = info.getChangeset();
+                this.userIdentifiers[this.index] = info.getUid();
+                this.userNames[this.index] = info.hasUid() && info.hasUserSid()
+                        && info.getUid() >= 0 ? info.getUserSid() : NO_VALUE;
+            }
+            else
+            {
+                noInfo();
+            }
+        }
+
+        private void noInfo()
+        {
+            this.versions[this.index] = NO_VALUE;
+            this.timestamps[this.index] = NO_VALUE;
+            this.changesets[this.index] = NO_VALUE;
+            this.userIdentifiers[this.index] = NO_VALUE;
+            this.userNames[this.index] = NO_VALUE;
+        }
+
+        private void node(final Osmformat.Node node)
+        {
+            this.types[this.index] = EntityType.Node;
+            this.identifiers[this.index] = node.getId();
+            this.latitudes[this.index] = parseLatitude(node.getLat());
+            this.longitudes[this.index] = parseLongitude(node.getLon());
+            for (int tag = 0; tag < node.getKeysCount(); tag++)
+            {
+                addTag(node.getKeys(tag), node.getVals(tag));
+            }
+            info(node.hasInfo(), node.getInfo());
+            endElement();
+        }
+
+        private double parseLatitude(final long latitude)
+        {
+            return (this.granularity * latitude + this.latitudeOffset) * COORDINATE_UNIT;
+        }
+
+        private double parseLongitude(final long longitude)
+        {
+            return (this.granularity * longitude + this.longitudeOffset) * COORDINATE_UNIT;
+        }
+
+        private void relation(final Osmformat.Relation relation)
+        {
+            this.types[this.index] = EntityType.Relation;
+            this.identifiers[this.index] = relation.getId();
+            for (int tag = 0; tag < relation.getKeysCount(); tag++)
+            {
+                addTag(relation.getKeys(tag), relation.getVals(tag));
+            }
+            info(relation.hasInfo(), relation.getInfo());
+            long memberIdentifier = 0;
+            for (int member = 0; member < relation.getMemidsCount(); member++)
+            {
+                memberIdentifier += relation.getMemids(member);
+                final int position = this.referenceIndex;
+                addReference(memberIdentifier);
+                if (this.memberRoles.length < this.references.length)
+                {
+                    this.memberRoles = Arrays.copyOf(this.memberRoles, this.references.length);
+                    this.memberTypes = Arrays.copyOf(this.memberTypes, this.references.length);
+                }
+                this.memberRoles[position] = relation.getRolesSid(member);
+                switch (relation.getTypes(member))
+                {
+                    case NODE:
+                        this.memberTypes[position] = EntityType.Node;
+                        break;
+                    case WAY:
+                        this.memberTypes[position] = EntityType.Way;
+                        break;
+                    case RELATION:
+                        this.memberTypes[position] = EntityType.Relation;
+                        break;
+                    default:
+                        throw new CoreException("Unknown member type {} in relation {}",
+                                relation.getTypes(member), relation.getId());
+                }
+            }
+            endElement();
+        }
+
+        private void way(final Osmformat.Way way)
+        {
+            this.types[this.index] = EntityType.Way;
+            this.identifiers[this.index] = way.getId();
+            for (int tag = 0; tag < way.getKeysCount(); tag++)
+            {
+                addTag(way.getKeys(tag), way.getVals(tag));
+            }
+            info(way.hasInfo(), way.getInfo());
+            long nodeIdentifier = 0;
+            for (int reference = 0; reference < way.getRefsCount(); reference++)
+            {
+                nodeIdentifier += way.getRefs(reference);
+                addReference(nodeIdentifier);
+            }
+            endElement();
+        }
+    }
+
+    private static final double COORDINATE_UNIT = .000000001;
+    private static final int NO_VALUE = -1;
+
+    private final String[] strings;
+    private final int size;
+    private final EntityType[] types;
+    private final long[] identifiers;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Tags: the key and value string indices of element i are in [tagOffsets[i], tagOffsets[i+1])
+    private final int[] tagOffsets;
+    private final int[] tagStrings;
+
+    // OSM attributes
+    private final int[] versions;
+    private final long[] timestamps;
+    private final long[] changesets;
+    private final int[] userIdentifiers;
+    private final int[] userNames;
+
+    // Way node references and relation members share the same offsets, as an element is never
+    // both
+    private final int[] referenceOffsets;
+    private final long[] references;
+    private final int[] memberRoles;
+    private final EntityType[] memberTypes;
+
+    /**
+     * Decode a {@link Osmformat.PrimitiveBlock} into an {@link OsmPbfBlock}
+     *
+     * @param block
+     *            The PBF block, already decompressed and parsed
+     * @return The decoded block
+     */
+    public static OsmPbfBlock decode(final Osmformat.PrimitiveBlock block)
+    {
+        return new Decoder(block).decode();
+    }
+
+    private OsmPbfBlock(final Decoder decoder)
+    {
+        this.strings = decoder.strings;
+        this.size = decoder.index;
+        this.types = decoder.types;
+        this.identifiers = decoder.identifiers;
+        this.latitudes = decoder.latitudes;
+        this.longitudes = decoder.longitudes;
+        this.tagOffsets = decoder.tagOffsets;
+        this.tagStrings = decoder.tagStrings;
+        this.versions = decoder.versions;
+        this.timestamps = decoder.timestamps;
+        this.changesets = decoder.changesets;
+        this.userIdentifiers = decoder.userIdentifiers;
+        this.userNames = decoder.userNames;
+        this.referenceOffsets = decoder.referenceOffsets;
+        this.references = decoder.references;
+        this.memberRoles = decoder.memberRoles;
+        this.memberTypes = decoder.memberTypes;
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The changeset identifier of the element, -1 if unknown
+     */
+    public long changeset(final int index)
+    {
+        return this.changesets[index];
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The OSM identifier of the element
+     */
+    public long identifier(final int index)
+    {
+        return this.identifiers[index];
+    }
+
+    /**
+     * @param index
+     *            The index of a node element
+     * @return The latitude of the node in degrees
+     */
+    public double latitude(final int index)
+    {
+        return this.latitudes[index];
+    }
+
+    /**
+     * @param index
+     *            The index of a node element
+     * @return The {@link Location} of the node
+     */
+    public Location location(final int index)
+    {
+        return new Location(Latitude.degrees(this.latitudes[index]),
+                Longitude.degrees(this.longitudes[index]));
+    }
+
+    /**
+     * @param index
+     *            The index of a node element
+     * @return The longitude of the node in degrees
+     */
+    public double longitude(final int index)
+    {
+        return this.longitudes[index];
+    }
+
+    /**
+     * Materialize a relation element as an Osmosis {@link Relation}.
+     *
+     * @param index
+     *            The index of a relation element
+     * @return The corresponding {@link Relation}
+     */
+    public Relation relation(final int index)
+    {
+        final List<Tag> tags = new ArrayList<>();
+        for (int tag = this.tagOffsets[index]; tag < this.tagOffsets[index + 1]; tag += 2)
+        {
+            tags.add(new Tag(this.strings[this.tagStrings[tag]],
+                    this.strings[this.tagStrings[tag + 1]]));
+        }
+        final List<RelationMember> members = new ArrayList<>();
+        for (int member = this.referenceOffsets[index]; member < this.referenceOffsets[index
+                + 1]; member++)
+        {
+            members.add(new RelationMember(this.references[member], this.memberTypes[member],
+                    this.strings[this.memberRoles[member]]));
+        }
+        final OsmUser user = this.userNames[index] == NO_VALUE ? OsmUser.NONE
+                : new OsmUser(this.userIdentifiers[index], this.strings[this.userNames[index]]);
+        return new Relation(new CommonEntityData(this.identifiers[index], this.versions[index],
+                new Date(this.timestamps[index]), user, this.changesets[index], tags), members);
+    }
+
+    /**
+     * @return The number of elements in this block
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return A new mutable map of the tags of the element
+     */
+    public Map<String, String> tags(final int index)
+    {
+        final int start = this.tagOffsets[index];
+        final int end = this.tagOffsets[index + 1];
+        final Map<String, String> result = new HashMap<>();
+        for (int tag = start; tag < end; tag += 2)
+        {
+            result.put(this.strings[this.tagStrings[tag]], this.strings[this.tagStrings[tag + 1]]);
+        }
+        return result;
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The last edit time of the element in milliseconds since the epoch, -1 if unknown
+     */
+    public long timestamp(final int index)
+    {
+        return this.timestamps[index];
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The type of the element: {@link EntityType#Node}, {@link EntityType#Way} or
+     *         {@link EntityType#Relation}
+     */
+    public EntityType type(final int index)
+    {
+        return this.types[index];
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The identifier of the last user to edit the element, as Osmosis would report it
+     */
+    public int userIdentifier(final int index)
+    {
+        return this.userNames[index] == NO_VALUE ? OsmUser.NONE.getId()
+                : this.userIdentifiers[index];
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The name of the last user to edit the element, as Osmosis would report it
+     */
+    public String userName(final int index)
+    {
+        return this.userNames[index] == NO_VALUE ? OsmUser.NONE.getName()
+                : this.strings[this.userNames[index]];
+    }
+
+    /**
+     * @param index
+     *            The element index
+     * @return The version of the element, -1 if unknown
+     */
+    public int version(final int index)
+    {
+        return this.versions[index];
+    }
+
+    /**
+     * @param index
+     *            The index of a way element
+     * @return The identifiers of the nodes of the way, in order
+     */
+    public long[] wayNodeIdentifiers(final int index)
+    {
+        return Arrays.copyOfRange(this.references, this.referenceOffsets[index],
+                this.referenceOffsets[index + 1]);
+    }
+}
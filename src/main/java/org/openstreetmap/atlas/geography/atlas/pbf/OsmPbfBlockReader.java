@@ -0,0 +1,189 @@
+package org.openstreetmap.atlas.geography.atlas.pbf;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.utilities.threads.Pool;
+import org.openstreetmap.atlas.utilities.threads.Result;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+
+/**
+ * Native OSM PBF reader that decodes the file into {@link OsmPbfBlock}s. The blobs are read
+ * sequentially, but their decompression and decoding happen in parallel on a {@link Pool}, with a
+ * bounded number of blocks in flight. The blocks are always handed to the consumer in file order,
+ * on the calling thread.
+ *
+ * @author agent
+ */
+public class OsmPbfBlockReader implements Closeable
+{
+    public static final int DEFAULT_NUMBER_OF_THREADS = Runtime.getRuntime()
+            .availableProcessors();
+
+    private static final String HEADER_TYPE = "OSMHeader";
+    private static final String DATA_TYPE = "OSMData";
+    private static final Set<String> SUPPORTED_FEATURES = new HashSet<>(
+            Arrays.asList("OsmSchema-V0.6", "DenseNodes"));
+    // Limits from the PBF specification
+    private static final int MAXIMUM_HEADER_SIZE = 64 * 1024;
+    private static final int MAXIMUM_BLOB_SIZE = 32 * 1024 * 1024;
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final InputStream input;
+    private final int numberOfThreads;
+
+    public OsmPbfBlockReader(final Resource resource)
+    {
+        this(resource, DEFAULT_NUMBER_OF_THREADS);
+    }
+
+    public OsmPbfBlockReader(final Resource resource, final int numberOfThreads)
+    {
+        this.input = new BufferedInputStream(resource.read());
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            this.input.close();
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to close PBF input stream", e);
+        }
+    }
+
+    /**
+     * Read the whole file, and hand each decoded data block to the consumer, in file order.
+     *
+     * @param consumer
+     *            The consumer of the decoded blocks
+     */
+    public void read(final Consumer<OsmPbfBlock> consumer)
+    {
+        final DataInputStream data = new DataInputStream(this.input);
+        final Deque<Result<OsmPbfBlock>> inFlight = new ArrayDeque<>();
+        final int maximumInFlight = Math.max(this.numberOfThreads, 1)
+                * BLOCKS_IN_FLIGHT_PER_THREAD;
+        try (Pool pool = new Pool(this.numberOfThreads, "pbf-decoder"))
+        {
+            Fileformat.BlobHeader header = nextHeader(data);
+            while (header != null)
+            {
+                final byte[] blob = readFully(data, header.getDatasize(), MAXIMUM_BLOB_SIZE);
+                if (HEADER_TYPE.equals(header.getType()))
+                {
+                    checkFeatures(Osmformat.HeaderBlock.parseFrom(inflate(blob)));
+                }
+                else if (DATA_TYPE.equals(header.getType()))
+                {
+                    inFlight.add(pool.queue(() -> OsmPbfBlock
+                            .decode(Osmformat.PrimitiveBlock.parseFrom(inflate(blob)))));
+                    if (inFlight.size() >= maximumInFlight)
+                    {
+                        consumer.accept(inFlight.poll().get());
+                    }
+                }
+                header = nextHeader(data);
+            }
+            while (!inFlight.isEmpty())
+            {
+                consumer.accept(inFlight.poll().get());
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to read PBF", e);
+        }
+    }
+
+    private void checkFeatures(final Osmformat.HeaderBlock header)
+    {
+        for (final String feature : header.getRequiredFeaturesList())
+        {
+            if (!SUPPORTED_FEATURES.contains(feature))
+            {
+                throw new CoreException("PBF requires unsupported feature: {}", feature);
+            }
+        }
+    }
+
+    private byte[] inflate(final byte[] blobBytes) throws IOException
+    {
+        final Fileformat.Blob blob = Fileformat.Blob.parseFrom(blobBytes);
+        if (blob.hasRaw())
+        {
+            return blob.getRaw().toByteArray();
+        }
+        if (blob.hasZlibData())
+        {
+            final Inflater inflater = new Inflater();
+            try
+            {
+                inflater.setInput(blob.getZlibData().toByteArray());
+                final byte[] result = new byte[blob.getRawSize()];
+                final int inflated = inflater.inflate(result);
+                if (inflated != result.length || !inflater.finished())
+                {
+                    throw new CoreException("Corrupt PBF blob: inflated {} bytes, expected {}",
+                            inflated, result.length);
+                }
+                return result;
+            }
+            catch (final DataFormatException e)
+            {
+                throw new CoreException("Corrupt zlib data in PBF blob", e);
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+        throw new CoreException("Unsupported PBF blob compression, only raw and zlib are handled");
+    }
+
+    private Fileformat.BlobHeader nextHeader(final DataInputStream data) throws IOException
+    {
+        final int first = data.read();
+        if (first < 0)
+        {
+            return null;
+        }
+        // Big endian header length, of which the first byte is already read
+        final byte[] length = new byte[Integer.BYTES];
+        length[0] = (byte) first;
+        data.readFully(length, 1, Integer.BYTES - 1);
+        return Fileformat.BlobHeader.parseFrom(
+                readFully(data, ByteBuffer.wrap(length).getInt(), MAXIMUM_HEADER_SIZE));
+    }
+
+    private byte[] readFully(final DataInputStream data, final int length, final int maximum)
+            throws IOException
+    {
+        if (length < 0 || length > maximum)
+        {
+            throw new CoreException("Invalid PBF chunk size {}, maximum is {}", length, maximum);
+        }
+        final byte[] result = new byte[length];
+        data.readFully(result);
+        return result;
+    }
+}
@@ -0,0 +1,317 @@
+package org.openstreetmap.atlas.geography.atlas.raw;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.MultiPolygon;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
+import org.openstreetmap.atlas.geography.atlas.raw.creation.RawAtlasGenerator;
+import org.openstreetmap.atlas.geography.atlas.raw.sectioning.AtlasSectionProcessor;
+import org.openstreetmap.atlas.geography.atlas.raw.slicing.RawAtlasSlicer;
+import org.openstreetmap.atlas.geography.atlas.sub.AtlasCutType;
+import org.openstreetmap.atlas.geography.sharding.Shard;
+import org.openstreetmap.atlas.geography.sharding.Sharding;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.utilities.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generate the sliced and way-sectioned {@link Atlas} of all the {@link Shard}s covered by one PBF
+ * file, in a single process. The PBF is read once into a raw {@link Atlas}, which is shared by all
+ * the shards along with the {@link AtlasLoadingOption}'s country boundary map. Each shard is then
+ * cut from the raw {@link Atlas}, sliced with a {@link RawAtlasSlicer}, and sectioned with an
+ * {@link AtlasSectionProcessor} which fetches the sliced neighboring shards it needs.
+ * <p>
+ * The shards are processed by a pool of workers, in waves of neighboring shards ordered along a
+ * Z-order curve. Only the sliced shards needed by the current wave are kept in memory, and a
+ * sliced shard dropped between waves is sliced again if a later shard needs it.
+ *
+ * @author agent
+ */
+public class ShardedAtlasGenerator
+{
+    private static final Logger logger = LoggerFactory.getLogger(ShardedAtlasGenerator.class);
+
+    private static final int DEFAULT_SHARDS_PER_THREAD_IN_WAVE = 4;
+    private static final int Z_ORDER_BITS = 16;
+    private static final int Z_ORDER_MAXIMUM = (1 << Z_ORDER_BITS) - 1;
+    private static final double LATITUDE_RANGE = 180.0;
+    private static final double LONGITUDE_RANGE = 360.0;
+
+    private final Resource pbf;
+    private final AtlasLoadingOption loadingOption;
+    private final Sharding sharding;
+    // The sliced shards kept for the current wave, sliced only once even if requested concurrently
+    private final Map<Shard, CompletableFuture<Optional<Atlas>>> slicedAtlases;
+    private MultiPolygon boundingBox = MultiPolygon.MAXIMUM;
+    private int numberOfThreads = 1;
+    private int waveSize = 0;
+    private Atlas rawAtlas;
+
+    /**
+     * @param location
+     *            A {@link Location}
+     * @return The position of the location along a Z-order curve covering the world
+     */
+    private static long zOrder(final Location location)
+    {
+        final long xValue = Math.round((location.getLongitude().asDegrees() + LONGITUDE_RANGE / 2)
+                / LONGITUDE_RANGE * Z_ORDER_MAXIMUM);
+        final long yValue = Math.round((location.getLatitude().asDegrees() + LATITUDE_RANGE / 2)
+                / LATITUDE_RANGE * Z_ORDER_MAXIMUM);
+        long result = 0L;
+        for (int bit = 0; bit < Z_ORDER_BITS; bit++)
+        {
+            result |= (xValue >> bit & 1L) << 2 * bit;
+            result |= (yValue >> bit & 1L) << 2 * bit + 1;
+        }
+        return result;
+    }
+
+    /**
+     * @param pbf
+     *            The PBF to read
+     * @param loadingOption
+     *            The {@link AtlasLoadingOption} to use for all the steps. It needs a country
+     *            boundary map for slicing, and its country code, if any, restricts the shards and
+     *            the features generated.
+     * @param sharding
+     *            The {@link Sharding} of the shards to generate
+     */
+    public ShardedAtlasGenerator(final Resource pbf, final AtlasLoadingOption loadingOption,
+            final Sharding sharding)
+    {
+        if (loadingOption.getCountryBoundaryMap() == null)
+        {
+            throw new CoreException("Cannot generate shards of {} without a country boundary map",
+                    pbf.getName());
+        }
+        this.pbf = pbf;
+        this.loadingOption = loadingOption;
+        this.sharding = sharding;
+        this.slicedAtlases = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Generate the {@link Atlas} of each shard covered by the PBF and the country, if any.
+     *
+     * @param consumer
+     *            Receives each shard and its {@link Atlas}, once generated. The shards which end up
+     *            without any feature are skipped. This is called from the worker threads, so it has
+     *            to be thread safe.
+     */
+    public void generate(final BiConsumer<Shard, Atlas> consumer)
+    {
+        final Time start = Time.now();
+        final List<Shard> shards = shards();
+        if (shards.isEmpty())
+        {
+            logger.warn("No shard to generate from {}", this.pbf.getName());
+            return;
+        }
+        final int wave = this.waveSize > 0 ? this.waveSize
+                : this.numberOfThreads * DEFAULT_SHARDS_PER_THREAD_IN_WAVE;
+        logger.info("Generating {} shards from {} with {} threads, {} shards at a time",
+                shards.size(), this.pbf.getName(), this.numberOfThreads, wave);
+        final ExecutorService pool = Executors.newFixedThreadPool(this.numberOfThreads);
+        try
+        {
+            for (int index = 0; index < shards.size(); index += wave)
+            {
+                final List<Shard> currentWave = shards.subList(index,
+                        Math.min(index + wave, shards.size()));
+                retainSlicedAtlasesFor(currentWave);
+                final List<CompletableFuture<Void>> futures = currentWave.stream()
+                        .map(shard -> CompletableFuture
+                                .runAsync(() -> generateShard(shard, consumer), pool))
+                        .collect(Collectors.toList());
+                futures.forEach(future -> join(future, "Unable to generate shards from {}",
+                        this.pbf.getName()));
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+            this.slicedAtlases.clear();
+        }
+        logger.info("Generated {} shards from {} in {}", shards.size(), this.pbf.getName(),
+                start.elapsedSince());
+    }
+
+    /**
+     * @return The shards to generate, in the order they are generated
+     */
+    public List<Shard> shards()
+    {
+        final Atlas raw = rawAtlas();
+        if (raw == null)
+        {
+            return new ArrayList<>();
+        }
+        final String country = this.loadingOption.getCountryCode();
+        return StreamSupport.stream(this.sharding.shards(raw.bounds()).spliterator(), false)
+                .filter(shard -> country == null || country.isEmpty()
+                        || this.loadingOption.getCountryBoundaryMap()
+                                .countryCodesOverlappingWith(shard.bounds()).contains(country))
+                .sorted(Comparator.comparingLong(shard -> zOrder(shard.bounds().center())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param boundingBox
+     *            The bounds to read the PBF within
+     * @return This generator
+     */
+    public ShardedAtlasGenerator withBoundingBox(final MultiPolygon boundingBox)
+    {
+        this.boundingBox = boundingBox;
+        return this;
+    }
+
+    /**
+     * @param numberOfThreads
+     *            The number of shards generated at the same time
+     * @return This generator
+     */
+    public ShardedAtlasGenerator withNumberOfThreads(final int numberOfThreads)
+    {
+        if (numberOfThreads < 1)
+        {
+            throw new CoreException("Invalid number of threads {}", numberOfThreads);
+        }
+        this.numberOfThreads = numberOfThreads;
+        return this;
+    }
+
+    /**
+     * @param waveSize
+     *            The number of shards in each wave. Larger waves keep the workers busier, and
+     *            smaller waves keep fewer sliced shards in memory. Defaults to four shards per
+     *            thread.
+     * @return This generator
+     */
+    public ShardedAtlasGenerator withWaveSize(final int waveSize)
+    {
+        if (waveSize < 1)
+        {
+            throw new CoreException("Invalid wave size {}", waveSize);
+        }
+        this.waveSize = waveSize;
+        return this;
+    }
+
+    private void generateShard(final Shard shard, final BiConsumer<Shard, Atlas> consumer)
+    {
+        final Time start = Time.now();
+        if (slicedAtlas(shard).isEmpty())
+        {
+            logger.info("Skipping shard {} with no feature", shard.getName());
+            return;
+        }
+        final Atlas sectioned = new AtlasSectionProcessor(shard, this.loadingOption,
+                this.sharding, this::slicedAtlas).run();
+        if (sectioned == null)
+        {
+            logger.info("Skipping shard {} with no feature after sectioning", shard.getName());
+            return;
+        }
+        consumer.accept(shard, sectioned);
+        logger.info("Generated shard {} in {}", shard.getName(), start.elapsedSince());
+    }
+
+    private <T> T join(final CompletableFuture<T> future, final String message,
+            final Object... arguments)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (final CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CoreException(message, e.getCause(), arguments);
+        }
+    }
+
+    private synchronized Atlas rawAtlas()
+    {
+        if (this.rawAtlas == null)
+        {
+            this.rawAtlas = new RawAtlasGenerator(this.pbf, this.loadingOption, this.boundingBox)
+                    .build();
+        }
+        return this.rawAtlas;
+    }
+
+    /**
+     * Drop the sliced shards which are not needed by the next wave
+     *
+     * @param wave
+     *            The next wave of shards
+     */
+    private void retainSlicedAtlasesFor(final List<Shard> wave)
+    {
+        final Set<Shard> needed = new HashSet<>(wave);
+        wave.forEach(shard -> this.sharding.neighbors(shard).forEach(needed::add));
+        this.slicedAtlases.keySet().retainAll(needed);
+    }
+
+    private Optional<Atlas> slice(final Shard shard)
+    {
+        final Optional<Atlas> raw = rawAtlas().subAtlas(shard.bounds(), AtlasCutType.SOFT_CUT);
+        if (raw.isEmpty())
+        {
+            return Optional.empty();
+        }
+        final Atlas sliced = new RawAtlasSlicer(this.loadingOption, raw.get(), shard).slice();
+        return Optional.ofNullable(sliced.cloneToPackedAtlas());
+    }
+
+    /**
+     * Slice a shard once, even when several workers need it at the same time
+     *
+     * @param shard
+     *            The shard
+     * @return The sliced {@link Atlas} of the shard, if it has any feature
+     */
+    private Optional<Atlas> slicedAtlas(final Shard shard)
+    {
+        final CompletableFuture<Optional<Atlas>> future = new CompletableFuture<>();
+        final CompletableFuture<Optional<Atlas>> existing = this.slicedAtlases
+                .putIfAbsent(shard, future);
+        if (existing != null)
+        {
+            return join(existing, "Unable to slice shard {}", shard.getName());
+        }
+        try
+        {
+            future.complete(slice(shard));
+        }
+        catch (final RuntimeException e)
+        {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return future.join();
+    }
+}
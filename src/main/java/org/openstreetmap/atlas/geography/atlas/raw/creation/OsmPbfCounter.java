@@ -19,9 +19,11 @@ import org.openstreetmap.atlas.geography.atlas.builder.AtlasSize;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
 import org.openstreetmap.atlas.geography.atlas.items.Point;
 import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
+import org.openstreetmap.atlas.geography.atlas.pbf.OsmPbfBlock;
 import org.openstreetmap.atlas.geography.atlas.raw.sectioning.TagMap;
 import org.openstreetmap.atlas.tags.HighwayTag;
 import org.openstreetmap.atlas.tags.RouteTag;
+import org.openstreetmap.atlas.tags.Taggable;
 import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
 import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
 import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
@@ -30,7 +32,6 @@ import org.openstreetmap.osmosis.core.domain.v0_6.Node;
 import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
 import org.openstreetmap.osmosis.core.domain.v0_6.RelationMember;
 import org.openstreetmap.osmosis.core.domain.v0_6.Way;
-import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
 import org.openstreetmap.osmosis.core.task.v0_6.Sink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,8 +76,9 @@ public class OsmPbfCounter implements Sink
     // given shard
     private final Map<Long, Location> nodeIdentifierToLocation = new HashMap<>();
 
-    // Keep track of excluded ways to see if we need to add them later
-    private final Map<Long, Way> waysToExclude = new HashMap<>();
+    // Keep track of excluded ways (and their node identifiers) to see if we need to add them later
+    private final Map<Long, long[]> waysToExclude = new HashMap<>();
+    private final Set<Long> excludedHighwaysOrFerries = new HashSet<>();
 
     // Keep track of non-shallow relations to see if we need to add them later
     private final List<Relation> stagedRelations = new ArrayList<>();
@@ -160,57 +162,56 @@ public class OsmPbfCounter implements Sink
 
         if (OsmPbfReader.shouldProcessEntity(this.loadingOption, rawEntity))
         {
-            // store all node locations for calculating way geometry
             if (rawEntity instanceof Node)
             {
                 final Node node = (Node) rawEntity;
-                final Location nodeLocation = new Location(Latitude.degrees(node.getLatitude()),
-                        Longitude.degrees(node.getLongitude()));
-                this.nodeIdentifierToLocation.put(rawEntity.getId(), nodeLocation);
+                processNode(node.getId(), new Location(Latitude.degrees(node.getLatitude()),
+                        Longitude.degrees(node.getLongitude())));
             }
-            if (shouldLoadOsmNode(rawEntity))
+            else if (rawEntity instanceof Way)
             {
-                // This node is within the boundary or we are using the generated atlas file for QA
-                // purposes, bring it in
-                this.nodeIdentifiersToInclude.add(rawEntity.getId());
+                processWay(rawEntity.getId(), OsmPbfReader.wayNodeIdentifiers((Way) rawEntity),
+                        new TagMap(rawEntity.getTags()));
             }
-            else if (shouldLoadOsmWay(rawEntity))
+            else if (shouldLoadOsmRelation(rawEntity.getType()))
             {
-                final Way way = (Way) rawEntity;
+                processRelation((Relation) rawEntity);
+            }
+            else if (rawEntity instanceof Bound)
+            {
+                logger.trace("Encountered PBF Bound {}, skipping over it.", rawEntity.getId());
+            }
+        }
+    }
 
-                if (wayIntersectsBoundary(way))
-                {
-                    // This way contains at least one shape-point within the given bounding box.
-                    // Bring it and all of its nodes in to the atlas.
-                    addWayNodes(this.nodeIdentifiersBroughtInByWaysOrRelations, way);
-                    this.wayIdentifiersToInclude.add(way.getId());
-                }
-                else
+    /**
+     * Same as {@link #process(EntityContainer)} for all the elements of a natively decoded
+     * {@link OsmPbfBlock}, without going through Osmosis entities for nodes and ways.
+     *
+     * @param block
+     *            The decoded block to process
+     */
+    public void process(final OsmPbfBlock block)
+    {
+        for (int index = 0; index < block.size(); index++)
+        {
+            final EntityType type = block.type(index);
+            final Taggable tags = Taggable.with(block.tags(index));
+            if (OsmPbfReader.shouldProcessEntity(this.loadingOption, type, tags))
+            {
+                if (type == EntityType.Node)
                 {
-                    // This way doesn't have any shape-points within the given boundary. Mark it as
-                    // a way to exclude so it can be revisited during relation processing
-                    this.waysToExclude.put(way.getId(), way);
+                    processNode(block.identifier(index), block.location(index));
                 }
-            }
-            else if (shouldLoadOsmRelation(rawEntity))
-            {
-                final Relation relation = (Relation) rawEntity;
-                if (relationContainsMemberWithinBoundary(relation))
+                else if (type == EntityType.Way)
                 {
-                    // Shallow check showed that this relation has a member that is inside our
-                    // boundary, mark all members and relation as inside
-                    markRelationAndMembersInsideBoundary(relation);
+                    processWay(block.identifier(index), block.wayNodeIdentifiers(index), tags);
                 }
-                else
+                else if (shouldLoadOsmRelation(type))
                 {
-                    // Stage the relation - it might be added later
-                    this.stagedRelations.add(relation);
+                    processRelation(block.relation(index));
                 }
             }
-            else if (rawEntity instanceof Bound)
-            {
-                logger.trace("Encountered PBF Bound {}, skipping over it.", rawEntity.getId());
-            }
         }
     }
 
@@ -223,9 +224,12 @@ public class OsmPbfCounter implements Sink
         return this.relationIdentifiersToInclude.size();
     }
 
-    private void addWayNodes(final Set<Long> set, final Way way)
+    private void addWayNodes(final Set<Long> set, final long[] wayNodeIdentifiers)
     {
-        way.getWayNodes().forEach(wayNode -> set.add(wayNode.getNodeId()));
+        for (final long nodeIdentifier : wayNodeIdentifiers)
+        {
+            set.add(nodeIdentifier);
+        }
     }
 
     /**
@@ -246,24 +250,23 @@ public class OsmPbfCounter implements Sink
             {
                 logger.trace("Adding connected ways outside boundary pass {}", extensionCounter);
                 addedNewEdge.set(false);
-                this.waysToExclude.values().stream().filter(this::isHighwayOrFerry)
-                        .filter(way -> !alreadyAddedWays.contains(way.getId())).forEach(way ->
+                this.waysToExclude.entrySet().stream()
+                        .filter(way -> this.excludedHighwaysOrFerries.contains(way.getKey()))
+                        .filter(way -> !alreadyAddedWays.contains(way.getKey())).forEach(way ->
                         {
-                            final List<WayNode> wayNodes = way.getWayNodes();
-                            for (final WayNode wayNode : wayNodes)
+                            for (final long identifier : way.getValue())
                             {
-                                final long identifier = wayNode.getNodeId();
                                 if (this.nodeIdentifiersBroughtInByWaysOrRelations
                                         .contains(identifier))
                                 {
                                     // Add way and its members
                                     logger.trace("Adding connected way with identifier {}",
-                                            way.getId());
-                                    this.wayIdentifiersToInclude.add(way.getId());
+                                            way.getKey());
+                                    this.wayIdentifiersToInclude.add(way.getKey());
                                     addWayNodes(this.nodeIdentifiersBroughtInByWaysOrRelations,
-                                            way);
+                                            way.getValue());
                                     addedNewEdge.set(true);
-                                    alreadyAddedWays.add(way.getId());
+                                    alreadyAddedWays.add(way.getKey());
                                     break;
                                 }
                             }
@@ -273,9 +276,8 @@ public class OsmPbfCounter implements Sink
         }
     }
 
-    private boolean isHighwayOrFerry(final Way way)
+    private boolean isHighwayOrFerry(final Taggable taggableWay)
     {
-        final TagMap taggableWay = new TagMap(way.getTags());
         return HighwayTag.isCoreWay(taggableWay) || RouteTag.isFerry(taggableWay);
     }
 
@@ -296,11 +298,10 @@ public class OsmPbfCounter implements Sink
                 this.wayIdentifiersToInclude.add(memberIdentifier);
 
                 // If this line was originally excluded, bring it in now
-                final Way toAdd = this.waysToExclude.get(memberIdentifier);
+                final long[] toAdd = this.waysToExclude.remove(memberIdentifier);
                 if (toAdd != null)
                 {
                     addWayNodes(this.nodeIdentifiersBroughtInByWaysOrRelations, toAdd);
-                    this.waysToExclude.remove(memberIdentifier, toAdd);
                 }
             }
             else if (memberType == EntityType.Relation)
@@ -313,10 +314,35 @@ public class OsmPbfCounter implements Sink
         this.relationIdentifiersToInclude.add(relation.getId());
     }
 
-    private boolean nodeWithinTargetBoundary(final Node node)
+    private void processNode(final long identifier, final Location location)
     {
-        return this.boundingBox.fullyGeometricallyEncloses(new Location(
-                Latitude.degrees(node.getLatitude()), Longitude.degrees(node.getLongitude())));
+        // store all node locations for calculating way geometry
+        this.nodeIdentifierToLocation.put(identifier, location);
+        // For QA purposes, it is necessary to keep nodes that are outside the target boundary.
+        // For example, atlas-checks needs to know all the node ids in order to reverse a way and
+        // then create an osmChange file for MapRoulette.
+        if (this.loadingOption.isLoadOsmNode() && (this.loadingOption.isKeepAll()
+                || this.boundingBox.fullyGeometricallyEncloses(location)))
+        {
+            // This node is within the boundary or we are using the generated atlas file for QA
+            // purposes, bring it in
+            this.nodeIdentifiersToInclude.add(identifier);
+        }
+    }
+
+    private void processRelation(final Relation relation)
+    {
+        if (relationContainsMemberWithinBoundary(relation))
+        {
+            // Shallow check showed that this relation has a member that is inside our
+            // boundary, mark all members and relation as inside
+            markRelationAndMembersInsideBoundary(relation);
+        }
+        else
+        {
+            // Stage the relation - it might be added later
+            this.stagedRelations.add(relation);
+        }
     }
 
     private void processStagedRelations()
@@ -350,6 +376,32 @@ public class OsmPbfCounter implements Sink
         }
     }
 
+    private void processWay(final long identifier, final long[] wayNodeIdentifiers,
+            final Taggable tags)
+    {
+        if (!this.loadingOption.isLoadOsmWay())
+        {
+            return;
+        }
+        if (wayIntersectsBoundary(identifier, wayNodeIdentifiers))
+        {
+            // This way contains at least one shape-point within the given bounding box. Bring it
+            // and all of its nodes in to the atlas.
+            addWayNodes(this.nodeIdentifiersBroughtInByWaysOrRelations, wayNodeIdentifiers);
+            this.wayIdentifiersToInclude.add(identifier);
+        }
+        else
+        {
+            // This way doesn't have any shape-points within the given boundary. Mark it as a way
+            // to exclude so it can be revisited during relation processing
+            this.waysToExclude.put(identifier, wayNodeIdentifiers);
+            if (this.loadingOption.isLoadWaysSpanningCountryBoundaries() && isHighwayOrFerry(tags))
+            {
+                this.excludedHighwaysOrFerries.add(identifier);
+            }
+        }
+    }
+
     private boolean relationContainsMemberWithinBoundary(final Relation relation)
     {
         // This relation has already been marked as inside
@@ -384,38 +436,23 @@ public class OsmPbfCounter implements Sink
         return false;
     }
 
-    private boolean shouldLoadOsmNode(final Entity entity)
-    {
-        // For QA purposes, it is necessary to keep nodes that are outside the target boundary.
-        // For example, atlas-checks needs to know all the node ids in order to reverse a way and
-        // then create an
-        // osmChange file for MapRoulette.
-        return this.loadingOption.isLoadOsmNode() && entity instanceof Node
-                && (nodeWithinTargetBoundary((Node) entity) || this.loadingOption.isKeepAll());
-    }
-
-    private boolean shouldLoadOsmRelation(final Entity entity)
-    {
-        return this.loadingOption.isLoadOsmRelation() && entity instanceof Relation;
-    }
-
-    private boolean shouldLoadOsmWay(final Entity entity)
+    private boolean shouldLoadOsmRelation(final EntityType type)
     {
-        return this.loadingOption.isLoadOsmWay() && entity instanceof Way;
+        return this.loadingOption.isLoadOsmRelation() && type == EntityType.Relation;
     }
 
-    private boolean wayIntersectsBoundary(final Way way)
+    private boolean wayIntersectsBoundary(final long identifier, final long[] wayNodeIdentifiers)
     {
         // CASE 1: Line crosses (or is enclosed by) the shard bounds and has at least one shapepoint
         // within the shard bounds
         ArrayList<Location> wayNodesLocations = new ArrayList<>();
-        for (final WayNode node : way.getWayNodes())
+        for (final long nodeIdentifier : wayNodeIdentifiers)
         {
             // nodes are processed first so allNodes will contain all node locations
-            wayNodesLocations.add(this.nodeIdentifierToLocation.get(node.getNodeId()));
-            if (this.nodeIdentifiersToInclude.contains(node.getNodeId()))
+            wayNodesLocations.add(this.nodeIdentifierToLocation.get(nodeIdentifier));
+            if (this.nodeIdentifiersToInclude.contains(nodeIdentifier))
             {
-                this.wayIdentifiersToInclude.add(way.getId());
+                this.wayIdentifiersToInclude.add(identifier);
                 return true;
             }
         }
@@ -438,7 +475,7 @@ public class OsmPbfCounter implements Sink
         // the slicing process
         if (this.boundingBox.bounds().overlaps(wayGeometry.bounds()))
         {
-            this.wayIdentifiersToInclude.add(way.getId());
+            this.wayIdentifiersToInclude.add(identifier);
             return true;
         }
 
@@ -1,7 +1,6 @@
 package org.openstreetmap.atlas.geography.atlas.raw.creation;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +25,7 @@ import org.openstreetmap.atlas.geography.atlas.items.Line;
 import org.openstreetmap.atlas.geography.atlas.items.Point;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
 import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
+import org.openstreetmap.atlas.geography.atlas.pbf.OsmPbfBlock;
 import org.openstreetmap.atlas.geography.atlas.pbf.slicing.identifier.PaddingIdentifierFactory;
 import org.openstreetmap.atlas.geography.atlas.raw.sectioning.TagMap;
 import org.openstreetmap.atlas.tags.AtlasTag;
@@ -88,23 +88,42 @@ public class OsmPbfReader implements Sink
      */
     public static boolean shouldProcessEntity(final AtlasLoadingOption loadingOption,
             final Entity entity)
+    {
+        return shouldProcessEntity(loadingOption, entity.getType(),
+                Taggable.with(entity.getTags()));
+    }
+
+    /**
+     * Same as {@link #shouldProcessEntity(AtlasLoadingOption, Entity)}, for an entity that is
+     * described by its type and tags only.
+     *
+     * @param loadingOption
+     *            The {@link AtlasLoadingOption} to use for configuration lookup.
+     * @param type
+     *            The type of the candidate entity
+     * @param tags
+     *            The tags of the candidate entity
+     * @return {@code true} if this entity should be brought into the {@link Atlas}.
+     */
+    public static boolean shouldProcessEntity(final AtlasLoadingOption loadingOption,
+            final EntityType type, final Taggable tags)
     {
         // The keepAll option is primarily used for QA purposes. Everything must stay.
         if (loadingOption.isKeepAll())
         {
             return true;
         }
-        else if (entity instanceof Node)
+        else if (type == EntityType.Node)
         {
-            return loadingOption.getOsmPbfNodeFilter().test(Taggable.with(entity.getTags()));
+            return loadingOption.getOsmPbfNodeFilter().test(tags);
         }
-        else if (entity instanceof Way)
+        else if (type == EntityType.Way)
         {
-            return loadingOption.getOsmPbfWayFilter().test(Taggable.with(entity.getTags()));
+            return loadingOption.getOsmPbfWayFilter().test(tags);
         }
-        else if (entity instanceof Relation)
+        else if (type == EntityType.Relation)
         {
-            return loadingOption.getOsmPbfRelationFilter().test(Taggable.with(entity.getTags()));
+            return loadingOption.getOsmPbfRelationFilter().test(tags);
         }
         else
         {
@@ -113,6 +132,22 @@ public class OsmPbfReader implements Sink
         }
     }
 
+    /**
+     * @param way
+     *            An Osmosis {@link Way}
+     * @return The identifiers of the {@link Node}s of the {@link Way}, in order
+     */
+    static long[] wayNodeIdentifiers(final Way way)
+    {
+        final List<WayNode> wayNodes = way.getWayNodes();
+        final long[] result = new long[wayNodes.size()];
+        for (int index = 0; index < result.length; index++)
+        {
+            result[index] = wayNodes.get(index).getNodeId();
+        }
+        return result;
+    }
+
     /**
      * Default constructor
      *
@@ -159,16 +194,19 @@ public class OsmPbfReader implements Sink
             if (rawEntity instanceof Node
                     && this.nodeIdentifiersToInclude.contains(rawEntity.getId()))
             {
-                processNode(rawEntity);
+                final Node node = (Node) rawEntity;
+                processNode(node.getId(), new Location(Latitude.degrees(node.getLatitude()),
+                        Longitude.degrees(node.getLongitude())), populateEntityTags(node));
             }
             else if (rawEntity instanceof Way
                     && this.wayIdentifiersToInclude.contains(rawEntity.getId()))
             {
-                processWay(rawEntity);
+                processWay(rawEntity.getId(), wayNodeIdentifiers((Way) rawEntity),
+                        populateEntityTags(rawEntity));
             }
             else if (this.loadingOption.isLoadOsmRelation() && rawEntity instanceof Relation)
             {
-                processRelation(rawEntity);
+                processRelation((Relation) rawEntity);
             }
             else if (rawEntity instanceof Bound)
             {
@@ -177,13 +215,60 @@ public class OsmPbfReader implements Sink
         }
         else
         {
-            recordNodeIdentifiersFromFilteredEntity(rawEntity);
-            logFilteredStatistics(rawEntity);
+            if (rawEntity instanceof Way)
+            {
+                recordNodeIdentifiersFromFilteredWay(wayNodeIdentifiers((Way) rawEntity));
+            }
+            logFilteredStatistics(rawEntity.getType());
             logger.trace("Filtering out OSM {} {} from Raw Atlas", rawEntity.getType(),
                     rawEntity.getId());
         }
     }
 
+    /**
+     * Same as {@link #process(EntityContainer)} for all the elements of a natively decoded
+     * {@link OsmPbfBlock}, without going through Osmosis entities for nodes and ways.
+     *
+     * @param block
+     *            The decoded block to process
+     */
+    public void process(final OsmPbfBlock block)
+    {
+        for (int index = 0; index < block.size(); index++)
+        {
+            final EntityType type = block.type(index);
+            final long identifier = block.identifier(index);
+            final Map<String, String> tags = block.tags(index);
+            if (shouldProcessEntity(this.loadingOption, type, Taggable.with(tags)))
+            {
+                if (type == EntityType.Node && this.nodeIdentifiersToInclude.contains(identifier))
+                {
+                    processNode(identifier, block.location(index),
+                            populateEntityTags(tags, block, index));
+                }
+                else if (type == EntityType.Way
+                        && this.wayIdentifiersToInclude.contains(identifier))
+                {
+                    processWay(identifier, block.wayNodeIdentifiers(index),
+                            populateEntityTags(tags, block, index));
+                }
+                else if (this.loadingOption.isLoadOsmRelation() && type == EntityType.Relation)
+                {
+                    processRelation(block.relation(index));
+                }
+            }
+            else
+            {
+                if (type == EntityType.Way)
+                {
+                    recordNodeIdentifiersFromFilteredWay(block.wayNodeIdentifiers(index));
+                }
+                logFilteredStatistics(type);
+                logger.trace("Filtering out OSM {} {} from Raw Atlas", type, identifier);
+            }
+        }
+    }
+
     /**
      * Sets all the Node identifiers marked for inclusion.
      *
@@ -313,32 +398,35 @@ public class OsmPbfReader implements Sink
         return bean;
     }
 
-    private Polygon constructWayPolygon(final Way way)
+    private Polygon constructWayPolygon(final long[] wayNodeIdentifiers)
     {
-        final List<WayNode> wayNodes = way.getWayNodes();
-        final List<Location> wayLocations = new ArrayList<>();
-        wayNodes.forEach(
-                node -> wayLocations.add(getNodeLocation(padIdentifier(node.getNodeId()))));
+        final List<Location> wayLocations = new ArrayList<>(wayNodeIdentifiers.length);
+        for (final long nodeIdentifier : wayNodeIdentifiers)
+        {
+            wayLocations.add(getNodeLocation(padIdentifier(nodeIdentifier)));
+        }
         wayLocations.remove(wayLocations.size() - 1);
         return new Polygon(wayLocations);
     }
 
     /**
-     * Constructs a {@link PolyLine} given an OSM PBF {@link Way}. The {@link Way} object doesn't
-     * contain the coordinates of its geometry, only the references to the {@link Node}s
-     * identifiers. We need to look up the {@link Location} of each {@link Node} and re-construct
-     * the {@link PolyLine} manually.
+     * Constructs a {@link PolyLine} given the node identifiers of an OSM PBF {@link Way}. The
+     * {@link Way} doesn't contain the coordinates of its geometry, only the references to the
+     * {@link Node}s identifiers. We need to look up the {@link Location} of each {@link Node} and
+     * re-construct the {@link PolyLine} manually.
      *
-     * @param way
-     *            The {@link Way} for which to construct the {@link PolyLine}
+     * @param wayNodeIdentifiers
+     *            The node identifiers of the {@link Way} for which to construct the
+     *            {@link PolyLine}
      * @return the constructed {@link PolyLine}
      */
-    private PolyLine constructWayPolyline(final Way way)
+    private PolyLine constructWayPolyline(final long[] wayNodeIdentifiers)
     {
-        final List<WayNode> wayNodes = way.getWayNodes();
-        final List<Location> wayLocations = new ArrayList<>();
-        wayNodes.forEach(
-                node -> wayLocations.add(getNodeLocation(padIdentifier(node.getNodeId()))));
+        final List<Location> wayLocations = new ArrayList<>(wayNodeIdentifiers.length);
+        for (final long nodeIdentifier : wayNodeIdentifiers)
+        {
+            wayLocations.add(getNodeLocation(padIdentifier(nodeIdentifier)));
+        }
         return new PolyLine(wayLocations);
     }
 
@@ -385,39 +473,36 @@ public class OsmPbfReader implements Sink
      * A {@link Way} is invalid if it's of size 0 or 1; or if it's of size 2 and has the same start
      * and end node.
      *
-     * @param way
-     *            The {@link Way} to validate
+     * @param wayNodeIdentifiers
+     *            The node identifiers of the {@link Way} to validate
      * @return {@code true} if the given {@link Way} is invalid
      */
-    private boolean isInvalidWay(final Way way)
+    private boolean isInvalidWay(final long[] wayNodeIdentifiers)
     {
-        final List<WayNode> wayNodes = way.getWayNodes();
-        return wayNodes.size() < 2
-                || wayNodes.size() == 2
-                        && wayNodes.get(0).getNodeId() == wayNodes.get(1).getNodeId()
-                || wayNodes.size() < MINIMUM_CLOSED_WAY_LENGTH
-                        && getNodeLocation(padIdentifier(wayNodes.get(0).getNodeId()))
-                                .equals(getNodeLocation(padIdentifier(
-                                        wayNodes.get(wayNodes.size() - 1).getNodeId())));
+        final int size = wayNodeIdentifiers.length;
+        return size < 2 || size == 2 && wayNodeIdentifiers[0] == wayNodeIdentifiers[1]
+                || size < MINIMUM_CLOSED_WAY_LENGTH
+                        && getNodeLocation(padIdentifier(wayNodeIdentifiers[0])).equals(
+                                getNodeLocation(padIdentifier(wayNodeIdentifiers[size - 1])));
     }
 
     /**
      * Log any {@link Entity}s that got filtered by ingest configuration.
      *
-     * @param entity
-     *            The filtered {@link Entity}
+     * @param type
+     *            The type of the filtered {@link Entity}
      */
-    private void logFilteredStatistics(final Entity entity)
+    private void logFilteredStatistics(final EntityType type)
     {
-        if (entity instanceof Node)
+        if (type == EntityType.Node)
         {
             this.statistics.recordFilteredNode();
         }
-        else if (entity instanceof Way)
+        else if (type == EntityType.Way)
         {
             this.statistics.recordFilteredWay();
         }
-        else if (entity instanceof Relation)
+        else if (type == EntityType.Relation)
         {
             this.statistics.recordFilteredRelation();
         }
@@ -456,10 +541,9 @@ public class OsmPbfReader implements Sink
     }
 
     /**
-     * First, creates an {@link Entity} {@link Tag} for specific OSM attributes we're interested in
-     * propagating to the {@link AtlasEntity}. Secondly, converts the given {@link Entity}'s
-     * collection of {@link Tag}s to a {@link Map} of key/value pairs used to build an
-     * {@link AtlasEntity}'s tag set.
+     * Converts the given {@link Entity}'s collection of {@link Tag}s to a {@link Map} of key/value
+     * pairs used to build an {@link AtlasEntity}'s tag set, and adds to it specific OSM attributes
+     * we're interested in propagating to the {@link AtlasEntity}.
      *
      * @param entity
      *            The {@link Entity} being processed
@@ -467,25 +551,45 @@ public class OsmPbfReader implements Sink
      */
     private TagMap populateEntityTags(final Entity entity)
     {
-        // Update the entity's tags to contain specific OSM attributes we care about, so that these
-        // get translated to Atlas Entity tags.
-        storeOsmEntityAttributesAsTags(entity);
-        return new TagMap(entity.getTags());
+        final TagMap tags = new TagMap(entity.getTags());
+        storeOsmEntityAttributesAsTags(tags.getTags(), entity.getTimestamp().getTime(),
+                entity.getUser().getId(), entity.getUser().getName(), entity.getVersion(),
+                entity.getChangesetId());
+        return tags;
+    }
+
+    /**
+     * Same as {@link #populateEntityTags(Entity)}, for an element of an {@link OsmPbfBlock}.
+     *
+     * @param tags
+     *            The mutable tags of the element
+     * @param block
+     *            The block containing the element
+     * @param index
+     *            The index of the element in the block
+     * @return a {@link Map} of key/value tags
+     */
+    private TagMap populateEntityTags(final Map<String, String> tags, final OsmPbfBlock block,
+            final int index)
+    {
+        storeOsmEntityAttributesAsTags(tags, block.timestamp(index), block.userIdentifier(index),
+                block.userName(index), block.version(index), block.changeset(index));
+        return new TagMap(tags);
     }
 
     /**
      * Uses the {@link Node} OSM identifier, geometry and tags to create an Atlas {@link Point}.
      *
-     * @param entity
-     *            The {@link Entity} that will become an Atlas {@link Point}
+     * @param identifier
+     *            The OSM identifier of the {@link Node} that will become an Atlas {@link Point}
+     * @param location
+     *            The {@link Location} of the {@link Node}
+     * @param tags
+     *            The tags of the {@link Node}, including the OSM attributes
      */
-    private void processNode(final Entity entity)
+    private void processNode(final long identifier, final Location location, final TagMap tags)
     {
-        final Node node = (Node) entity;
-        this.builder.addPoint(padIdentifier(node.getId()),
-                new Location(Latitude.degrees(node.getLatitude()),
-                        Longitude.degrees(node.getLongitude())),
-                populateEntityTags(node).getTags());
+        this.builder.addPoint(padIdentifier(identifier), location, tags.getTags());
         this.statistics.recordCreatedPoint();
     }
 
@@ -495,13 +599,12 @@ public class OsmPbfReader implements Sink
      * processed yet, then we add the given {@link Relation} to a Collection of staged relations to
      * process later (see {@link #close()} method). Otherwise, we add it.
      *
-     * @param entity
-     *            The {@link Entity} that will become an Atlas
+     * @param relation
+     *            The {@link Relation} that will become an Atlas
      *            {@link org.openstreetmap.atlas.geography.atlas.items.Relation}
      */
-    private void processRelation(final Entity entity)
+    private void processRelation(final Relation relation)
     {
-        final Relation relation = (Relation) entity;
         if (containsUnindexedSubRelation(relation))
         {
             // Stage this Relation, it has a member relation that we haven't processed yet
@@ -630,33 +733,36 @@ public class OsmPbfReader implements Sink
      * Uses the {@link Way} identifier, re-constructed geometry and tags to create an Atlas
      * {@link Line}.
      *
-     * @param entity
-     *            The {@link Entity} that will become an Atlas {@link Line}
+     * @param identifier
+     *            The OSM identifier of the {@link Way} that will become an Atlas {@link Line}
+     * @param wayNodeIdentifiers
+     *            The identifiers of the {@link Node}s of the {@link Way}
+     * @param wayTags
+     *            The tags of the {@link Way}, including the OSM attributes
      */
-    private void processWay(final Entity entity)
+    private void processWay(final long identifier, final long[] wayNodeIdentifiers,
+            final TagMap wayTags)
     {
-        final Way way = (Way) entity;
-        if (isInvalidWay(way))
+        if (isInvalidWay(wayNodeIdentifiers))
         {
             this.statistics.recordDroppedWay();
         }
         else
         {
-            final PolyLine wayPolyLine = constructWayPolyline(way);
-            final TagMap wayTags = populateEntityTags(way);
+            final PolyLine wayPolyLine = constructWayPolyline(wayNodeIdentifiers);
             if (wayPolyLine.first().equals(wayPolyLine.last()))
             {
                 boolean kept = false;
                 if (this.loadingOption.getAreaFilter().test(wayTags))
                 {
-                    this.builder.addArea(padIdentifier(way.getId()), constructWayPolygon(way),
-                            wayTags.getTags());
+                    this.builder.addArea(padIdentifier(identifier),
+                            constructWayPolygon(wayNodeIdentifiers), wayTags.getTags());
                     this.statistics.recordCreatedLine();
                     kept = true;
                 }
                 if (this.loadingOption.getEdgeFilter().test(wayTags))
                 {
-                    this.builder.addLine(padIdentifier(way.getId()), wayPolyLine,
+                    this.builder.addLine(padIdentifier(identifier), wayPolyLine,
                             wayTags.getTags());
                     this.statistics.recordCreatedLine();
                     kept = true;
@@ -668,7 +774,7 @@ public class OsmPbfReader implements Sink
             }
             else
             {
-                this.builder.addLine(padIdentifier(way.getId()), wayPolyLine, wayTags.getTags());
+                this.builder.addLine(padIdentifier(identifier), wayPolyLine, wayTags.getTags());
                 this.statistics.recordCreatedLine();
             }
         }
@@ -682,53 +788,59 @@ public class OsmPbfReader implements Sink
      * functionality to filter them out after the Atlas is built. For now, ignore filtering any
      * Nodes that come from filtered Relations. This will be handled in the way-sectioning code.
      *
-     * @param entity
-     *            The {@link Entity} whose Node (Atlas Point) identifiers we want to filter out
+     * @param wayNodeIdentifiers
+     *            The Node (Atlas Point) identifiers of the filtered {@link Way}
      */
-    private void recordNodeIdentifiersFromFilteredEntity(final Entity entity)
+    private void recordNodeIdentifiersFromFilteredWay(final long[] wayNodeIdentifiers)
     {
-        if (entity instanceof Way)
+        for (final long nodeIdentifier : wayNodeIdentifiers)
         {
-            final List<WayNode> wayNodes = ((Way) entity).getWayNodes();
-            wayNodes.forEach(node ->
-            {
-                this.pointIdentifiersFromFilteredLines.add(padIdentifier(node.getNodeId()));
-                this.statistics.recordFilteredNode();
-            });
+            this.pointIdentifiersFromFilteredLines.add(padIdentifier(nodeIdentifier));
+            this.statistics.recordFilteredNode();
         }
     }
 
     /**
-     * Grabs desired OSM attributes (such as last edited time) from given {@link Entity} and creates
-     * a corresponding {@link Tag} value for each.
+     * Stores desired OSM attributes (such as last edited time) of an {@link Entity} as tags.
      *
-     * @param entity
-     *            The {@link Entity}, whose attributes we want to save.
+     * @param tags
+     *            The tags of the {@link Entity}, to add the attributes to
+     * @param timestamp
+     *            The last edit time in milliseconds
+     * @param userIdentifier
+     *            The last edit user identifier
+     * @param userName
+     *            The last edit user name
+     * @param version
+     *            The version of the {@link Entity}
+     * @param changeset
+     *            The last edit changeset
      */
-    private void storeOsmEntityAttributesAsTags(final Entity entity)
+    private void storeOsmEntityAttributesAsTags(final Map<String, String> tags,
+            final long timestamp, final int userIdentifier, final String userName,
+            final int version, final long changeset)
     {
-        final Collection<Tag> tags = entity.getTags();
         for (final String tag : AtlasTag.TAGS_FROM_OSM)
         {
             if (tag.equals(LastEditTimeTag.KEY))
             {
-                tags.add(new Tag(tag, String.valueOf(entity.getTimestamp().getTime())));
+                tags.put(tag, String.valueOf(timestamp));
             }
             else if (tag.equals(LastEditUserIdentifierTag.KEY))
             {
-                tags.add(new Tag(tag, String.valueOf(entity.getUser().getId())));
+                tags.put(tag, String.valueOf(userIdentifier));
             }
             else if (tag.equals(LastEditUserNameTag.KEY))
             {
-                tags.add(new Tag(tag, entity.getUser().getName()));
+                tags.put(tag, userName);
             }
             else if (tag.equals(LastEditVersionTag.KEY))
             {
-                tags.add(new Tag(tag, String.valueOf(entity.getVersion())));
+                tags.put(tag, String.valueOf(version));
             }
             else if (tag.equals(LastEditChangesetTag.KEY))
             {
-                tags.add(new Tag(tag, String.valueOf(entity.getChangesetId())));
+                tags.put(tag, String.valueOf(changeset));
             }
             else
             {
@@ -1,9 +1,11 @@
 package org.openstreetmap.atlas.geography.atlas.raw.creation;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -24,6 +26,8 @@ import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
 import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
 import org.openstreetmap.atlas.geography.atlas.pbf.CloseableOsmosisReader;
+import org.openstreetmap.atlas.geography.atlas.pbf.OsmPbfBlock;
+import org.openstreetmap.atlas.geography.atlas.pbf.OsmPbfBlockReader;
 import org.openstreetmap.atlas.streaming.resource.Resource;
 import org.openstreetmap.atlas.streaming.resource.WritableResource;
 import org.openstreetmap.atlas.tags.AtlasTag;
@@ -73,6 +77,9 @@ public class RawAtlasGenerator
     // Osmosis supplier
     private final Supplier<CloseableOsmosisReader> osmosisReaderSupplier;
 
+    // PBF resource, when known, to decode natively instead of through the Osmosis supplier
+    private final Resource pbfResource;
+
     // Raw atlas metadata
     private AtlasMetaData metaData = new AtlasMetaData();
 
@@ -100,7 +107,8 @@ public class RawAtlasGenerator
     public RawAtlasGenerator(final Resource resource, final AtlasLoadingOption loadingOption,
             final MultiPolygon boundingBox)
     {
-        this(() -> new CloseableOsmosisReader(resource.read()), loadingOption, boundingBox);
+        this(resource, () -> new CloseableOsmosisReader(resource.read()), loadingOption,
+                boundingBox);
     }
 
     /**
@@ -119,6 +127,14 @@ public class RawAtlasGenerator
     public RawAtlasGenerator(final Supplier<CloseableOsmosisReader> osmosisReaderSupplier,
             final AtlasLoadingOption atlasLoadingOption, final MultiPolygon boundingBox)
     {
+        this(null, osmosisReaderSupplier, atlasLoadingOption, boundingBox);
+    }
+
+    private RawAtlasGenerator(final Resource pbfResource,
+            final Supplier<CloseableOsmosisReader> osmosisReaderSupplier,
+            final AtlasLoadingOption atlasLoadingOption, final MultiPolygon boundingBox)
+    {
+        this.pbfResource = pbfResource;
         this.osmosisReaderSupplier = osmosisReaderSupplier;
         this.atlasLoadingOption = atlasLoadingOption;
         this.boundingBox = boundingBox;
@@ -249,9 +265,9 @@ public class RawAtlasGenerator
     {
         final String shardName = this.metaData.getShardName().orElse("unknown");
         final Time parseTime = Time.now();
-        try (CloseableOsmosisReader reader = connectOsmPbfToPbfConsumer(this.pbfReader))
+        try
         {
-            reader.run();
+            readPbf(this.pbfReader, this.pbfReader::process);
         }
         catch (final Exception e)
         {
@@ -283,9 +299,9 @@ public class RawAtlasGenerator
     private void countOsmPbfEntities()
     {
         final Time countTime = Time.now();
-        try (CloseableOsmosisReader counter = connectOsmPbfToPbfConsumer(this.pbfCounter))
+        try
         {
-            counter.run();
+            readPbf(this.pbfCounter, this.pbfCounter::process);
         }
         catch (final Exception e)
         {
@@ -425,6 +441,41 @@ public class RawAtlasGenerator
         this.pbfReader.setIncludedWays(this.pbfCounter.getIncludedWayIdentifiers());
     }
 
+    /**
+     * Stream the whole PBF to a consumer. A PBF {@link Resource} is decoded natively, in parallel,
+     * and handed to the consumer block by block, with the same {@link Sink} lifecycle Osmosis
+     * follows. Otherwise the Osmosis supplier is used.
+     *
+     * @param sink
+     *            The consumer, as an Osmosis {@link Sink}
+     * @param blockConsumer
+     *            The same consumer, accepting natively decoded {@link OsmPbfBlock}s
+     * @throws Exception
+     *            If the PBF cannot be read
+     */
+    private void readPbf(final Sink sink, final Consumer<OsmPbfBlock> blockConsumer)
+            throws Exception
+    {
+        if (this.pbfResource == null)
+        {
+            try (CloseableOsmosisReader reader = connectOsmPbfToPbfConsumer(sink))
+            {
+                reader.run();
+            }
+            return;
+        }
+        sink.initialize(Collections.emptyMap());
+        try (OsmPbfBlockReader reader = new OsmPbfBlockReader(this.pbfResource))
+        {
+            reader.read(blockConsumer);
+            sink.complete();
+        }
+        finally
+        {
+            sink.close();
+        }
+    }
+
     private Atlas rebuildAtlas(final Atlas atlas, final Set<Long> pointsToRemove,
             final Set<Long> pointsNeedingSyntheticTag)
     {
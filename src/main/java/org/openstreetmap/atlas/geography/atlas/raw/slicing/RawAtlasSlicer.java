@@ -241,7 +241,7 @@ public class RawAtlasSlicer
 
         time = Time.now();
         logger.info(STARTED_POINT_SLICING, this.shardOrAtlasName);
-        this.inputAtlas.points().forEach(this::slicePoint);
+        this.slicePoints();
         logger.info(FINISHED_POINT_SLICING, this.shardOrAtlasName,
                 time.elapsedSince().asMilliseconds());
 
@@ -711,6 +711,23 @@ public class RawAtlasSlicer
         return false;
     }
 
+    /**
+     * We care about a point if and only if it has pre-existing OSM tags OR it belongs to a future
+     * edge OR we are keeping all points for QC
+     *
+     * @param point
+     *            The point to check
+     * @return {@code true} if the point is kept and needs a country code
+     */
+    private boolean isPointNeeded(final Point point)
+    {
+        return !point.getOsmTags().isEmpty()
+                || this.pointsBelongingToEdge.contains(point.getIdentifier())
+                || !this.stagedPoints.get(point.getIdentifier())
+                        .getTag(SyntheticBoundaryNodeTag.KEY).isEmpty()
+                || !point.relations().isEmpty() || this.keepAll;
+    }
+
     /**
      * A filter to ensure trivial pieces of geometry aren't preserved from the slicing operation
      *
@@ -1380,35 +1397,47 @@ public class RawAtlasSlicer
      * @param point
      *            The point to slice
      */
-    private void slicePoint(final Point point)
+    private void slicePoint(final Point point, final CountryCodeProperties countryCode)
     {
-        if (point.getOsmTags().isEmpty()
-                && !this.pointsBelongingToEdge.contains(point.getIdentifier()) && this.stagedPoints
-                        .get(point.getIdentifier()).getTag(SyntheticBoundaryNodeTag.KEY).isEmpty()
-                && point.relations().isEmpty() && !this.keepAll)
+        final CompletePoint updatedPoint = this.stagedPoints.get(point.getIdentifier());
+        final SortedSet<String> countries = new TreeSet<>();
+        countries.addAll(Arrays.asList(
+                countryCode.getIso3CountryCode().split(ISOCountryTag.COUNTRY_DELIMITER)));
+        updatedPoint.withAddedTag(ISOCountryTag.KEY,
+                String.join(ISOCountryTag.COUNTRY_DELIMITER, countries));
+        if (countries.size() > 1)
+        {
+            updatedPoint.withAddedTag(SyntheticBoundaryNodeTag.KEY,
+                    SyntheticBoundaryNodeTag.EXISTING.toString());
+        }
+        if (!this.isInCountry.test(updatedPoint) && !this.keepAll)
         {
-            // we care about a point if and only if it has pre-existing OSM tags OR it belongs
-            // to a future edge OR we are keeping all points for QC
             this.stagedPoints.remove(point.getIdentifier());
-            this.changes.add(FeatureChange.remove(CompletePoint.shallowFrom(point)));
+            this.changes.add(FeatureChange.remove(updatedPoint, this.inputAtlas));
         }
-        else
+    }
+
+    /**
+     * Slice all the points of the input atlas. The country codes of all the points that are kept
+     * are looked up in one parallel batch first, since they do not depend on each other.
+     */
+    private void slicePoints()
+    {
+        final List<Point> points = Iterables.asList(this.inputAtlas.points());
+        final CountryCodeProperties[] countryCodes = this.boundary
+                .getCountryCodeISO3(points.stream().filter(this::isPointNeeded)
+                        .map(Point::getLocation).toArray(Location[]::new));
+        int next = 0;
+        for (final Point point : points)
         {
-            final CompletePoint updatedPoint = this.stagedPoints.get(point.getIdentifier());
-            final SortedSet<String> countries = new TreeSet<>();
-            countries.addAll(Arrays.asList(this.boundary.getCountryCodeISO3(point.getLocation())
-                    .getIso3CountryCode().split(ISOCountryTag.COUNTRY_DELIMITER)));
-            updatedPoint.withAddedTag(ISOCountryTag.KEY,
-                    String.join(ISOCountryTag.COUNTRY_DELIMITER, countries));
-            if (countries.size() > 1)
+            if (isPointNeeded(point))
             {
-                updatedPoint.withAddedTag(SyntheticBoundaryNodeTag.KEY,
-                        SyntheticBoundaryNodeTag.EXISTING.toString());
+                slicePoint(point, countryCodes[next++]);
             }
-            if (!this.isInCountry.test(updatedPoint) && !this.keepAll)
+            else
             {
                 this.stagedPoints.remove(point.getIdentifier());
-                this.changes.add(FeatureChange.remove(updatedPoint, this.inputAtlas));
+                this.changes.add(FeatureChange.remove(CompletePoint.shallowFrom(point)));
             }
         }
     }
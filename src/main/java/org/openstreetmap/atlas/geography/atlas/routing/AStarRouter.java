@@ -99,6 +99,17 @@ public class AStarRouter extends AbstractRouter
         }
     }
 
+    private static final double DISTANCE_FROM_START_COST_RATIO = 0.25;
+
+    static final Heuristic BALANCED = (start, candidate, end) -> DISTANCE_FROM_START_COST_RATIO
+            * start.getLocation().distanceTo(candidate.getLocation()).asMeters()
+            + (1 - DISTANCE_FROM_START_COST_RATIO)
+                    * candidate.getLocation().distanceTo(end.getLocation()).asMeters();
+    static final Heuristic DIJKSTRA = (start, candidate, end) -> start.getLocation()
+            .distanceTo(candidate.getLocation()).asMeters();
+    static final Heuristic FAST = (start, candidate, end) -> candidate.getLocation()
+            .distanceTo(end.getLocation()).asMeters();
+
     private final Heuristic heuristic;
 
     /**
@@ -111,12 +122,7 @@ public class AStarRouter extends AbstractRouter
      */
     public static AStarRouter balanced(final Atlas atlas, final Distance threshold)
     {
-        final double distanceFromStartCostRatio = 0.25;
-        return new AStarRouter(atlas, threshold,
-                (start, candidate, end) -> distanceFromStartCostRatio
-                        * start.getLocation().distanceTo(candidate.getLocation()).asMeters()
-                        + (1 - distanceFromStartCostRatio)
-                                * candidate.getLocation().distanceTo(end.getLocation()).asMeters());
+        return new AStarRouter(atlas, threshold, BALANCED);
     }
 
     /**
@@ -128,8 +134,7 @@ public class AStarRouter extends AbstractRouter
      */
     public static AStarRouter dijkstra(final Atlas atlas, final Distance threshold)
     {
-        return new AStarRouter(atlas, threshold, (start, candidate, end) -> start.getLocation()
-                .distanceTo(candidate.getLocation()).asMeters());
+        return new AStarRouter(atlas, threshold, DIJKSTRA);
     }
 
     /**
@@ -143,8 +148,7 @@ public class AStarRouter extends AbstractRouter
     public static AStarRouter fastComputationAndSubOptimalRoute(final Atlas atlas,
             final Distance threshold)
     {
-        return new AStarRouter(atlas, threshold, (start, candidate, end) -> candidate.getLocation()
-                .distanceTo(end.getLocation()).asMeters());
+        return new AStarRouter(atlas, threshold, FAST);
     }
 
     /**
@@ -0,0 +1,458 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.streaming.resource.WritableResource;
+
+/**
+ * Shortcut index of the {@link Edge}s of an {@link Atlas}, for fast point to point shortest path
+ * queries, where the cost of an {@link Edge} is its length. It is built offline once per atlas,
+ * and can be saved next to it. Queries run a bidirectional Dijkstra search that only follows arcs
+ * towards nodes contracted later, and expand the shortcuts of the result back into the original
+ * {@link Edge} identifiers.
+ * <p>
+ * Nodes are numbered by their position in the sorted array of {@link Node} identifiers. An arc is
+ * either an original {@link Edge}, or a shortcut that replaces two consecutive arcs.
+ *
+ * @author agent
+ */
+public final class ContractionHierarchy
+{
+    /**
+     * Per thread state of the bidirectional search, reset by incrementing the stamp
+     *
+     * @author agent
+     */
+    private static final class Search
+    {
+        private final double[] forwardCosts;
+        private final int[] forwardArcs;
+        private final int[] forwardStamps;
+        private final NodeHeap forwardHeap = new NodeHeap();
+        private final double[] backwardCosts;
+        private final int[] backwardArcs;
+        private final int[] backwardStamps;
+        private final NodeHeap backwardHeap = new NodeHeap();
+        private int stamp;
+
+        Search(final int numberOfNodes)
+        {
+            this.forwardCosts = new double[numberOfNodes];
+            this.forwardArcs = new int[numberOfNodes];
+            this.forwardStamps = new int[numberOfNodes];
+            this.backwardCosts = new double[numberOfNodes];
+            this.backwardArcs = new int[numberOfNodes];
+            this.backwardStamps = new int[numberOfNodes];
+        }
+
+        int backwardArc(final int node)
+        {
+            return this.backwardArcs[node];
+        }
+
+        double backwardCost(final int node)
+        {
+            return this.backwardStamps[node] == this.stamp ? this.backwardCosts[node]
+                    : Double.POSITIVE_INFINITY;
+        }
+
+        int forwardArc(final int node)
+        {
+            return this.forwardArcs[node];
+        }
+
+        double forwardCost(final int node)
+        {
+            return this.forwardStamps[node] == this.stamp ? this.forwardCosts[node]
+                    : Double.POSITIVE_INFINITY;
+        }
+
+        void reachBackward(final int node, final double cost, final int arc)
+        {
+            this.backwardStamps[node] = this.stamp;
+            this.backwardCosts[node] = cost;
+            this.backwardArcs[node] = arc;
+            this.backwardHeap.push(node, cost);
+        }
+
+        void reachForward(final int node, final double cost, final int arc)
+        {
+            this.forwardStamps[node] = this.stamp;
+            this.forwardCosts[node] = cost;
+            this.forwardArcs[node] = arc;
+            this.forwardHeap.push(node, cost);
+        }
+
+        void reset()
+        {
+            this.stamp++;
+            this.forwardHeap.clear();
+            this.backwardHeap.clear();
+        }
+    }
+
+    static final int NO_ARC = -1;
+
+    private static final String MAGIC = "ATLASCH";
+    private static final int VERSION = 1;
+
+    private final long[] nodeIdentifiers;
+    private final int[] arcStarts;
+    private final int[] arcEnds;
+    private final double[] arcWeights;
+    private final long[] arcEdgeIdentifiers;
+    // For shortcuts, the two arcs they replace. NO_ARC for original edges.
+    private final int[] arcFirsts;
+    private final int[] arcSeconds;
+    // Arcs towards nodes contracted later, from each node and to each node
+    private final int[] upwardOffsets;
+    private final int[] upwardArcs;
+    private final int[] downwardOffsets;
+    private final int[] downwardArcs;
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * Contract all the {@link Node}s of an {@link Atlas}. This is expensive, and meant to be done
+     * once per atlas, and saved.
+     *
+     * @param atlas
+     *            The {@link Atlas} to index
+     * @return The {@link ContractionHierarchy} of that {@link Atlas}
+     */
+    public static ContractionHierarchy build(final Atlas atlas)
+    {
+        return new ContractionHierarchyBuilder(atlas).build();
+    }
+
+    /**
+     * @param resource
+     *            A resource written by {@link #save(WritableResource)}
+     * @return The {@link ContractionHierarchy}
+     */
+    public static ContractionHierarchy load(final Resource resource)
+    {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(resource.read())))
+        {
+            if (!MAGIC.equals(input.readUTF()))
+            {
+                throw new CoreException("{} is not a contraction hierarchy", resource.getName());
+            }
+            final int version = input.readInt();
+            if (version != VERSION)
+            {
+                throw new CoreException("Unsupported contraction hierarchy version {} in {}",
+                        version, resource.getName());
+            }
+            final long[] nodeIdentifiers = readLongs(input);
+            final int[] arcStarts = readInts(input);
+            final int[] arcEnds = readInts(input);
+            final double[] arcWeights = new double[arcStarts.length];
+            for (int arc = 0; arc < arcWeights.length; arc++)
+            {
+                arcWeights[arc] = input.readDouble();
+            }
+            return new ContractionHierarchy(nodeIdentifiers, arcStarts, arcEnds, arcWeights,
+                    readLongs(input), readInts(input), readInts(input), readInts(input),
+                    readInts(input), readInts(input), readInts(input));
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to read contraction hierarchy {}",
+                    resource.getName(), e);
+        }
+    }
+
+    private static int[] readInts(final DataInputStream input) throws IOException
+    {
+        final int[] result = new int[input.readInt()];
+        for (int index = 0; index < result.length; index++)
+        {
+            result[index] = input.readInt();
+        }
+        return result;
+    }
+
+    private static long[] readLongs(final DataInputStream input) throws IOException
+    {
+        final long[] result = new long[input.readInt()];
+        for (int index = 0; index < result.length; index++)
+        {
+            result[index] = input.readLong();
+        }
+        return result;
+    }
+
+    private static void writeInts(final DataOutputStream output, final int[] values)
+            throws IOException
+    {
+        output.writeInt(values.length);
+        for (final int value : values)
+        {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeLongs(final DataOutputStream output, final long[] values)
+            throws IOException
+    {
+        output.writeInt(values.length);
+        for (final long value : values)
+        {
+            output.writeLong(value);
+        }
+    }
+
+    @SuppressWarnings("squid:S00107")
+    ContractionHierarchy(final long[] nodeIdentifiers, final int[] arcStarts, final int[] arcEnds,
+            final double[] arcWeights, final long[] arcEdgeIdentifiers, final int[] arcFirsts,
+            final int[] arcSeconds, final int[] upwardOffsets, final int[] upwardArcs,
+            final int[] downwardOffsets, final int[] downwardArcs)
+    {
+        this.nodeIdentifiers = nodeIdentifiers;
+        this.arcStarts = arcStarts;
+        this.arcEnds = arcEnds;
+        this.arcWeights = arcWeights;
+        this.arcEdgeIdentifiers = arcEdgeIdentifiers;
+        this.arcFirsts = arcFirsts;
+        this.arcSeconds = arcSeconds;
+        this.upwardOffsets = upwardOffsets;
+        this.upwardArcs = upwardArcs;
+        this.downwardOffsets = downwardOffsets;
+        this.downwardArcs = downwardArcs;
+        this.searches = ThreadLocal.withInitial(() -> new Search(nodeIdentifiers.length));
+    }
+
+    /**
+     * @param startNodeIdentifier
+     *            The identifier of the start {@link Node}
+     * @param endNodeIdentifier
+     *            The identifier of the end {@link Node}
+     * @return The length in meters of the shortest path between the two {@link Node}s, or
+     *         {@link Double#POSITIVE_INFINITY} if there is none
+     */
+    public double distance(final long startNodeIdentifier, final long endNodeIdentifier)
+    {
+        final Search search = this.searches.get();
+        final int meeting = search(search, startNodeIdentifier, endNodeIdentifier);
+        if (meeting < 0)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return search.forwardCost(meeting) + search.backwardCost(meeting);
+    }
+
+    public int numberOfArcs()
+    {
+        return this.arcStarts.length;
+    }
+
+    public int numberOfNodes()
+    {
+        return this.nodeIdentifiers.length;
+    }
+
+    /**
+     * Save this {@link ContractionHierarchy}, to be read later with {@link #load(Resource)}
+     *
+     * @param resource
+     *            The resource to write to
+     */
+    public void save(final WritableResource resource)
+    {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(resource.write())))
+        {
+            output.writeUTF(MAGIC);
+            output.writeInt(VERSION);
+            writeLongs(output, this.nodeIdentifiers);
+            writeInts(output, this.arcStarts);
+            writeInts(output, this.arcEnds);
+            for (final double weight : this.arcWeights)
+            {
+                output.writeDouble(weight);
+            }
+            writeLongs(output, this.arcEdgeIdentifiers);
+            writeInts(output, this.arcFirsts);
+            writeInts(output, this.arcSeconds);
+            writeInts(output, this.upwardOffsets);
+            writeInts(output, this.upwardArcs);
+            writeInts(output, this.downwardOffsets);
+            writeInts(output, this.downwardArcs);
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to save contraction hierarchy to {}",
+                    resource.getName(), e);
+        }
+    }
+
+    /**
+     * @param startNodeIdentifier
+     *            The identifier of the start {@link Node}
+     * @param endNodeIdentifier
+     *            The identifier of the end {@link Node}
+     * @return The identifiers of the {@link Edge}s of the shortest path between the two
+     *         {@link Node}s, in order, or null if there is none. The path of a {@link Node} to
+     *         itself is empty.
+     */
+    public long[] shortestPath(final long startNodeIdentifier, final long endNodeIdentifier)
+    {
+        final Search search = this.searches.get();
+        final int meeting = search(search, startNodeIdentifier, endNodeIdentifier);
+        if (meeting < 0)
+        {
+            return null;
+        }
+        final List<Integer> arcs = new ArrayList<>();
+        int node = meeting;
+        while (search.forwardArc(node) != NO_ARC)
+        {
+            arcs.add(search.forwardArc(node));
+            node = this.arcStarts[search.forwardArc(node)];
+        }
+        Collections.reverse(arcs);
+        node = meeting;
+        while (search.backwardArc(node) != NO_ARC)
+        {
+            arcs.add(search.backwardArc(node));
+            node = this.arcEnds[search.backwardArc(node)];
+        }
+        int edges = 0;
+        for (final int arc : arcs)
+        {
+            edges += edgeCount(arc);
+        }
+        final long[] result = new long[edges];
+        int index = 0;
+        for (final int arc : arcs)
+        {
+            index = unpack(arc, result, index);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[ContractionHierarchy: nodes = " + numberOfNodes() + ", arcs = " + numberOfArcs()
+                + "]";
+    }
+
+    private int edgeCount(final int arc)
+    {
+        if (this.arcFirsts[arc] == NO_ARC)
+        {
+            return 1;
+        }
+        return edgeCount(this.arcFirsts[arc]) + edgeCount(this.arcSeconds[arc]);
+    }
+
+    private int nodeIndex(final long identifier)
+    {
+        return Arrays.binarySearch(this.nodeIdentifiers, identifier);
+    }
+
+    /**
+     * @return The node where the two searches meet on the shortest path, or -1 if there is no path
+     */
+    private int search(final Search search, final long startNodeIdentifier,
+            final long endNodeIdentifier)
+    {
+        final int start = nodeIndex(startNodeIdentifier);
+        final int end = nodeIndex(endNodeIdentifier);
+        if (start < 0 || end < 0)
+        {
+            return -1;
+        }
+        search.reset();
+        search.reachForward(start, 0.0, NO_ARC);
+        search.reachBackward(end, 0.0, NO_ARC);
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (true)
+        {
+            final double forwardMinimum = search.forwardHeap.isEmpty() ? Double.POSITIVE_INFINITY
+                    : search.forwardHeap.peekCost();
+            final double backwardMinimum = search.backwardHeap.isEmpty()
+                    ? Double.POSITIVE_INFINITY
+                    : search.backwardHeap.peekCost();
+            if (Math.min(forwardMinimum, backwardMinimum) >= best)
+            {
+                return meeting;
+            }
+            final boolean forward = forwardMinimum <= backwardMinimum;
+            final NodeHeap heap = forward ? search.forwardHeap : search.backwardHeap;
+            final double cost = heap.peekCost();
+            final int node = heap.poll();
+            if (cost > (forward ? search.forwardCost(node) : search.backwardCost(node)))
+            {
+                continue;
+            }
+            final double total = cost
+                    + (forward ? search.backwardCost(node) : search.forwardCost(node));
+            if (total < best)
+            {
+                best = total;
+                meeting = node;
+            }
+            if (forward)
+            {
+                final int last = this.upwardOffsets[node + 1];
+                for (int index = this.upwardOffsets[node]; index < last; index++)
+                {
+                    final int arc = this.upwardArcs[index];
+                    final int target = this.arcEnds[arc];
+                    final double targetCost = cost + this.arcWeights[arc];
+                    if (targetCost < search.forwardCost(target))
+                    {
+                        search.reachForward(target, targetCost, arc);
+                    }
+                }
+            }
+            else
+            {
+                final int last = this.downwardOffsets[node + 1];
+                for (int index = this.downwardOffsets[node]; index < last; index++)
+                {
+                    final int arc = this.downwardArcs[index];
+                    final int source = this.arcStarts[arc];
+                    final double sourceCost = cost + this.arcWeights[arc];
+                    if (sourceCost < search.backwardCost(source))
+                    {
+                        search.reachBackward(source, sourceCost, arc);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the {@link Edge} identifiers of an arc, expanding shortcuts
+     *
+     * @return The next index to write to
+     */
+    private int unpack(final int arc, final long[] result, final int index)
+    {
+        if (this.arcFirsts[arc] == NO_ARC)
+        {
+            result[index] = this.arcEdgeIdentifiers[arc];
+            return index + 1;
+        }
+        return unpack(this.arcSeconds[arc], result,
+                unpack(this.arcFirsts[arc], result, index));
+    }
+}
@@ -0,0 +1,353 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.Arrays;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+
+/**
+ * Builds a {@link ContractionHierarchy} by contracting the {@link Node}s of an {@link Atlas} one
+ * by one. The next node to contract is the one with the lowest edge difference (shortcuts added
+ * minus arcs removed) plus number of already contracted neighbors, re-evaluated lazily when it is
+ * polled. A shortcut is only added when a bounded witness search does not find a path at most as
+ * short that avoids the contracted node.
+ *
+ * @author agent
+ */
+final class ContractionHierarchyBuilder
+{
+    private static final int WITNESS_SETTLED_LIMIT = 256;
+    private static final int INITIAL_ARCS_PER_NODE = 4;
+
+    private final Atlas atlas;
+    private final long[] nodeIdentifiers;
+    private final int numberOfNodes;
+
+    // All the arcs, original edges first and then shortcuts
+    private int arcCount;
+    private int[] arcStarts;
+    private int[] arcEnds;
+    private double[] arcWeights;
+    private long[] arcEdgeIdentifiers;
+    private int[] arcFirsts;
+    private int[] arcSeconds;
+
+    // Adjacency of the graph being contracted, as arc indices
+    private final int[][] outArcs;
+    private final int[] outSizes;
+    private final int[][] inArcs;
+    private final int[] inSizes;
+
+    private final boolean[] contracted;
+    private final int[] ranks;
+    private final int[] contractedNeighbors;
+
+    // Witness search state, reset by incrementing the stamp
+    private final double[] witnessCosts;
+    private final int[] witnessStamps;
+    private final NodeHeap witnessHeap = new NodeHeap();
+    private int witnessStamp;
+
+    private static int[] append(final int[] array, final int size, final int value)
+    {
+        final int[] result = size == array.length ? Arrays.copyOf(array, size * 2) : array;
+        result[size] = value;
+        return result;
+    }
+
+    ContractionHierarchyBuilder(final Atlas atlas)
+    {
+        this.atlas = atlas;
+        final long size = atlas.numberOfNodes();
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new CoreException("Atlas {} has too many nodes for a contraction hierarchy: {}",
+                    atlas.getName(), size);
+        }
+        this.numberOfNodes = (int) size;
+        this.nodeIdentifiers = new long[this.numberOfNodes];
+        int index = 0;
+        for (final Node node : atlas.nodes())
+        {
+            this.nodeIdentifiers[index++] = node.getIdentifier();
+        }
+        Arrays.sort(this.nodeIdentifiers);
+
+        final int initialArcs = Math.max(1, (int) Math.min(Integer.MAX_VALUE / 2,
+                atlas.numberOfEdges() * 2));
+        this.arcStarts = new int[initialArcs];
+        this.arcEnds = new int[initialArcs];
+        this.arcWeights = new double[initialArcs];
+        this.arcEdgeIdentifiers = new long[initialArcs];
+        this.arcFirsts = new int[initialArcs];
+        this.arcSeconds = new int[initialArcs];
+
+        this.outArcs = new int[this.numberOfNodes][];
+        this.outSizes = new int[this.numberOfNodes];
+        this.inArcs = new int[this.numberOfNodes][];
+        this.inSizes = new int[this.numberOfNodes];
+        for (int node = 0; node < this.numberOfNodes; node++)
+        {
+            this.outArcs[node] = new int[INITIAL_ARCS_PER_NODE];
+            this.inArcs[node] = new int[INITIAL_ARCS_PER_NODE];
+        }
+        this.contracted = new boolean[this.numberOfNodes];
+        this.ranks = new int[this.numberOfNodes];
+        this.contractedNeighbors = new int[this.numberOfNodes];
+        this.witnessCosts = new double[this.numberOfNodes];
+        this.witnessStamps = new int[this.numberOfNodes];
+    }
+
+    ContractionHierarchy build()
+    {
+        for (final Edge edge : this.atlas.edges())
+        {
+            final int start = nodeIndex(edge.start().getIdentifier());
+            final int end = nodeIndex(edge.end().getIdentifier());
+            if (start != end)
+            {
+                addArc(start, end, edge.length().asMeters(), edge.getIdentifier(),
+                        ContractionHierarchy.NO_ARC, ContractionHierarchy.NO_ARC);
+            }
+        }
+        final NodeHeap order = new NodeHeap();
+        for (int node = 0; node < this.numberOfNodes; node++)
+        {
+            order.push(node, priority(node));
+        }
+        int rank = 0;
+        while (!order.isEmpty())
+        {
+            final int node = order.poll();
+            final double priority = priority(node);
+            if (!order.isEmpty() && priority > order.peekCost())
+            {
+                // The priority is stale, try again later
+                order.push(node, priority);
+                continue;
+            }
+            contract(node, false);
+            this.contracted[node] = true;
+            this.ranks[node] = rank++;
+            for (int index = 0; index < this.outSizes[node]; index++)
+            {
+                this.contractedNeighbors[this.arcEnds[this.outArcs[node][index]]]++;
+            }
+            for (int index = 0; index < this.inSizes[node]; index++)
+            {
+                this.contractedNeighbors[this.arcStarts[this.inArcs[node][index]]]++;
+            }
+        }
+        return upwardHierarchy();
+    }
+
+    private int addArc(final int start, final int end, final double weight,
+            final long edgeIdentifier, final int first, final int second)
+    {
+        if (this.arcCount == this.arcStarts.length)
+        {
+            final int capacity = this.arcCount * 2;
+            this.arcStarts = Arrays.copyOf(this.arcStarts, capacity);
+            this.arcEnds = Arrays.copyOf(this.arcEnds, capacity);
+            this.arcWeights = Arrays.copyOf(this.arcWeights, capacity);
+            this.arcEdgeIdentifiers = Arrays.copyOf(this.arcEdgeIdentifiers, capacity);
+            this.arcFirsts = Arrays.copyOf(this.arcFirsts, capacity);
+            this.arcSeconds = Arrays.copyOf(this.arcSeconds, capacity);
+        }
+        final int arc = this.arcCount++;
+        this.arcStarts[arc] = start;
+        this.arcEnds[arc] = end;
+        this.arcWeights[arc] = weight;
+        this.arcEdgeIdentifiers[arc] = edgeIdentifier;
+        this.arcFirsts[arc] = first;
+        this.arcSeconds[arc] = second;
+        this.outArcs[start] = append(this.outArcs[start], this.outSizes[start]++, arc);
+        this.inArcs[end] = append(this.inArcs[end], this.inSizes[end]++, arc);
+        return arc;
+    }
+
+    /**
+     * Contract a node, or only count the shortcuts its contraction would need.
+     *
+     * @return The number of shortcuts
+     */
+    private int contract(final int node, final boolean simulate)
+    {
+        int shortcuts = 0;
+        for (int inIndex = 0; inIndex < this.inSizes[node]; inIndex++)
+        {
+            final int inArc = this.inArcs[node][inIndex];
+            final int source = this.arcStarts[inArc];
+            if (this.contracted[source])
+            {
+                continue;
+            }
+            double maximumCost = -1.0;
+            for (int outIndex = 0; outIndex < this.outSizes[node]; outIndex++)
+            {
+                final int outArc = this.outArcs[node][outIndex];
+                final int target = this.arcEnds[outArc];
+                if (!this.contracted[target] && target != source)
+                {
+                    maximumCost = Math.max(maximumCost,
+                            this.arcWeights[inArc] + this.arcWeights[outArc]);
+                }
+            }
+            if (maximumCost < 0)
+            {
+                continue;
+            }
+            witnessSearch(source, node, maximumCost);
+            for (int outIndex = 0; outIndex < this.outSizes[node]; outIndex++)
+            {
+                final int outArc = this.outArcs[node][outIndex];
+                final int target = this.arcEnds[outArc];
+                if (this.contracted[target] || target == source)
+                {
+                    continue;
+                }
+                final double cost = this.arcWeights[inArc] + this.arcWeights[outArc];
+                if (witnessCost(target) > cost)
+                {
+                    shortcuts++;
+                    if (!simulate)
+                    {
+                        addArc(source, target, cost, 0L, inArc, outArc);
+                    }
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    private int nodeIndex(final long identifier)
+    {
+        final int result = Arrays.binarySearch(this.nodeIdentifiers, identifier);
+        if (result < 0)
+        {
+            throw new CoreException("Node {} is not in atlas {}", identifier,
+                    this.atlas.getName());
+        }
+        return result;
+    }
+
+    private double priority(final int node)
+    {
+        int removed = 0;
+        for (int index = 0; index < this.outSizes[node]; index++)
+        {
+            if (!this.contracted[this.arcEnds[this.outArcs[node][index]]])
+            {
+                removed++;
+            }
+        }
+        for (int index = 0; index < this.inSizes[node]; index++)
+        {
+            if (!this.contracted[this.arcStarts[this.inArcs[node][index]]])
+            {
+                removed++;
+            }
+        }
+        return (double) contract(node, true) - removed + this.contractedNeighbors[node];
+    }
+
+    /**
+     * Split the arcs in the upward arcs of their start, and the downward arcs of their end,
+     * depending on which end was contracted last.
+     */
+    private ContractionHierarchy upwardHierarchy()
+    {
+        final int[] upwardOffsets = new int[this.numberOfNodes + 1];
+        final int[] downwardOffsets = new int[this.numberOfNodes + 1];
+        for (int arc = 0; arc < this.arcCount; arc++)
+        {
+            if (this.ranks[this.arcEnds[arc]] > this.ranks[this.arcStarts[arc]])
+            {
+                upwardOffsets[this.arcStarts[arc] + 1]++;
+            }
+            else
+            {
+                downwardOffsets[this.arcEnds[arc] + 1]++;
+            }
+        }
+        for (int node = 0; node < this.numberOfNodes; node++)
+        {
+            upwardOffsets[node + 1] += upwardOffsets[node];
+            downwardOffsets[node + 1] += downwardOffsets[node];
+        }
+        final int[] upwardArcs = new int[upwardOffsets[this.numberOfNodes]];
+        final int[] downwardArcs = new int[downwardOffsets[this.numberOfNodes]];
+        final int[] upwardNext = Arrays.copyOf(upwardOffsets, this.numberOfNodes);
+        final int[] downwardNext = Arrays.copyOf(downwardOffsets, this.numberOfNodes);
+        for (int arc = 0; arc < this.arcCount; arc++)
+        {
+            if (this.ranks[this.arcEnds[arc]] > this.ranks[this.arcStarts[arc]])
+            {
+                upwardArcs[upwardNext[this.arcStarts[arc]]++] = arc;
+            }
+            else
+            {
+                downwardArcs[downwardNext[this.arcEnds[arc]]++] = arc;
+            }
+        }
+        return new ContractionHierarchy(this.nodeIdentifiers,
+                Arrays.copyOf(this.arcStarts, this.arcCount),
+                Arrays.copyOf(this.arcEnds, this.arcCount),
+                Arrays.copyOf(this.arcWeights, this.arcCount),
+                Arrays.copyOf(this.arcEdgeIdentifiers, this.arcCount),
+                Arrays.copyOf(this.arcFirsts, this.arcCount),
+                Arrays.copyOf(this.arcSeconds, this.arcCount), upwardOffsets, upwardArcs,
+                downwardOffsets, downwardArcs);
+    }
+
+    private double witnessCost(final int node)
+    {
+        return this.witnessStamps[node] == this.witnessStamp ? this.witnessCosts[node]
+                : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Bounded Dijkstra search from a source among the nodes not contracted yet, avoiding one node.
+     */
+    private void witnessSearch(final int source, final int avoided, final double maximumCost)
+    {
+        this.witnessStamp++;
+        this.witnessHeap.clear();
+        this.witnessStamps[source] = this.witnessStamp;
+        this.witnessCosts[source] = 0.0;
+        this.witnessHeap.push(source, 0.0);
+        int settled = 0;
+        while (!this.witnessHeap.isEmpty() && settled < WITNESS_SETTLED_LIMIT)
+        {
+            final double cost = this.witnessHeap.peekCost();
+            final int node = this.witnessHeap.poll();
+            if (cost > this.witnessCosts[node])
+            {
+                continue;
+            }
+            if (cost > maximumCost)
+            {
+                return;
+            }
+            settled++;
+            for (int index = 0; index < this.outSizes[node]; index++)
+            {
+                final int arc = this.outArcs[node][index];
+                final int target = this.arcEnds[arc];
+                if (target == avoided || this.contracted[target])
+                {
+                    continue;
+                }
+                final double targetCost = cost + this.arcWeights[arc];
+                if (targetCost < witnessCost(target))
+                {
+                    this.witnessStamps[target] = this.witnessStamp;
+                    this.witnessCosts[target] = targetCost;
+                    this.witnessHeap.push(target, targetCost);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.geography.atlas.items.Route;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Router that returns the shortest {@link Route} by length, using a {@link ContractionHierarchy}
+ * built from the same {@link Atlas}. Unlike the {@link AStarRouter}, the cost does not depend on a
+ * heuristic, and each query only explores a small fraction of the {@link Atlas}.
+ *
+ * @author agent
+ */
+public class ContractionHierarchyRouter extends AbstractRouter
+{
+    private final Atlas atlas;
+    private final ContractionHierarchy hierarchy;
+
+    /**
+     * Construct
+     *
+     * @param atlas
+     *            The map
+     * @param threshold
+     *            The threshold to look for edges in case of routing between locations
+     * @param hierarchy
+     *            The {@link ContractionHierarchy} built from the map
+     */
+    public ContractionHierarchyRouter(final Atlas atlas, final Distance threshold,
+            final ContractionHierarchy hierarchy)
+    {
+        super(atlas, threshold);
+        this.atlas = atlas;
+        this.hierarchy = hierarchy;
+    }
+
+    @Override
+    public Route route(final Node start, final Node end)
+    {
+        if (start.equals(end))
+        {
+            return null;
+        }
+        final long[] edgeIdentifiers = this.hierarchy.shortestPath(start.getIdentifier(),
+                end.getIdentifier());
+        if (edgeIdentifiers == null)
+        {
+            return null;
+        }
+        final List<Edge> edges = new ArrayList<>(edgeIdentifiers.length);
+        for (final long edgeIdentifier : edgeIdentifiers)
+        {
+            final Edge edge = this.atlas.edge(edgeIdentifier);
+            if (edge == null)
+            {
+                throw new CoreException(
+                        "Edge {} from the contraction hierarchy is not in atlas {}. Was the "
+                                + "hierarchy built from a different atlas?",
+                        edgeIdentifier, this.atlas.getName());
+            }
+            edges.add(edge);
+        }
+        return Route.forEdges(edges);
+    }
+}
@@ -0,0 +1,380 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.geography.atlas.items.Route;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedGraph;
+import org.openstreetmap.atlas.geography.atlas.routing.AStarRouter.Heuristic;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Router that minimizes the same cost as the {@link AStarRouter} with the same {@link Heuristic},
+ * but works on the node and edge indices of a {@link PackedAtlas}: the open set is a binary heap of
+ * ints, costs and predecessors are kept in primitive arrays, and the {@link Route} is built only
+ * once the end is reached. The {@link Heuristic} is evaluated once per reached {@link Node}. The
+ * search arrays grow with the explored area, not with the size of the atlas.
+ * <p>
+ * Any other {@link Atlas}, or {@link Node}s from another {@link Atlas}, are routed by an
+ * {@link AStarRouter}.
+ *
+ * @author agent
+ */
+public class IndexedAStarRouter extends AbstractRouter
+{
+    /**
+     * The state of one search. Each reached node gets a slot, and all the per-node values are
+     * arrays indexed by slot.
+     *
+     * @author agent
+     */
+    private static final class Search
+    {
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+        private static final int NOT_IN_HEAP = -1;
+        private static final int SETTLED = -2;
+
+        private long[] nodeIndices = new long[INITIAL_CAPACITY];
+        private double[] costs = new double[INITIAL_CAPACITY];
+        private double[] weights = new double[INITIAL_CAPACITY];
+        private long[] predecessorEdges = new long[INITIAL_CAPACITY];
+        private int[] predecessorSlots = new int[INITIAL_CAPACITY];
+        private int[] heapPositions = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private int[] heap = new int[INITIAL_CAPACITY];
+        private int heapSize;
+
+        // Open addressing table from node index to slot, with twice the slot capacity
+        private long[] tableKeys = newTableKeys(INITIAL_CAPACITY * 2);
+        private int[] tableSlots = new int[INITIAL_CAPACITY * 2];
+
+        private static long[] newTableKeys(final int capacity)
+        {
+            final long[] result = new long[capacity];
+            Arrays.fill(result, -1L);
+            return result;
+        }
+
+        private static int tablePosition(final long nodeIndex, final int mask)
+        {
+            return (int) ((nodeIndex * HASH_MULTIPLIER) >>> Integer.SIZE) & mask;
+        }
+
+        double cost(final int slot)
+        {
+            return this.costs[slot];
+        }
+
+        boolean isEmpty()
+        {
+            return this.heapSize == 0;
+        }
+
+        boolean isSettled(final int slot)
+        {
+            return this.heapPositions[slot] == SETTLED;
+        }
+
+        long nodeIndex(final int slot)
+        {
+            return this.nodeIndices[slot];
+        }
+
+        /**
+         * @return The slot with the lowest cost, removed from the heap and marked as settled
+         */
+        int poll()
+        {
+            final int result = this.heap[0];
+            this.heapSize--;
+            if (this.heapSize > 0)
+            {
+                place(this.heap[this.heapSize], 0);
+                siftDown(0);
+            }
+            this.heapPositions[result] = SETTLED;
+            return result;
+        }
+
+        long predecessorEdge(final int slot)
+        {
+            return this.predecessorEdges[slot];
+        }
+
+        int predecessorSlot(final int slot)
+        {
+            return this.predecessorSlots[slot];
+        }
+
+        /**
+         * Lower the cost of a slot, and add it to the heap if it is not there yet.
+         */
+        void relax(final int slot, final double cost, final int predecessorSlot,
+                final long predecessorEdge)
+        {
+            this.costs[slot] = cost;
+            this.predecessorSlots[slot] = predecessorSlot;
+            this.predecessorEdges[slot] = predecessorEdge;
+            if (this.heapPositions[slot] == NOT_IN_HEAP)
+            {
+                place(slot, this.heapSize);
+                this.heapSize++;
+            }
+            siftUp(this.heapPositions[slot]);
+        }
+
+        void setWeight(final int slot, final double weight)
+        {
+            this.weights[slot] = weight;
+        }
+
+        /**
+         * @return The slot of a node, created with an infinite cost if the node was not reached
+         *         yet
+         */
+        int slot(final long nodeIndex)
+        {
+            int position = tablePosition(nodeIndex, this.tableKeys.length - 1);
+            while (this.tableKeys[position] != -1L)
+            {
+                if (this.tableKeys[position] == nodeIndex)
+                {
+                    return this.tableSlots[position];
+                }
+                position = (position + 1) & (this.tableKeys.length - 1);
+            }
+            if (this.size == this.nodeIndices.length)
+            {
+                grow();
+                return slot(nodeIndex);
+            }
+            final int result = this.size++;
+            this.tableKeys[position] = nodeIndex;
+            this.tableSlots[position] = result;
+            this.nodeIndices[result] = nodeIndex;
+            this.costs[result] = Double.POSITIVE_INFINITY;
+            this.weights[result] = Double.NaN;
+            this.heapPositions[result] = NOT_IN_HEAP;
+            return result;
+        }
+
+        double weight(final int slot)
+        {
+            return this.weights[slot];
+        }
+
+        private void grow()
+        {
+            final int capacity = this.nodeIndices.length * 2;
+            this.nodeIndices = Arrays.copyOf(this.nodeIndices, capacity);
+            this.costs = Arrays.copyOf(this.costs, capacity);
+            this.weights = Arrays.copyOf(this.weights, capacity);
+            this.predecessorEdges = Arrays.copyOf(this.predecessorEdges, capacity);
+            this.predecessorSlots = Arrays.copyOf(this.predecessorSlots, capacity);
+            this.heapPositions = Arrays.copyOf(this.heapPositions, capacity);
+            this.heap = Arrays.copyOf(this.heap, capacity);
+            this.tableKeys = newTableKeys(capacity * 2);
+            this.tableSlots = new int[capacity * 2];
+            final int mask = this.tableKeys.length - 1;
+            for (int slot = 0; slot < this.size; slot++)
+            {
+                int position = tablePosition(this.nodeIndices[slot], mask);
+                while (this.tableKeys[position] != -1L)
+                {
+                    position = (position + 1) & mask;
+                }
+                this.tableKeys[position] = this.nodeIndices[slot];
+                this.tableSlots[position] = slot;
+            }
+        }
+
+        private void place(final int slot, final int position)
+        {
+            this.heap[position] = slot;
+            this.heapPositions[slot] = position;
+        }
+
+        private void siftDown(final int position)
+        {
+            final int slot = this.heap[position];
+            final double cost = this.costs[slot];
+            int current = position;
+            while (true)
+            {
+                int child = 2 * current + 1;
+                if (child >= this.heapSize)
+                {
+                    break;
+                }
+                if (child + 1 < this.heapSize
+                        && this.costs[this.heap[child + 1]] < this.costs[this.heap[child]])
+                {
+                    child++;
+                }
+                if (this.costs[this.heap[child]] >= cost)
+                {
+                    break;
+                }
+                place(this.heap[child], current);
+                current = child;
+            }
+            place(slot, current);
+        }
+
+        private void siftUp(final int position)
+        {
+            final int slot = this.heap[position];
+            final double cost = this.costs[slot];
+            int current = position;
+            while (current > 0)
+            {
+                final int parent = (current - 1) / 2;
+                if (this.costs[this.heap[parent]] <= cost)
+                {
+                    break;
+                }
+                place(this.heap[parent], current);
+                current = parent;
+            }
+            place(slot, current);
+        }
+    }
+
+    private final Heuristic heuristic;
+    private final Optional<PackedGraph> graph;
+    private final AStarRouter fallback;
+
+    /**
+     * @param atlas
+     *            The {@link Atlas} on which the router works
+     * @param threshold
+     *            The threshold to look for edges in case of routing between locations
+     * @return A balanced router, with the same heuristic as {@link AStarRouter#balanced}
+     */
+    public static IndexedAStarRouter balanced(final Atlas atlas, final Distance threshold)
+    {
+        return new IndexedAStarRouter(atlas, threshold, AStarRouter.BALANCED);
+    }
+
+    /**
+     * @param atlas
+     *            The {@link Atlas} on which the router works
+     * @param threshold
+     *            The threshold to look for edges in case of routing between locations
+     * @return A Dijkstra router, with the same heuristic as {@link AStarRouter#dijkstra}
+     */
+    public static IndexedAStarRouter dijkstra(final Atlas atlas, final Distance threshold)
+    {
+        return new IndexedAStarRouter(atlas, threshold, AStarRouter.DIJKSTRA);
+    }
+
+    /**
+     * @param atlas
+     *            The {@link Atlas} on which the router works
+     * @param threshold
+     *            The threshold to look for edges in case of routing between locations
+     * @return A fast router with a non-optimal result, with the same heuristic as
+     *         {@link AStarRouter#fastComputationAndSubOptimalRoute}
+     */
+    public static IndexedAStarRouter fastComputationAndSubOptimalRoute(final Atlas atlas,
+            final Distance threshold)
+    {
+        return new IndexedAStarRouter(atlas, threshold, AStarRouter.FAST);
+    }
+
+    /**
+     * Construct
+     *
+     * @param atlas
+     *            The map
+     * @param threshold
+     *            The threshold to look for edges in case of routing between locations
+     * @param heuristic
+     *            The heuristic, as for an {@link AStarRouter}
+     */
+    public IndexedAStarRouter(final Atlas atlas, final Distance threshold,
+            final Heuristic heuristic)
+    {
+        super(atlas, threshold);
+        this.heuristic = heuristic;
+        this.graph = PackedGraph.from(atlas);
+        this.fallback = new AStarRouter(atlas, threshold, heuristic);
+    }
+
+    @Override
+    public Route route(final Node start, final Node end)
+    {
+        if (!this.graph.isPresent())
+        {
+            return this.fallback.route(start, end);
+        }
+        final PackedGraph packedGraph = this.graph.get();
+        final long startIndex = packedGraph.nodeIndex(start);
+        final long endIndex = packedGraph.nodeIndex(end);
+        if (startIndex < 0 || endIndex < 0)
+        {
+            return this.fallback.route(start, end);
+        }
+        if (startIndex == endIndex || packedGraph.outEdges(startIndex).length == 0
+                || packedGraph.inEdges(endIndex).length == 0)
+        {
+            return null;
+        }
+
+        final Search search = new Search();
+        search.relax(search.slot(startIndex), 0.0, -1, -1L);
+        while (!search.isEmpty())
+        {
+            final int best = search.poll();
+            final long bestIndex = search.nodeIndex(best);
+            if (bestIndex == endIndex)
+            {
+                return route(packedGraph, search, best);
+            }
+            final double bestCost = search.cost(best);
+            for (final long edgeIndex : packedGraph.outEdges(bestIndex))
+            {
+                final int candidate = search.slot(packedGraph.edgeEnd(edgeIndex));
+                if (search.isSettled(candidate))
+                {
+                    continue;
+                }
+                double weight = search.weight(candidate);
+                if (Double.isNaN(weight))
+                {
+                    weight = this.heuristic.cost(start,
+                            packedGraph.node(search.nodeIndex(candidate)), end);
+                    search.setWeight(candidate, weight);
+                }
+                final double cost = bestCost + weight;
+                if (cost < search.cost(candidate))
+                {
+                    search.relax(candidate, cost, best, edgeIndex);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Route route(final PackedGraph packedGraph, final Search search, final int endSlot)
+    {
+        final List<Edge> edges = new ArrayList<>();
+        int slot = endSlot;
+        while (search.predecessorSlot(slot) >= 0)
+        {
+            edges.add(packedGraph.edge(search.predecessorEdge(slot)));
+            slot = search.predecessorSlot(slot);
+        }
+        Collections.reverse(edges);
+        return Route.forEdges(edges);
+    }
+}
@@ -0,0 +1,99 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int nodes keyed by a double cost, without boxing. A node can be pushed again
+ * with a lower cost instead of being decreased in place; callers skip the stale entries when they
+ * poll them.
+ *
+ * @author agent
+ */
+final class NodeHeap
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] nodes = new int[INITIAL_CAPACITY];
+    private double[] costs = new double[INITIAL_CAPACITY];
+    private int size;
+
+    void clear()
+    {
+        this.size = 0;
+    }
+
+    boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @return The lowest cost in the heap, which must not be empty
+     */
+    double peekCost()
+    {
+        return this.costs[0];
+    }
+
+    /**
+     * Remove the node with the lowest cost, which can be read beforehand with {@link #peekCost()}
+     *
+     * @return That node
+     */
+    int poll()
+    {
+        final int result = this.nodes[0];
+        this.size--;
+        if (this.size > 0)
+        {
+            final int node = this.nodes[this.size];
+            final double cost = this.costs[this.size];
+            int current = 0;
+            while (true)
+            {
+                int child = 2 * current + 1;
+                if (child >= this.size)
+                {
+                    break;
+                }
+                if (child + 1 < this.size && this.costs[child + 1] < this.costs[child])
+                {
+                    child++;
+                }
+                if (this.costs[child] >= cost)
+                {
+                    break;
+                }
+                this.nodes[current] = this.nodes[child];
+                this.costs[current] = this.costs[child];
+                current = child;
+            }
+            this.nodes[current] = node;
+            this.costs[current] = cost;
+        }
+        return result;
+    }
+
+    void push(final int node, final double cost)
+    {
+        if (this.size == this.nodes.length)
+        {
+            this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+            this.costs = Arrays.copyOf(this.costs, this.size * 2);
+        }
+        int current = this.size++;
+        while (current > 0)
+        {
+            final int parent = (current - 1) / 2;
+            if (this.costs[parent] <= cost)
+            {
+                break;
+            }
+            this.nodes[current] = this.nodes[parent];
+            this.costs[current] = this.costs[parent];
+            current = parent;
+        }
+        this.nodes[current] = node;
+        this.costs[current] = cost;
+    }
+}
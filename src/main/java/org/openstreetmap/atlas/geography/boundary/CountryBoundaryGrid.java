@@ -0,0 +1,221 @@
+package org.openstreetmap.atlas.geography.boundary;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.openstreetmap.atlas.geography.converters.jts.JtsPrecisionManager;
+
+/**
+ * Raster acceleration layer for the point and envelope lookups of a {@link CountryBoundaryMap}.
+ * The world is split in one degree cells, and the cells that are neither empty nor inside a single
+ * boundary polygon are split again in a finer sub-grid. A cell is resolved when all the points it
+ * contains get the same answer from the {@link CountryBoundaryMap}: either no boundary polygon is
+ * close enough to them, or exactly one polygon is close enough and covers them all. Only the
+ * remaining border cells fall back to the prepared geometry tests.
+ * <p>
+ * Cells are classified lazily on their first lookup, so that only the areas that are actually
+ * queried pay the classification cost. The classification is deterministic, and stored in atomic
+ * arrays, which makes concurrent lookups safe.
+ *
+ * @author agent
+ */
+final class CountryBoundaryGrid
+{
+    // Values of a cell. Values above SUBDIVIDED are polygon indices, offset by POLYGON_OFFSET.
+    static final int BORDER = -1;
+    static final int EMPTY = -2;
+
+    private static final int UNKNOWN = 0;
+    private static final int SUBDIVIDED = 1;
+    private static final int POLYGON_OFFSET = 2;
+
+    private static final int LONGITUDE_CELLS = 360;
+    private static final int LATITUDE_CELLS = 180;
+    private static final double MINIMUM_LONGITUDE = -180.0;
+    private static final double MINIMUM_LATITUDE = -90.0;
+    private static final int SUB_CELLS = 32;
+    // Margin around each cell, larger than the envelope expansion of the point queries, so that
+    // any point query envelope of a point inside the cell is inside the expanded cell.
+    private static final double MARGIN = 2 * CountryBoundaryMap.LINE_BUFFER;
+
+    private final STRtree spatialIndex;
+    private final PreparedPolygon[] polygons;
+    private final Map<PreparedPolygon, Integer> polygonIndices = new IdentityHashMap<>();
+    private final AtomicIntegerArray cells = new AtomicIntegerArray(
+            LONGITUDE_CELLS * LATITUDE_CELLS);
+    private final AtomicReferenceArray<AtomicIntegerArray> subCells = new AtomicReferenceArray<>(
+            LONGITUDE_CELLS * LATITUDE_CELLS);
+
+    private static int cellIndex(final double value, final double minimum, final double size,
+            final int count)
+    {
+        final int index = (int) Math.floor((value - minimum) / size);
+        return Math.max(0, Math.min(count - 1, index));
+    }
+
+    CountryBoundaryGrid(final STRtree spatialIndex, final List<PreparedPolygon> polygons)
+    {
+        this.spatialIndex = spatialIndex;
+        this.polygons = polygons.toArray(new PreparedPolygon[0]);
+        for (int index = 0; index < this.polygons.length; index++)
+        {
+            this.polygonIndices.put(this.polygons[index], index);
+        }
+    }
+
+    /**
+     * @param envelope
+     *            The envelope of a geometry
+     * @return The index of the only boundary polygon close to the envelope, which covers it,
+     *         {@link #EMPTY} if no boundary polygon is close to the envelope, or {@link #BORDER} if
+     *         the envelope is not inside a single resolved cell.
+     */
+    int lookup(final Envelope envelope)
+    {
+        if (envelope.isNull())
+        {
+            return BORDER;
+        }
+        final int column = cellIndex(envelope.getMinX(), MINIMUM_LONGITUDE, 1.0, LONGITUDE_CELLS);
+        final int row = cellIndex(envelope.getMinY(), MINIMUM_LATITUDE, 1.0, LATITUDE_CELLS);
+        double cellLongitude = MINIMUM_LONGITUDE + column;
+        double cellLatitude = MINIMUM_LATITUDE + row;
+        double cellSize = 1.0;
+        int value = coarseValue(column, row);
+        if (value == SUBDIVIDED)
+        {
+            cellSize = 1.0 / SUB_CELLS;
+            final int subColumn = cellIndex(envelope.getMinX(), cellLongitude, cellSize,
+                    SUB_CELLS);
+            final int subRow = cellIndex(envelope.getMinY(), cellLatitude, cellSize, SUB_CELLS);
+            value = subValue(row * LONGITUDE_CELLS + column, cellLongitude, cellLatitude,
+                    subColumn, subRow);
+            cellLongitude += subColumn * cellSize;
+            cellLatitude += subRow * cellSize;
+        }
+        if (envelope.getMinX() < cellLongitude - MARGIN
+                || envelope.getMinY() < cellLatitude - MARGIN
+                || envelope.getMaxX() > cellLongitude + cellSize + MARGIN
+                || envelope.getMaxY() > cellLatitude + cellSize + MARGIN)
+        {
+            return BORDER;
+        }
+        return decode(value);
+    }
+
+    /**
+     * @param longitude
+     *            The longitude of the location to look up, in degrees
+     * @param latitude
+     *            The latitude of the location to look up, in degrees
+     * @return The index of the only boundary polygon close to the location, which covers it,
+     *         {@link #EMPTY} if no boundary polygon is close to the location, or {@link #BORDER}
+     *         if the location needs the exact prepared geometry tests.
+     */
+    int lookup(final double longitude, final double latitude)
+    {
+        final int column = cellIndex(longitude, MINIMUM_LONGITUDE, 1.0, LONGITUDE_CELLS);
+        final int row = cellIndex(latitude, MINIMUM_LATITUDE, 1.0, LATITUDE_CELLS);
+        final int value = coarseValue(column, row);
+        if (value != SUBDIVIDED)
+        {
+            return decode(value);
+        }
+        final double subCellSize = 1.0 / SUB_CELLS;
+        final double cellLongitude = MINIMUM_LONGITUDE + column;
+        final double cellLatitude = MINIMUM_LATITUDE + row;
+        return decode(subValue(row * LONGITUDE_CELLS + column, cellLongitude, cellLatitude,
+                cellIndex(longitude, cellLongitude, subCellSize, SUB_CELLS),
+                cellIndex(latitude, cellLatitude, subCellSize, SUB_CELLS)));
+    }
+
+    /**
+     * @param index
+     *            A polygon index returned by {@link #lookup(double, double)} or
+     *            {@link #lookup(Envelope)}
+     * @return The corresponding boundary polygon
+     */
+    PreparedPolygon polygon(final int index)
+    {
+        return this.polygons[index];
+    }
+
+    private int classify(final double minimumLongitude, final double minimumLatitude,
+            final double size, final int unresolved)
+    {
+        final Envelope envelope = new Envelope(minimumLongitude - MARGIN,
+                minimumLongitude + size + MARGIN, minimumLatitude - MARGIN,
+                minimumLatitude + size + MARGIN);
+        final Geometry cell = JtsPrecisionManager.getGeometryFactory().toGeometry(envelope);
+        PreparedPolygon found = null;
+        for (final Object candidate : this.spatialIndex.query(envelope))
+        {
+            final PreparedPolygon polygon = (PreparedPolygon) candidate;
+            if (polygon.intersects(cell))
+            {
+                if (found != null)
+                {
+                    return unresolved;
+                }
+                found = polygon;
+            }
+        }
+        if (found == null)
+        {
+            return EMPTY;
+        }
+        final Integer index = this.polygonIndices.get(found);
+        if (index == null || !found.covers(cell))
+        {
+            return unresolved;
+        }
+        return index + POLYGON_OFFSET;
+    }
+
+    private int coarseValue(final int column, final int row)
+    {
+        final int index = row * LONGITUDE_CELLS + column;
+        int value = this.cells.get(index);
+        if (value == UNKNOWN)
+        {
+            value = classify(MINIMUM_LONGITUDE + column, MINIMUM_LATITUDE + row, 1.0,
+                    SUBDIVIDED);
+            this.cells.set(index, value);
+        }
+        return value;
+    }
+
+    private int decode(final int value)
+    {
+        return value >= POLYGON_OFFSET ? value - POLYGON_OFFSET : value;
+    }
+
+    private int subValue(final int index, final double cellLongitude, final double cellLatitude,
+            final int subColumn, final int subRow)
+    {
+        AtomicIntegerArray subGrid = this.subCells.get(index);
+        if (subGrid == null)
+        {
+            this.subCells.compareAndSet(index, null,
+                    new AtomicIntegerArray(SUB_CELLS * SUB_CELLS));
+            subGrid = this.subCells.get(index);
+        }
+        final int subIndex = subRow * SUB_CELLS + subColumn;
+        int value = subGrid.get(subIndex);
+        if (value == UNKNOWN)
+        {
+            final double subCellSize = 1.0 / SUB_CELLS;
+            value = classify(cellLongitude + subColumn * subCellSize,
+                    cellLatitude + subRow * subCellSize, subCellSize, BORDER);
+            subGrid.set(subIndex, value);
+        }
+        return value;
+    }
+}
@@ -129,6 +129,10 @@ public class CountryBoundaryMap implements Serializable, GeoJson
 
     private transient STRtree spatialIndex;
 
+    // Lazily built raster acceleration layer for point lookups
+    private transient volatile CountryBoundaryGrid grid;
+    private transient volatile boolean gridIndexDisabled;
+
     /**
      * @param countryGeometries
      *            A list of {@link Geometry}s to check
@@ -362,6 +366,7 @@ public class CountryBoundaryMap implements Serializable, GeoJson
         setGeometryProperty(prepared.getGeometry(), ISOCountryTag.KEY, country);
         setGeometryProperty(prepared.getGeometry(), POLYGON_ID_KEY, "0");
         this.spatialIndex.insert(prepared.getGeometry().getEnvelopeInternal(), prepared);
+        this.grid = null;
     }
 
     public void addCountryWithoutPolygonIdKey(final String country, final Polygon polygon)
@@ -371,6 +376,7 @@ public class CountryBoundaryMap implements Serializable, GeoJson
         this.countryNameToPreparedBoundaryPolyonMap.add(country, prepared);
         setGeometryProperty(prepared.getGeometry(), ISOCountryTag.KEY, country);
         this.spatialIndex.insert(prepared.getGeometry().getEnvelopeInternal(), prepared);
+        this.grid = null;
     }
 
     /**
@@ -404,6 +410,20 @@ public class CountryBoundaryMap implements Serializable, GeoJson
      */
     public MultiMap<String, Polygon> boundaries(final Location location)
     {
+        final int cell = gridLookup(location.getLongitude().asDegrees(),
+                location.getLatitude().asDegrees());
+        if (cell == CountryBoundaryGrid.EMPTY)
+        {
+            return new MultiMap<>();
+        }
+        if (cell >= 0)
+        {
+            final PreparedPolygon polygon = this.grid().polygon(cell);
+            final MultiMap<String, Polygon> map = new MultiMap<>();
+            map.add(getGeometryProperty(polygon.getGeometry(), ISOCountryTag.KEY),
+                    (Polygon) polygon.getGeometry());
+            return map;
+        }
         final Point jtsPoint = JTS_POINT_CONVERTER.convert(location);
         return this.boundariesHelper(() -> this.query(jtsPoint.getEnvelopeInternal()),
                 preparedGeom -> preparedGeom.covers(jtsPoint));
@@ -570,6 +590,21 @@ public class CountryBoundaryMap implements Serializable, GeoJson
         return this.getCountryCodeISO3(JTS_POINT_CONVERTER.convert(location));
     }
 
+    /**
+     * Batch version of {@link #getCountryCodeISO3(Location)}, which classifies all the given
+     * {@link Location}s in parallel.
+     *
+     * @param locations
+     *            The {@link Location}s to check
+     * @return the resulting {@link CountryCodeProperties}, in the same order as the locations
+     */
+    public CountryCodeProperties[] getCountryCodeISO3(final Location[] locations)
+    {
+        final CountryCodeProperties[] result = new CountryCodeProperties[locations.length];
+        Arrays.parallelSetAll(result, index -> getCountryCodeISO3(locations[index]));
+        return result;
+    }
+
     public MultiMap<String, PreparedPolygon> getCountryNameToBoundaryMap()
     {
         return this.countryNameToPreparedBoundaryPolyonMap;
@@ -621,6 +656,17 @@ public class CountryBoundaryMap implements Serializable, GeoJson
             target = geometry;
         }
         final List<PreparedPolygon> result = new ArrayList<>();
+        final int cell = gridLookup(target.getEnvelopeInternal());
+        if (cell >= 0)
+        {
+            // The only boundary polygon close to the target covers its whole envelope
+            result.add(this.grid().polygon(cell));
+            return result;
+        }
+        if (cell == CountryBoundaryGrid.EMPTY)
+        {
+            return result;
+        }
         this.spatialIndex.query(target.getEnvelopeInternal()).forEach(boundaryPolygon ->
         {
             final PreparedPolygon boundary = (PreparedPolygon) boundaryPolygon;
@@ -837,6 +883,18 @@ public class CountryBoundaryMap implements Serializable, GeoJson
         return this.countryNameToBoundaryMap.size();
     }
 
+    /**
+     * Enables or disables the raster acceleration layer of the {@link Location} lookups. It is
+     * enabled by default, and returns the same results as the prepared geometry tests.
+     *
+     * @param value
+     *            {@code false} to always run the prepared geometry tests
+     */
+    public void useGridIndex(final boolean value)
+    {
+        this.gridIndexDisabled = !value;
+    }
+
     /**
      * <pre>
      * Write country boundary map into a text file using WKT format.
@@ -893,6 +951,58 @@ public class CountryBoundaryMap implements Serializable, GeoJson
                 .contains(property.getName().getURI().toLowerCase())).findFirst();
     }
 
+    private CountryBoundaryGrid grid()
+    {
+        CountryBoundaryGrid result = this.grid;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = this.grid;
+                if (result == null)
+                {
+                    this.spatialIndex.build();
+                    result = new CountryBoundaryGrid(this.spatialIndex,
+                            this.countryNameToPreparedBoundaryPolyonMap.allValues());
+                    this.grid = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param envelope
+     *            The envelope of the query target
+     * @return The {@link CountryBoundaryGrid} lookup result, or {@link CountryBoundaryGrid#BORDER}
+     *         if the grid index is disabled
+     */
+    private int gridLookup(final Envelope envelope)
+    {
+        if (this.gridIndexDisabled)
+        {
+            return CountryBoundaryGrid.BORDER;
+        }
+        return this.grid().lookup(envelope);
+    }
+
+    /**
+     * @param longitude
+     *            The longitude in degrees
+     * @param latitude
+     *            The latitude in degrees
+     * @return The {@link CountryBoundaryGrid} lookup result, or {@link CountryBoundaryGrid#BORDER}
+     *         if the grid index is disabled
+     */
+    private int gridLookup(final double longitude, final double latitude)
+    {
+        if (this.gridIndexDisabled)
+        {
+            return CountryBoundaryGrid.BORDER;
+        }
+        return this.grid().lookup(longitude, latitude);
+    }
+
     private void readObject(final java.io.ObjectInputStream inFile)
             throws IOException, ClassNotFoundException
     {
@@ -0,0 +1,643 @@
+package org.openstreetmap.atlas.geography.index;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Located;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedPackedRTreeAdapter;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoPackedRTreeAdapter;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.scalars.Angle;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Static R-tree over items identified by a long index (for example the array indices of a
+ * {@link org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas}). The items are sorted along
+ * a Hilbert curve and packed bottom-up in full nodes, so the tree has no pointers and is stored in
+ * two flat arrays:
+ * <ul>
+ * <li>The boxes, two longs per tree node: the concatenations of the lower left and upper right
+ * {@link Location}s of the node's bounds.</li>
+ * <li>The indices, one long per tree node: the item index for a leaf, or the position of the first
+ * child for the other nodes.</li>
+ * </ul>
+ * The leaves come first, followed by each level up to the root, which is last. As the arrays are
+ * {@link LongArray}s, the tree can be read in place from a memory mapped file. Once built, the tree
+ * cannot be modified.
+ *
+ * @author agent
+ */
+public final class PackedRTree implements ProtoSerializable, MappedSerializable, Serializable
+{
+    /**
+     * Binary min-heap of the tree nodes and items left to visit in a nearest neighbour search,
+     * keyed by their distance in millimeters. Nodes and leaves carry a lower bound of the distance
+     * of their items, and resolved items carry their exact distance.
+     *
+     * @author agent
+     */
+    private static final class NearestQueue
+    {
+        private double[] keys = new double[INITIAL_STACK_SIZE];
+        private long[] values = new long[INITIAL_STACK_SIZE];
+        private int[] levels = new int[INITIAL_STACK_SIZE];
+        private int size = 0;
+
+        boolean isEmpty()
+        {
+            return this.size == 0;
+        }
+
+        /**
+         * @return The level of the smallest entry, {@link #RESOLVED} for an item
+         */
+        int level()
+        {
+            return this.levels[0];
+        }
+
+        double minimum()
+        {
+            return this.keys[0];
+        }
+
+        /**
+         * Remove the smallest entry
+         *
+         * @return The value of the smallest entry
+         */
+        long poll()
+        {
+            final long result = this.values[0];
+            this.size--;
+            if (this.size > 0)
+            {
+                final double key = this.keys[this.size];
+                final long value = this.values[this.size];
+                final int level = this.levels[this.size];
+                int position = 0;
+                while (true)
+                {
+                    int child = 2 * position + 1;
+                    if (child >= this.size)
+                    {
+                        break;
+                    }
+                    if (child + 1 < this.size && this.keys[child + 1] < this.keys[child])
+                    {
+                        child++;
+                    }
+                    if (this.keys[child] >= key)
+                    {
+                        break;
+                    }
+                    move(child, position);
+                    position = child;
+                }
+                set(position, key, value, level);
+            }
+            return result;
+        }
+
+        void push(final double key, final long value, final int level)
+        {
+            if (this.size == this.keys.length)
+            {
+                this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+                this.values = Arrays.copyOf(this.values, 2 * this.size);
+                this.levels = Arrays.copyOf(this.levels, 2 * this.size);
+            }
+            int position = this.size++;
+            while (position > 0)
+            {
+                final int parent = (position - 1) / 2;
+                if (this.keys[parent] <= key)
+                {
+                    break;
+                }
+                move(parent, position);
+                position = parent;
+            }
+            set(position, key, value, level);
+        }
+
+        private void move(final int from, final int target)
+        {
+            set(target, this.keys[from], this.values[from], this.levels[from]);
+        }
+
+        private void set(final int position, final double key, final long value,
+                final int level)
+        {
+            this.keys[position] = key;
+            this.values[position] = value;
+            this.levels[position] = level;
+        }
+    }
+
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    private static final long serialVersionUID = 4386651186722307815L;
+    private static final int HILBERT_ORDER = 16;
+    private static final int HILBERT_MAXIMUM = (1 << HILBERT_ORDER) - 1;
+    private static final int HILBERT_QUADRANT_FACTOR = 3;
+    private static final int INT_SIZE = 32;
+    private static final long INT_MASK = 0xFFFFFFFFL;
+    private static final int INITIAL_STACK_SIZE = 64;
+    // Level of the resolved items in the nearest neighbour queue
+    private static final int RESOLVED = -1;
+    private static final double EARTH_RADIUS_MILLIMETERS = Distance.AVERAGE_EARTH_RADIUS
+            .asMillimeters();
+    // Margin taken off the box distances, for the item distances that are rounded to the
+    // millimeter, or measured to snapped locations rounded to the dm7
+    private static final double SLACK_MILLIMETERS = 20.0;
+
+    private final int nodeSize;
+    private final long[] levelBounds;
+    private final LongArray boxes;
+    private final LongArray indices;
+
+    /**
+     * Build a {@link PackedRTree} with the {@link #DEFAULT_NODE_SIZE}
+     *
+     * @param size
+     *            The number of items, indexed from 0 to size - 1
+     * @param bounds
+     *            The bounds of each item
+     * @return The {@link PackedRTree}
+     */
+    public static PackedRTree build(final long size, final LongFunction<Rectangle> bounds)
+    {
+        return build(size, bounds, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Build a {@link PackedRTree}
+     *
+     * @param size
+     *            The number of items, indexed from 0 to size - 1
+     * @param bounds
+     *            The bounds of each item
+     * @param nodeSize
+     *            The maximum number of children of each tree node
+     * @return The {@link PackedRTree}
+     */
+    public static PackedRTree build(final long size, final LongFunction<Rectangle> bounds,
+            final int nodeSize)
+    {
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new CoreException("Cannot build a {} of {} items",
+                    PackedRTree.class.getSimpleName(), size);
+        }
+        if (nodeSize < 2)
+        {
+            throw new CoreException("Invalid node size {}", nodeSize);
+        }
+        final int numberOfItems = (int) size;
+        final long[] lowers = new long[numberOfItems];
+        final long[] uppers = new long[numberOfItems];
+        int minimumLatitude = Integer.MAX_VALUE;
+        int minimumLongitude = Integer.MAX_VALUE;
+        int maximumLatitude = Integer.MIN_VALUE;
+        int maximumLongitude = Integer.MIN_VALUE;
+        for (int index = 0; index < numberOfItems; index++)
+        {
+            final Rectangle itemBounds = bounds.apply(index);
+            if (itemBounds == null)
+            {
+                throw new CoreException("Item {} has no bounds", index);
+            }
+            lowers[index] = itemBounds.lowerLeft().asConcatenation();
+            uppers[index] = itemBounds.upperRight().asConcatenation();
+            minimumLatitude = Math.min(minimumLatitude, latitude(lowers[index]));
+            minimumLongitude = Math.min(minimumLongitude, longitude(lowers[index]));
+            maximumLatitude = Math.max(maximumLatitude, latitude(uppers[index]));
+            maximumLongitude = Math.max(maximumLongitude, longitude(uppers[index]));
+        }
+
+        // Sort the items by the Hilbert value of their center, keeping the item index in the low
+        // bits of the sort key.
+        final double latitudeScale = (double) HILBERT_MAXIMUM
+                / Math.max(1L, (long) maximumLatitude - minimumLatitude);
+        final double longitudeScale = (double) HILBERT_MAXIMUM
+                / Math.max(1L, (long) maximumLongitude - minimumLongitude);
+        final long[] keys = new long[numberOfItems];
+        for (int index = 0; index < numberOfItems; index++)
+        {
+            final long centerLatitude = ((long) latitude(lowers[index]) + latitude(uppers[index]))
+                    / 2;
+            final long centerLongitude = ((long) longitude(lowers[index])
+                    + longitude(uppers[index])) / 2;
+            final int xValue = (int) ((centerLongitude - minimumLongitude) * longitudeScale);
+            final int yValue = (int) ((centerLatitude - minimumLatitude) * latitudeScale);
+            keys[index] = hilbert(xValue, yValue) << INT_SIZE | index;
+        }
+        Arrays.sort(keys);
+
+        // Compute the end position of each level, from the leaves to the root
+        long[] levelBounds = new long[0];
+        long levelSize = numberOfItems;
+        long total = 0L;
+        while (levelSize > 0)
+        {
+            total += levelSize;
+            levelBounds = Arrays.copyOf(levelBounds, levelBounds.length + 1);
+            levelBounds[levelBounds.length - 1] = total;
+            levelSize = levelSize == 1 ? 0 : (levelSize + nodeSize - 1) / nodeSize;
+        }
+
+        final long[] treeLowers = new long[Math.toIntExact(total)];
+        final long[] treeUppers = new long[treeLowers.length];
+        final long[] treeIndices = new long[treeLowers.length];
+        for (int position = 0; position < numberOfItems; position++)
+        {
+            final int index = (int) (keys[position] & INT_MASK);
+            treeLowers[position] = lowers[index];
+            treeUppers[position] = uppers[index];
+            treeIndices[position] = index;
+        }
+        int parent = numberOfItems;
+        int position = 0;
+        for (int level = 0; level < levelBounds.length - 1; level++)
+        {
+            final int levelEnd = (int) levelBounds[level];
+            while (position < levelEnd)
+            {
+                final int childrenEnd = Math.min(position + nodeSize, levelEnd);
+                int lowerLatitude = Integer.MAX_VALUE;
+                int lowerLongitude = Integer.MAX_VALUE;
+                int upperLatitude = Integer.MIN_VALUE;
+                int upperLongitude = Integer.MIN_VALUE;
+                for (int child = position; child < childrenEnd; child++)
+                {
+                    lowerLatitude = Math.min(lowerLatitude, latitude(treeLowers[child]));
+                    lowerLongitude = Math.min(lowerLongitude, longitude(treeLowers[child]));
+                    upperLatitude = Math.max(upperLatitude, latitude(treeUppers[child]));
+                    upperLongitude = Math.max(upperLongitude, longitude(treeUppers[child]));
+                }
+                treeLowers[parent] = concatenation(lowerLatitude, lowerLongitude);
+                treeUppers[parent] = concatenation(upperLatitude, upperLongitude);
+                treeIndices[parent] = position;
+                parent++;
+                position = childrenEnd;
+            }
+        }
+
+        final LongArray boxes = new LongArray(2 * total, (int) Math.min(2 * total,
+                Integer.MAX_VALUE), Integer.MAX_VALUE);
+        final LongArray indices = new LongArray(total, (int) total, Integer.MAX_VALUE);
+        for (int node = 0; node < treeLowers.length; node++)
+        {
+            boxes.add(treeLowers[node]);
+            boxes.add(treeUppers[node]);
+            indices.add(treeIndices[node]);
+        }
+        return new PackedRTree(nodeSize, levelBounds, boxes, indices);
+    }
+
+    /**
+     * Build a {@link PackedRTree} over a sequence of {@link Located} items
+     *
+     * @param items
+     *            The items, which are indexed by their position in the sequence
+     * @return The {@link PackedRTree}
+     */
+    public static PackedRTree forLocated(final Iterable<? extends Located> items)
+    {
+        final List<Rectangle> bounds = new ArrayList<>();
+        items.forEach(item -> bounds.add(item.bounds()));
+        return build(bounds.size(), index -> bounds.get((int) index));
+    }
+
+    private static long concatenation(final int latitude, final int longitude)
+    {
+        return (long) latitude << INT_SIZE | longitude & INT_MASK;
+    }
+
+    /**
+     * @return The distance along a Hilbert curve of order {@link #HILBERT_ORDER} of a point of the
+     *         square grid
+     */
+    private static long hilbert(final int xValue, final int yValue)
+    {
+        int xCoordinate = xValue;
+        int yCoordinate = yValue;
+        long result = 0L;
+        for (int side = 1 << HILBERT_ORDER - 1; side > 0; side >>= 1)
+        {
+            final int xBit = (xCoordinate & side) > 0 ? 1 : 0;
+            final int yBit = (yCoordinate & side) > 0 ? 1 : 0;
+            result += (long) side * side * (HILBERT_QUADRANT_FACTOR * xBit ^ yBit);
+            // Rotate the quadrant
+            if (yBit == 0)
+            {
+                if (xBit == 1)
+                {
+                    xCoordinate = HILBERT_MAXIMUM - xCoordinate;
+                    yCoordinate = HILBERT_MAXIMUM - yCoordinate;
+                }
+                final int swap = xCoordinate;
+                xCoordinate = yCoordinate;
+                yCoordinate = swap;
+            }
+        }
+        return result;
+    }
+
+    private static int latitude(final long concatenation)
+    {
+        return (int) (concatenation >> INT_SIZE);
+    }
+
+    private static int longitude(final long concatenation)
+    {
+        return (int) concatenation;
+    }
+
+    /**
+     * @return A lower bound of the distance in millimeters from a location to any point of a box,
+     *         for both the equirectangular and the haversine distances of
+     *         {@link Location#distanceTo(Location)}.
+     */
+    private static double lowerBound(final int latitude, final int longitude,
+            final long boxLower, final long boxUpper)
+    {
+        final int lowerLatitude = latitude(boxLower);
+        final int lowerLongitude = longitude(boxLower);
+        final int upperLatitude = latitude(boxUpper);
+        final int upperLongitude = longitude(boxUpper);
+        final long latitudeDelta = Math.max(0L,
+                Math.max((long) lowerLatitude - latitude, (long) latitude - upperLatitude));
+        final long longitudeDelta = Math.max(0L,
+                Math.max((long) lowerLongitude - longitude, (long) longitude - upperLongitude));
+        final double latitudeRadians = latitudeDelta / Angle.DM7_PER_RADIAN_DOUBLE;
+        // The cosine of the mean latitude is the smallest at the highest absolute latitude
+        final double highestLatitude = Math.max(Math.abs((long) latitude),
+                Math.max(Math.abs((long) lowerLatitude), Math.abs((long) upperLatitude)))
+                / Angle.DM7_PER_RADIAN_DOUBLE;
+        final double longitudeRadians = longitudeDelta / Angle.DM7_PER_RADIAN_DOUBLE
+                * Math.cos(Math.min(highestLatitude, Math.PI / 2));
+        double result = Math.sqrt(
+                latitudeRadians * latitudeRadians + longitudeRadians * longitudeRadians);
+        if ((long) upperLongitude - longitude > Angle.REVOLUTION_DM7 / 2
+                || (long) longitude - lowerLongitude > Angle.REVOLUTION_DM7 / 2)
+        {
+            // Part of the box is measured across the antimeridian, with the haversine distance,
+            // which is at least the latitude difference.
+            result = Math.min(result, latitudeRadians);
+        }
+        return Math.max(0.0, EARTH_RADIUS_MILLIMETERS * result - SLACK_MILLIMETERS);
+    }
+
+    /**
+     * Create a {@link PackedRTree} from its arrays, for example when deserializing it.
+     *
+     * @param nodeSize
+     *            The maximum number of children of each tree node
+     * @param levelBounds
+     *            The end position of each level, from the leaves to the root
+     * @param boxes
+     *            The lower left and upper right concatenated {@link Location}s of each tree node
+     * @param indices
+     *            The item index of each leaf, and the first child position of the other nodes
+     */
+    public PackedRTree(final int nodeSize, final long[] levelBounds, final LongArray boxes,
+            final LongArray indices)
+    {
+        final long total = levelBounds.length == 0 ? 0L : levelBounds[levelBounds.length - 1];
+        if (boxes.size() != 2 * total || indices.size() != total)
+        {
+            throw new CoreException("Inconsistent {}: {} nodes, {} box values and {} indices",
+                    PackedRTree.class.getSimpleName(), total, boxes.size(), indices.size());
+        }
+        this.nodeSize = nodeSize;
+        this.levelBounds = levelBounds;
+        this.boxes = boxes;
+        this.indices = indices;
+    }
+
+    /**
+     * This nullary constructor is solely for use by the
+     * {@link org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer}, which calls it
+     * using reflection to obtain the adapters. The object initialized with this constructor will be
+     * corrupted for general use and should be discarded.
+     */
+    @SuppressWarnings("unused")
+    private PackedRTree()
+    {
+        this.nodeSize = 0;
+        this.levelBounds = null;
+        this.boxes = null;
+        this.indices = null;
+    }
+
+    /**
+     * @return The bounds of all the items, or null if the tree is empty
+     */
+    public Rectangle bounds()
+    {
+        if (this.levelBounds.length == 0)
+        {
+            return null;
+        }
+        final long root = this.levelBounds[this.levelBounds.length - 1] - 1;
+        return Rectangle.forCorners(new Location(this.boxes.get(2 * root)),
+                new Location(this.boxes.get(2 * root + 1)));
+    }
+
+    public LongArray getBoxes()
+    {
+        return this.boxes;
+    }
+
+    public LongArray getIndices()
+    {
+        return this.indices;
+    }
+
+    /**
+     * @return A copy of the end position of each level, from the leaves to the root
+     */
+    public long[] getLevelBounds()
+    {
+        return this.levelBounds.clone();
+    }
+
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedPackedRTreeAdapter();
+    }
+
+    public int getNodeSize()
+    {
+        return this.nodeSize;
+    }
+
+    @Override
+    public ProtoAdapter getProtoAdapter()
+    {
+        return new ProtoPackedRTreeAdapter();
+    }
+
+    /**
+     * Find the items nearest to a location, best first. The tree nodes are visited in increasing
+     * order of the distance from the location to their bounds, and the items in increasing order of
+     * their own distance, so only the nodes closer than the last item found are visited.
+     *
+     * @param location
+     *            The location to search around
+     * @param count
+     *            The maximum number of items to find
+     * @param maximumDistance
+     *            The maximum distance of the items to find
+     * @param distance
+     *            The distance from the location to the item with some index, which cannot be less
+     *            than the distance to the item bounds. Null excludes the item from the search.
+     * @return The indices of the items found, nearest first
+     */
+    public long[] nearest(final Location location, final int count,
+            final Distance maximumDistance, final LongFunction<Distance> distance)
+    {
+        if (this.levelBounds.length == 0 || count <= 0)
+        {
+            return new long[0];
+        }
+        final long concatenation = location.asConcatenation();
+        final int latitude = latitude(concatenation);
+        final int longitude = longitude(concatenation);
+        final double maximum = maximumDistance.asMillimeters();
+        final NearestQueue queue = new NearestQueue();
+        final int rootLevel = this.levelBounds.length - 1;
+        queue.push(0.0, this.levelBounds[rootLevel] - 1, rootLevel);
+        long[] result = new long[Math.min(count, INITIAL_STACK_SIZE)];
+        int found = 0;
+        while (!queue.isEmpty() && found < count)
+        {
+            final int level = queue.level();
+            final double key = queue.minimum();
+            final long value = queue.poll();
+            if (level == RESOLVED)
+            {
+                if (found == result.length)
+                {
+                    result = Arrays.copyOf(result, Math.min(count, 2 * found));
+                }
+                result[found++] = value;
+            }
+            else if (level == 0)
+            {
+                final Distance itemDistance = distance.apply(this.indices.get(value));
+                if (itemDistance != null && itemDistance.asMillimeters() <= maximum)
+                {
+                    queue.push(Math.max(key, itemDistance.asMillimeters()),
+                            this.indices.get(value), RESOLVED);
+                }
+            }
+            else
+            {
+                final long first = this.indices.get(value);
+                final long end = Math.min(first + this.nodeSize, this.levelBounds[level - 1]);
+                for (long child = first; child < end; child++)
+                {
+                    final double bound = lowerBound(latitude, longitude,
+                            this.boxes.get(2 * child), this.boxes.get(2 * child + 1));
+                    if (bound <= maximum)
+                    {
+                        queue.push(bound, child, level - 1);
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Find the items whose bounds intersect some bounds. The boundaries are inclusive.
+     *
+     * @param bounds
+     *            The bounds to query
+     * @param consumer
+     *            Called with the index of each item found, in no particular order
+     */
+    public void search(final Rectangle bounds, final LongConsumer consumer)
+    {
+        if (this.levelBounds.length == 0)
+        {
+            return;
+        }
+        final long lower = bounds.lowerLeft().asConcatenation();
+        final long upper = bounds.upperRight().asConcatenation();
+        final int lowerLatitude = latitude(lower);
+        final int lowerLongitude = longitude(lower);
+        final int upperLatitude = latitude(upper);
+        final int upperLongitude = longitude(upper);
+
+        long[] stack = new long[INITIAL_STACK_SIZE];
+        int stackSize = 0;
+        int level = this.levelBounds.length - 1;
+        long first = this.levelBounds[level] - 1;
+        while (true)
+        {
+            final long end = Math.min(first + this.nodeSize, this.levelBounds[level]);
+            for (long position = first; position < end; position++)
+            {
+                final long nodeLower = this.boxes.get(2 * position);
+                final long nodeUpper = this.boxes.get(2 * position + 1);
+                if (latitude(nodeLower) > upperLatitude || latitude(nodeUpper) < lowerLatitude
+                        || longitude(nodeLower) > upperLongitude
+                        || longitude(nodeUpper) < lowerLongitude)
+                {
+                    continue;
+                }
+                final long index = this.indices.get(position);
+                if (level == 0)
+                {
+                    consumer.accept(index);
+                }
+                else
+                {
+                    if (stackSize + 2 > stack.length)
+                    {
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    }
+                    stack[stackSize++] = index;
+                    stack[stackSize++] = level - 1L;
+                }
+            }
+            if (stackSize == 0)
+            {
+                return;
+            }
+            level = (int) stack[--stackSize];
+            first = stack[--stackSize];
+        }
+    }
+
+    /**
+     * @return The number of items in the tree
+     */
+    public long size()
+    {
+        return this.levelBounds.length == 0 ? 0L : this.levelBounds[0];
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PackedRTree [size=" + size() + ", nodeSize=" + this.nodeSize + ", levels="
+                + this.levelBounds.length + "]";
+    }
+}
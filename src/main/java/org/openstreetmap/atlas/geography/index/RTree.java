@@ -1,11 +1,13 @@
 package org.openstreetmap.atlas.geography.index;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.locationtech.jts.index.strtree.STRtree;
+import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.Located;
 import org.openstreetmap.atlas.geography.Rectangle;
 
@@ -29,6 +31,49 @@ public class RTree<T> implements JtsSpatialIndex<T>
     private final STRtree tree;
     private Rectangle bound;
 
+    /**
+     * Bulk load a tree: the bounds of the items are computed in parallel, and the tree is packed
+     * with the STR algorithm right away, instead of on the first query.
+     *
+     * @param items
+     *            The items to index
+     * @param boundsFunction
+     *            The function computing the bounds of an item. It is called in parallel.
+     * @param valueFunction
+     *            The function extracting the value to store in the tree for an item
+     * @param <I>
+     *            The type of the items to index
+     * @param <K>
+     *            The type of the values stored in the tree
+     * @return The packed tree
+     */
+    public static <I, K> RTree<K> bulkLoad(final List<I> items,
+            final Function<I, Rectangle> boundsFunction, final Function<I, K> valueFunction)
+    {
+        final Rectangle[] bounds = items.parallelStream().map(item ->
+        {
+            final Rectangle result = boundsFunction.apply(item);
+            if (result == null)
+            {
+                throw new CoreException("Unable to get bounds for {} when bulk loading an {}",
+                        item, RTree.class.getSimpleName());
+            }
+            return result;
+        }).toArray(Rectangle[]::new);
+        final RTree<K> toReturn = new RTree<>();
+        for (int index = 0; index < bounds.length; index++)
+        {
+            toReturn.tree.insert(bounds[index].asEnvelope(),
+                    valueFunction.apply(items.get(index)));
+        }
+        if (bounds.length > 0)
+        {
+            toReturn.bound = Rectangle.forLocated(Arrays.asList(bounds));
+        }
+        toReturn.build();
+        return toReturn;
+    }
+
     public static <K> RTree<K> forCollection(final Iterable<K> iterable,
             final Function<K, Rectangle> transform)
     {
@@ -0,0 +1,267 @@
+package org.openstreetmap.atlas.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.streaming.Streams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A named region of a {@link MappedBlockArchive}, read sequentially through a cursor. Small header
+ * values are read by copy, and large primitive blocks are exposed as memory mapped buffers that are
+ * read in place, when the underlying storage allows it. Mapped buffers stay valid after this block
+ * is closed.
+ *
+ * @author agent
+ */
+public final class MappedBlock implements Closeable
+{
+    /**
+     * The maximum number of longs exposed by a single mapped buffer. Larger blocks are split in
+     * multiple buffers of this size. This is 1 GiB worth of longs.
+     */
+    public static final int MAXIMUM_MAPPED_LONGS = 134_217_728;
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedBlock.class);
+
+    private final String name;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long start;
+    private final long length;
+    private long position = 0L;
+
+    /**
+     * Construct a block backed by a heap buffer
+     *
+     * @param name
+     *            The name of the block
+     * @param buffer
+     *            The buffer containing the whole archive
+     * @param start
+     *            The start of this block in the buffer
+     * @param length
+     *            The length of this block
+     */
+    MappedBlock(final String name, final ByteBuffer buffer, final long start, final long length)
+    {
+        this.name = name;
+        this.channel = null;
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Construct a block backed by a file
+     *
+     * @param name
+     *            The name of the block
+     * @param channel
+     *            The open file channel, which is closed with this block
+     * @param start
+     *            The start of this block in the file
+     * @param length
+     *            The length of this block
+     */
+    MappedBlock(final String name, final FileChannel channel, final long start, final long length)
+    {
+        this.name = name;
+        this.channel = channel;
+        this.buffer = null;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Move the cursor forward to the next multiple of {@link MappedBlockWriter#ALIGNMENT}
+     */
+    public void align()
+    {
+        final long remainder = this.position % MappedBlockWriter.ALIGNMENT;
+        if (remainder != 0)
+        {
+            seek(this.position + MappedBlockWriter.ALIGNMENT - remainder);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.channel != null)
+        {
+            Streams.close(this.channel);
+        }
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return The length of this block in bytes
+     */
+    public long length()
+    {
+        return this.length;
+    }
+
+    /**
+     * Expose longs in place, without moving the cursor.
+     *
+     * @param offset
+     *            The offset of the first long, in bytes from the start of the block
+     * @param count
+     *            The number of longs
+     * @return A read-only {@link LongBuffer} of the longs, mapped when possible
+     */
+    public LongBuffer mapLongs(final long offset, final int count)
+    {
+        if (count > MAXIMUM_MAPPED_LONGS)
+        {
+            throw new CoreException("Cannot map {} longs at once in block {}, the maximum is {}",
+                    count, this.name, MAXIMUM_MAPPED_LONGS);
+        }
+        return slice(offset, count * Long.BYTES, true).asLongBuffer();
+    }
+
+    /**
+     * @return The position of the cursor, in bytes from the start of the block
+     */
+    public long position()
+    {
+        return this.position;
+    }
+
+    public byte[] readBytes(final int count)
+    {
+        final byte[] result = new byte[count];
+        slice(this.position, count, false).get(result);
+        this.position += count;
+        return result;
+    }
+
+    public int readInt()
+    {
+        final int result = slice(this.position, Integer.BYTES, false).getInt();
+        this.position += Integer.BYTES;
+        return result;
+    }
+
+    public long readLong()
+    {
+        final long result = slice(this.position, Long.BYTES, false).getLong();
+        this.position += Long.BYTES;
+        return result;
+    }
+
+    /**
+     * Expose longs in place, and move the cursor after them.
+     *
+     * @param count
+     *            The number of longs
+     * @return A read-only {@link LongBuffer} of the longs, mapped when possible
+     */
+    public LongBuffer readLongs(final int count)
+    {
+        final LongBuffer result = mapLongs(this.position, count);
+        this.position += (long) count * Long.BYTES;
+        return result;
+    }
+
+    /**
+     * Read a {@link String} written with {@link MappedBlockWriter#writeString(String)}
+     *
+     * @return The {@link String}, which can be null
+     */
+    public String readString()
+    {
+        final int stringLength = readInt();
+        String result = null;
+        if (stringLength != MappedBlockWriter.NULL_STRING_LENGTH)
+        {
+            result = new String(readBytes(stringLength), StandardCharsets.UTF_8);
+        }
+        align();
+        return result;
+    }
+
+    /**
+     * Move the cursor
+     *
+     * @param newPosition
+     *            The new position, in bytes from the start of the block
+     */
+    public void seek(final long newPosition)
+    {
+        if (newPosition < 0 || newPosition > this.length)
+        {
+            throw new CoreException("Cannot seek to {} in block {} of length {}", newPosition,
+                    this.name, this.length);
+        }
+        this.position = newPosition;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[MappedBlock " + this.name + ": " + this.length + " bytes]";
+    }
+
+    private ByteBuffer slice(final long offset, final int size, final boolean map)
+    {
+        if (offset < 0 || size < 0 || offset + size > this.length)
+        {
+            throw new CoreException("Cannot read {} bytes at {} in block {} of length {}", size,
+                    offset, this.name, this.length);
+        }
+        if (this.buffer != null)
+        {
+            final ByteBuffer duplicate = this.buffer.duplicate();
+            final int sliceStart = Math.toIntExact(this.start + offset);
+            duplicate.limit(sliceStart + size);
+            duplicate.position(sliceStart);
+            return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try
+        {
+            if (map)
+            {
+                try
+                {
+                    return this.channel.map(MapMode.READ_ONLY, this.start + offset, size)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                }
+                catch (final UnsupportedOperationException e)
+                {
+                    logger.trace("Memory mapping unsupported for block {}, reading it instead",
+                            this.name, e);
+                }
+            }
+            final ByteBuffer result = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            while (result.hasRemaining())
+            {
+                if (this.channel.read(result, this.start + offset + result.position()) < 0)
+                {
+                    throw new CoreException("Unexpected end of file in block {}", this.name);
+                }
+            }
+            result.flip();
+            return result;
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to read {} bytes at {} in block {}", size, offset,
+                    this.name, e);
+        }
+    }
+}
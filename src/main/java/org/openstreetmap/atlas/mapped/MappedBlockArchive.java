@@ -0,0 +1,270 @@
+package org.openstreetmap.atlas.mapped;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+
+/**
+ * Read side of an archive of named blocks, written by a {@link MappedBlockArchiveWriter}. Unlike a
+ * zip archive, blocks are uncompressed and aligned, so that they can be read in place from a memory
+ * mapped file. The layout is:
+ * <ul>
+ * <li>A header: the {@link #MAGIC} bytes and the format version
+ * <li>The blocks, each starting on a {@link MappedBlockWriter#ALIGNMENT} boundary
+ * <li>A directory of the blocks' names, encodings, offsets and lengths
+ * <li>A trailer: the offset of the directory and the {@link #MAGIC} bytes
+ * </ul>
+ * When the {@link Resource} is an uncompressed {@link File}, blocks are mapped from the file on
+ * demand. Otherwise the whole archive is read into a heap buffer.
+ *
+ * @author agent
+ */
+public final class MappedBlockArchive
+{
+    /**
+     * How the contents of a block are encoded
+     *
+     * @author agent
+     */
+    public enum BlockEncoding
+    {
+        /**
+         * Primitive layout written by a
+         * {@link org.openstreetmap.atlas.mapped.adapters.MappedAdapter}
+         */
+        PRIMITIVE(0),
+        /**
+         * Opaque protobuf payload written by a
+         * {@link org.openstreetmap.atlas.proto.adapters.ProtoAdapter}
+         */
+        PROTOBUF(1);
+
+        private final int value;
+
+        public static BlockEncoding forValue(final int value)
+        {
+            for (final BlockEncoding encoding : values())
+            {
+                if (encoding.getValue() == value)
+                {
+                    return encoding;
+                }
+            }
+            throw new CoreException("Unknown block encoding {}", value);
+        }
+
+        BlockEncoding(final int value)
+        {
+            this.value = value;
+        }
+
+        public int getValue()
+        {
+            return this.value;
+        }
+    }
+
+    /**
+     * Directory entry of a block
+     *
+     * @author agent
+     */
+    static final class BlockEntry
+    {
+        private final BlockEncoding encoding;
+        private final long offset;
+        private final long length;
+
+        BlockEntry(final BlockEncoding encoding, final long offset, final long length)
+        {
+            this.encoding = encoding;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        BlockEncoding getEncoding()
+        {
+            return this.encoding;
+        }
+
+        long getLength()
+        {
+            return this.length;
+        }
+
+        long getOffset()
+        {
+            return this.offset;
+        }
+    }
+
+    public static final String MAGIC = "ATLASMAP";
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int TRAILER_SIZE = 16;
+
+    private final Resource resource;
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final Map<String, BlockEntry> directory;
+
+    /**
+     * @param resource
+     *            The resource containing the archive
+     * @throws CoreException
+     *             if the resource is not a valid archive
+     */
+    public MappedBlockArchive(final Resource resource)
+    {
+        this.resource = resource;
+        if (resource instanceof File && !resource.isGzipped())
+        {
+            this.path = ((File) resource).toPath();
+            this.buffer = null;
+        }
+        else
+        {
+            this.path = null;
+            this.buffer = ByteBuffer.wrap(resource.readBytesAndClose());
+        }
+        this.directory = readDirectory();
+    }
+
+    /**
+     * Open a block. The caller is responsible for closing it.
+     *
+     * @param name
+     *            The name of the block
+     * @return The block, if it exists in this archive
+     */
+    public Optional<MappedBlock> block(final String name)
+    {
+        final BlockEntry entry = this.directory.get(name);
+        if (entry == null)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(open(name, entry.getOffset(), entry.getLength()));
+    }
+
+    public boolean contains(final String name)
+    {
+        return this.directory.containsKey(name);
+    }
+
+    /**
+     * @param name
+     *            The name of the block
+     * @return The encoding of the block
+     * @throws CoreException
+     *             if the block does not exist
+     */
+    public BlockEncoding encoding(final String name)
+    {
+        final BlockEntry entry = this.directory.get(name);
+        if (entry == null)
+        {
+            throw new CoreException("No block {} in {}", name, this.resource.getName());
+        }
+        return entry.getEncoding();
+    }
+
+    /**
+     * @return The names of all the blocks, in the order they were written
+     */
+    public Set<String> names()
+    {
+        return Collections.unmodifiableSet(this.directory.keySet());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[MappedBlockArchive " + this.resource.getName() + ": " + this.directory.keySet()
+                + "]";
+    }
+
+    private MappedBlock open(final String name, final long offset, final long length)
+    {
+        if (this.path == null)
+        {
+            return new MappedBlock(name, this.buffer, offset, length);
+        }
+        try
+        {
+            return new MappedBlock(name, FileChannel.open(this.path, StandardOpenOption.READ),
+                    offset, length);
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to open {}", this.path, e);
+        }
+    }
+
+    private Map<String, BlockEntry> readDirectory()
+    {
+        final long archiveLength;
+        if (this.path == null)
+        {
+            archiveLength = this.buffer.capacity();
+        }
+        else
+        {
+            archiveLength = new File(this.path).length();
+        }
+        if (archiveLength < HEADER_SIZE + TRAILER_SIZE)
+        {
+            throw new CoreException("{} is too small to be a mapped block archive",
+                    this.resource.getName());
+        }
+        final byte[] magic = MAGIC.getBytes(StandardCharsets.US_ASCII);
+        try (MappedBlock archive = open(this.resource.getName(), 0L, archiveLength))
+        {
+            if (!Arrays.equals(magic, archive.readBytes(magic.length)))
+            {
+                throw new CoreException("{} is not a mapped block archive",
+                        this.resource.getName());
+            }
+            final int version = archive.readInt();
+            if (version != VERSION)
+            {
+                throw new CoreException("Unsupported mapped block archive version {} in {}",
+                        version, this.resource.getName());
+            }
+            archive.seek(archiveLength - TRAILER_SIZE);
+            final long directoryOffset = archive.readLong();
+            if (!Arrays.equals(magic, archive.readBytes(magic.length)))
+            {
+                throw new CoreException("{} is a truncated mapped block archive",
+                        this.resource.getName());
+            }
+            archive.seek(directoryOffset);
+            final int count = archive.readInt();
+            archive.align();
+            final Map<String, BlockEntry> result = new LinkedHashMap<>();
+            for (int index = 0; index < count; index++)
+            {
+                final String name = archive.readString();
+                final BlockEncoding encoding = BlockEncoding.forValue(archive.readInt());
+                archive.align();
+                final long offset = archive.readLong();
+                final long length = archive.readLong();
+                result.put(name, new BlockEntry(encoding, offset, length));
+            }
+            return result;
+        }
+    }
+}
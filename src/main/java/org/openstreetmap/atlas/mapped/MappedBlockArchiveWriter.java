@@ -0,0 +1,114 @@
+package org.openstreetmap.atlas.mapped;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive.BlockEncoding;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive.BlockEntry;
+import org.openstreetmap.atlas.streaming.resource.WritableResource;
+
+/**
+ * Write side of a {@link MappedBlockArchive}. Blocks are written one after the other, and the
+ * directory is written when this writer is closed.
+ *
+ * @author agent
+ */
+public class MappedBlockArchiveWriter implements Closeable
+{
+    private final String name;
+    private final OutputStream output;
+    private final MappedBlockWriter writer;
+    private final Map<String, BlockEntry> directory = new LinkedHashMap<>();
+    private boolean closed = false;
+
+    /**
+     * @param resource
+     *            The resource to write the archive to
+     */
+    public MappedBlockArchiveWriter(final WritableResource resource)
+    {
+        this.name = resource.getName();
+        this.output = new BufferedOutputStream(resource.write());
+        this.writer = new MappedBlockWriter(this.output);
+        this.writer.writeBytes(MappedBlockArchive.MAGIC.getBytes(StandardCharsets.US_ASCII));
+        this.writer.writeInt(MappedBlockArchive.VERSION);
+        this.writer.align();
+    }
+
+    /**
+     * Write the directory and the trailer, and close the underlying resource.
+     */
+    @Override
+    public void close()
+    {
+        if (this.closed)
+        {
+            return;
+        }
+        this.closed = true;
+        try
+        {
+            this.writer.align();
+            final long directoryOffset = this.writer.position();
+            this.writer.writeInt(this.directory.size());
+            this.writer.align();
+            this.directory.forEach((blockName, entry) ->
+            {
+                this.writer.writeString(blockName);
+                this.writer.writeInt(entry.getEncoding().getValue());
+                this.writer.align();
+                this.writer.writeLong(entry.getOffset());
+                this.writer.writeLong(entry.getLength());
+            });
+            this.writer.writeLong(directoryOffset);
+            this.writer.writeBytes(MappedBlockArchive.MAGIC.getBytes(StandardCharsets.US_ASCII));
+        }
+        finally
+        {
+            try
+            {
+                this.output.close();
+            }
+            catch (final IOException e)
+            {
+                throw new CoreException("Unable to close {}", this.name, e);
+            }
+        }
+    }
+
+    /**
+     * Write a new block to the archive
+     *
+     * @param blockName
+     *            The name of the block, unique in the archive
+     * @param encoding
+     *            How the contents are encoded
+     * @param contents
+     *            Writes the contents of the block
+     */
+    public void writeBlock(final String blockName, final BlockEncoding encoding,
+            final Consumer<MappedBlockWriter> contents)
+    {
+        if (this.closed)
+        {
+            throw new CoreException("Cannot write block {} to closed archive {}", blockName,
+                    this.name);
+        }
+        if (this.directory.containsKey(blockName))
+        {
+            throw new CoreException("Block {} is already in archive {}", blockName, this.name);
+        }
+        this.writer.align();
+        final long offset = this.writer.position();
+        contents.accept(this.writer);
+        this.directory.put(blockName,
+                new BlockEntry(encoding, offset, this.writer.position() - offset));
+    }
+}
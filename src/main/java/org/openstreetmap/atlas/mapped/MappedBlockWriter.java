@@ -0,0 +1,132 @@
+package org.openstreetmap.atlas.mapped;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.openstreetmap.atlas.exception.CoreException;
+
+/**
+ * Writes little-endian primitives to an {@link OutputStream}, keeping track of the position so
+ * that blocks of primitives can be aligned and later read in place by a {@link MappedBlock}.
+ *
+ * @author agent
+ */
+public class MappedBlockWriter
+{
+    /**
+     * All the primitive blocks are aligned on this number of bytes.
+     */
+    public static final int ALIGNMENT = Long.BYTES;
+    protected static final int NULL_STRING_LENGTH = -1;
+
+    private final OutputStream output;
+    private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private long position = 0L;
+
+    /**
+     * @param output
+     *            The stream to write to. It is not closed by this writer.
+     */
+    public MappedBlockWriter(final OutputStream output)
+    {
+        this.output = output;
+    }
+
+    /**
+     * Pad the output with zeros until the position is a multiple of {@link #ALIGNMENT}
+     */
+    public void align()
+    {
+        while (this.position % ALIGNMENT != 0)
+        {
+            write(0);
+        }
+    }
+
+    /**
+     * @return The number of bytes written so far
+     */
+    public long position()
+    {
+        return this.position;
+    }
+
+    public void writeBytes(final byte[] bytes)
+    {
+        try
+        {
+            this.output.write(bytes);
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to write {} bytes at position {}", bytes.length,
+                    this.position, e);
+        }
+        this.position += bytes.length;
+    }
+
+    public void writeInt(final int value)
+    {
+        this.scratch.clear();
+        this.scratch.putInt(value);
+        writeScratch();
+    }
+
+    public void writeLong(final long value)
+    {
+        this.scratch.clear();
+        this.scratch.putLong(value);
+        writeScratch();
+    }
+
+    /**
+     * Write a length-prefixed UTF-8 {@link String}, and align the output after it.
+     *
+     * @param value
+     *            The value to write, which can be null
+     */
+    public void writeString(final String value)
+    {
+        if (value == null)
+        {
+            writeInt(NULL_STRING_LENGTH);
+        }
+        else
+        {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            writeBytes(bytes);
+        }
+        align();
+    }
+
+    private void write(final int byteValue)
+    {
+        try
+        {
+            this.output.write(byteValue);
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to write at position {}", this.position, e);
+        }
+        this.position++;
+    }
+
+    private void writeScratch()
+    {
+        try
+        {
+            this.output.write(this.scratch.array(), 0, this.scratch.position());
+        }
+        catch (final IOException e)
+        {
+            throw new CoreException("Unable to write at position {}", this.position, e);
+        }
+        this.position += this.scratch.position();
+    }
+}
@@ -0,0 +1,18 @@
+package org.openstreetmap.atlas.mapped;
+
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+
+/**
+ * {@link MappedSerializable} is a contract for types that can be laid out as aligned, uncompressed
+ * primitive blocks, and read back in place from a memory mapped file. A type that implements this
+ * interface must be able to provide a valid adapter to its owner.
+ *
+ * @author agent
+ */
+public interface MappedSerializable
+{
+    /**
+     * @return The adapter associated with this {@link MappedSerializable}
+     */
+    MappedAdapter getMappedAdapter();
+}
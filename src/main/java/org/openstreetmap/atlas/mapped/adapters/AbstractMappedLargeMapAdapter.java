@@ -0,0 +1,118 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import java.lang.reflect.Field;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
+import org.openstreetmap.atlas.utilities.maps.LargeMap;
+
+/**
+ * Base {@link MappedAdapter} for {@link LargeMap}s with {@link Long} keys. The layout is the name,
+ * the maximum size, the keys, the values and the hashes. The hashes are laid out as they are in
+ * memory, so that the map read back can be queried in place without rehashing anything.
+ *
+ * @param <M>
+ *            The type of map
+ * @param <V>
+ *            The type of the values array
+ * @author agent
+ */
+public abstract class AbstractMappedLargeMapAdapter<
+        M extends LargeMap<Long, ?> & MappedSerializable, V> implements MappedAdapter
+{
+    /*
+     * LargeMap does not expose its arrays. This class's implementation uses reflection to read
+     * them, like the ProtoPackedTagStoreAdapter does for the PackedTagStore.
+     */
+
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        final String name = block.readString();
+        final long maximumSize = block.readLong();
+        final LongArray keys = MappedLongArrayAdapter.read(block);
+        final V values = readValues(block);
+        final LongArrayOfArrays hashes = MappedLongArrayOfArraysAdapter.read(block);
+        return newMap(name, maximumSize, keys, values, hashes);
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!mapType().isInstance(serializable))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final M map = mapType().cast(serializable);
+        writer.writeString(map.getName());
+        writer.writeLong(map.getMaximumSize());
+        MappedLongArrayAdapter.write((LongArray) field(map, LargeMap.FIELD_KEYS), writer);
+        writeValues(valuesType().cast(field(map, LargeMap.FIELD_VALUES)), writer);
+        MappedLongArrayOfArraysAdapter
+                .write((LongArrayOfArrays) field(map, LargeMap.FIELD_HASHES), writer);
+    }
+
+    /**
+     * @return The type of map handled by this adapter
+     */
+    protected abstract Class<M> mapType();
+
+    /**
+     * Create a map around arrays read in place
+     *
+     * @param name
+     *            The name of the map
+     * @param maximumSize
+     *            The maximum size of the map
+     * @param keys
+     *            The keys
+     * @param values
+     *            The values
+     * @param hashes
+     *            The hashes
+     * @return The map
+     */
+    protected abstract M newMap(String name, long maximumSize, LongArray keys, V values,
+            LongArrayOfArrays hashes);
+
+    /**
+     * @param block
+     *            The block positioned at the start of the values layout
+     * @return The values read in place
+     */
+    protected abstract V readValues(MappedBlock block);
+
+    /**
+     * @return The type of the values array
+     */
+    protected abstract Class<V> valuesType();
+
+    /**
+     * @param values
+     *            The values to write
+     * @param writer
+     *            The writer
+     */
+    protected abstract void writeValues(V values, MappedBlockWriter writer);
+
+    private Object field(final M map, final String fieldName)
+    {
+        try
+        {
+            final Field field = LargeMap.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return field.get(map);
+        }
+        catch (final Exception exception)
+        {
+            throw new CoreException("Unable to read field \"{}\" from {}", fieldName,
+                    map.getClass().getName(), exception);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+
+/**
+ * Any memory mapped adapter class must conform to this interface.
+ *
+ * @author agent
+ */
+public interface MappedAdapter
+{
+    /**
+     * @param block
+     *            The {@link MappedBlock} to read from, positioned at the beginning of the
+     *            {@link MappedSerializable}'s layout. The block is left positioned right after it.
+     * @return The object represented by the block. Its primitive contents are read in place and
+     *         not copied to the heap.
+     */
+    MappedSerializable deserialize(MappedBlock block);
+
+    /**
+     * @param serializable
+     *            The object to serialize
+     * @param writer
+     *            The writer to lay out the object's primitive blocks with
+     */
+    void serialize(MappedSerializable serializable, MappedBlockWriter writer);
+}
@@ -0,0 +1,41 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.utilities.arrays.FlatPolyLineArray;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link FlatPolyLineArray}. The layout is a
+ * long flag that is 1 for polygons, then the offsets, coordinates and bounds as
+ * {@link MappedLongArrayAdapter} layouts, so the coordinates are read in place.
+ *
+ * @author agent
+ */
+public class MappedFlatPolyLineArrayAdapter implements MappedAdapter
+{
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        final boolean polygons = block.readLong() == 1L;
+        return new FlatPolyLineArray(polygons, MappedLongArrayAdapter.read(block),
+                MappedLongArrayAdapter.read(block), MappedLongArrayAdapter.read(block));
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!(serializable instanceof FlatPolyLineArray))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final FlatPolyLineArray flatPolyLineArray = (FlatPolyLineArray) serializable;
+        writer.writeLong(flatPolyLineArray.isPolygons() ? 1L : 0L);
+        MappedLongArrayAdapter.write(flatPolyLineArray.getOffsets(), writer);
+        MappedLongArrayAdapter.write(flatPolyLineArray.getCoordinates(), writer);
+        MappedLongArrayAdapter.write(flatPolyLineArray.getBounds(), writer);
+    }
+}
@@ -0,0 +1,84 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.arrays.LongArray.MappedPrimitiveLongArray;
+import org.openstreetmap.atlas.utilities.arrays.PrimitiveArray;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link LongArray}. The layout is the name, the
+ * size, the number of items per mapped sub array, and the items.
+ *
+ * @author agent
+ */
+public class MappedLongArrayAdapter implements MappedAdapter
+{
+    /**
+     * Read a {@link LongArray} in place
+     *
+     * @param block
+     *            The block positioned at the start of the layout
+     * @return The read-only {@link LongArray}
+     */
+    public static LongArray read(final MappedBlock block)
+    {
+        final String name = block.readString();
+        final long size = block.readLong();
+        final int subArraySize = block.readInt();
+        block.align();
+        final List<PrimitiveArray<Long>> arrays = new ArrayList<>();
+        for (long first = 0; first < size; first += subArraySize)
+        {
+            final int count = (int) Math.min(subArraySize, size - first);
+            arrays.add(new MappedPrimitiveLongArray(block.readLongs(count)));
+        }
+        final LongArray result = new LongArray(arrays, subArraySize);
+        result.setName(name);
+        return result;
+    }
+
+    /**
+     * Write the layout of a {@link LongArray}
+     *
+     * @param array
+     *            The array to write
+     * @param writer
+     *            The writer
+     */
+    public static void write(final LongArray array, final MappedBlockWriter writer)
+    {
+        final long size = array.size();
+        writer.writeString(array.getName());
+        writer.writeLong(size);
+        writer.writeInt((int) Math.max(1, Math.min(size, MappedBlock.MAXIMUM_MAPPED_LONGS)));
+        writer.align();
+        for (long index = 0; index < size; index++)
+        {
+            writer.writeLong(array.get(index));
+        }
+    }
+
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        return read(block);
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!(serializable instanceof LongArray))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        write((LongArray) serializable, writer);
+    }
+}
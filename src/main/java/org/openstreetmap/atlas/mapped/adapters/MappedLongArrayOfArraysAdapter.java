@@ -0,0 +1,154 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays.MappedPrimitiveLongArrayArray;
+import org.openstreetmap.atlas.utilities.arrays.PrimitiveArray;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link LongArrayOfArrays}. The layout is the
+ * name, the size, the number of items per mapped sub array, the total number of values, the offset
+ * of each item in the values (plus the end offset), and the concatenated values. Null items are
+ * written as empty arrays.
+ *
+ * @author agent
+ */
+public class MappedLongArrayOfArraysAdapter implements MappedAdapter
+{
+    /**
+     * Read a {@link LongArrayOfArrays} in place
+     *
+     * @param block
+     *            The block positioned at the start of the layout
+     * @return The read-only {@link LongArrayOfArrays}
+     */
+    public static LongArrayOfArrays read(final MappedBlock block)
+    {
+        final String name = block.readString();
+        final long size = block.readLong();
+        final int subArraySize = block.readInt();
+        block.align();
+        final long totalValues = block.readLong();
+        final long offsetsStart = block.position();
+        final long valuesStart = offsetsStart + (size + 1) * Long.BYTES;
+        final List<PrimitiveArray<long[]>> arrays = new ArrayList<>();
+        for (long first = 0; first < size; first += subArraySize)
+        {
+            final int count = (int) Math.min(subArraySize, size - first);
+            final LongBuffer offsets = block.mapLongs(offsetsStart + first * Long.BYTES,
+                    count + 1);
+            final long firstValue = offsets.get(0);
+            final LongBuffer values = block.mapLongs(valuesStart + firstValue * Long.BYTES,
+                    (int) (offsets.get(count) - firstValue));
+            arrays.add(new MappedPrimitiveLongArrayArray(offsets, values));
+        }
+        block.seek(valuesStart + totalValues * Long.BYTES);
+        final LongArrayOfArrays result = new LongArrayOfArrays(arrays, subArraySize);
+        result.setName(name);
+        return result;
+    }
+
+    /**
+     * Write the layout of a {@link LongArrayOfArrays}
+     *
+     * @param array
+     *            The array to write
+     * @param writer
+     *            The writer
+     */
+    public static void write(final LongArrayOfArrays array, final MappedBlockWriter writer)
+    {
+        final long size = array.size();
+        writer.writeString(array.getName());
+        writer.writeLong(size);
+        writer.writeInt(subArraySize(array));
+        writer.align();
+        long totalValues = 0L;
+        for (long index = 0; index < size; index++)
+        {
+            totalValues += length(array.get(index));
+        }
+        writer.writeLong(totalValues);
+        long offset = 0L;
+        writer.writeLong(offset);
+        for (long index = 0; index < size; index++)
+        {
+            offset += length(array.get(index));
+            writer.writeLong(offset);
+        }
+        for (long index = 0; index < size; index++)
+        {
+            final long[] item = array.get(index);
+            if (item != null)
+            {
+                for (final long value : item)
+                {
+                    writer.writeLong(value);
+                }
+            }
+        }
+    }
+
+    private static int length(final long[] item)
+    {
+        return item == null ? 0 : item.length;
+    }
+
+    /**
+     * Find the largest number of items per sub array so that both the offsets and the values of
+     * each sub array can be mapped at once.
+     */
+    private static int subArraySize(final LongArrayOfArrays array)
+    {
+        final long size = array.size();
+        int result = (int) Math.max(1, Math.min(size, MappedBlock.MAXIMUM_MAPPED_LONGS - 1));
+        while (true)
+        {
+            boolean fits = true;
+            long chunkValues = 0L;
+            for (long index = 0; index < size && fits; index++)
+            {
+                if (index % result == 0)
+                {
+                    chunkValues = 0L;
+                }
+                chunkValues += length(array.get(index));
+                fits = chunkValues <= MappedBlock.MAXIMUM_MAPPED_LONGS;
+            }
+            if (fits)
+            {
+                return result;
+            }
+            if (result == 1)
+            {
+                throw new CoreException("{} has an item too large to be mapped", array.getName());
+            }
+            result /= 2;
+        }
+    }
+
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        return read(block);
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!(serializable instanceof LongArrayOfArrays))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        write((LongArrayOfArrays) serializable, writer);
+    }
+}
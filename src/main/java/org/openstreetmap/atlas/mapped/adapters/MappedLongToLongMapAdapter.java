@@ -0,0 +1,47 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link LongToLongMap}.
+ *
+ * @author agent
+ */
+public class MappedLongToLongMapAdapter
+        extends AbstractMappedLargeMapAdapter<LongToLongMap, LongArray>
+{
+    @Override
+    protected Class<LongToLongMap> mapType()
+    {
+        return LongToLongMap.class;
+    }
+
+    @Override
+    protected LongToLongMap newMap(final String name, final long maximumSize,
+            final LongArray keys, final LongArray values, final LongArrayOfArrays hashes)
+    {
+        return new LongToLongMap(name, maximumSize, keys, values, hashes);
+    }
+
+    @Override
+    protected LongArray readValues(final MappedBlock block)
+    {
+        return MappedLongArrayAdapter.read(block);
+    }
+
+    @Override
+    protected Class<LongArray> valuesType()
+    {
+        return LongArray.class;
+    }
+
+    @Override
+    protected void writeValues(final LongArray values, final MappedBlockWriter writer)
+    {
+        MappedLongArrayAdapter.write(values, writer);
+    }
+}
@@ -0,0 +1,47 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMultiMap;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link LongToLongMultiMap}.
+ *
+ * @author agent
+ */
+public class MappedLongToLongMultiMapAdapter
+        extends AbstractMappedLargeMapAdapter<LongToLongMultiMap, LongArrayOfArrays>
+{
+    @Override
+    protected Class<LongToLongMultiMap> mapType()
+    {
+        return LongToLongMultiMap.class;
+    }
+
+    @Override
+    protected LongToLongMultiMap newMap(final String name, final long maximumSize,
+            final LongArray keys, final LongArrayOfArrays values, final LongArrayOfArrays hashes)
+    {
+        return new LongToLongMultiMap(name, maximumSize, keys, values, hashes);
+    }
+
+    @Override
+    protected LongArrayOfArrays readValues(final MappedBlock block)
+    {
+        return MappedLongArrayOfArraysAdapter.read(block);
+    }
+
+    @Override
+    protected Class<LongArrayOfArrays> valuesType()
+    {
+        return LongArrayOfArrays.class;
+    }
+
+    @Override
+    protected void writeValues(final LongArrayOfArrays values, final MappedBlockWriter writer)
+    {
+        MappedLongArrayOfArraysAdapter.write(values, writer);
+    }
+}
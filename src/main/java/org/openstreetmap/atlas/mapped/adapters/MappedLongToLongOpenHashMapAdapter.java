@@ -0,0 +1,95 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import java.nio.LongBuffer;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongOpenHashMap;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link LongToLongOpenHashMap}. The layout is
+ * the name, a marker (-1), the size, the capacity, and the whole table, free slots included, so
+ * that the map read back can be queried in place without rehashing anything.
+ * <p>
+ * The layout of the {@link LongToLongMap} has the maximum size of the map, always positive, instead
+ * of the marker. Blocks written with that layout are still read, into a new heap map.
+ *
+ * @author agent
+ */
+public class MappedLongToLongOpenHashMapAdapter implements MappedAdapter
+{
+    private static final long MARKER = -1L;
+
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        final String name = block.readString();
+        final long marker = block.readLong();
+        if (marker != MARKER)
+        {
+            return readLargeMapLayout(name, block);
+        }
+        final long size = block.readLong();
+        final long capacity = block.readLong();
+        final long length = capacity * 2;
+        final int numberOfBlocks = (int) ((length + MappedBlock.MAXIMUM_MAPPED_LONGS - 1)
+                / MappedBlock.MAXIMUM_MAPPED_LONGS);
+        final LongBuffer[] table = new LongBuffer[numberOfBlocks];
+        for (int index = 0; index < numberOfBlocks; index++)
+        {
+            table[index] = block.readLongs((int) Math.min(MappedBlock.MAXIMUM_MAPPED_LONGS,
+                    length - (long) index * MappedBlock.MAXIMUM_MAPPED_LONGS))
+                    .asReadOnlyBuffer();
+        }
+        return new LongToLongOpenHashMap(name, size, table);
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!(serializable instanceof LongToLongOpenHashMap))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final LongToLongOpenHashMap map = (LongToLongOpenHashMap) serializable;
+        writer.writeString(map.getName());
+        writer.writeLong(MARKER);
+        writer.writeLong(map.size());
+        writer.writeLong(map.capacity());
+        for (long slot = 0; slot < map.capacity(); slot++)
+        {
+            writer.writeLong(map.keyAt(slot));
+            writer.writeLong(map.valueAt(slot));
+        }
+    }
+
+    /**
+     * Read the layout written by the {@link MappedLongToLongMapAdapter}, after its name and maximum
+     * size
+     *
+     * @param name
+     *            The name of the map
+     * @param block
+     *            The block positioned at the start of the keys
+     * @return A heap map with the same entries
+     */
+    private LongToLongOpenHashMap readLargeMapLayout(final String name, final MappedBlock block)
+    {
+        final LongArray keys = MappedLongArrayAdapter.read(block);
+        final LongArray values = MappedLongArrayAdapter.read(block);
+        // Skip the hashes
+        MappedLongArrayOfArraysAdapter.read(block);
+        final LongToLongOpenHashMap result = new LongToLongOpenHashMap(name, keys.size());
+        for (long index = 0; index < keys.size(); index++)
+        {
+            result.put(keys.get(index), values.get(index));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.index.PackedRTree;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link PackedRTree}. The layout is the node
+ * size, the number of levels, the level bounds, and the boxes and indices as
+ * {@link MappedLongArrayAdapter} layouts, so the tree is queried in place.
+ *
+ * @author agent
+ */
+public class MappedPackedRTreeAdapter implements MappedAdapter
+{
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        final int nodeSize = block.readInt();
+        final int levels = block.readInt();
+        final long[] levelBounds = new long[levels];
+        for (int level = 0; level < levels; level++)
+        {
+            levelBounds[level] = block.readLong();
+        }
+        return new PackedRTree(nodeSize, levelBounds, MappedLongArrayAdapter.read(block),
+                MappedLongArrayAdapter.read(block));
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!(serializable instanceof PackedRTree))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final PackedRTree packedRTree = (PackedRTree) serializable;
+        final long[] levelBounds = packedRTree.getLevelBounds();
+        writer.writeInt(packedRTree.getNodeSize());
+        writer.writeInt(levelBounds.length);
+        for (final long levelBound : levelBounds)
+        {
+            writer.writeLong(levelBound);
+        }
+        MappedLongArrayAdapter.write(packedRTree.getBoxes(), writer);
+        MappedLongArrayAdapter.write(packedRTree.getIndices(), writer);
+    }
+}
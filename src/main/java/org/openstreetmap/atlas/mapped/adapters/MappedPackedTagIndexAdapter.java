@@ -0,0 +1,41 @@
+package org.openstreetmap.atlas.mapped.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedTagIndex;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+
+/**
+ * Implements the {@link MappedAdapter} interface for {@link PackedTagIndex}. The layout is the
+ * number of indexed taggables, then the entries, offsets and bitmaps as
+ * {@link MappedLongArrayAdapter} layouts, so the bitmaps are read in place.
+ *
+ * @author agent
+ */
+public class MappedPackedTagIndexAdapter implements MappedAdapter
+{
+    @Override
+    public MappedSerializable deserialize(final MappedBlock block)
+    {
+        final long size = block.readLong();
+        return new PackedTagIndex(size, MappedLongArrayAdapter.read(block),
+                MappedLongArrayAdapter.read(block), MappedLongArrayAdapter.read(block));
+    }
+
+    @Override
+    public void serialize(final MappedSerializable serializable, final MappedBlockWriter writer)
+    {
+        if (!(serializable instanceof PackedTagIndex))
+        {
+            throw new CoreException(
+                    "Invalid MappedSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final PackedTagIndex packedTagIndex = (PackedTagIndex) serializable;
+        writer.writeLong(packedTagIndex.size());
+        MappedLongArrayAdapter.write(packedTagIndex.getEntries(), writer);
+        MappedLongArrayAdapter.write(packedTagIndex.getOffsets(), writer);
+        MappedLongArrayAdapter.write(packedTagIndex.getData(), writer);
+    }
+}
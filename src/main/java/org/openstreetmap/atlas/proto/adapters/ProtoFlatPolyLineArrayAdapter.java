@@ -0,0 +1,84 @@
+package org.openstreetmap.atlas.proto.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.proto.ProtoFlatPolyLineArray;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.utilities.arrays.FlatPolyLineArray;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Implements the {@link ProtoAdapter} interface to connect {@link FlatPolyLineArray} and
+ * {@link ProtoFlatPolyLineArray}.
+ *
+ * @author agent
+ */
+public class ProtoFlatPolyLineArrayAdapter implements ProtoAdapter
+{
+    private static LongArray toLongArray(final int count, final Iterable<Long> elements)
+    {
+        final int blockSize = Math.max(1, count);
+        final LongArray result = new LongArray(count, blockSize, blockSize);
+        elements.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public ProtoSerializable deserialize(final byte[] byteArray)
+    {
+        ProtoFlatPolyLineArray protoFlatPolyLineArray = null;
+        try
+        {
+            protoFlatPolyLineArray = ProtoFlatPolyLineArray.parseFrom(byteArray);
+        }
+        catch (final InvalidProtocolBufferException exception)
+        {
+            throw new CoreException("Error encountered while parsing protobuf bytestream",
+                    exception);
+        }
+        return new FlatPolyLineArray(protoFlatPolyLineArray.getPolygons(),
+                toLongArray(protoFlatPolyLineArray.getOffsetsCount(),
+                        protoFlatPolyLineArray.getOffsetsList()),
+                toLongArray(protoFlatPolyLineArray.getCoordinatesCount(),
+                        protoFlatPolyLineArray.getCoordinatesList()),
+                toLongArray(protoFlatPolyLineArray.getBoundsCount(),
+                        protoFlatPolyLineArray.getBoundsList()));
+    }
+
+    @Override
+    public byte[] serialize(final ProtoSerializable serializable)
+    {
+        if (!(serializable instanceof FlatPolyLineArray))
+        {
+            throw new CoreException(
+                    "Invalid ProtoSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final FlatPolyLineArray flatPolyLineArray = (FlatPolyLineArray) serializable;
+
+        if (flatPolyLineArray.getCoordinates().size() > Integer.MAX_VALUE)
+        {
+            throw new CoreException("Cannot serialize {}, size too large ({})",
+                    flatPolyLineArray.getClass().getName(),
+                    flatPolyLineArray.getCoordinates().size());
+        }
+
+        final ProtoFlatPolyLineArray.Builder protoFlatPolyLineArrayBuilder = ProtoFlatPolyLineArray
+                .newBuilder();
+        protoFlatPolyLineArrayBuilder.setPolygons(flatPolyLineArray.isPolygons());
+        for (final long offset : flatPolyLineArray.getOffsets())
+        {
+            protoFlatPolyLineArrayBuilder.addOffsets(offset);
+        }
+        for (final long coordinate : flatPolyLineArray.getCoordinates())
+        {
+            protoFlatPolyLineArrayBuilder.addCoordinates(coordinate);
+        }
+        for (final long bound : flatPolyLineArray.getBounds())
+        {
+            protoFlatPolyLineArrayBuilder.addBounds(bound);
+        }
+        return protoFlatPolyLineArrayBuilder.build().toByteArray();
+    }
+}
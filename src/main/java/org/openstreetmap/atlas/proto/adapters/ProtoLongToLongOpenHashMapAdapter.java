@@ -0,0 +1,88 @@
+package org.openstreetmap.atlas.proto.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.proto.ProtoLongArray;
+import org.openstreetmap.atlas.proto.ProtoLongToLongMap;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongOpenHashMap;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Implements the {@link ProtoAdapter} interface to connect {@link LongToLongOpenHashMap} and
+ * {@link ProtoLongToLongMap}. Only the entries are written, not the free slots of the table. This
+ * is the same message as the one of the {@link LongToLongMap}, so the maps saved with either type
+ * can be read as the other.
+ *
+ * @author agent
+ */
+public class ProtoLongToLongOpenHashMapAdapter implements ProtoAdapter
+{
+    @Override
+    public ProtoSerializable deserialize(final byte[] byteArray)
+    {
+        ProtoLongToLongMap protoLongToLongMap = null;
+        try
+        {
+            protoLongToLongMap = ProtoLongToLongMap.parseFrom(byteArray);
+        }
+        catch (final InvalidProtocolBufferException exception)
+        {
+            throw new CoreException("Error encountered while parsing protobuf bytestream",
+                    exception);
+        }
+
+        String deserializedName = null;
+        if (protoLongToLongMap.hasName())
+        {
+            deserializedName = protoLongToLongMap.getName();
+        }
+        final ProtoLongArray keys = protoLongToLongMap.getKeys();
+        final ProtoLongArray values = protoLongToLongMap.getValues();
+        final LongToLongOpenHashMap result = new LongToLongOpenHashMap(deserializedName,
+                keys.getElementsCount());
+        for (int index = 0; index < keys.getElementsCount(); index++)
+        {
+            result.put(keys.getElements(index), values.getElements(index));
+        }
+        return result;
+    }
+
+    @Override
+    public byte[] serialize(final ProtoSerializable serializable)
+    {
+        if (!(serializable instanceof LongToLongOpenHashMap))
+        {
+            throw new CoreException(
+                    "Invalid ProtoSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final LongToLongOpenHashMap map = (LongToLongOpenHashMap) serializable;
+        if (map.size() > Integer.MAX_VALUE)
+        {
+            throw new CoreException("Cannot serialize {}, size too large ({})",
+                    map.getClass().getName(), map.size());
+        }
+
+        final ProtoLongToLongMap.Builder protoMapBuilder = ProtoLongToLongMap.newBuilder();
+        final ProtoLongArray.Builder keysBuilder = ProtoLongArray.newBuilder();
+        final ProtoLongArray.Builder valuesBuilder = ProtoLongArray.newBuilder();
+        for (long slot = 0; slot < map.capacity(); slot++)
+        {
+            final long key = map.keyAt(slot);
+            if (key != LongToLongOpenHashMap.FREE_KEY)
+            {
+                keysBuilder.addElements(key);
+                valuesBuilder.addElements(map.valueAt(slot));
+            }
+        }
+        protoMapBuilder.setKeys(keysBuilder);
+        protoMapBuilder.setValues(valuesBuilder);
+        if (map.getName() != null)
+        {
+            protoMapBuilder.setName(map.getName());
+        }
+        return protoMapBuilder.build().toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+package org.openstreetmap.atlas.proto.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.index.PackedRTree;
+import org.openstreetmap.atlas.proto.ProtoPackedRTree;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+
+import com.google.common.primitives.Longs;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Implements the {@link ProtoAdapter} interface to connect {@link PackedRTree} and
+ * {@link ProtoPackedRTree}.
+ *
+ * @author agent
+ */
+public class ProtoPackedRTreeAdapter implements ProtoAdapter
+{
+    private static LongArray toLongArray(final int count, final Iterable<Long> elements)
+    {
+        final LongArray result = new LongArray(count, count, count);
+        elements.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public ProtoSerializable deserialize(final byte[] byteArray)
+    {
+        ProtoPackedRTree protoPackedRTree = null;
+        try
+        {
+            protoPackedRTree = ProtoPackedRTree.parseFrom(byteArray);
+        }
+        catch (final InvalidProtocolBufferException exception)
+        {
+            throw new CoreException("Error encountered while parsing protobuf bytestream",
+                    exception);
+        }
+        return new PackedRTree(protoPackedRTree.getNodeSize(),
+                Longs.toArray(protoPackedRTree.getLevelBoundsList()),
+                toLongArray(protoPackedRTree.getBoxesCount(), protoPackedRTree.getBoxesList()),
+                toLongArray(protoPackedRTree.getIndicesCount(),
+                        protoPackedRTree.getIndicesList()));
+    }
+
+    @Override
+    public byte[] serialize(final ProtoSerializable serializable)
+    {
+        if (!(serializable instanceof PackedRTree))
+        {
+            throw new CoreException(
+                    "Invalid ProtoSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final PackedRTree packedRTree = (PackedRTree) serializable;
+
+        if (packedRTree.getBoxes().size() > Integer.MAX_VALUE)
+        {
+            throw new CoreException("Cannot serialize {}, size too large ({})",
+                    packedRTree.getClass().getName(), packedRTree.size());
+        }
+
+        final ProtoPackedRTree.Builder protoPackedRTreeBuilder = ProtoPackedRTree.newBuilder();
+        protoPackedRTreeBuilder.setNodeSize(packedRTree.getNodeSize());
+        protoPackedRTreeBuilder.addAllLevelBounds(Longs.asList(packedRTree.getLevelBounds()));
+        for (final long box : packedRTree.getBoxes())
+        {
+            protoPackedRTreeBuilder.addBoxes(box);
+        }
+        for (final long index : packedRTree.getIndices())
+        {
+            protoPackedRTreeBuilder.addIndices(index);
+        }
+        return protoPackedRTreeBuilder.build().toByteArray();
+    }
+}
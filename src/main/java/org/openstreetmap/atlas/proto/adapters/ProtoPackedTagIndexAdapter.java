@@ -0,0 +1,82 @@
+package org.openstreetmap.atlas.proto.adapters;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedTagIndex;
+import org.openstreetmap.atlas.proto.ProtoPackedTagIndex;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.utilities.arrays.LongArray;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Implements the {@link ProtoAdapter} interface to connect {@link PackedTagIndex} and
+ * {@link ProtoPackedTagIndex}.
+ *
+ * @author agent
+ */
+public class ProtoPackedTagIndexAdapter implements ProtoAdapter
+{
+    private static LongArray toLongArray(final int count, final Iterable<Long> elements)
+    {
+        final int blockSize = Math.max(1, count);
+        final LongArray result = new LongArray(count, blockSize, blockSize);
+        elements.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public ProtoSerializable deserialize(final byte[] byteArray)
+    {
+        ProtoPackedTagIndex protoPackedTagIndex = null;
+        try
+        {
+            protoPackedTagIndex = ProtoPackedTagIndex.parseFrom(byteArray);
+        }
+        catch (final InvalidProtocolBufferException exception)
+        {
+            throw new CoreException("Error encountered while parsing protobuf bytestream",
+                    exception);
+        }
+        return new PackedTagIndex(protoPackedTagIndex.getSize(),
+                toLongArray(protoPackedTagIndex.getEntriesCount(),
+                        protoPackedTagIndex.getEntriesList()),
+                toLongArray(protoPackedTagIndex.getOffsetsCount(),
+                        protoPackedTagIndex.getOffsetsList()),
+                toLongArray(protoPackedTagIndex.getDataCount(), protoPackedTagIndex.getDataList()));
+    }
+
+    @Override
+    public byte[] serialize(final ProtoSerializable serializable)
+    {
+        if (!(serializable instanceof PackedTagIndex))
+        {
+            throw new CoreException(
+                    "Invalid ProtoSerializable type was provided to {}: cannot serialize {}",
+                    this.getClass().getName(), serializable.getClass().getName());
+        }
+        final PackedTagIndex packedTagIndex = (PackedTagIndex) serializable;
+
+        if (packedTagIndex.getData().size() > Integer.MAX_VALUE)
+        {
+            throw new CoreException("Cannot serialize {}, size too large ({})",
+                    packedTagIndex.getClass().getName(), packedTagIndex.getData().size());
+        }
+
+        final ProtoPackedTagIndex.Builder protoPackedTagIndexBuilder = ProtoPackedTagIndex
+                .newBuilder();
+        protoPackedTagIndexBuilder.setSize(packedTagIndex.size());
+        for (final long entry : packedTagIndex.getEntries())
+        {
+            protoPackedTagIndexBuilder.addEntries(entry);
+        }
+        for (final long offset : packedTagIndex.getOffsets())
+        {
+            protoPackedTagIndexBuilder.addOffsets(offset);
+        }
+        for (final long word : packedTagIndex.getData())
+        {
+            protoPackedTagIndexBuilder.addData(word);
+        }
+        return protoPackedTagIndexBuilder.build().toByteArray();
+    }
+}
@@ -91,6 +91,23 @@ public class ProtoPackedTagStoreAdapter implements ProtoAdapter
                     store.getClass().getName(), exception);
         }
 
+        // Legacy stores do not say whether their keys are sorted, the store finds out on first use
+        if (protoStore.hasSortedKeys())
+        {
+            try
+            {
+                final Field sortedKeysField = store.getClass()
+                        .getDeclaredField(PackedTagStore.FIELD_SORTED_KEYS);
+                sortedKeysField.setAccessible(true);
+                sortedKeysField.set(store, protoStore.getSortedKeys());
+            }
+            catch (final Exception exception)
+            {
+                throw new CoreException("Unable to set field \"{}\" in {}",
+                        PackedTagStore.FIELD_SORTED_KEYS, store.getClass().getName(), exception);
+            }
+        }
+
         return store;
     }
 
@@ -113,6 +130,7 @@ public class ProtoPackedTagStoreAdapter implements ProtoAdapter
         IntegerArrayOfArrays valueArray = null;
         Field indexField = null;
         Long index = -1L;
+        Boolean sortedKeys = null;
 
         try
         {
@@ -150,6 +168,19 @@ public class ProtoPackedTagStoreAdapter implements ProtoAdapter
                     PackedTagStore.FIELD_INDEX, store.getClass().getName(), exception);
         }
 
+        try
+        {
+            final Field sortedKeysField = store.getClass()
+                    .getDeclaredField(PackedTagStore.FIELD_SORTED_KEYS);
+            sortedKeysField.setAccessible(true);
+            sortedKeys = (Boolean) sortedKeysField.get(store);
+        }
+        catch (final Exception exception)
+        {
+            throw new CoreException("Unable to read field \"{}\" from {}",
+                    PackedTagStore.FIELD_SORTED_KEYS, store.getClass().getName(), exception);
+        }
+
         try
         {
             protoTagStoreBuilder.setKeys(CONVERTER.backwardConvert(keyArray));
@@ -169,6 +200,10 @@ public class ProtoPackedTagStoreAdapter implements ProtoAdapter
                     exception);
         }
         protoTagStoreBuilder.setIndex(index);
+        if (sortedKeys != null)
+        {
+            protoTagStoreBuilder.setSortedKeys(sortedKeys);
+        }
 
         return protoTagStoreBuilder.build().toByteArray();
     }
@@ -0,0 +1,423 @@
+package org.openstreetmap.atlas.proto.converters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.builder.RelationBean;
+import org.openstreetmap.atlas.geography.atlas.builder.RelationBean.RelationBeanItem;
+import org.openstreetmap.atlas.geography.atlas.change.ChangeType;
+import org.openstreetmap.atlas.geography.atlas.change.FeatureChange;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteArea;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteEdge;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteEntity;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteLine;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteNode;
+import org.openstreetmap.atlas.geography.atlas.complete.CompletePoint;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteRelation;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.ItemType;
+import org.openstreetmap.atlas.geography.atlas.items.Relation;
+import org.openstreetmap.atlas.proto.ProtoCompleteEntity;
+import org.openstreetmap.atlas.proto.ProtoCompleteIdentifiers;
+import org.openstreetmap.atlas.proto.ProtoCompleteLocations;
+import org.openstreetmap.atlas.proto.ProtoCompleteMembers;
+import org.openstreetmap.atlas.proto.ProtoCompleteTags;
+import org.openstreetmap.atlas.proto.ProtoFeatureChange;
+import org.openstreetmap.atlas.proto.ProtoRelation;
+import org.openstreetmap.atlas.proto.ProtoTag;
+import org.openstreetmap.atlas.utilities.conversion.TwoWayConverter;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Converts back and forth between ProtoFeatureChange and {@link FeatureChange}. The null fields of
+ * the {@link CompleteEntity} views are kept null, so that partial views survive the round trip.
+ * The nodes and original tags that a {@link FeatureChange} computes from an atlas context are not
+ * converted.
+ *
+ * @author agent
+ */
+public class ProtoFeatureChangeConverter
+        implements TwoWayConverter<ProtoFeatureChange, FeatureChange>
+{
+    private static final ProtoLocationConverter LOCATION_CONVERTER = new ProtoLocationConverter();
+    private static final ProtoTagListConverter TAG_CONVERTER = new ProtoTagListConverter();
+
+    private static Rectangle bounds(final ProtoCompleteEntity protoEntity)
+    {
+        if (!protoEntity.hasLowerLeft() || !protoEntity.hasUpperRight())
+        {
+            return null;
+        }
+        return Rectangle.forCorners(LOCATION_CONVERTER.convert(protoEntity.getLowerLeft()),
+                LOCATION_CONVERTER.convert(protoEntity.getUpperRight()));
+    }
+
+    private static <T extends Geometry> T fromWkb(final ByteString wkb, final Class<T> type)
+    {
+        try
+        {
+            return type.cast(new WKBReader().read(wkb.toByteArray()));
+        }
+        catch (final ParseException | ClassCastException e)
+        {
+            throw new CoreException("Unable to read {} from WKB", e, type.getSimpleName());
+        }
+    }
+
+    private static ByteString toWkb(final Geometry geometry)
+    {
+        return ByteString.copyFrom(new WKBWriter().write(geometry));
+    }
+
+    private static ProtoCompleteIdentifiers identifiers(final Collection<Long> identifiers)
+    {
+        return ProtoCompleteIdentifiers.newBuilder().addAllIdentifiers(identifiers).build();
+    }
+
+    private static ProtoCompleteLocations locations(final Iterable<Location> locations)
+    {
+        final ProtoCompleteLocations.Builder builder = ProtoCompleteLocations.newBuilder();
+        locations.forEach(location -> builder.addLocations(location.asConcatenation()));
+        return builder.build();
+    }
+
+    private static List<Location> locations(final ProtoCompleteLocations locations)
+    {
+        return locations.getLocationsList().stream().map(Location::new)
+                .collect(Collectors.toList());
+    }
+
+    private static RelationBean members(final ProtoCompleteMembers members)
+    {
+        final RelationBean result = new RelationBean();
+        members.getMembersList().forEach(member -> result.addItem(relationBeanItem(member)));
+        members.getExplicitlyExcludedList()
+                .forEach(member -> result.addItemExplicitlyExcluded(relationBeanItem(member)));
+        return result;
+    }
+
+    private static ProtoCompleteMembers members(final RelationBean members)
+    {
+        final ProtoCompleteMembers.Builder builder = ProtoCompleteMembers.newBuilder();
+        members.forEach(member -> builder.addMembers(relationBean(member)));
+        members.getExplicitlyExcluded()
+                .forEach(member -> builder.addExplicitlyExcluded(relationBean(member)));
+        return builder.build();
+    }
+
+    private static ProtoRelation.RelationBean relationBean(final RelationBeanItem item)
+    {
+        return ProtoRelation.RelationBean.newBuilder().setMemberId(item.getIdentifier())
+                .setMemberRole(item.getRole())
+                .setMemberType(ProtoRelation.ProtoItemType.valueOf(item.getType().getValue()))
+                .build();
+    }
+
+    private static RelationBeanItem relationBeanItem(final ProtoRelation.RelationBean bean)
+    {
+        return new RelationBeanItem(bean.getMemberId(), bean.getMemberRole(),
+                ItemType.forValue(bean.getMemberType().getNumber()));
+    }
+
+    private static ProtoCompleteTags tags(final Map<String, String> tags)
+    {
+        return ProtoCompleteTags.newBuilder().addAllTags(TAG_CONVERTER.backwardConvert(tags))
+                .build();
+    }
+
+    @Override
+    public ProtoFeatureChange backwardConvert(final FeatureChange featureChange)
+    {
+        final ProtoFeatureChange.Builder builder = ProtoFeatureChange.newBuilder();
+        builder.setChangeType(
+                ProtoFeatureChange.ProtoChangeType.valueOf(featureChange.getChangeType().name()));
+        builder.setAfterView(entity(featureChange.getAfterView()));
+        if (featureChange.getBeforeView() != null)
+        {
+            builder.setBeforeView(entity(featureChange.getBeforeView()));
+        }
+        builder.addAllMetaData(TAG_CONVERTER.backwardConvert(featureChange.getMetaData()));
+        featureChange.getOptions().forEach(option -> builder.addOptions(option.name()));
+        featureChange.getOsc().ifPresent(builder::setOsc);
+        return builder.build();
+    }
+
+    @Override
+    public FeatureChange convert(final ProtoFeatureChange protoFeatureChange)
+    {
+        final FeatureChange result = new FeatureChange(
+                ChangeType.valueOf(protoFeatureChange.getChangeType().name()),
+                entity(protoFeatureChange.getAfterView()),
+                protoFeatureChange.hasBeforeView() ? entity(protoFeatureChange.getBeforeView())
+                        : null);
+        for (final ProtoTag metaData : protoFeatureChange.getMetaDataList())
+        {
+            result.addMetaData(metaData.getKey(), metaData.getValue());
+        }
+        result.setOptions(protoFeatureChange.getOptionsList().stream()
+                .map(FeatureChange.Options::valueOf).toArray(FeatureChange.Options[]::new));
+        if (protoFeatureChange.hasOsc())
+        {
+            result.withOsc(protoFeatureChange.getOsc());
+        }
+        return result;
+    }
+
+    private ProtoCompleteEntity entity(final AtlasEntity entity)
+    {
+        final ProtoCompleteEntity.Builder builder = ProtoCompleteEntity.newBuilder();
+        final ItemType type = entity.getType();
+        builder.setType(ProtoRelation.ProtoItemType.valueOf(type.getValue()));
+        builder.setId(entity.getIdentifier());
+        final Rectangle bounds = entity.bounds();
+        if (bounds != null)
+        {
+            builder.setLowerLeft(LOCATION_CONVERTER.backwardConvert(bounds.lowerLeft()));
+            builder.setUpperRight(LOCATION_CONVERTER.backwardConvert(bounds.upperRight()));
+        }
+        final CompleteEntity<?> completeEntity = (CompleteEntity<?>) entity;
+        if (completeEntity.getTags() != null)
+        {
+            builder.setTags(tags(completeEntity.getTags()));
+        }
+        if (completeEntity.relationIdentifiers() != null)
+        {
+            builder.setRelationIdentifiers(identifiers(completeEntity.relationIdentifiers()));
+        }
+        switch (type)
+        {
+            case NODE:
+                final CompleteNode node = (CompleteNode) entity;
+                if (node.getLocation() != null)
+                {
+                    builder.setGeometry(locations(node.getGeometry()));
+                }
+                if (node.inEdgeIdentifiers() != null)
+                {
+                    builder.setInEdgeIdentifiers(identifiers(node.inEdgeIdentifiers()));
+                }
+                if (node.outEdgeIdentifiers() != null)
+                {
+                    builder.setOutEdgeIdentifiers(identifiers(node.outEdgeIdentifiers()));
+                }
+                builder.addAllExplicitlyExcludedInEdgeIdentifiers(
+                        node.explicitlyExcludedInEdgeIdentifiers());
+                builder.addAllExplicitlyExcludedOutEdgeIdentifiers(
+                        node.explicitlyExcludedOutEdgeIdentifiers());
+                break;
+            case POINT:
+                final CompletePoint point = (CompletePoint) entity;
+                if (point.getLocation() != null)
+                {
+                    builder.setGeometry(locations(point.getGeometry()));
+                }
+                break;
+            case EDGE:
+                final CompleteEdge edge = (CompleteEdge) entity;
+                if (edge.asPolyLine() != null)
+                {
+                    builder.setGeometry(locations(edge.asPolyLine()));
+                }
+                if (edge.geometricRelationIdentifiers() != null)
+                {
+                    builder.setGeometricRelationIdentifiers(
+                            identifiers(edge.geometricRelationIdentifiers()));
+                }
+                if (edge.startNodeIdentifier() != null)
+                {
+                    builder.setStartNodeIdentifier(edge.startNodeIdentifier());
+                }
+                if (edge.endNodeIdentifier() != null)
+                {
+                    builder.setEndNodeIdentifier(edge.endNodeIdentifier());
+                }
+                break;
+            case LINE:
+                final CompleteLine line = (CompleteLine) entity;
+                if (line.asPolyLine() != null)
+                {
+                    builder.setGeometry(locations(line.asPolyLine()));
+                }
+                if (line.geometricRelationIdentifiers() != null)
+                {
+                    builder.setGeometricRelationIdentifiers(
+                            identifiers(line.geometricRelationIdentifiers()));
+                }
+                break;
+            case AREA:
+                final CompleteArea area = (CompleteArea) entity;
+                if (area.asPolygon() != null)
+                {
+                    builder.setGeometry(locations(area.asPolygon()));
+                }
+                if (area.geometricRelationIdentifiers() != null)
+                {
+                    builder.setGeometricRelationIdentifiers(
+                            identifiers(area.geometricRelationIdentifiers()));
+                }
+                break;
+            case RELATION:
+                relation(builder, (CompleteRelation) entity);
+                break;
+            default:
+                throw new CoreException("Unknown ItemType {}", type);
+        }
+        return builder.build();
+    }
+
+    private AtlasEntity entity(final ProtoCompleteEntity protoEntity)
+    {
+        final ItemType type = ItemType.forValue(protoEntity.getType().getNumber());
+        if (type == ItemType.RELATION)
+        {
+            return relation(protoEntity);
+        }
+        final CompleteEntity<?> result = (CompleteEntity<?>) CompleteEntity.shallowFrom(type,
+                protoEntity.getId());
+        if (protoEntity.hasTags())
+        {
+            result.setTags(TAG_CONVERTER.convert(protoEntity.getTags().getTagsList()));
+        }
+        if (protoEntity.hasRelationIdentifiers())
+        {
+            result.withRelationIdentifiers(new HashSet<>(
+                    protoEntity.getRelationIdentifiers().getIdentifiersList()));
+        }
+        if (protoEntity.hasGeometry())
+        {
+            result.withGeometry(locations(protoEntity.getGeometry()));
+        }
+        final Set<Long> geometricRelationIdentifiers = protoEntity
+                .hasGeometricRelationIdentifiers()
+                        ? new HashSet<>(protoEntity.getGeometricRelationIdentifiers()
+                                .getIdentifiersList())
+                        : null;
+        final Rectangle bounds = bounds(protoEntity);
+        switch (type)
+        {
+            case NODE:
+                final CompleteNode node = (CompleteNode) result;
+                if (protoEntity.hasInEdgeIdentifiers())
+                {
+                    node.withInEdgeIdentifiers(new TreeSet<>(
+                            protoEntity.getInEdgeIdentifiers().getIdentifiersList()));
+                }
+                if (protoEntity.hasOutEdgeIdentifiers())
+                {
+                    node.withOutEdgeIdentifiers(new TreeSet<>(
+                            protoEntity.getOutEdgeIdentifiers().getIdentifiersList()));
+                }
+                node.setExplicitlyExcludedInEdgeIdentifiers(
+                        new HashSet<>(protoEntity.getExplicitlyExcludedInEdgeIdentifiersList()));
+                node.setExplicitlyExcludedOutEdgeIdentifiers(
+                        new HashSet<>(protoEntity.getExplicitlyExcludedOutEdgeIdentifiersList()));
+                return bounds == null ? node : node.withBoundsExtendedBy(bounds);
+            case POINT:
+                final CompletePoint point = (CompletePoint) result;
+                return bounds == null ? point : point.withBoundsExtendedBy(bounds);
+            case EDGE:
+                final CompleteEdge edge = (CompleteEdge) result;
+                edge.withGeometricRelationIdentifiers(geometricRelationIdentifiers);
+                if (protoEntity.hasStartNodeIdentifier())
+                {
+                    edge.withStartNodeIdentifier(protoEntity.getStartNodeIdentifier());
+                }
+                if (protoEntity.hasEndNodeIdentifier())
+                {
+                    edge.withEndNodeIdentifier(protoEntity.getEndNodeIdentifier());
+                }
+                return bounds == null ? edge : edge.withBoundsExtendedBy(bounds);
+            case LINE:
+                final CompleteLine line = (CompleteLine) result;
+                line.withGeometricRelationIdentifiers(geometricRelationIdentifiers);
+                return bounds == null ? line : line.withBoundsExtendedBy(bounds);
+            case AREA:
+                final CompleteArea area = (CompleteArea) result;
+                area.withGeometricRelationIdentifiers(geometricRelationIdentifiers);
+                return bounds == null ? area : area.withBoundsExtendedBy(bounds);
+            default:
+                throw new CoreException("Unknown ItemType {}", type);
+        }
+    }
+
+    private CompleteRelation relation(final ProtoCompleteEntity protoEntity)
+    {
+        final MultiPolygon storedGeometry = protoEntity.hasStoredGeometry()
+                ? fromWkb(protoEntity.getStoredGeometry(), MultiPolygon.class)
+                : null;
+        final CompleteRelation result = new CompleteRelation(protoEntity.getId(),
+                protoEntity.hasTags()
+                        ? TAG_CONVERTER.convert(protoEntity.getTags().getTagsList())
+                        : null,
+                bounds(protoEntity),
+                protoEntity.hasMembers() ? members(protoEntity.getMembers()) : null,
+                protoEntity.hasAllRelationsWithSameOsmIdentifier()
+                        ? new ArrayList<>(protoEntity.getAllRelationsWithSameOsmIdentifier()
+                                .getIdentifiersList())
+                        : null,
+                protoEntity.hasAllKnownOsmMembers() ? members(protoEntity.getAllKnownOsmMembers())
+                        : null,
+                protoEntity.hasOsmRelationIdentifier() ? protoEntity.getOsmRelationIdentifier()
+                        : null,
+                protoEntity.hasRelationIdentifiers()
+                        ? new HashSet<>(protoEntity.getRelationIdentifiers().getIdentifiersList())
+                        : null,
+                storedGeometry);
+        if (protoEntity.getOverrideGeometry())
+        {
+            // This also updates the bounds, so put the stored bounds back
+            result.withMultiPolygonGeometry(storedGeometry).withBounds(bounds(protoEntity));
+        }
+        return result.withMemberGeometryChanges(
+                protoEntity.getAddedGeometryList().stream()
+                        .map(wkb -> fromWkb(wkb, LineString.class)).collect(Collectors.toList()),
+                protoEntity.getRemovedGeometryList().stream()
+                        .map(wkb -> fromWkb(wkb, LineString.class)).collect(Collectors.toList()));
+    }
+
+    private void relation(final ProtoCompleteEntity.Builder builder,
+            final CompleteRelation relation)
+    {
+        if (relation.members() != null)
+        {
+            builder.setMembers(members(relation.members().asBean()));
+        }
+        final List<Relation> allRelationsWithSameOsmIdentifier = relation
+                .allRelationsWithSameOsmIdentifier();
+        if (allRelationsWithSameOsmIdentifier != null)
+        {
+            builder.setAllRelationsWithSameOsmIdentifier(
+                    identifiers(allRelationsWithSameOsmIdentifier.stream()
+                            .map(Relation::getIdentifier).collect(Collectors.toList())));
+        }
+        if (relation.allKnownOsmMembers() != null)
+        {
+            builder.setAllKnownOsmMembers(members(relation.allKnownOsmMembers().asBean()));
+        }
+        if (relation.osmRelationIdentifier() != null)
+        {
+            builder.setOsmRelationIdentifier(relation.osmRelationIdentifier());
+        }
+        relation.asMultiPolygon().ifPresent(geometry -> builder.setStoredGeometry(toWkb(geometry)));
+        builder.setOverrideGeometry(relation.isOverrideGeometry());
+        relation.getAddedGeometry().forEach(geometry -> builder.addAddedGeometry(toWkb(geometry)));
+        relation.getRemovedGeometry()
+                .forEach(geometry -> builder.addRemovedGeometry(toWkb(geometry)));
+    }
+}
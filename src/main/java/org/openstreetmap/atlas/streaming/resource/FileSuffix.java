@@ -14,6 +14,7 @@ public enum FileSuffix
 {
     ATLAS(".atlas"),
     CHANGESET(".cs"),
+    CONTRACTION_HIERARCHY(".ch"),
     CSV(".csv"),
     GEO_JSON(".geojson"),
     GZIP(".gz"),
@@ -0,0 +1,28 @@
+package org.openstreetmap.atlas.tags.cache;
+
+import org.openstreetmap.atlas.tags.Taggable;
+
+/**
+ * A {@link Taggable} whose tag keys and values are stored as indices in a dictionary shared with
+ * other {@link Taggable}s, like the entities of a
+ * {@link org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas PackedAtlas}. {@link Tagger}
+ * uses the {@link EnumTagTables} of the dictionary to resolve enum tags from the value index,
+ * without reading the value as a {@link String}.
+ *
+ * @author agent
+ */
+public interface DictionaryTaggable extends Taggable
+{
+    /**
+     * @return The {@link EnumTagTables} of the dictionary this {@link Taggable} uses
+     */
+    EnumTagTables getEnumTagTables();
+
+    /**
+     * @param keyIndex
+     *            The dictionary index of a tag key
+     * @return The dictionary index of the value of that key, or a negative number if this
+     *         {@link Taggable} does not have the key
+     */
+    int getTagValueIndex(int keyIndex);
+}
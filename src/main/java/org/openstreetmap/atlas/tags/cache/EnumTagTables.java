@@ -0,0 +1,134 @@
+package org.openstreetmap.atlas.tags.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Tables that resolve enum tags from the dictionary indices of a {@link DictionaryTaggable}, one
+ * table per enum tag class. Each table remembers the dictionary index of the tag key, and maps the
+ * dictionary index of each value to its enum value. Once a value has been seen, resolving it again
+ * is a probe of the entity's tags for the key index followed by an array read.
+ * <p>
+ * The tables are filled as the values are met, using the {@link Tagger} that asks for them, so
+ * resolving an enum tag gives the same result as with the {@link String} value. The dictionary may
+ * only grow: the index of a word never changes, so the resolved entries stay valid.
+ *
+ * @author agent
+ */
+public class EnumTagTables
+{
+    /**
+     * The table of one enum tag class
+     *
+     * @param <T>
+     *            The type of enum tag
+     * @author agent
+     */
+    private static final class EnumTagTable<T extends Enum<T>>
+    {
+        private final Tagger<T> tagger;
+        private final ToIntFunction<String> wordIndex;
+        private final IntSupplier numberOfWords;
+        private volatile int keyIndex;
+        // Null until the value at that dictionary index has been resolved
+        private volatile Optional<T>[] values;
+
+        @SuppressWarnings("unchecked")
+        EnumTagTable(final Tagger<T> tagger, final ToIntFunction<String> wordIndex,
+                final IntSupplier numberOfWords)
+        {
+            this.tagger = tagger;
+            this.wordIndex = wordIndex;
+            this.numberOfWords = numberOfWords;
+            this.keyIndex = wordIndex.applyAsInt(tagger.getTagName());
+            this.values = (Optional<T>[]) new Optional<?>[numberOfWords.getAsInt()];
+        }
+
+        Optional<T> from(final DictionaryTaggable taggable)
+        {
+            int key = this.keyIndex;
+            if (key < 0)
+            {
+                // The key might have been added to the dictionary since
+                key = this.wordIndex.applyAsInt(this.tagger.getTagName());
+                if (key < 0)
+                {
+                    return Optional.empty();
+                }
+                this.keyIndex = key;
+            }
+            final int valueIndex = taggable.getTagValueIndex(key);
+            if (valueIndex < 0)
+            {
+                return Optional.empty();
+            }
+            Optional<T>[] table = this.values;
+            if (valueIndex >= table.length)
+            {
+                table = grow(valueIndex);
+            }
+            Optional<T> result = table[valueIndex];
+            if (result == null)
+            {
+                // Racing threads resolve the same value, so the last write wins harmlessly
+                result = this.tagger.resolve(taggable);
+                table[valueIndex] = result;
+            }
+            return result;
+        }
+
+        private synchronized Optional<T>[] grow(final int valueIndex)
+        {
+            if (valueIndex >= this.values.length)
+            {
+                this.values = Arrays.copyOf(this.values,
+                        Math.max(valueIndex + 1, this.numberOfWords.getAsInt()));
+            }
+            return this.values;
+        }
+    }
+
+    private final ToIntFunction<String> wordIndex;
+    private final IntSupplier numberOfWords;
+    private final Map<Class<?>, EnumTagTable<?>> tables = new ConcurrentHashMap<>();
+
+    /**
+     * @param wordIndex
+     *            Look up the dictionary index of a word, negative if the word is not in the
+     *            dictionary
+     * @param numberOfWords
+     *            The current size of the dictionary
+     */
+    public EnumTagTables(final ToIntFunction<String> wordIndex, final IntSupplier numberOfWords)
+    {
+        this.wordIndex = wordIndex;
+        this.numberOfWords = numberOfWords;
+    }
+
+    /**
+     * @param <T>
+     *            The type of enum tag
+     * @param tagger
+     *            The {@link Tagger} of the enum tag, used the first time a value is met
+     * @param taggable
+     *            The source of the tag value index
+     * @return The enum value of the tag, or empty if the tag is missing or has no matching enum
+     *         value
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Enum<T>> Optional<T> from(final Tagger<T> tagger,
+            final DictionaryTaggable taggable)
+    {
+        EnumTagTable<?> table = this.tables.get(tagger.getType());
+        if (table == null)
+        {
+            table = this.tables.computeIfAbsent(tagger.getType(),
+                    type -> new EnumTagTable<>(tagger, this.wordIndex, this.numberOfWords));
+        }
+        return ((EnumTagTable<T>) table).from(taggable);
+    }
+}
@@ -14,6 +14,8 @@ import com.google.common.cache.CacheBuilder;
 /**
  * Cache for Tags of certain type. For applications that check tags on big numbers of objects, it
  * would save time to cache associations between tag names and their representative Enum values.
+ * {@link DictionaryTaggable}s skip the tag names, and resolve the Enum values from the dictionary
+ * indices of the tag values through their {@link EnumTagTables}.
  *
  * @author gpogulsky
  * @author sbhalekar
@@ -40,6 +42,33 @@ public class Tagger<T extends Enum<T>> implements Serializable
     }
 
     public Optional<T> getTag(final Taggable taggable)
+    {
+        if (taggable instanceof DictionaryTaggable)
+        {
+            final DictionaryTaggable dictionaryTaggable = (DictionaryTaggable) taggable;
+            return dictionaryTaggable.getEnumTagTables().from(this, dictionaryTaggable);
+        }
+        return resolve(taggable);
+    }
+
+    String getTagName()
+    {
+        return this.tagName;
+    }
+
+    Class<T> getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Resolve the tag from its {@link String} value
+     *
+     * @param taggable
+     *            The source of the tag value
+     * @return The enum value of the tag, if any
+     */
+    Optional<T> resolve(final Taggable taggable)
     {
         final Optional<String> possibleTagValue = taggable.getTag(this.tagName);
         if (possibleTagValue.isPresent())
@@ -0,0 +1,36 @@
+package org.openstreetmap.atlas.tags.filters;
+
+import java.util.function.Predicate;
+
+import org.openstreetmap.atlas.utilities.arrays.IndexBitmap;
+
+/**
+ * Inverted index from tags to the indices of the {@link org.openstreetmap.atlas.tags.Taggable}s
+ * that have them. A {@link TaggableFilter} can be evaluated against it with
+ * {@link TaggableFilter#evaluate(TagIndex)}, without testing each taggable.
+ *
+ * @author agent
+ */
+public interface TagIndex
+{
+    /**
+     * @return The indices of all the taggables
+     */
+    IndexBitmap all();
+
+    /**
+     * @param key
+     *            The tag key
+     * @return The indices of the taggables that have the key, with any value
+     */
+    IndexBitmap withKey(String key);
+
+    /**
+     * @param key
+     *            The tag key
+     * @param valueMatcher
+     *            The matcher of the tag values
+     * @return The indices of the taggables that have the key, with a value that matches
+     */
+    IndexBitmap withValue(String key, Predicate<String> valueMatcher);
+}
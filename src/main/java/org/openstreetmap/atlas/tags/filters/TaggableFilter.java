@@ -9,6 +9,8 @@ import java.util.function.Predicate;
 import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.tags.Taggable;
 import org.openstreetmap.atlas.tags.filters.matcher.TaggableMatcher;
+import org.openstreetmap.atlas.utilities.arrays.IndexBitmap;
+import org.openstreetmap.atlas.utilities.collections.StringList;
 
 /**
  * {@link Taggable} filter that relies on a String definition
@@ -70,6 +72,7 @@ public class TaggableFilter implements Predicate<Taggable>, Serializable
 
     private static final long serialVersionUID = 5697377487014951158L;
     private static final String ERROR_MESSAGE = "Unknown TreeBoolean {}";
+    private static final String KEY_VALUE_SEPARATOR = "->";
 
     private final List<TaggableFilter> children;
     private final TreeBoolean treeBoolean;
@@ -121,6 +124,57 @@ public class TaggableFilter implements Predicate<Taggable>, Serializable
         return new TaggableFilterToMatcherConverter().convert(this);
     }
 
+    /**
+     * Find all the taggables of a {@link TagIndex} that this filter accepts, with bitmap operations
+     * instead of a test of each taggable. Each simple definition only looks at the value of its
+     * key, so its matching values are found by testing each value of that key in the index once,
+     * and the taggables without the key are added when the definition accepts a missing key.
+     *
+     * @param index
+     *            The index of the tags of the taggables
+     * @return The indices of the taggables that {@link #test(Taggable)} accepts, or empty if this
+     *         filter has a predicate that cannot be evaluated against an index
+     */
+    public Optional<IndexBitmap> evaluate(final TagIndex index)
+    {
+        if (this.simple != null)
+        {
+            return evaluateSimple(index);
+        }
+        if (this.children.isEmpty())
+        {
+            throw new CoreException("Malformed predicate {}", this);
+        }
+        IndexBitmap result = null;
+        for (final TaggableFilter child : this.children)
+        {
+            final Optional<IndexBitmap> childResult = child.evaluate(index);
+            if (!childResult.isPresent())
+            {
+                return Optional.empty();
+            }
+            if (result == null)
+            {
+                result = childResult.get();
+            }
+            else
+            {
+                switch (this.treeBoolean)
+                {
+                    case AND:
+                        result = result.intersection(childResult.get());
+                        break;
+                    case OR:
+                        result = result.union(childResult.get());
+                        break;
+                    default:
+                        throw new CoreException(ERROR_MESSAGE, this);
+                }
+            }
+        }
+        return Optional.of(result);
+    }
+
     @Override
     public boolean test(final Taggable taggable)
     {
@@ -168,4 +222,29 @@ public class TaggableFilter implements Predicate<Taggable>, Serializable
     {
         return this.treeBoolean;
     }
+
+    private Optional<IndexBitmap> evaluateSimple(final TagIndex index)
+    {
+        if (this.definition == null)
+        {
+            return Optional.empty();
+        }
+        if (this.definition.isEmpty())
+        {
+            return Optional.of(index.all());
+        }
+        final StringList split = StringList.split(this.definition, KEY_VALUE_SEPARATOR);
+        if (split.size() != 2)
+        {
+            return Optional.empty();
+        }
+        final String key = split.get(0);
+        IndexBitmap result = index.withValue(key,
+                value -> this.simple.test(Taggable.with(key, value)));
+        if (this.simple.test(Taggable.with()))
+        {
+            result = result.union(index.all().difference(index.withKey(key)));
+        }
+        return Optional.of(result);
+    }
 }
@@ -0,0 +1,413 @@
+package org.openstreetmap.atlas.utilities.arrays;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Polygon;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedFlatPolyLineArrayAdapter;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoFlatPolyLineArrayAdapter;
+import org.openstreetmap.atlas.utilities.scalars.Angle;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Array of {@link PolyLine}s (or {@link Polygon}s) stored as flat dm7 coordinates. Each vertex is
+ * a pair of ints, the dm7 latitude and dm7 longitude, concatenated in a long like
+ * {@link Location#asConcatenation()}. The vertices of all the shapes are stored one after the
+ * other, with the offset of each shape, and the bounding box of each shape is cached.
+ * <p>
+ * Unlike the {@link PolyLineArray}, the length, bounds, vertices and rectangle intersections of a
+ * shape can be read without decoding it into {@link Location}s.
+ *
+ * @author agent
+ */
+public class FlatPolyLineArray implements Serializable, ProtoSerializable, MappedSerializable
+{
+    /**
+     * Consumer of the dm7 coordinates of a vertex.
+     *
+     * @author agent
+     */
+    @FunctionalInterface
+    public interface VertexConsumer
+    {
+        void accept(int latitude, int longitude);
+    }
+
+    private static final long serialVersionUID = 6425086384283569513L;
+    private static final double EARTH_RADIUS_MILLIMETERS = Distance.AVERAGE_EARTH_RADIUS
+            .asMillimeters();
+
+    private final boolean polygons;
+    // The offset of the first vertex of each shape, followed by the total number of vertices
+    private final LongArray offsets;
+    private final LongArray coordinates;
+    // The lower left and upper right corners of each shape
+    private final LongArray bounds;
+
+    /**
+     * Flatten shapes
+     *
+     * @param size
+     *            The number of shapes
+     * @param shapes
+     *            The shape at each index
+     * @param polygons
+     *            True if the shapes are {@link Polygon}s, which are closed implicitly
+     * @return The flat array of the shapes
+     */
+    public static FlatPolyLineArray build(final long size,
+            final LongFunction<? extends PolyLine> shapes, final boolean polygons)
+    {
+        final LongArray offsets = newArray(size + 1);
+        final LongArray bounds = newArray(2 * size);
+        long vertices = 0L;
+        for (long index = 0; index < size; index++)
+        {
+            final PolyLine shape = shapes.apply(index);
+            offsets.add(vertices);
+            vertices += shape.size();
+            final Rectangle shapeBounds = shape.bounds();
+            bounds.add(shapeBounds.lowerLeft().asConcatenation());
+            bounds.add(shapeBounds.upperRight().asConcatenation());
+        }
+        offsets.add(vertices);
+        final LongArray coordinates = newArray(vertices);
+        for (long index = 0; index < size; index++)
+        {
+            shapes.apply(index).forEach(location -> coordinates.add(location.asConcatenation()));
+        }
+        return new FlatPolyLineArray(polygons, offsets, coordinates, bounds);
+    }
+
+    private static int latitude(final long concatenation)
+    {
+        return (int) (concatenation >>> Integer.SIZE);
+    }
+
+    private static int longitude(final long concatenation)
+    {
+        return (int) concatenation;
+    }
+
+    private static LongArray newArray(final long size)
+    {
+        final int blockSize = (int) Math.max(1, Math.min(size, MappedBlock.MAXIMUM_MAPPED_LONGS));
+        return new LongArray(size, blockSize, blockSize);
+    }
+
+    /**
+     * @return The sign of the turn from the segment (start, end) to the point, positive to the
+     *         left. The longitudes are the x axis. Each product fits in a long.
+     */
+    private static int orientation(final int startLatitude, final int startLongitude,
+            final int endLatitude, final int endLongitude, final int latitude,
+            final int longitude)
+    {
+        return Long.compare(
+                ((long) endLongitude - startLongitude) * ((long) latitude - startLatitude),
+                ((long) endLatitude - startLatitude) * ((long) longitude - startLongitude));
+    }
+
+    /**
+     * A segment intersects a rectangle when their bounding boxes overlap and the rectangle corners
+     * are not all strictly on the same side of the segment.
+     */
+    private static boolean segmentIntersects(final int startLatitude, final int startLongitude,
+            final int endLatitude, final int endLongitude, final int minimumLatitude,
+            final int minimumLongitude, final int maximumLatitude, final int maximumLongitude)
+    {
+        if (Math.max(startLatitude, endLatitude) < minimumLatitude
+                || Math.min(startLatitude, endLatitude) > maximumLatitude
+                || Math.max(startLongitude, endLongitude) < minimumLongitude
+                || Math.min(startLongitude, endLongitude) > maximumLongitude)
+        {
+            return false;
+        }
+        final int lowerLeft = orientation(startLatitude, startLongitude, endLatitude,
+                endLongitude, minimumLatitude, minimumLongitude);
+        final int lowerRight = orientation(startLatitude, startLongitude, endLatitude,
+                endLongitude, minimumLatitude, maximumLongitude);
+        final int upperLeft = orientation(startLatitude, startLongitude, endLatitude,
+                endLongitude, maximumLatitude, minimumLongitude);
+        final int upperRight = orientation(startLatitude, startLongitude, endLatitude,
+                endLongitude, maximumLatitude, maximumLongitude);
+        return !(lowerLeft > 0 && lowerRight > 0 && upperLeft > 0 && upperRight > 0
+                || lowerLeft < 0 && lowerRight < 0 && upperLeft < 0 && upperRight < 0);
+    }
+
+    /**
+     * @return The distance between two locations, in millimeters, exactly as
+     *         {@link Location#distanceTo(Location)} computes it
+     */
+    private static double segmentMillimeters(final int startLatitude, final int startLongitude,
+            final int endLatitude, final int endLongitude)
+    {
+        final double lat1 = startLatitude / Angle.DM7_PER_RADIAN_DOUBLE;
+        final double lon1 = startLongitude / Angle.DM7_PER_RADIAN_DOUBLE;
+        final double lat2 = endLatitude / Angle.DM7_PER_RADIAN_DOUBLE;
+        final double lon2 = endLongitude / Angle.DM7_PER_RADIAN_DOUBLE;
+        final double angle;
+        if (Math.abs((long) startLongitude - endLongitude) > Angle.REVOLUTION_DM7 / 2)
+        {
+            // Haversine, across the antimeridian
+            final double hav = Math.pow(Math.sin((lat2 - lat1) / 2), 2)
+                    + Math.cos(lat1) * Math.cos(lat2) * Math.pow(Math.sin((lon2 - lon1) / 2), 2);
+            angle = 2 * Math.atan2(Math.sqrt(hav), Math.sqrt(1 - hav));
+        }
+        else
+        {
+            // Equirectangular
+            final double xAxis = (lon2 - lon1) * Math.cos((lat1 + lat2) / 2);
+            final double yAxis = lat2 - lat1;
+            angle = Math.sqrt(xAxis * xAxis + yAxis * yAxis);
+        }
+        return Math.round(EARTH_RADIUS_MILLIMETERS * angle);
+    }
+
+    public FlatPolyLineArray(final boolean polygons, final LongArray offsets,
+            final LongArray coordinates, final LongArray bounds)
+    {
+        this.polygons = polygons;
+        this.offsets = offsets;
+        this.coordinates = coordinates;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Nullary constructor for the PackedAtlasSerializer, which needs a handle to get the adapters
+     * of this type. The object is not usable otherwise.
+     */
+    @SuppressWarnings("unused")
+    private FlatPolyLineArray()
+    {
+        this(false, null, null, null);
+    }
+
+    /**
+     * @param index
+     *            The shape index
+     * @return The cached bounding box of the shape
+     */
+    public Rectangle bounds(final long index)
+    {
+        return Rectangle.forCorners(new Location(this.bounds.get(2 * index)),
+                new Location(this.bounds.get(2 * index + 1)));
+    }
+
+    /**
+     * Visit the vertices of a shape, without creating {@link Location}s. The first vertex of a
+     * polygon is not repeated at the end.
+     *
+     * @param index
+     *            The shape index
+     * @param consumer
+     *            The consumer of the dm7 latitude and longitude of each vertex
+     */
+    public void forEachVertex(final long index, final VertexConsumer consumer)
+    {
+        final long end = this.offsets.get(index + 1);
+        for (long position = this.offsets.get(index); position < end; position++)
+        {
+            final long vertex = this.coordinates.get(position);
+            consumer.accept(latitude(vertex), longitude(vertex));
+        }
+    }
+
+    public LongArray getBounds()
+    {
+        return this.bounds;
+    }
+
+    public LongArray getCoordinates()
+    {
+        return this.coordinates;
+    }
+
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedFlatPolyLineArrayAdapter();
+    }
+
+    public LongArray getOffsets()
+    {
+        return this.offsets;
+    }
+
+    @Override
+    public ProtoAdapter getProtoAdapter()
+    {
+        return new ProtoFlatPolyLineArrayAdapter();
+    }
+
+    /**
+     * Test if a shape intersects a {@link Rectangle}, with the same result as
+     * {@link Rectangle#overlaps(PolyLine)} on the decoded shape, using integer arithmetic on the
+     * dm7 coordinates. A polygon also intersects a rectangle that it contains.
+     *
+     * @param index
+     *            The shape index
+     * @param rectangle
+     *            The rectangle
+     * @return True if the shape intersects the rectangle
+     */
+    public boolean intersects(final long index, final Rectangle rectangle)
+    {
+        final int minimumLatitude = (int) rectangle.lowerLeft().getLatitude().asDm7();
+        final int minimumLongitude = (int) rectangle.lowerLeft().getLongitude().asDm7();
+        final int maximumLatitude = (int) rectangle.upperRight().getLatitude().asDm7();
+        final int maximumLongitude = (int) rectangle.upperRight().getLongitude().asDm7();
+        final long lowerLeft = this.bounds.get(2 * index);
+        final long upperRight = this.bounds.get(2 * index + 1);
+        if (latitude(lowerLeft) > maximumLatitude || latitude(upperRight) < minimumLatitude
+                || longitude(lowerLeft) > maximumLongitude
+                || longitude(upperRight) < minimumLongitude)
+        {
+            return false;
+        }
+        final long start = this.offsets.get(index);
+        final long end = this.offsets.get(index + 1);
+        long previous = this.coordinates.get(this.polygons ? end - 1 : start);
+        for (long position = start; position < end; position++)
+        {
+            final long vertex = this.coordinates.get(position);
+            final int latitude = latitude(vertex);
+            final int longitude = longitude(vertex);
+            if (latitude >= minimumLatitude && latitude <= maximumLatitude
+                    && longitude >= minimumLongitude && longitude <= maximumLongitude)
+            {
+                return true;
+            }
+            if (segmentIntersects(latitude(previous), longitude(previous), latitude, longitude,
+                    minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude))
+            {
+                return true;
+            }
+            previous = vertex;
+        }
+        // No vertex is in the rectangle, and no segment crosses it: the only way left is for a
+        // polygon to contain the whole rectangle.
+        return this.polygons && ringContains(start, end, minimumLatitude, minimumLongitude);
+    }
+
+    public boolean isPolygons()
+    {
+        return this.polygons;
+    }
+
+    /**
+     * @param index
+     *            The shape index
+     * @param vertex
+     *            The vertex index in the shape
+     * @return The dm7 latitude of the vertex
+     */
+    public int latitude(final long index, final int vertex)
+    {
+        return latitude(this.coordinates.get(this.offsets.get(index) + vertex));
+    }
+
+    /**
+     * @param index
+     *            The shape index
+     * @return The length of the shape, equal to {@link PolyLine#length()} of the decoded shape
+     */
+    public Distance length(final long index)
+    {
+        final long start = this.offsets.get(index);
+        final long end = this.offsets.get(index + 1);
+        double millimeters = 0;
+        long previous = this.coordinates.get(this.polygons ? end - 1 : start);
+        for (long position = this.polygons ? start : start + 1; position < end; position++)
+        {
+            final long vertex = this.coordinates.get(position);
+            millimeters += segmentMillimeters(latitude(previous), longitude(previous),
+                    latitude(vertex), longitude(vertex));
+            previous = vertex;
+        }
+        return Distance.millimeters(millimeters);
+    }
+
+    /**
+     * @param index
+     *            The shape index
+     * @param vertex
+     *            The vertex index in the shape
+     * @return The dm7 longitude of the vertex
+     */
+    public int longitude(final long index, final int vertex)
+    {
+        return longitude(this.coordinates.get(this.offsets.get(index) + vertex));
+    }
+
+    /**
+     * @param index
+     *            The shape index
+     * @return The number of vertices of the shape
+     */
+    public int numberOfVertices(final long index)
+    {
+        return (int) (this.offsets.get(index + 1) - this.offsets.get(index));
+    }
+
+    /**
+     * @param index
+     *            The shape index
+     * @return The decoded shape, a {@link Polygon} if this array holds polygons
+     */
+    public PolyLine polyLine(final long index)
+    {
+        final long end = this.offsets.get(index + 1);
+        final List<Location> locations = new ArrayList<>(numberOfVertices(index));
+        for (long position = this.offsets.get(index); position < end; position++)
+        {
+            locations.add(new Location(this.coordinates.get(position)));
+        }
+        return this.polygons ? new Polygon(locations) : new PolyLine(locations);
+    }
+
+    /**
+     * @return The number of shapes
+     */
+    public long size()
+    {
+        return this.offsets.size() - 1;
+    }
+
+    /**
+     * Even-odd test of a point against the ring of a polygon, with exact integer comparisons.
+     */
+    private boolean ringContains(final long start, final long end, final int latitude,
+            final int longitude)
+    {
+        boolean inside = false;
+        long previous = this.coordinates.get(end - 1);
+        for (long position = start; position < end; position++)
+        {
+            final long vertex = this.coordinates.get(position);
+            final int startLatitude = latitude(previous);
+            final int endLatitude = latitude(vertex);
+            if (startLatitude > latitude != endLatitude > latitude)
+            {
+                final int side = orientation(startLatitude, longitude(previous), endLatitude,
+                        longitude(vertex), latitude, longitude);
+                if (endLatitude > startLatitude ? side > 0 : side < 0)
+                {
+                    inside = !inside;
+                }
+            }
+            previous = vertex;
+        }
+        return inside;
+    }
+}
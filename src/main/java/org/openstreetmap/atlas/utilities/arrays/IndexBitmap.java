@@ -0,0 +1,563 @@
+package org.openstreetmap.atlas.utilities.arrays;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.openstreetmap.atlas.exception.CoreException;
+
+/**
+ * Immutable compressed set of non-negative array indices, in the spirit of roaring bitmaps. The
+ * indices are grouped by their upper bits in containers of 65536 indices. A sparse container is a
+ * sorted array of the lower 16 bits, and a dense container is a bitset. Set operations go container
+ * by container, so their cost follows the number of indices rather than the range they span.
+ * <p>
+ * Bitmaps are created with a {@link Builder}, or read back from the long layout written by
+ * {@link #write(LongConsumer)}.
+ *
+ * @author agent
+ */
+public final class IndexBitmap
+{
+    /**
+     * Builds an {@link IndexBitmap} from indices added in increasing order.
+     *
+     * @author agent
+     */
+    public static class Builder
+    {
+        private final Containers containers = new Containers(1);
+        private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+        private int count = 0;
+        private long high = -1L;
+
+        /**
+         * @param index
+         *            The index to add. It has to be larger than or equal to the last index added.
+         * @return This builder
+         */
+        public Builder add(final long index)
+        {
+            final long indexHigh = index >>> CONTAINER_BITS;
+            if (index < 0 || indexHigh < this.high)
+            {
+                throw new CoreException("Index {} is negative or not added in increasing order",
+                        index);
+            }
+            if (indexHigh != this.high)
+            {
+                flush();
+                this.high = indexHigh;
+            }
+            final char low = (char) (index & LOW_MASK);
+            if (this.count > 0 && this.buffer[this.count - 1] >= low)
+            {
+                if (this.buffer[this.count - 1] == low)
+                {
+                    return this;
+                }
+                throw new CoreException("Index {} is not added in increasing order", index);
+            }
+            if (this.count == this.buffer.length)
+            {
+                this.buffer = Arrays.copyOf(this.buffer,
+                        Math.min(CONTAINER_SIZE, this.buffer.length * 2));
+            }
+            this.buffer[this.count++] = low;
+            return this;
+        }
+
+        public IndexBitmap build()
+        {
+            flush();
+            return this.containers.toBitmap();
+        }
+
+        private void flush()
+        {
+            if (this.count > 0)
+            {
+                this.containers.addSorted(Math.toIntExact(this.high),
+                        Arrays.copyOf(this.buffer, this.count));
+                this.count = 0;
+            }
+        }
+    }
+
+    /**
+     * Growable list of containers, that becomes an {@link IndexBitmap}.
+     *
+     * @author agent
+     */
+    private static class Containers
+    {
+        private int[] highs;
+        private char[][] arrays;
+        private long[][] bitsets;
+        private int[] cardinalities;
+        private int count = 0;
+
+        Containers(final int capacity)
+        {
+            final int size = Math.max(1, capacity);
+            this.highs = new int[size];
+            this.arrays = new char[size][];
+            this.bitsets = new long[size][];
+            this.cardinalities = new int[size];
+        }
+
+        void add(final int high, final char[] array, final long[] bitset, final int cardinality)
+        {
+            if (cardinality == 0)
+            {
+                return;
+            }
+            if (this.count == this.highs.length)
+            {
+                final int size = this.count * 2;
+                this.highs = Arrays.copyOf(this.highs, size);
+                this.arrays = Arrays.copyOf(this.arrays, size);
+                this.bitsets = Arrays.copyOf(this.bitsets, size);
+                this.cardinalities = Arrays.copyOf(this.cardinalities, size);
+            }
+            this.highs[this.count] = high;
+            this.arrays[this.count] = array;
+            this.bitsets[this.count] = bitset;
+            this.cardinalities[this.count] = cardinality;
+            this.count++;
+        }
+
+        void addBitset(final int high, final long[] bitset)
+        {
+            int cardinality = 0;
+            for (final long word : bitset)
+            {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality > ARRAY_LIMIT)
+            {
+                add(high, null, bitset, cardinality);
+                return;
+            }
+            final char[] array = new char[cardinality];
+            int position = 0;
+            for (int word = 0; word < WORDS; word++)
+            {
+                long bits = bitset[word];
+                while (bits != 0)
+                {
+                    array[position++] = (char) ((word << WORD_SHIFT)
+                            + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            add(high, array, null, cardinality);
+        }
+
+        void addSorted(final int high, final char[] array)
+        {
+            if (array.length > ARRAY_LIMIT)
+            {
+                add(high, null, toBitset(array, array.length), array.length);
+            }
+            else
+            {
+                add(high, array, null, array.length);
+            }
+        }
+
+        IndexBitmap toBitmap()
+        {
+            return new IndexBitmap(Arrays.copyOf(this.highs, this.count),
+                    Arrays.copyOf(this.arrays, this.count), Arrays.copyOf(this.bitsets, this.count),
+                    Arrays.copyOf(this.cardinalities, this.count));
+        }
+    }
+
+    private static final int CONTAINER_BITS = 16;
+    private static final int CONTAINER_SIZE = 1 << CONTAINER_BITS;
+    private static final long LOW_MASK = CONTAINER_SIZE - 1L;
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = (1 << WORD_SHIFT) - 1;
+    private static final int WORDS = CONTAINER_SIZE >>> WORD_SHIFT;
+    // Above this cardinality a bitset is smaller than a sorted array
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int INITIAL_BUFFER_SIZE = 16;
+    private static final int CHARS_PER_LONG = Long.SIZE / Character.SIZE;
+    private static final IndexBitmap EMPTY = new IndexBitmap(new int[0], new char[0][],
+            new long[0][], new int[0]);
+
+    private final int[] highs;
+    private final char[][] arrays;
+    private final long[][] bitsets;
+    private final int[] cardinalities;
+
+    /**
+     * @param size
+     *            The number of indices
+     * @return The bitmap of all the indices from 0 (inclusive) to size (exclusive)
+     */
+    public static IndexBitmap all(final long size)
+    {
+        final int containerCount = Math.toIntExact((size + LOW_MASK) >>> CONTAINER_BITS);
+        final Containers result = new Containers(containerCount);
+        for (int high = 0; high < containerCount; high++)
+        {
+            final long remaining = Math.min(CONTAINER_SIZE, size - ((long) high << CONTAINER_BITS));
+            final long[] bitset = new long[WORDS];
+            final int fullWords = (int) (remaining >>> WORD_SHIFT);
+            Arrays.fill(bitset, 0, fullWords, -1L);
+            if (fullWords < WORDS)
+            {
+                bitset[fullWords] = (1L << (remaining & WORD_MASK)) - 1L;
+            }
+            result.addBitset(high, bitset);
+        }
+        return result.toBitmap();
+    }
+
+    public static IndexBitmap empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * @param data
+     *            The array that contains the layout written by {@link #write(LongConsumer)}
+     * @param offset
+     *            The position of the layout in the array
+     * @return The bitmap read from the array
+     */
+    public static IndexBitmap read(final LongArray data, final long offset)
+    {
+        long position = offset;
+        final int count = Math.toIntExact(data.get(position++));
+        final Containers result = new Containers(count);
+        for (int container = 0; container < count; container++)
+        {
+            final long header = data.get(position++);
+            final int high = (int) (header >>> Integer.SIZE);
+            final int cardinality = (int) header;
+            if (cardinality > ARRAY_LIMIT)
+            {
+                final long[] bitset = new long[WORDS];
+                for (int word = 0; word < WORDS; word++)
+                {
+                    bitset[word] = data.get(position++);
+                }
+                result.add(high, null, bitset, cardinality);
+            }
+            else
+            {
+                final char[] array = new char[cardinality];
+                long packed = 0L;
+                for (int index = 0; index < cardinality; index++)
+                {
+                    if (index % CHARS_PER_LONG == 0)
+                    {
+                        packed = data.get(position++);
+                    }
+                    array[index] = (char) (packed >>> (index % CHARS_PER_LONG * Character.SIZE));
+                }
+                result.add(high, array, null, cardinality);
+            }
+        }
+        return result.toBitmap();
+    }
+
+    private static char[] merge(final char[] left, final char[] right,
+            final LongBinaryOperator operation)
+    {
+        final char[] result = new char[left.length + right.length];
+        int count = 0;
+        int leftIndex = 0;
+        int rightIndex = 0;
+        while (leftIndex < left.length || rightIndex < right.length)
+        {
+            final char value;
+            final long inLeft;
+            final long inRight;
+            if (rightIndex == right.length
+                    || leftIndex < left.length && left[leftIndex] < right[rightIndex])
+            {
+                value = left[leftIndex++];
+                inLeft = 1L;
+                inRight = 0L;
+            }
+            else if (leftIndex == left.length || right[rightIndex] < left[leftIndex])
+            {
+                value = right[rightIndex++];
+                inLeft = 0L;
+                inRight = 1L;
+            }
+            else
+            {
+                value = left[leftIndex++];
+                rightIndex++;
+                inLeft = 1L;
+                inRight = 1L;
+            }
+            if (operation.applyAsLong(inLeft, inRight) != 0L)
+            {
+                result[count++] = value;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long[] toBitset(final char[] array, final int length)
+    {
+        final long[] result = new long[WORDS];
+        for (int index = 0; index < length; index++)
+        {
+            result[array[index] >>> WORD_SHIFT] |= 1L << (array[index] & WORD_MASK);
+        }
+        return result;
+    }
+
+    private IndexBitmap(final int[] highs, final char[][] arrays, final long[][] bitsets,
+            final int[] cardinalities)
+    {
+        this.highs = highs;
+        this.arrays = arrays;
+        this.bitsets = bitsets;
+        this.cardinalities = cardinalities;
+    }
+
+    /**
+     * @return The number of indices in this bitmap
+     */
+    public long cardinality()
+    {
+        long result = 0L;
+        for (final int cardinality : this.cardinalities)
+        {
+            result += cardinality;
+        }
+        return result;
+    }
+
+    /**
+     * @param index
+     *            The index to look for
+     * @return True if this bitmap contains the index
+     */
+    public boolean contains(final long index)
+    {
+        if (index < 0)
+        {
+            return false;
+        }
+        final long high = index >>> CONTAINER_BITS;
+        if (high > Integer.MAX_VALUE)
+        {
+            return false;
+        }
+        final int container = Arrays.binarySearch(this.highs, (int) high);
+        if (container < 0)
+        {
+            return false;
+        }
+        final char low = (char) (index & LOW_MASK);
+        if (this.arrays[container] != null)
+        {
+            return Arrays.binarySearch(this.arrays[container], low) >= 0;
+        }
+        return (this.bitsets[container][low >>> WORD_SHIFT] & 1L << (low & WORD_MASK)) != 0L;
+    }
+
+    /**
+     * @param other
+     *            The other bitmap
+     * @return The indices of this bitmap that are not in the other bitmap
+     */
+    public IndexBitmap difference(final IndexBitmap other)
+    {
+        return combine(other, (left, right) -> left & ~right, true, false);
+    }
+
+    /**
+     * @param consumer
+     *            The consumer of all the indices of this bitmap, in increasing order
+     */
+    public void forEach(final LongConsumer consumer)
+    {
+        for (int container = 0; container < this.highs.length; container++)
+        {
+            final long base = (long) this.highs[container] << CONTAINER_BITS;
+            if (this.arrays[container] != null)
+            {
+                for (final char low : this.arrays[container])
+                {
+                    consumer.accept(base + low);
+                }
+            }
+            else
+            {
+                final long[] bitset = this.bitsets[container];
+                for (int word = 0; word < WORDS; word++)
+                {
+                    long bits = bitset[word];
+                    while (bits != 0L)
+                    {
+                        consumer.accept(base + (word << WORD_SHIFT)
+                                + Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1L;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param other
+     *            The other bitmap
+     * @return The indices that are in both bitmaps
+     */
+    public IndexBitmap intersection(final IndexBitmap other)
+    {
+        return combine(other, (left, right) -> left & right, false, false);
+    }
+
+    public boolean isEmpty()
+    {
+        return this.highs.length == 0;
+    }
+
+    /**
+     * @return The indices of this bitmap, in increasing order
+     */
+    public LongStream stream()
+    {
+        return IntStream.range(0, this.highs.length).boxed().flatMapToLong(container ->
+        {
+            final long base = (long) this.highs[container] << CONTAINER_BITS;
+            if (this.arrays[container] != null)
+            {
+                final char[] array = this.arrays[container];
+                return IntStream.range(0, array.length).mapToLong(index -> base + array[index]);
+            }
+            return BitSet.valueOf(this.bitsets[container]).stream()
+                    .mapToLong(low -> base + low);
+        });
+    }
+
+    @Override
+    public String toString()
+    {
+        return "IndexBitmap [cardinality=" + cardinality() + ", containers=" + this.highs.length
+                + "]";
+    }
+
+    /**
+     * @param other
+     *            The other bitmap
+     * @return The indices that are in either bitmap
+     */
+    public IndexBitmap union(final IndexBitmap other)
+    {
+        return combine(other, (left, right) -> left | right, true, true);
+    }
+
+    /**
+     * Write this bitmap as longs: the number of containers, then for each container a header with
+     * its upper bits and its cardinality, followed by either its sorted lower bits, four per long,
+     * or its bitset.
+     *
+     * @param output
+     *            The consumer of the longs
+     */
+    public void write(final LongConsumer output)
+    {
+        output.accept(this.highs.length);
+        for (int container = 0; container < this.highs.length; container++)
+        {
+            output.accept((long) this.highs[container] << Integer.SIZE
+                    | this.cardinalities[container]);
+            if (this.arrays[container] != null)
+            {
+                final char[] array = this.arrays[container];
+                long packed = 0L;
+                for (int index = 0; index < array.length; index++)
+                {
+                    packed |= (long) array[index] << (index % CHARS_PER_LONG * Character.SIZE);
+                    if (index % CHARS_PER_LONG == CHARS_PER_LONG - 1 || index == array.length - 1)
+                    {
+                        output.accept(packed);
+                        packed = 0L;
+                    }
+                }
+            }
+            else
+            {
+                for (final long word : this.bitsets[container])
+                {
+                    output.accept(word);
+                }
+            }
+        }
+    }
+
+    private long[] bitset(final int container)
+    {
+        return this.arrays[container] != null
+                ? toBitset(this.arrays[container], this.arrays[container].length)
+                : this.bitsets[container];
+    }
+
+    private IndexBitmap combine(final IndexBitmap other, final LongBinaryOperator operation,
+            final boolean keepLeft, final boolean keepRight)
+    {
+        final Containers result = new Containers(this.highs.length + other.highs.length);
+        int left = 0;
+        int right = 0;
+        while (left < this.highs.length || right < other.highs.length)
+        {
+            if (right == other.highs.length
+                    || left < this.highs.length && this.highs[left] < other.highs[right])
+            {
+                if (keepLeft)
+                {
+                    result.add(this.highs[left], this.arrays[left], this.bitsets[left],
+                            this.cardinalities[left]);
+                }
+                left++;
+            }
+            else if (left == this.highs.length || other.highs[right] < this.highs[left])
+            {
+                if (keepRight)
+                {
+                    result.add(other.highs[right], other.arrays[right], other.bitsets[right],
+                            other.cardinalities[right]);
+                }
+                right++;
+            }
+            else
+            {
+                final int high = this.highs[left];
+                if (this.arrays[left] != null && other.arrays[right] != null)
+                {
+                    result.addSorted(high,
+                            merge(this.arrays[left], other.arrays[right], operation));
+                }
+                else
+                {
+                    final long[] leftBits = this.bitset(left);
+                    final long[] rightBits = other.bitset(right);
+                    final long[] bitset = new long[WORDS];
+                    for (int word = 0; word < WORDS; word++)
+                    {
+                        bitset[word] = operation.applyAsLong(leftBits[word], rightBits[word]);
+                    }
+                    result.addBitset(high, bitset);
+                }
+                left++;
+                right++;
+            }
+        }
+        return result.toBitmap();
+    }
+}
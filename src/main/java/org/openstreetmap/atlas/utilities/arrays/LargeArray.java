@@ -76,6 +76,41 @@ public abstract class LargeArray<T> implements Iterable<T>, Serializable
         this.subArraySize = subArraySize;
     }
 
+    /**
+     * Create a full, read-only {@link LargeArray} around existing sub arrays, for example sub
+     * arrays read in place from a memory mapped file. Adding to it throws a
+     * {@link CoreException}.
+     *
+     * @param arrays
+     *            The sub arrays. All but the last one must have exactly subArraySize items.
+     * @param subArraySize
+     *            The size of the sub arrays
+     */
+    protected LargeArray(final List<PrimitiveArray<T>> arrays, final int subArraySize)
+    {
+        if (subArraySize <= 0)
+        {
+            throw new CoreException("subArraySize ({}) has to be positive", subArraySize);
+        }
+        long size = 0L;
+        for (int index = 0; index < arrays.size(); index++)
+        {
+            final int arraySize = arrays.get(index).size();
+            if (index < arrays.size() - 1 && arraySize != subArraySize
+                    || arraySize > subArraySize)
+            {
+                throw new CoreException("Sub array {} has size {}, expected {}", index, arraySize,
+                        subArraySize);
+            }
+            size += arraySize;
+        }
+        this.arrays = new ArrayList<>(arrays);
+        this.maximumSize = size;
+        this.nextIndex = size;
+        this.memoryBlockSize = subArraySize;
+        this.subArraySize = subArraySize;
+    }
+
     /**
      * This nullary constructor exists solely for subclasses of {@link LargeArray} that wish to
      * implement their own nullary constructor. These nullary constructors should only be used by
@@ -1,6 +1,13 @@
 package org.openstreetmap.atlas.utilities.arrays;
 
+import java.nio.LongBuffer;
+import java.util.List;
+
+import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongArrayAdapter;
 import org.openstreetmap.atlas.proto.ProtoSerializable;
 import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
 import org.openstreetmap.atlas.proto.adapters.ProtoLongArrayAdapter;
@@ -10,8 +17,54 @@ import org.openstreetmap.atlas.proto.adapters.ProtoLongArrayAdapter;
  *
  * @author matthieun
  */
-public class LongArray extends LargeArray<Long> implements ProtoSerializable
+public class LongArray extends LargeArray<Long> implements ProtoSerializable, MappedSerializable
 {
+    /**
+     * Read-only {@link PrimitiveArray} for type {@link Long}, backed by a {@link LongBuffer} that
+     * is usually memory mapped.
+     *
+     * @author agent
+     */
+    public static final class MappedPrimitiveLongArray extends PrimitiveArray<Long>
+    {
+        private static final long serialVersionUID = -2316434591458931372L;
+        private final transient LongBuffer buffer;
+
+        public MappedPrimitiveLongArray(final LongBuffer buffer)
+        {
+            super(buffer.capacity());
+            this.buffer = buffer;
+        }
+
+        @Override
+        public Long get(final int index)
+        {
+            return this.buffer.get(index);
+        }
+
+        @Override
+        public PrimitiveArray<Long> getNewArray(final int size)
+        {
+            return new PrimitiveLongArray(size);
+        }
+
+        @Override
+        public void set(final int index, final Long item)
+        {
+            throw new CoreException("Cannot set {} at {}: mapped array is read-only", item, index);
+        }
+
+        /**
+         * Java serialization writes a heap copy, as the buffer cannot be serialized.
+         *
+         * @return A heap copy of this array
+         */
+        private Object writeReplace()
+        {
+            return withNewSize(size());
+        }
+    }
+
     /**
      * {@link PrimitiveArray} for type {@link Long}
      *
@@ -47,6 +100,8 @@ public class LongArray extends LargeArray<Long> implements ProtoSerializable
     }
 
     private static final long serialVersionUID = -6368556371326217582L;
+    // Number of interpolation probes in sortedIndexOf, before falling back to bisection
+    private static final int INTERPOLATION_PROBES = 3;
 
     public LongArray(final long maximumSize)
     {
@@ -58,6 +113,19 @@ public class LongArray extends LargeArray<Long> implements ProtoSerializable
         super(maximumSize, memoryBlockSize, subArraySize);
     }
 
+    /**
+     * Create a full, read-only {@link LongArray} around existing sub arrays
+     *
+     * @param arrays
+     *            The sub arrays. All but the last one must have exactly subArraySize items.
+     * @param subArraySize
+     *            The size of the sub arrays
+     */
+    public LongArray(final List<PrimitiveArray<Long>> arrays, final int subArraySize)
+    {
+        super(arrays, subArraySize);
+    }
+
     /**
      * This nullary constructor is solely for use by the {@link PackedAtlasSerializer}, which calls
      * it using reflection. It allows the serializer code to obtain a handle on a {@link LongArray}
@@ -70,12 +138,85 @@ public class LongArray extends LargeArray<Long> implements ProtoSerializable
         super();
     }
 
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedLongArrayAdapter();
+    }
+
     @Override
     public ProtoAdapter getProtoAdapter()
     {
         return new ProtoLongArrayAdapter();
     }
 
+    /**
+     * @return True if each item of this array is strictly greater than the previous one
+     */
+    public boolean isStrictlyIncreasing()
+    {
+        final long size = size();
+        for (long index = 1; index < size; index++)
+        {
+            if (get(index - 1) >= get(index))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find a value in this array, which has to be sorted in strictly increasing order. The first
+     * probes interpolate the position of the value between the bounds of the searched range, which
+     * finds evenly spread values like sequential identifiers in a couple of reads. The search then
+     * falls back to bisection, so it never reads more than a binary search would, plus those
+     * probes.
+     *
+     * @param value
+     *            The value to find
+     * @return The index of that value, or -1 if it is not in this array
+     */
+    public long sortedIndexOf(final long value)
+    {
+        long low = 0;
+        long high = size() - 1;
+        int probes = 0;
+        while (low <= high)
+        {
+            final long lowValue = get(low);
+            final long highValue = get(high);
+            if (value < lowValue || value > highValue)
+            {
+                return -1L;
+            }
+            final long middle;
+            if (probes++ < INTERPOLATION_PROBES && highValue > lowValue)
+            {
+                middle = low + (long) (((double) value - lowValue) / ((double) highValue - lowValue)
+                        * (high - low));
+            }
+            else
+            {
+                middle = (low + high) >>> 1;
+            }
+            final long middleValue = get(middle);
+            if (middleValue == value)
+            {
+                return middle;
+            }
+            if (middleValue < value)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return -1L;
+    }
+
     @Override
     protected PrimitiveArray<Long> getNewArray(final int size)
     {
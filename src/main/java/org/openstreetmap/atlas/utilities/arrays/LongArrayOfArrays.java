@@ -1,8 +1,14 @@
 package org.openstreetmap.atlas.utilities.arrays;
 
+import java.nio.LongBuffer;
+import java.util.List;
 import java.util.Objects;
 
+import org.openstreetmap.atlas.exception.CoreException;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongArrayOfArraysAdapter;
 import org.openstreetmap.atlas.proto.ProtoSerializable;
 import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
 import org.openstreetmap.atlas.proto.adapters.ProtoLongArrayOfArraysAdapter;
@@ -13,8 +19,76 @@ import org.openstreetmap.atlas.proto.adapters.ProtoLongArrayOfArraysAdapter;
  * @author matthieun
  * @author lcram
  */
-public class LongArrayOfArrays extends LargeArray<long[]> implements ProtoSerializable
+public class LongArrayOfArrays extends LargeArray<long[]>
+        implements ProtoSerializable, MappedSerializable
 {
+    /**
+     * Read-only {@link PrimitiveArray} for type long[], backed by {@link LongBuffer}s that are
+     * usually memory mapped. All the sub arrays are stored contiguously in one values buffer, and
+     * the offsets buffer has one more item than there are sub arrays, so that sub array i spans
+     * from offsets[i] to offsets[i + 1] in the values buffer.
+     *
+     * @author agent
+     */
+    public static final class MappedPrimitiveLongArrayArray extends PrimitiveArray<long[]>
+    {
+        private static final long serialVersionUID = 3853934911046582231L;
+        private final transient LongBuffer offsets;
+        private final transient LongBuffer values;
+        private final long firstOffset;
+
+        /**
+         * @param offsets
+         *            The offsets of each sub array in the values, plus the end offset of the last
+         *            one. Offsets are relative to the start of the values buffer, after
+         *            subtraction of the first offset.
+         * @param values
+         *            The concatenated sub arrays
+         */
+        public MappedPrimitiveLongArrayArray(final LongBuffer offsets, final LongBuffer values)
+        {
+            super(offsets.capacity() - 1);
+            this.offsets = offsets;
+            this.values = values;
+            this.firstOffset = offsets.get(0);
+        }
+
+        @Override
+        public long[] get(final int index)
+        {
+            final int start = (int) (this.offsets.get(index) - this.firstOffset);
+            final int end = (int) (this.offsets.get(index + 1) - this.firstOffset);
+            final long[] result = new long[end - start];
+            for (int valueIndex = 0; valueIndex < result.length; valueIndex++)
+            {
+                result[valueIndex] = this.values.get(start + valueIndex);
+            }
+            return result;
+        }
+
+        @Override
+        public PrimitiveArray<long[]> getNewArray(final int size)
+        {
+            return new PrimitiveLongArrayArray(size);
+        }
+
+        @Override
+        public void set(final int index, final long[] item)
+        {
+            throw new CoreException("Cannot set item at {}: mapped array is read-only", index);
+        }
+
+        /**
+         * Java serialization writes a heap copy, as the buffers cannot be serialized.
+         *
+         * @return A heap copy of this array
+         */
+        private Object writeReplace()
+        {
+            return withNewSize(size());
+        }
+    }
+
     /**
      * {@link PrimitiveArray} for type {@link Long}
      *
@@ -62,6 +136,19 @@ public class LongArrayOfArrays extends LargeArray<long[]> implements ProtoSerial
         super(maximumSize, memoryBlockSize, subArraySize);
     }
 
+    /**
+     * Create a full, read-only {@link LongArrayOfArrays} around existing sub arrays
+     *
+     * @param arrays
+     *            The sub arrays. All but the last one must have exactly subArraySize items.
+     * @param subArraySize
+     *            The size of the sub arrays
+     */
+    public LongArrayOfArrays(final List<PrimitiveArray<long[]>> arrays, final int subArraySize)
+    {
+        super(arrays, subArraySize);
+    }
+
     /**
      * This nullary constructor is solely for use by the {@link PackedAtlasSerializer}, which calls
      * it using reflection. It allows the serializer code to obtain a handle on a
@@ -114,6 +201,12 @@ public class LongArrayOfArrays extends LargeArray<long[]> implements ProtoSerial
         return false;
     }
 
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedLongArrayOfArraysAdapter();
+    }
+
     @Override
     public ProtoAdapter getProtoAdapter()
     {
@@ -1,8 +1,13 @@
 package org.openstreetmap.atlas.utilities.caching;
 
 import java.net.URI;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 
 import org.openstreetmap.atlas.streaming.resource.Resource;
@@ -23,6 +28,12 @@ import org.slf4j.LoggerFactory;
  * extend it and overload the {@link ConcurrentResourceCache#get} method to take more convenient
  * parameters.
  * </p>
+ * <p>
+ * Loading is single-flight per {@link URI}: while a thread fetches a resource, the other threads
+ * asking for the same {@link URI} wait for it, and then find the resource in the cache. Threads
+ * asking for different {@link URI}s do not wait for each other, so the {@link CachingStrategy} and
+ * the fetcher must tolerate being called concurrently for different {@link URI}s.
+ * </p>
  *
  * @author lcram
  */
@@ -33,6 +44,10 @@ public class ConcurrentResourceCache implements ResourceCache
     private final CachingStrategy cachingStrategy;
     private final Function<URI, Optional<Resource>> fetcher;
     private final UUID cacheID;
+    // The loads in progress, completed when the load of their URI is done
+    private final Map<URI, CompletableFuture<Void>> loads = new ConcurrentHashMap<>();
+    // Fetches share the read lock, a full invalidation takes the write lock
+    private final ReadWriteLock invalidationLock = new ReentrantReadWriteLock();
 
     /**
      * Create a new {@link ConcurrentResourceCache} with the given fetcher and strategy.
@@ -54,29 +69,26 @@ public class ConcurrentResourceCache implements ResourceCache
     @Override
     public Optional<Resource> get(final URI resourceURI)
     {
-        Optional<Resource> cachedResource;
-
-        // We must synchronize the application of the caching strategy since we cannot guarantee
-        // that the strategy does not utilize internal global state.
-        synchronized (this)
+        this.invalidationLock.readLock().lock();
+        final CompletableFuture<Void> load = this.startLoad(resourceURI);
+        try
         {
-            cachedResource = this.cachingStrategy.attemptFetch(resourceURI, this.fetcher);
-        }
-
-        if (cachedResource.isEmpty())
-        {
-            logger.warn("CacheID {}: cache fetch of {} failed, falling back to default fetcher...",
-                    this.cacheID, resourceURI);
-
-            // We must also synchronize the application of the fetcher, since it may rely on state
-            // shared by the calling threads.
-            synchronized (this)
+            Optional<Resource> cachedResource = this.cachingStrategy.attemptFetch(resourceURI,
+                    this.fetcher);
+            if (cachedResource.isEmpty())
             {
+                logger.warn(
+                        "CacheID {}: cache fetch of {} failed, falling back to default fetcher...",
+                        this.cacheID, resourceURI);
                 cachedResource = this.fetcher.apply(resourceURI);
             }
+            return cachedResource;
+        }
+        finally
+        {
+            this.endLoad(resourceURI, load);
+            this.invalidationLock.readLock().unlock();
         }
-
-        return cachedResource;
     }
 
     /**
@@ -93,24 +105,35 @@ public class ConcurrentResourceCache implements ResourceCache
     public void invalidate()
     {
         logger.info("CacheID {}: invalidating cache", this.cacheID);
-        // Synchronize invalidation with the same lock used to fetch and cache. This prevents
-        // invalidation corruption.
-        synchronized (this)
+        // Wait for the loads in progress, and hold the new ones until the invalidation is done.
+        // This prevents invalidation corruption.
+        this.invalidationLock.writeLock().lock();
+        try
         {
             this.cachingStrategy.invalidate();
         }
+        finally
+        {
+            this.invalidationLock.writeLock().unlock();
+        }
     }
 
     @Override
     public void invalidate(final URI resourceURI)
     {
         logger.info("CacheID {}: invalidating resource {}", this.cacheID, resourceURI);
-        // Synchronize invalidation with the same lock used to fetch and cache. This prevents
-        // invalidation corruption.
-        synchronized (this)
+        // Take the place of a load of the same resource. This prevents invalidation corruption.
+        this.invalidationLock.readLock().lock();
+        final CompletableFuture<Void> load = this.startLoad(resourceURI);
+        try
         {
             this.cachingStrategy.invalidate(resourceURI);
         }
+        finally
+        {
+            this.endLoad(resourceURI, load);
+            this.invalidationLock.readLock().unlock();
+        }
     }
 
     /**
@@ -122,4 +145,30 @@ public class ConcurrentResourceCache implements ResourceCache
     {
         return this.cacheID;
     }
+
+    private void endLoad(final URI resourceURI, final CompletableFuture<Void> load)
+    {
+        this.loads.remove(resourceURI, load);
+        load.complete(null);
+    }
+
+    /**
+     * Wait for the load of the same {@link URI} in progress in another thread, if any, and register
+     * a new load in its place.
+     *
+     * @param resourceURI
+     *            the {@link URI} to load
+     * @return the load to complete with {@link #endLoad(URI, CompletableFuture)}
+     */
+    private CompletableFuture<Void> startLoad(final URI resourceURI)
+    {
+        final CompletableFuture<Void> load = new CompletableFuture<>();
+        CompletableFuture<Void> other = this.loads.putIfAbsent(resourceURI, load);
+        while (other != null)
+        {
+            other.join();
+            other = this.loads.putIfAbsent(resourceURI, load);
+        }
+        return load;
+    }
 }
@@ -2,6 +2,7 @@ package org.openstreetmap.atlas.utilities.caching.strategies;
 
 import java.net.URI;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -16,6 +17,8 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractCachingStrategy implements CachingStrategy
 {
+    protected static final String EXTENSION_SEPARATOR = ".";
+
     private static final Logger logger = LoggerFactory.getLogger(AbstractCachingStrategy.class);
 
     /*
@@ -27,6 +30,36 @@ public abstract class AbstractCachingStrategy implements CachingStrategy
 
     private final UUID strategyID;
 
+    /**
+     * Get the file extension of a {@link URI}, i.e. whatever follows its last '.'. Strategies that
+     * store resources as files can use it to keep the extension, which resource loaders and
+     * decompressors may rely on.
+     *
+     * @param resourceURI
+     *            the {@link URI}
+     * @return the extension, or empty if the {@link URI} has none
+     */
+    protected static Optional<String> getFileExtension(final URI resourceURI)
+    {
+        final String asciiString = resourceURI.toASCIIString();
+        final int lastIndexOfDot = asciiString.lastIndexOf(EXTENSION_SEPARATOR);
+
+        if (lastIndexOfDot < 0)
+        {
+            return Optional.empty();
+        }
+
+        final String extension = asciiString.substring(lastIndexOfDot + 1);
+        if (extension.isEmpty())
+        {
+            return Optional.empty();
+        }
+        else
+        {
+            return Optional.of(extension);
+        }
+    }
+
     public AbstractCachingStrategy()
     {
         this.uriStringToUUIDCache = new ConcurrentHashMap<>();
@@ -1,7 +1,6 @@
 package org.openstreetmap.atlas.utilities.caching.strategies;
 
 import java.net.URI;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -12,8 +11,17 @@ import org.openstreetmap.atlas.streaming.resource.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+
 /**
- * Caching strategy that attempts to cache a {@link Resource} in a byte array, in memory.
+ * Caching strategy that attempts to cache a {@link Resource} in a byte array, in memory. By default
+ * the resources are kept until they are invalidated. With {@link #withMaximumCapacity(long)} the
+ * total length of the cached resources is bounded, and the least recently used resources are
+ * evicted to make room for new ones. The hits, misses and evictions are recorded in
+ * {@link #getStatistics()}.
  *
  * @author lcram
  */
@@ -25,13 +33,18 @@ public class ByteArrayCachingStrategy extends AbstractCachingStrategy
     private static final long DEFAULT_BYTE_ARRAY_SIZE = 1024L * 1024 * 2;
     private static final Logger logger = LoggerFactory.getLogger(ByteArrayCachingStrategy.class);
 
-    private final Map<UUID, ByteArrayResource> resourceCache;
+    private Cache<UUID, ByteArrayResource> resourceCache;
     private long initialArraySize;
     private boolean useExactResourceSize;
 
+    private static CacheBuilder<Object, Object> newCacheBuilder()
+    {
+        return CacheBuilder.newBuilder().recordStats();
+    }
+
     public ByteArrayCachingStrategy()
     {
-        this.resourceCache = new HashMap<>();
+        this.resourceCache = newCacheBuilder().build();
         this.initialArraySize = DEFAULT_BYTE_ARRAY_SIZE;
         this.useExactResourceSize = false;
     }
@@ -42,7 +55,8 @@ public class ByteArrayCachingStrategy extends AbstractCachingStrategy
     {
         final UUID resourceUUID = this.getUUIDForResourceURI(resourceURI);
 
-        if (!this.resourceCache.containsKey(resourceUUID))
+        ByteArrayResource cachedResource = this.resourceCache.getIfPresent(resourceUUID);
+        if (cachedResource == null)
         {
             logger.trace(
                     "StrategyID {}: attempting to cache resource {} in byte array keyed on UUID {}",
@@ -73,11 +87,12 @@ public class ByteArrayCachingStrategy extends AbstractCachingStrategy
             }
             resourceBytes.writeAndClose(resource.get().readBytesAndClose());
             this.resourceCache.put(resourceUUID, resourceBytes);
+            cachedResource = resourceBytes;
         }
         logger.trace("StrategyID {}: returning cached resource {} from byte array keyed on UUID {}",
                 this.getStrategyID(), resourceURI, resourceUUID);
 
-        return Optional.of(this.resourceCache.get(resourceUUID));
+        return Optional.of(cachedResource);
     }
 
     @Override
@@ -86,17 +101,25 @@ public class ByteArrayCachingStrategy extends AbstractCachingStrategy
         return "ByteArrayCachingStrategy";
     }
 
+    /**
+     * @return The hits, misses and evictions of this strategy since it was created
+     */
+    public CacheStats getStatistics()
+    {
+        return this.resourceCache.stats();
+    }
+
     @Override
     public void invalidate()
     {
-        this.resourceCache.clear();
+        this.resourceCache.invalidateAll();
     }
 
     @Override
     public void invalidate(final URI resourceURI)
     {
         final UUID resourceUUID = this.getUUIDForResourceURI(resourceURI);
-        this.resourceCache.remove(resourceUUID);
+        this.resourceCache.invalidate(resourceUUID);
     }
 
     /**
@@ -111,6 +134,36 @@ public class ByteArrayCachingStrategy extends AbstractCachingStrategy
         return this;
     }
 
+    /**
+     * Bound the total length of the cached resources. Once the bound is reached, the least recently
+     * used resources are evicted. A single resource longer than the bound is not kept at all. The
+     * resources already cached are kept if they fit.
+     *
+     * @param maximumBytes
+     *            the maximum number of bytes to keep in the cache
+     * @return the configured {@link ByteArrayCachingStrategy}
+     */
+    public ByteArrayCachingStrategy withMaximumCapacity(final long maximumBytes)
+    {
+        // A single segment, so that the bound applies to the whole cache rather than to each
+        // segment. Reads do not lock the segment.
+        final Cache<UUID, ByteArrayResource> boundedCache = newCacheBuilder().concurrencyLevel(1)
+                .maximumWeight(maximumBytes)
+                .weigher((final UUID uuid, final ByteArrayResource resource) -> (int) Math
+                        .min(resource.length(), Integer.MAX_VALUE))
+                .removalListener(notification ->
+                {
+                    if (notification.getCause() == RemovalCause.SIZE)
+                    {
+                        logger.debug("StrategyID {}: evicted resource keyed on UUID {}",
+                                this.getStrategyID(), notification.getKey());
+                    }
+                }).build();
+        boundedCache.putAll(this.resourceCache.asMap());
+        this.resourceCache = boundedCache;
+        return this;
+    }
+
     /**
      * Set an initial array size for the byte arrays of the cache.
      *
@@ -126,6 +179,6 @@ public class ByteArrayCachingStrategy extends AbstractCachingStrategy
 
     Map<UUID, ByteArrayResource> getResourceCache()
     {
-        return this.resourceCache;
+        return this.resourceCache.asMap();
     }
 }
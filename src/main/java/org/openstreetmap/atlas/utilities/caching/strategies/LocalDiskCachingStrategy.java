@@ -0,0 +1,554 @@
+package org.openstreetmap.atlas.utilities.caching.strategies;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.streaming.compression.Decompressor;
+import org.openstreetmap.atlas.streaming.resource.AbstractResource;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caching strategy that keeps resources as files in a local directory, bounded by a total size in
+ * bytes. Once the bound is exceeded, the least recently used files are evicted.
+ * <p>
+ * The files handed out can be read lazily, like the {@link File}s of loaded atlases, so evicted or
+ * invalidated files are not deleted right away: they are moved to a trash directory, where the
+ * resources already handed out keep reading them, and deleted when the next strategy is created on
+ * the same directory. Each copy of a resource has a file name of its own, so fetching a resource
+ * again never replaces a file which is still being read.
+ * <p>
+ * Each file is listed in an index in the same directory, with its length and CRC32 checksum, so
+ * that a new strategy on the same directory, for example after a restart, reuses the files instead
+ * of fetching them again. The first time such a file is used, it is checked against its checksum:
+ * a file that does not match is deleted and fetched again. The order of use is saved with the
+ * index, when files are added or removed.
+ * <p>
+ * The directory belongs to the strategy: the files the index does not list are deleted when the
+ * strategy is created, and a directory which is not empty and has no index is refused. Like with
+ * {@link NamespaceCachingStrategy}, two strategies must not use the same directory at the same
+ * time.
+ *
+ * @author agent
+ */
+public class LocalDiskCachingStrategy extends AbstractCachingStrategy
+{
+    /**
+     * A file of the cache
+     *
+     * @author agent
+     */
+    private static final class CachedFile
+    {
+        private final String fileName;
+        private final long length;
+        private final long checksum;
+        // False until the file has been checked against the checksum
+        private volatile boolean verified;
+
+        CachedFile(final String fileName, final long length, final long checksum,
+                final boolean verified)
+        {
+            this.fileName = fileName;
+            this.length = length;
+            this.checksum = checksum;
+            this.verified = verified;
+        }
+
+        String toIndexLine(final UUID resourceUUID)
+        {
+            return String.join(INDEX_SEPARATOR, resourceUUID.toString(), this.fileName,
+                    String.valueOf(this.length), String.valueOf(this.checksum));
+        }
+    }
+
+    /**
+     * A cached file, which is read from the trash directory once it is evicted
+     *
+     * @author agent
+     */
+    private static final class CachedFileResource extends File
+    {
+        private final Path trashPath;
+
+        CachedFileResource(final Path path, final Path trashPath)
+        {
+            super(path, false);
+            this.trashPath = trashPath;
+        }
+
+        @Override
+        protected InputStream onRead()
+        {
+            try
+            {
+                return new BufferedInputStream(Files.newInputStream(this.toPath()));
+            }
+            catch (final NoSuchFileException exception)
+            {
+                return this.readTrash();
+            }
+            catch (final IOException exception)
+            {
+                throw new CoreException("Cannot read file {}", this.toPath(), exception);
+            }
+        }
+
+        private InputStream readTrash()
+        {
+            try
+            {
+                return new BufferedInputStream(Files.newInputStream(this.trashPath));
+            }
+            catch (final IOException exception)
+            {
+                throw new CoreException("Cannot read file {}, nor its evicted copy {}",
+                        this.toPath(), this.trashPath, exception);
+            }
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalDiskCachingStrategy.class);
+    private static final String INDEX_NAME = "index";
+    private static final String TRASH_NAME = "trash";
+    private static final String COPY_SEPARATOR = "-";
+    private static final String INDEX_SEPARATOR = "\t";
+    private static final int INDEX_FIELDS = 4;
+    private static final int INDEX_LENGTH_FIELD = 2;
+    private static final int INDEX_CHECKSUM_FIELD = 3;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75F;
+
+    private final Path directory;
+    private final Path trash;
+    private final long maximumBytes;
+    // In order of use, the least recently used first. Guards totalBytes and the index as well.
+    private final LinkedHashMap<UUID, CachedFile> cachedFiles = new LinkedHashMap<>(
+            INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long totalBytes;
+
+    private static long checksum(final Path path) throws IOException
+    {
+        try (CheckedInputStream input = new CheckedInputStream(Files.newInputStream(path),
+                new CRC32()))
+        {
+            input.transferTo(OutputStream.nullOutputStream());
+            return input.getChecksum().getValue();
+        }
+    }
+
+    /**
+     * @param directory
+     *            the directory to keep the files in, created if needed
+     * @param maximumBytes
+     *            the maximum total length of the files
+     */
+    public LocalDiskCachingStrategy(final Path directory, final long maximumBytes)
+    {
+        super();
+        this.directory = directory;
+        this.trash = directory.resolve(TRASH_NAME);
+        this.maximumBytes = maximumBytes;
+        this.loadIndex();
+    }
+
+    @Override
+    public Optional<Resource> attemptFetch(final URI resourceURI,
+            final Function<URI, Optional<Resource>> defaultFetcher)
+    {
+        final UUID resourceUUID = this.getUUIDForResourceURI(resourceURI);
+        final Optional<Path> cachedPath = this.cachedPath(resourceUUID);
+        if (cachedPath.isPresent())
+        {
+            logger.trace("StrategyID {}: returning local copy {} of resource {}",
+                    this.getStrategyID(), cachedPath.get(), resourceURI);
+            return Optional.of(this.asResource(cachedPath.get().getFileName().toString()));
+        }
+
+        final Optional<Resource> resource = defaultFetcher.apply(resourceURI);
+        if (resource.isEmpty())
+        {
+            logger.warn(
+                    "StrategyID {}: application of default fetcher for {} returned empty Optional!",
+                    this.getStrategyID(), resourceURI);
+            return Optional.empty();
+        }
+        return Optional.of(this.asResource(this.store(resourceURI, resourceUUID, resource.get())));
+    }
+
+    @Override
+    public String getName()
+    {
+        return "LocalDiskCachingStrategy";
+    }
+
+    @Override
+    public void invalidate()
+    {
+        synchronized (this.cachedFiles)
+        {
+            this.cachedFiles.values().forEach(cachedFile -> this.discard(cachedFile.fileName));
+            this.cachedFiles.clear();
+            this.totalBytes = 0L;
+            this.writeIndex();
+        }
+    }
+
+    @Override
+    public void invalidate(final URI resourceURI)
+    {
+        synchronized (this.cachedFiles)
+        {
+            final CachedFile cachedFile = this.cachedFiles
+                    .remove(this.getUUIDForResourceURI(resourceURI));
+            if (cachedFile != null)
+            {
+                this.totalBytes -= cachedFile.length;
+                this.discard(cachedFile.fileName);
+                this.writeIndex();
+            }
+        }
+    }
+
+    long getTotalBytes()
+    {
+        synchronized (this.cachedFiles)
+        {
+            return this.totalBytes;
+        }
+    }
+
+    private Resource asResource(final String fileName)
+    {
+        return new CachedFileResource(this.directory.resolve(fileName),
+                this.trash.resolve(fileName));
+    }
+
+    /**
+     * @param resourceUUID
+     *            the {@link UUID} of the resource
+     * @return the path of the cached file, if it is cached and matches its checksum
+     */
+    private Optional<Path> cachedPath(final UUID resourceUUID)
+    {
+        final CachedFile cachedFile;
+        synchronized (this.cachedFiles)
+        {
+            cachedFile = this.cachedFiles.get(resourceUUID);
+        }
+        if (cachedFile == null)
+        {
+            return Optional.empty();
+        }
+        final Path path = this.directory.resolve(cachedFile.fileName);
+        if (!cachedFile.verified)
+        {
+            boolean matches;
+            try
+            {
+                matches = checksum(path) == cachedFile.checksum;
+            }
+            catch (final IOException exception)
+            {
+                matches = false;
+            }
+            if (!matches)
+            {
+                logger.warn("StrategyID {}: {} does not match its checksum, discarding it",
+                        this.getStrategyID(), path);
+                synchronized (this.cachedFiles)
+                {
+                    if (this.cachedFiles.remove(resourceUUID, cachedFile))
+                    {
+                        this.totalBytes -= cachedFile.length;
+                        this.discard(cachedFile.fileName);
+                        this.writeIndex();
+                    }
+                }
+                return Optional.empty();
+            }
+            cachedFile.verified = true;
+        }
+        return Optional.of(path);
+    }
+
+    private void delete(final Path path)
+    {
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (final IOException exception)
+        {
+            logger.warn("StrategyID {}: unable to delete {}", this.getStrategyID(), path,
+                    exception);
+        }
+    }
+
+    /**
+     * Move a file which is not cached any more to the trash directory, where the resources already
+     * handed out can still read it until the next start.
+     */
+    private void discard(final String fileName)
+    {
+        try
+        {
+            Files.createDirectories(this.trash);
+            Files.move(this.directory.resolve(fileName), this.trash.resolve(fileName),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final NoSuchFileException exception)
+        {
+            logger.debug("StrategyID {}: {} was already removed from {}", this.getStrategyID(),
+                    fileName, this.directory);
+        }
+        catch (final IOException exception)
+        {
+            logger.warn("StrategyID {}: unable to move {} to {}", this.getStrategyID(), fileName,
+                    this.trash, exception);
+        }
+    }
+
+    /**
+     * Delete the files evicted before this strategy was created, which are not read any more.
+     */
+    private void emptyTrash()
+    {
+        if (!Files.isDirectory(this.trash))
+        {
+            return;
+        }
+        try (Stream<Path> paths = Files.list(this.trash))
+        {
+            paths.forEach(this::delete);
+        }
+        catch (final IOException exception)
+        {
+            logger.warn("StrategyID {}: unable to empty {}", this.getStrategyID(), this.trash,
+                    exception);
+        }
+        this.delete(this.trash);
+    }
+
+    /**
+     * Discard the least recently used files until the total length fits. Must be called while
+     * holding the lock on cachedFiles.
+     *
+     * @param newest
+     *            the {@link UUID} of the resource that was just cached, which is kept even if it
+     *            does not fit on its own
+     */
+    private void evict(final UUID newest)
+    {
+        final Iterator<Map.Entry<UUID, CachedFile>> iterator = this.cachedFiles.entrySet()
+                .iterator();
+        while (this.totalBytes > this.maximumBytes && iterator.hasNext())
+        {
+            final Map.Entry<UUID, CachedFile> eldest = iterator.next();
+            if (!eldest.getKey().equals(newest))
+            {
+                iterator.remove();
+                this.totalBytes -= eldest.getValue().length;
+                this.discard(eldest.getValue().fileName);
+                logger.debug("StrategyID {}: evicted {}", this.getStrategyID(),
+                        eldest.getValue().fileName);
+            }
+        }
+    }
+
+    private void loadIndex()
+    {
+        final Path index = this.directory.resolve(INDEX_NAME);
+        try
+        {
+            Files.createDirectories(this.directory);
+            if (Files.exists(index))
+            {
+                for (final String line : Files.readAllLines(index, StandardCharsets.UTF_8))
+                {
+                    this.loadIndexLine(line);
+                }
+            }
+            else
+            {
+                try (Stream<Path> paths = Files.list(this.directory))
+                {
+                    if (paths.findAny().isPresent())
+                    {
+                        throw new CoreException(
+                                "StrategyID {}: refusing to use {}, which is not empty and has "
+                                        + "no cache index",
+                                this.getStrategyID(), this.directory);
+                    }
+                }
+            }
+            final Set<String> fileNames = this.cachedFiles.values().stream()
+                    .map(cachedFile -> cachedFile.fileName).collect(Collectors.toSet());
+            try (Stream<Path> paths = Files.list(this.directory))
+            {
+                paths.filter(path ->
+                {
+                    final String fileName = path.getFileName().toString();
+                    return !INDEX_NAME.equals(fileName) && !TRASH_NAME.equals(fileName)
+                            && !fileNames.contains(fileName);
+                }).forEach(this::delete);
+            }
+        }
+        catch (final IOException exception)
+        {
+            throw new CoreException("StrategyID {}: unable to load the cache index from {}",
+                    this.getStrategyID(), this.directory, exception);
+        }
+        synchronized (this.cachedFiles)
+        {
+            this.evict(null);
+            this.writeIndex();
+        }
+        this.emptyTrash();
+        logger.info("StrategyID {}: reusing {} cached files ({} bytes) from {}",
+                this.getStrategyID(), this.cachedFiles.size(), this.totalBytes, this.directory);
+    }
+
+    private void loadIndexLine(final String line) throws IOException
+    {
+        final String[] fields = line.split(INDEX_SEPARATOR);
+        if (fields.length != INDEX_FIELDS)
+        {
+            logger.warn("StrategyID {}: skipping invalid index line \"{}\"", this.getStrategyID(),
+                    line);
+            return;
+        }
+        try
+        {
+            final UUID resourceUUID = UUID.fromString(fields[0]);
+            final String fileName = fields[1];
+            final long length = Long.parseLong(fields[INDEX_LENGTH_FIELD]);
+            final long checksum = Long.parseLong(fields[INDEX_CHECKSUM_FIELD]);
+            final Path path = this.directory.resolve(fileName);
+            if (Files.exists(path) && Files.size(path) == length)
+            {
+                this.cachedFiles.put(resourceUUID,
+                        new CachedFile(fileName, length, checksum, false));
+                this.totalBytes += length;
+            }
+        }
+        catch (final IllegalArgumentException exception)
+        {
+            logger.warn("StrategyID {}: skipping invalid index line \"{}\"", this.getStrategyID(),
+                    line, exception);
+        }
+    }
+
+    /**
+     * @return the name of the file the resource was copied to
+     */
+    private String store(final URI resourceURI, final UUID resourceUUID,
+            final Resource resource)
+    {
+        final String copyName = resourceUUID + COPY_SEPARATOR + UUID.randomUUID();
+        final String fileName = getFileExtension(resourceURI)
+                .map(extension -> copyName + EXTENSION_SEPARATOR + extension)
+                .orElse(copyName);
+        final Path path = this.directory.resolve(fileName);
+        final Path temporaryPath = this.directory.resolve(copyName + TEMPORARY_SUFFIX);
+        final long checksum;
+        try
+        {
+            // Keep the bytes as they are, for the same reason as in NamespaceCachingStrategy: the
+            // cached file keeps the extension, so it is decompressed when it is read.
+            if (resource instanceof AbstractResource)
+            {
+                ((AbstractResource) resource).setDecompressor(Decompressor.NONE);
+            }
+            try (InputStream resourceInput = resource.read();
+                    CheckedInputStream input = new CheckedInputStream(resourceInput,
+                            new CRC32()))
+            {
+                Files.copy(input, temporaryPath);
+                checksum = input.getChecksum().getValue();
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final IOException exception)
+        {
+            this.delete(temporaryPath);
+            throw new CoreException("StrategyID {}: unable to cache {} in {}",
+                    this.getStrategyID(), resourceURI, path, exception);
+        }
+
+        synchronized (this.cachedFiles)
+        {
+            final long length;
+            try
+            {
+                length = Files.size(path);
+            }
+            catch (final IOException exception)
+            {
+                throw new CoreException("StrategyID {}: unable to read the length of {}",
+                        this.getStrategyID(), path, exception);
+            }
+            final CachedFile previous = this.cachedFiles.put(resourceUUID,
+                    new CachedFile(fileName, length, checksum, true));
+            if (previous != null)
+            {
+                // Another thread cached the same resource at the same time
+                this.totalBytes -= previous.length;
+                this.discard(previous.fileName);
+            }
+            this.totalBytes += length;
+            this.evict(resourceUUID);
+            this.writeIndex();
+        }
+        return fileName;
+    }
+
+    /**
+     * Save the index, in order of use. Must be called while holding the lock on cachedFiles.
+     */
+    private void writeIndex()
+    {
+        final List<String> lines = new ArrayList<>(this.cachedFiles.size());
+        this.cachedFiles.forEach(
+                (resourceUUID, cachedFile) -> lines.add(cachedFile.toIndexLine(resourceUUID)));
+        final Path index = this.directory.resolve(INDEX_NAME);
+        final Path temporaryIndex = this.directory.resolve(INDEX_NAME + TEMPORARY_SUFFIX);
+        try
+        {
+            Files.write(temporaryIndex, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryIndex, index, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final IOException exception)
+        {
+            // The files are still cached, they just will not be reused after a restart
+            logger.warn("StrategyID {}: unable to save the cache index to {}",
+                    this.getStrategyID(), index, exception);
+        }
+    }
+}
@@ -38,7 +38,6 @@ import org.slf4j.LoggerFactory;
 public class NamespaceCachingStrategy extends AbstractCachingStrategy
 {
     private static final Logger logger = LoggerFactory.getLogger(NamespaceCachingStrategy.class);
-    private static final String FILE_EXTENSION_DOT = ".";
     private static final String PROPERTY_LOCAL_TEMPORARY_DIRECTORY = "java.io.tmpdir";
     private static final String TEMPORARY_DIRECTORY_STRING = System
             .getProperty(PROPERTY_LOCAL_TEMPORARY_DIRECTORY);
@@ -249,7 +248,7 @@ public class NamespaceCachingStrategy extends AbstractCachingStrategy
         final String cachedFileName;
         cachedFileName = resourceExtensionOptional
                 .map(extension -> this.getUUIDForResourceURI(resourceURI).toString()
-                        + FILE_EXTENSION_DOT + extension)
+                        + EXTENSION_SEPARATOR + extension)
                 .orElseGet(() -> this.getUUIDForResourceURI(resourceURI).toString());
         final Path cachedFilePath = this.fileSystem.getPath(storageDirectory.toString(),
                 cachedFileName);
@@ -263,23 +262,6 @@ public class NamespaceCachingStrategy extends AbstractCachingStrategy
         {
             return Optional.empty();
         }
-
-        final String asciiString = resourceURI.toASCIIString();
-        final int lastIndexOfDot = asciiString.lastIndexOf(FILE_EXTENSION_DOT);
-
-        if (lastIndexOfDot < 0)
-        {
-            return Optional.empty();
-        }
-
-        final String extension = asciiString.substring(lastIndexOfDot + 1);
-        if (extension.isEmpty())
-        {
-            return Optional.empty();
-        }
-        else
-        {
-            return Optional.of(extension);
-        }
+        return getFileExtension(resourceURI);
     }
 }
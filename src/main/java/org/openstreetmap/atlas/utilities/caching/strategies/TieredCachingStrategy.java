@@ -0,0 +1,88 @@
+package org.openstreetmap.atlas.utilities.caching.strategies;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.openstreetmap.atlas.streaming.resource.Resource;
+
+/**
+ * Caching strategy that puts a small and fast first tier in front of a larger second tier. A miss
+ * in the first tier is filled from the second tier, and a miss in the second tier from the default
+ * fetcher. The typical setup, from {@link #memoryAndDisk(long, Path, long)}, keeps the hot
+ * resources in a bounded {@link ByteArrayCachingStrategy} and the others in a
+ * {@link LocalDiskCachingStrategy} that survives restarts.
+ *
+ * @author agent
+ */
+public class TieredCachingStrategy extends AbstractCachingStrategy
+{
+    private final CachingStrategy firstTier;
+    private final CachingStrategy secondTier;
+
+    /**
+     * @param memoryBytes
+     *            the maximum number of bytes to keep in memory
+     * @param directory
+     *            the directory of the local disk tier
+     * @param diskBytes
+     *            the maximum number of bytes to keep on the local disk
+     * @return a {@link TieredCachingStrategy} with a memory tier in front of a local disk tier
+     */
+    public static TieredCachingStrategy memoryAndDisk(final long memoryBytes,
+            final Path directory, final long diskBytes)
+    {
+        return new TieredCachingStrategy(
+                new ByteArrayCachingStrategy().useExactResourceSize()
+                        .withMaximumCapacity(memoryBytes),
+                new LocalDiskCachingStrategy(directory, diskBytes));
+    }
+
+    public TieredCachingStrategy(final CachingStrategy firstTier,
+            final CachingStrategy secondTier)
+    {
+        super();
+        this.firstTier = firstTier;
+        this.secondTier = secondTier;
+    }
+
+    @Override
+    public Optional<Resource> attemptFetch(final URI resourceURI,
+            final Function<URI, Optional<Resource>> defaultFetcher)
+    {
+        return this.firstTier.attemptFetch(resourceURI,
+                uri -> this.secondTier.attemptFetch(uri, defaultFetcher));
+    }
+
+    public CachingStrategy getFirstTier()
+    {
+        return this.firstTier;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "TieredCachingStrategy(" + this.firstTier.getName() + ", "
+                + this.secondTier.getName() + ")";
+    }
+
+    public CachingStrategy getSecondTier()
+    {
+        return this.secondTier;
+    }
+
+    @Override
+    public void invalidate()
+    {
+        this.firstTier.invalidate();
+        this.secondTier.invalidate();
+    }
+
+    @Override
+    public void invalidate(final URI resourceURI)
+    {
+        this.firstTier.invalidate(resourceURI);
+        this.secondTier.invalidate(resourceURI);
+    }
+}
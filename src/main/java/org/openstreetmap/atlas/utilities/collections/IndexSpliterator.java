@@ -0,0 +1,89 @@
+package org.openstreetmap.atlas.utilities.collections;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * {@link Spliterator} over a range of array indices, that creates each element from its index. It
+ * splits the range in halves, and knows the exact size of each half, which lets the fork-join pool
+ * balance a parallel stream without any copy of the elements.
+ *
+ * @author agent
+ * @param <T>
+ *            The type of the elements
+ */
+public class IndexSpliterator<T> implements Spliterator<T>
+{
+    private static final int CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+
+    private final LongFunction<T> supplier;
+    private long index;
+    private final long fence;
+
+    /**
+     * @param size
+     *            The number of indices, starting at 0
+     * @param supplier
+     *            The function that creates the element at an index. It has to be safe to call from
+     *            multiple threads.
+     */
+    public IndexSpliterator(final long size, final LongFunction<T> supplier)
+    {
+        this(0L, size, supplier);
+    }
+
+    private IndexSpliterator(final long origin, final long fence, final LongFunction<T> supplier)
+    {
+        this.index = origin;
+        this.fence = fence;
+        this.supplier = supplier;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return CHARACTERISTICS;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return this.fence - this.index;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action)
+    {
+        final long end = this.fence;
+        for (long current = this.index; current < end; current++)
+        {
+            action.accept(this.supplier.apply(current));
+        }
+        this.index = end;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action)
+    {
+        if (this.index < this.fence)
+        {
+            action.accept(this.supplier.apply(this.index++));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        final long origin = this.index;
+        final long middle = origin + (this.fence - origin) / 2;
+        if (middle <= origin)
+        {
+            return null;
+        }
+        this.index = middle;
+        return new IndexSpliterator<>(origin, middle, this.supplier);
+    }
+}
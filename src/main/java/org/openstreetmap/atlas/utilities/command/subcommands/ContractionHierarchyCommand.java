@@ -0,0 +1,77 @@
+package org.openstreetmap.atlas.utilities.command.subcommands;
+
+import java.nio.file.Paths;
+
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.routing.ContractionHierarchy;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.streaming.resource.FileSuffix;
+import org.openstreetmap.atlas.utilities.command.abstractcommand.CommandOutputDelegate;
+import org.openstreetmap.atlas.utilities.command.abstractcommand.OptionAndArgumentDelegate;
+import org.openstreetmap.atlas.utilities.command.subcommands.templates.AtlasLoaderCommand;
+import org.openstreetmap.atlas.utilities.time.Time;
+
+/**
+ * Build the {@link ContractionHierarchy} of atlases, to be used by a
+ * {@link org.openstreetmap.atlas.geography.atlas.routing.ContractionHierarchyRouter}.
+ *
+ * @author agent
+ */
+public class ContractionHierarchyCommand extends AtlasLoaderCommand
+{
+    private final OptionAndArgumentDelegate optionAndArgumentDelegate;
+    private final CommandOutputDelegate outputDelegate;
+
+    public static void main(final String[] args)
+    {
+        new ContractionHierarchyCommand().runSubcommandAndExit(args);
+    }
+
+    public ContractionHierarchyCommand()
+    {
+        super();
+        this.optionAndArgumentDelegate = this.getOptionAndArgumentDelegate();
+        this.outputDelegate = this.getCommandOutputDelegate();
+    }
+
+    @Override
+    public String getCommandName()
+    {
+        return "hierarchy";
+    }
+
+    @Override
+    public String getSimpleDescription()
+    {
+        return "build the contraction hierarchy routing index of atlases";
+    }
+
+    @Override
+    public void registerManualPageSections()
+    {
+        addManualPageSection("DESCRIPTION", ContractionHierarchyCommand.class
+                .getResourceAsStream("ContractionHierarchyCommandDescriptionSection.txt"));
+        addManualPageSection("EXAMPLES", ContractionHierarchyCommand.class
+                .getResourceAsStream("ContractionHierarchyCommandExamplesSection.txt"));
+        super.registerManualPageSections();
+    }
+
+    @Override
+    protected void processAtlas(final Atlas atlas, final String atlasFileName,
+            final File atlasResource)
+    {
+        final Time start = Time.now();
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(atlas);
+        final File outputFile = new File(Paths
+                .get(getOutputPath().toAbsolutePath().toString(),
+                        AtlasLoaderCommand.removeSuffixFromFileName(atlasFileName))
+                .toAbsolutePath().toString() + FileSuffix.ATLAS
+                + FileSuffix.CONTRACTION_HIERARCHY, this.getFileSystem());
+        hierarchy.save(outputFile);
+        if (this.optionAndArgumentDelegate.hasVerboseOption())
+        {
+            this.outputDelegate.printlnCommandMessage("built " + hierarchy + " in "
+                    + start.elapsedSince() + ", saved to " + outputFile.getAbsolutePathString());
+        }
+    }
+}
@@ -6,13 +6,17 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.apache.commons.io.FilenameUtils;
 import org.openstreetmap.atlas.geography.MultiPolygon;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas.AtlasSerializationFormat;
 import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
+import org.openstreetmap.atlas.geography.atlas.raw.ShardedAtlasGenerator;
 import org.openstreetmap.atlas.geography.atlas.raw.creation.RawAtlasGenerator;
 import org.openstreetmap.atlas.geography.atlas.raw.sectioning.AtlasSectionProcessor;
+import org.openstreetmap.atlas.geography.boundary.CountryBoundaryMap;
 import org.openstreetmap.atlas.geography.sharding.Shard;
+import org.openstreetmap.atlas.geography.sharding.Sharding;
 import org.openstreetmap.atlas.streaming.compression.Decompressor;
 import org.openstreetmap.atlas.streaming.resource.File;
 import org.openstreetmap.atlas.streaming.resource.FileSuffix;
@@ -42,9 +46,21 @@ public class PbfToAtlasCommand extends MultipleOutputCommand
     // Whether or not to stop at the raw atlas
     private static final String RAW = "raw";
 
+    // The sharding of the shards to generate from each PBF
+    private static final String SHARDING = "sharding";
+
+    // The country boundary map to slice the shards with
+    private static final String BOUNDARIES = "boundaries";
+
+    // The number of shards to generate at the same time
+    private static final String THREADS = "threads";
+
     private static final String COUNTRY_NAME_DESCRIPTION = "The country for the shard to build";
     private static final String BOUNDS_DESCRIPTION = "The file containing WKT bounds to restrain the loading.";
     private static final String RAW_DESCRIPTION = "Whether or not to stop at the raw atlas. If this is enabled, way-sectioning will not happen";
+    private static final String SHARDING_DESCRIPTION = "The sharding (e.g. slippy@9 or dynamic@/path/to/tree) of the country sliced shards to generate from each PBF, instead of one atlas per PBF. Requires the boundaries option.";
+    private static final String BOUNDARIES_DESCRIPTION = "The country boundary map (text or shape file) to slice the shards with.";
+    private static final String THREADS_DESCRIPTION = "The number of shards to generate at the same time with a sharding. Defaults to 1.";
 
     private final OptionAndArgumentDelegate optionAndArgumentDelegate;
     private final CommandOutputDelegate outputDelegate;
@@ -76,6 +92,10 @@ public class PbfToAtlasCommand extends MultipleOutputCommand
         getInputPBFs();
         final String countryName = this.optionAndArgumentDelegate.getOptionArgument(COUNTRY_NAME)
                 .orElseThrow(AtlasShellToolsException::new);
+        if (this.optionAndArgumentDelegate.hasOption(SHARDING))
+        {
+            return executeSharded(countryName);
+        }
         this.pbfs.forEach(pbf ->
         {
             PackedAtlas atlas = (PackedAtlas) new RawAtlasGenerator(pbf,
@@ -89,25 +109,7 @@ public class PbfToAtlasCommand extends MultipleOutputCommand
                         AtlasLoadingOption.createOptionWithNoSlicing());
                 atlas = (PackedAtlas) waySectionProcessor.run();
             }
-            atlas.setSaveSerializationFormat(AtlasSerializationFormat.PROTOBUF);
-            final Path concatenatedPath;
-            if (this.optionAndArgumentDelegate
-                    .hasOption(MultipleOutputCommand.OUTPUT_DIRECTORY_OPTION_LONG))
-            {
-                // save atlas to user specified output directory
-                concatenatedPath = Paths.get(getOutputPath().toAbsolutePath().toString(),
-                        rawAtlasFilename);
-            }
-            else
-            {
-                // save atlas in place
-                concatenatedPath = Paths.get(Paths.get(pbf.getAbsolutePathString()).getParent()
-                        .toAbsolutePath().toString(), rawAtlasFilename);
-            }
-            this.outputDelegate.printlnStdout(concatenatedPath.toAbsolutePath().toString());
-            final File outputFile = new File(concatenatedPath.toAbsolutePath().toString(),
-                    this.getFileSystem());
-            atlas.save(outputFile);
+            save(atlas, pbf, rawAtlasFilename);
         });
         return 0;
     }
@@ -145,9 +147,78 @@ public class PbfToAtlasCommand extends MultipleOutputCommand
         this.registerOptionWithRequiredArgument(BOUNDS, BOUNDS_DESCRIPTION,
                 OptionOptionality.OPTIONAL, BOUNDS);
         this.registerOption(RAW, RAW_DESCRIPTION, OptionOptionality.OPTIONAL);
+        this.registerOptionWithRequiredArgument(SHARDING, SHARDING_DESCRIPTION,
+                OptionOptionality.OPTIONAL, "type@parameter");
+        this.registerOptionWithRequiredArgument(BOUNDARIES, BOUNDARIES_DESCRIPTION,
+                OptionOptionality.OPTIONAL, BOUNDARIES);
+        this.registerOptionWithRequiredArgument(THREADS, THREADS_DESCRIPTION,
+                OptionOptionality.OPTIONAL, THREADS);
         super.registerOptionsAndArguments();
     }
 
+    /**
+     * Generate all the country sliced shards of each PBF, reading each PBF only once
+     *
+     * @param countryName
+     *            The country to slice the shards for
+     * @return The exit code
+     */
+    private int executeSharded(final String countryName)
+    {
+        if (stopAtRaw())
+        {
+            this.outputDelegate.printlnErrorMessage(
+                    "cannot stop at the raw atlas when generating shards with a sharding");
+            return 1;
+        }
+        final Optional<String> boundariesPath = this.optionAndArgumentDelegate
+                .getOptionArgument(BOUNDARIES);
+        if (boundariesPath.isEmpty())
+        {
+            this.outputDelegate
+                    .printlnErrorMessage("a boundary map is required to generate shards");
+            return 1;
+        }
+        final File boundaryMapFile = new File(boundariesPath.get(), this.getFileSystem());
+        if (!boundaryMapFile.exists())
+        {
+            this.outputDelegate.printlnErrorMessage(
+                    "boundary file " + boundaryMapFile.getAbsolutePathString() + " does not exist");
+            return 1;
+        }
+        if (this.optionAndArgumentDelegate.hasVerboseOption())
+        {
+            this.outputDelegate.printlnCommandMessage("loading country boundary map...");
+        }
+        final CountryBoundaryMap countryBoundaryMap;
+        if (FilenameUtils.isExtension(boundaryMapFile.getName(), "shp"))
+        {
+            countryBoundaryMap = CountryBoundaryMap.fromShapeFile(boundaryMapFile.getFile());
+        }
+        else
+        {
+            if (boundaryMapFile.getName().endsWith(FileSuffix.GZIP.toString()))
+            {
+                boundaryMapFile.setDecompressor(Decompressor.GZIP);
+            }
+            countryBoundaryMap = CountryBoundaryMap.fromPlainText(boundaryMapFile);
+        }
+        final Sharding sharding = Sharding.forString(
+                this.optionAndArgumentDelegate.getOptionArgument(SHARDING)
+                        .orElseThrow(AtlasShellToolsException::new),
+                this.getFileSystem());
+        final int threads = this.optionAndArgumentDelegate
+                .getOptionArgument(THREADS, Integer::parseInt).orElse(1);
+        final AtlasLoadingOption loadingOption = AtlasLoadingOption
+                .createOptionWithAllEnabled(countryBoundaryMap).setCountryCode(countryName);
+        this.pbfs.forEach(pbf -> new ShardedAtlasGenerator(pbf, loadingOption, sharding)
+                .withBoundingBox(getBounds()).withNumberOfThreads(threads)
+                .generate((shard, atlas) -> save((PackedAtlas) atlas, pbf,
+                        String.format("%s%s%s%s", countryName, Shard.SHARD_DATA_SEPARATOR,
+                                shard.getName(), FileSuffix.ATLAS))));
+        return 0;
+    }
+
     private MultiPolygon getBounds()
     {
         final Optional<String> boundsFilePathOption = this.optionAndArgumentDelegate
@@ -209,6 +280,39 @@ public class PbfToAtlasCommand extends MultipleOutputCommand
         });
     }
 
+    /**
+     * Save an {@link PackedAtlas} to the output directory, or next to its PBF
+     *
+     * @param atlas
+     *            The {@link PackedAtlas} to save
+     * @param pbf
+     *            The PBF the {@link PackedAtlas} is generated from
+     * @param atlasFilename
+     *            The name of the {@link PackedAtlas} file
+     */
+    private void save(final PackedAtlas atlas, final File pbf, final String atlasFilename)
+    {
+        atlas.setSaveSerializationFormat(AtlasSerializationFormat.PROTOBUF);
+        final Path concatenatedPath;
+        if (this.optionAndArgumentDelegate
+                .hasOption(MultipleOutputCommand.OUTPUT_DIRECTORY_OPTION_LONG))
+        {
+            // save atlas to user specified output directory
+            concatenatedPath = Paths.get(getOutputPath().toAbsolutePath().toString(),
+                    atlasFilename);
+        }
+        else
+        {
+            // save atlas in place
+            concatenatedPath = Paths.get(Paths.get(pbf.getAbsolutePathString()).getParent()
+                    .toAbsolutePath().toString(), atlasFilename);
+        }
+        this.outputDelegate.printlnStdout(concatenatedPath.toAbsolutePath().toString());
+        final File outputFile = new File(concatenatedPath.toAbsolutePath().toString(),
+                this.getFileSystem());
+        atlas.save(outputFile);
+    }
+
     private boolean stopAtRaw()
     {
         return this.optionAndArgumentDelegate.hasOption(RAW);
@@ -3,13 +3,19 @@ package org.openstreetmap.atlas.utilities.compression;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openstreetmap.atlas.proto.ProtoSerializable;
 import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
 import org.openstreetmap.atlas.proto.adapters.ProtoIntegerStringDictionaryAdapter;
 
 /**
- * Simple dictionary encoding for {@link String}s
+ * Simple dictionary encoding for {@link String}s. Adding a word which is already in the dictionary
+ * does not take any lock, so many threads can encode words at once; only the first addition of a
+ * word is synchronized. While words are being added, lookups read lock-free concurrent copies of
+ * the dictionary. Once {@link #trim()}med, or when loaded, they read the plain maps, which are not
+ * written to any more.
  *
  * @author matthieun
  * @author lcram
@@ -24,10 +30,29 @@ public class IntegerDictionary<Type> implements Serializable, ProtoSerializable
     public static final String FIELD_INDEX_TO_WORD = "indexToWord";
     public static final String FIELD_INDEX = "index";
 
+    // Key standing for the null word in the concurrent index, which cannot contain null keys
+    private static final Object NULL_WORD = new Object();
+    private static final int MINIMUM_CONCURRENT_CAPACITY = 16;
+
     private final Map<Type, Integer> wordToIndex;
     private final Map<Integer, Type> indexToWord;
+    // Lock-free copies of wordToIndex and indexToWord, not serialized and built again on the first
+    // add
+    private transient volatile Map<Object, Integer> concurrentWordToIndex;
+    private transient volatile Map<Integer, Object> concurrentIndexToWord;
 
-    private int index = 0;
+    private volatile int index = 0;
+
+    private static Object concurrentKey(final Object word)
+    {
+        return word == null ? NULL_WORD : word;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Type> Type fromConcurrentKey(final Object key)
+    {
+        return key == NULL_WORD ? null : (Type) key;
+    }
 
     public IntegerDictionary()
     {
@@ -35,15 +60,14 @@ public class IntegerDictionary<Type> implements Serializable, ProtoSerializable
         this.indexToWord = new HashMap<>();
     }
 
-    public synchronized int add(final Type word)
+    public int add(final Type word)
     {
-        if (this.wordToIndex.containsKey(word))
+        final Integer existing = concurrentWordToIndex().get(concurrentKey(word));
+        if (existing != null)
         {
-            return this.wordToIndex.get(word);
+            return existing;
         }
-        this.wordToIndex.put(word, this.index);
-        this.indexToWord.put(this.index, word);
-        return this.index++;
+        return addNewWord(word);
     }
 
     @Override
@@ -113,13 +137,92 @@ public class IntegerDictionary<Type> implements Serializable, ProtoSerializable
         return hash;
     }
 
+    /**
+     * Look up a word without adding it
+     *
+     * @param word
+     *            The word to look up
+     * @return The index of the word, or empty if it is not in this dictionary
+     */
+    public Optional<Integer> lookup(final Type word)
+    {
+        final Map<Object, Integer> concurrent = this.concurrentWordToIndex;
+        if (concurrent != null)
+        {
+            return Optional.ofNullable(concurrent.get(concurrentKey(word)));
+        }
+        return Optional.ofNullable(this.wordToIndex.get(word));
+    }
+
     public int size()
     {
         return this.index;
     }
 
+    /**
+     * Release the memory used to add words without locking, once done adding words. Lookups then
+     * read the plain maps without locking. Adding words is still possible, at the cost of
+     * rebuilding it, but not while other threads look words up.
+     */
+    public synchronized void trim()
+    {
+        this.concurrentWordToIndex = null;
+        this.concurrentIndexToWord = null;
+    }
+
     public Type word(final int index)
     {
+        final Map<Integer, Object> concurrent = this.concurrentIndexToWord;
+        if (concurrent != null)
+        {
+            return fromConcurrentKey(concurrent.get(index));
+        }
         return this.indexToWord.get(index);
     }
+
+    private synchronized int addNewWord(final Type word)
+    {
+        final Integer existing = this.wordToIndex.get(word);
+        if (existing != null)
+        {
+            return existing;
+        }
+        // Built again if the dictionary was trimmed since the lock-free lookup of add
+        final Map<Object, Integer> concurrent = concurrentWordToIndex();
+        final int result = this.index;
+        this.wordToIndex.put(word, result);
+        this.indexToWord.put(result, word);
+        this.index = result + 1;
+        // Publish the word last, so that a lock-free lookup finding it also finds its index, and
+        // the word of that index
+        this.concurrentIndexToWord.put(result, concurrentKey(word));
+        concurrent.put(concurrentKey(word), result);
+        return result;
+    }
+
+    private Map<Object, Integer> concurrentWordToIndex()
+    {
+        final Map<Object, Integer> current = this.concurrentWordToIndex;
+        if (current != null)
+        {
+            return current;
+        }
+        synchronized (this)
+        {
+            if (this.concurrentWordToIndex == null)
+            {
+                final int capacity = Math.max(this.wordToIndex.size() * 2,
+                        MINIMUM_CONCURRENT_CAPACITY);
+                final Map<Integer, Object> words = new ConcurrentHashMap<>(capacity);
+                this.indexToWord.forEach(
+                        (wordIndex, word) -> words.put(wordIndex, concurrentKey(word)));
+                this.concurrentIndexToWord = words;
+                final Map<Object, Integer> result = new ConcurrentHashMap<>(capacity);
+                this.wordToIndex.forEach(
+                        (word, wordIndex) -> result.put(concurrentKey(word), wordIndex));
+                this.concurrentWordToIndex = result;
+            }
+            return this.concurrentWordToIndex;
+        }
+    }
 }
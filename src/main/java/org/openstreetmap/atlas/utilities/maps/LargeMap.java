@@ -29,6 +29,13 @@ public abstract class LargeMap<K, V> implements Iterable<K>, Serializable
 
     protected static final int DEFAULT_HASH_MODULO_RATIO = 10;
 
+    /*
+     * Names of the internal fields, for serialization code that reads them using reflection.
+     */
+    public static final String FIELD_VALUES = "values";
+    public static final String FIELD_KEYS = "keys";
+    public static final String FIELD_HASHES = "hashes";
+
     private final LargeArray<V> values;
     private final LargeArray<K> keys;
     private final int hashSize;
@@ -157,6 +164,40 @@ public abstract class LargeMap<K, V> implements Iterable<K>, Serializable
         this.values = createValues(valueMemoryBlockSize, valueSubArraySize);
     }
 
+    /**
+     * Construct a large map around existing arrays, for example arrays read in place from a memory
+     * mapped file. If the arrays are read-only, so is the map.
+     *
+     * @param name
+     *            The name of the map
+     * @param maximumSize
+     *            The maximum number of keys in the map
+     * @param keys
+     *            The keys
+     * @param values
+     *            The values, at the same indices as their keys
+     * @param hashes
+     *            For each hash value (modulo the size of this array), the indices of the keys with
+     *            that hash
+     */
+    protected LargeMap(final String name, final long maximumSize, final LargeArray<K> keys,
+            final LargeArray<V> values, final LongArrayOfArrays hashes)
+    {
+        if (keys.size() != values.size() || hashes.size() <= 0
+                || hashes.size() > Integer.MAX_VALUE)
+        {
+            throw new CoreException(
+                    "Inconsistent map {}: {} keys, {} values and a hash size of {}", name,
+                    keys.size(), values.size(), hashes.size());
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.hashSize = (int) hashes.size();
+        this.keys = keys;
+        this.values = values;
+        this.hashes = hashes;
+    }
+
     /**
      * @param key
      *            The key to test
@@ -1,11 +1,15 @@
 package org.openstreetmap.atlas.utilities.maps;
 
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongToLongMapAdapter;
 import org.openstreetmap.atlas.proto.ProtoSerializable;
 import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
 import org.openstreetmap.atlas.proto.adapters.ProtoLongToLongMapAdapter;
 import org.openstreetmap.atlas.utilities.arrays.LargeArray;
 import org.openstreetmap.atlas.utilities.arrays.LongArray;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
 
 /**
  * {@link LargeMap} from {@link Long} to {@link Long}
@@ -13,7 +17,8 @@ import org.openstreetmap.atlas.utilities.arrays.LongArray;
  * @author matthieun
  * @author lcram
  */
-public class LongToLongMap extends LargeMap<Long, Long> implements ProtoSerializable
+public class LongToLongMap extends LargeMap<Long, Long>
+        implements ProtoSerializable, MappedSerializable
 {
     private static final long serialVersionUID = -3488197516341341480L;
 
@@ -85,6 +90,27 @@ public class LongToLongMap extends LargeMap<Long, Long> implements ProtoSerializ
                 valueMemoryBlockSize, valueSubArraySize);
     }
 
+    /**
+     * Construct a map around existing arrays, usually read-only arrays read in place from a memory
+     * mapped file
+     *
+     * @param name
+     *            The name of the map
+     * @param maximumSize
+     *            The maximum number of keys in the map
+     * @param keys
+     *            The keys
+     * @param values
+     *            The values, at the same indices as their keys
+     * @param hashes
+     *            For each hash value, the indices of the keys with that hash
+     */
+    public LongToLongMap(final String name, final long maximumSize, final LongArray keys,
+            final LongArray values, final LongArrayOfArrays hashes)
+    {
+        super(name, maximumSize, keys, values, hashes);
+    }
+
     /**
      * This nullary constructor is solely for use by the {@link PackedAtlasSerializer}, which calls
      * it using reflection. It allows the serializer code to obtain a handle on a
@@ -97,6 +123,12 @@ public class LongToLongMap extends LargeMap<Long, Long> implements ProtoSerializ
         super();
     }
 
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedLongToLongMapAdapter();
+    }
+
     @Override
     public ProtoAdapter getProtoAdapter()
     {
@@ -3,6 +3,9 @@ package org.openstreetmap.atlas.utilities.maps;
 import java.util.Objects;
 
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongToLongMultiMapAdapter;
 import org.openstreetmap.atlas.proto.ProtoSerializable;
 import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
 import org.openstreetmap.atlas.proto.adapters.ProtoLongToLongMultiMapAdapter;
@@ -18,7 +21,8 @@ import org.openstreetmap.atlas.utilities.collections.StringList;
  * @author matthieun
  * @author lcram
  */
-public class LongToLongMultiMap extends LargeMap<Long, long[]> implements ProtoSerializable
+public class LongToLongMultiMap extends LargeMap<Long, long[]>
+        implements ProtoSerializable, MappedSerializable
 {
     private static final long serialVersionUID = 6741833447370296269L;
 
@@ -77,6 +81,27 @@ public class LongToLongMultiMap extends LargeMap<Long, long[]> implements ProtoS
                 valueMemoryBlockSize, valueSubArraySize);
     }
 
+    /**
+     * Construct a map around existing arrays, usually read-only arrays read in place from a memory
+     * mapped file
+     *
+     * @param name
+     *            The name of the map
+     * @param maximumSize
+     *            The maximum number of keys in the map
+     * @param keys
+     *            The keys
+     * @param values
+     *            The values, at the same indices as their keys
+     * @param hashes
+     *            For each hash value, the indices of the keys with that hash
+     */
+    public LongToLongMultiMap(final String name, final long maximumSize, final LongArray keys,
+            final LongArrayOfArrays values, final LongArrayOfArrays hashes)
+    {
+        super(name, maximumSize, keys, values, hashes);
+    }
+
     /**
      * This nullary constructor is solely for use by the {@link PackedAtlasSerializer}, which calls
      * it using reflection. It allows the serializer code to obtain a handle on a
@@ -149,6 +174,12 @@ public class LongToLongMultiMap extends LargeMap<Long, long[]> implements ProtoS
         return false;
     }
 
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedLongToLongMultiMapAdapter();
+    }
+
     @Override
     public ProtoAdapter getProtoAdapter()
     {
@@ -0,0 +1,533 @@
+package org.openstreetmap.atlas.utilities.maps;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.LongBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasSerializer;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongToLongOpenHashMapAdapter;
+import org.openstreetmap.atlas.proto.ProtoSerializable;
+import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoLongToLongOpenHashMapAdapter;
+
+/**
+ * Map from primitive long to primitive long, with open addressing and linear probing. Each slot of
+ * the table is a key immediately followed by its value, so a lookup reads consecutive longs instead
+ * of walking hash bucket, key and value arrays like {@link LongToLongMap} does. The table is split
+ * in blocks of {@link MappedBlock#MAXIMUM_MAPPED_LONGS} longs, so the map can hold more than
+ * {@link Integer#MAX_VALUE} entries, and the blocks can be memory mapped in place.
+ * <p>
+ * {@link #FREE_KEY} marks the empty slots, and cannot be used as a key. Entries cannot be removed.
+ * The map is not synchronized: it can be read by many threads once it is not written to anymore.
+ *
+ * @author agent
+ */
+public class LongToLongOpenHashMap implements Iterable<Long>, Serializable, ProtoSerializable,
+        MappedSerializable
+{
+    public static final long FREE_KEY = Long.MIN_VALUE;
+
+    private static final long serialVersionUID = 2185734619904526382L;
+    private static final int BLOCK_SHIFT = Integer
+            .numberOfTrailingZeros(MappedBlock.MAXIMUM_MAPPED_LONGS);
+    private static final long BLOCK_MASK = MappedBlock.MAXIMUM_MAPPED_LONGS - 1L;
+    private static final long MINIMUM_CAPACITY = 16L;
+    // The table grows when it is more than 3/4 full
+    private static final long LOAD_NUMERATOR = 3L;
+    private static final long LOAD_DENOMINATOR = 4L;
+    // Finalizer of MurmurHash3, which spreads sequential identifiers over the table
+    private static final long MIX_FIRST = 0xff51afd7ed558ccdL;
+    private static final long MIX_SECOND = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+
+    private final String name;
+    private long size;
+    private long capacity;
+    private transient LongBuffer[] table;
+
+    /**
+     * @param map
+     *            A {@link LongToLongMap}, for example an identifier map of an atlas saved before
+     *            the identifier maps were {@link LongToLongOpenHashMap}s
+     * @return A {@link LongToLongOpenHashMap} with the same name and entries
+     */
+    public static LongToLongOpenHashMap copyOf(final LongToLongMap map)
+    {
+        final LongToLongOpenHashMap result = new LongToLongOpenHashMap(map.getName(), map.size());
+        map.forEach(key -> result.put(key, map.get(key)));
+        return result;
+    }
+
+    /**
+     * @param slots
+     *            The number of slots of a table
+     * @return The blocks of a new table, with all its slots free
+     */
+    public static LongBuffer[] newTable(final long slots)
+    {
+        final long length = slots * 2;
+        final int numberOfBlocks = (int) ((length + BLOCK_MASK) >>> BLOCK_SHIFT);
+        final LongBuffer[] result = new LongBuffer[numberOfBlocks];
+        for (int index = 0; index < numberOfBlocks; index++)
+        {
+            final long[] block = new long[(int) Math
+                    .min(MappedBlock.MAXIMUM_MAPPED_LONGS, length - ((long) index << BLOCK_SHIFT))];
+            for (int position = 0; position < block.length; position += 2)
+            {
+                block[position] = FREE_KEY;
+            }
+            result[index] = LongBuffer.wrap(block);
+        }
+        return result;
+    }
+
+    /**
+     * @param expectedSize
+     *            The number of entries the map will hold
+     * @return The smallest capacity that holds that many entries without growing
+     */
+    private static long capacityFor(final long expectedSize)
+    {
+        final long minimum = Math.max(MINIMUM_CAPACITY,
+                expectedSize / LOAD_NUMERATOR * LOAD_DENOMINATOR + LOAD_DENOMINATOR);
+        return Long.highestOneBit(minimum - 1) << 1;
+    }
+
+    private static long mix(final long key)
+    {
+        long result = key;
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX_FIRST;
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX_SECOND;
+        result ^= result >>> MIX_SHIFT;
+        return result;
+    }
+
+    /**
+     * @param expectedSize
+     *            The number of entries the map is expected to hold. The map grows past it if
+     *            needed.
+     */
+    public LongToLongOpenHashMap(final long expectedSize)
+    {
+        this("LongToLongOpenHashMap", expectedSize);
+    }
+
+    /**
+     * @param name
+     *            The name of the map
+     * @param expectedSize
+     *            The number of entries the map is expected to hold. The map grows past it if
+     *            needed.
+     */
+    public LongToLongOpenHashMap(final String name, final long expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new CoreException("Invalid expected size {} for map {}", expectedSize, name);
+        }
+        this.name = name;
+        this.capacity = capacityFor(expectedSize);
+        this.table = newTable(this.capacity);
+    }
+
+    /**
+     * Construct a map around an existing table, for example a read-only table read in place from a
+     * memory mapped file.
+     *
+     * @param name
+     *            The name of the map
+     * @param size
+     *            The number of entries in the table
+     * @param table
+     *            The blocks of the table, of {@link MappedBlock#MAXIMUM_MAPPED_LONGS} longs each
+     *            except for the last one. The number of slots has to be a power of two.
+     */
+    public LongToLongOpenHashMap(final String name, final long size, final LongBuffer[] table)
+    {
+        long length = 0;
+        for (final LongBuffer block : table)
+        {
+            length += block.capacity();
+        }
+        final long slots = length / 2;
+        if (slots < 1 || Long.bitCount(slots) != 1 || size < 0 || size >= slots)
+        {
+            throw new CoreException("Inconsistent map {}: {} entries in a table of {} longs", name,
+                    size, length);
+        }
+        this.name = name;
+        this.size = size;
+        this.capacity = slots;
+        this.table = table;
+    }
+
+    /**
+     * This nullary constructor is solely for use by the {@link PackedAtlasSerializer}, which calls
+     * it using reflection. It allows the serializer code to obtain a handle on a
+     * {@link LongToLongOpenHashMap} that it can use to grab the correct {@link ProtoAdapter}. The
+     * object initialized with this constructor will be corrupted for general use and should be
+     * discarded.
+     */
+    @SuppressWarnings("unused")
+    private LongToLongOpenHashMap()
+    {
+        this.name = null;
+    }
+
+    /**
+     * @return The number of slots of the table
+     */
+    public long capacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * @param key
+     *            The key to test
+     * @return True if the map contains that key
+     */
+    public boolean containsKey(final long key)
+    {
+        return key != FREE_KEY && findSlot(key) >= 0;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof LongToLongOpenHashMap))
+        {
+            return false;
+        }
+        final LongToLongOpenHashMap that = (LongToLongOpenHashMap) other;
+        if (!Objects.equals(this.name, that.name) || this.size != that.size)
+        {
+            return false;
+        }
+        for (long slot = 0; slot < this.capacity; slot++)
+        {
+            final long key = keyAt(slot);
+            if (key != FREE_KEY && (!that.containsKey(key)
+                    || that.getOrDefault(key, 0L) != valueAt(slot)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param key
+     *            The key to look up
+     * @return The value of that key, or null if the map does not contain it
+     */
+    public Long get(final long key)
+    {
+        if (key == FREE_KEY)
+        {
+            return null;
+        }
+        final long slot = findSlot(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    @Override
+    public MappedAdapter getMappedAdapter()
+    {
+        return new MappedLongToLongOpenHashMapAdapter();
+    }
+
+    /**
+     * @return The name of this map
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Look up a value without boxing it, in a single probe sequence.
+     *
+     * @param key
+     *            The key to look up
+     * @param defaultValue
+     *            The value to return if the map does not contain the key
+     * @return The value of that key, or the default value
+     */
+    public long getOrDefault(final long key, final long defaultValue)
+    {
+        if (key == FREE_KEY)
+        {
+            return defaultValue;
+        }
+        final long slot = findSlot(key);
+        return slot < 0 ? defaultValue : valueAt(slot);
+    }
+
+    @Override
+    public ProtoAdapter getProtoAdapter()
+    {
+        return new ProtoLongToLongOpenHashMapAdapter();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        // Order independent, as the slots depend on the capacity
+        long result = Objects.hashCode(this.name) + this.size;
+        for (long slot = 0; slot < this.capacity; slot++)
+        {
+            final long key = keyAt(slot);
+            if (key != FREE_KEY)
+            {
+                result += Long.hashCode(key) ^ Long.hashCode(valueAt(slot));
+            }
+        }
+        return Long.hashCode(result);
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @return The keys, in the order of the slots of the table
+     */
+    @Override
+    public Iterator<Long> iterator()
+    {
+        return new Iterator<Long>()
+        {
+            private long slot = nextUsedSlot(0);
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.slot < LongToLongOpenHashMap.this.capacity;
+            }
+
+            @Override
+            public Long next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                final long result = keyAt(this.slot);
+                this.slot = nextUsedSlot(this.slot + 1);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * @param slot
+     *            The slot, between 0 and the {@link #capacity()}
+     * @return The key in that slot, or {@link #FREE_KEY} if the slot is free
+     */
+    public long keyAt(final long slot)
+    {
+        final long position = slot << 1;
+        return this.table[(int) (position >>> BLOCK_SHIFT)].get((int) (position & BLOCK_MASK));
+    }
+
+    /**
+     * Add or replace an entry. This grows the table when it gets more than 3/4 full, which
+     * re-inserts all the entries.
+     *
+     * @param key
+     *            The key, which cannot be {@link #FREE_KEY}
+     * @param value
+     *            The value
+     */
+    public void put(final long key, final long value)
+    {
+        if (key == FREE_KEY)
+        {
+            throw new CoreException("Key {} is reserved for free slots in map {}", key, this.name);
+        }
+        if (this.table[0].isReadOnly())
+        {
+            throw new CoreException("Cannot put {} in map {}: it is read-only", key, this.name);
+        }
+        long slot = findSlot(key);
+        if (slot >= 0)
+        {
+            setValueAt(slot, value);
+            return;
+        }
+        if ((this.size + 1) * LOAD_DENOMINATOR > this.capacity * LOAD_NUMERATOR)
+        {
+            resize(this.capacity << 1);
+        }
+        slot = mix(key) & (this.capacity - 1);
+        while (keyAt(slot) != FREE_KEY)
+        {
+            slot = slot + 1 & this.capacity - 1;
+        }
+        setKeyAt(slot, key);
+        setValueAt(slot, value);
+        this.size++;
+    }
+
+    public long size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        builder.append(this.getClass().getSimpleName());
+        builder.append(" ");
+        builder.append(this.name);
+        for (long slot = 0; slot < this.capacity; slot++)
+        {
+            final long key = keyAt(slot);
+            if (key != FREE_KEY)
+            {
+                builder.append(", ");
+                builder.append(key);
+                builder.append(" -> ");
+                builder.append(valueAt(slot));
+            }
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * Shrink the table to the smallest capacity that holds the current entries, when the map was
+     * created with an expected size larger than needed.
+     */
+    public void trim()
+    {
+        final long trimmedCapacity = capacityFor(this.size);
+        if (trimmedCapacity < this.capacity && !this.table[0].isReadOnly())
+        {
+            resize(trimmedCapacity);
+        }
+    }
+
+    /**
+     * @param slot
+     *            The slot, between 0 and the {@link #capacity()}
+     * @return The value in that slot, meaningless if the slot is free
+     */
+    public long valueAt(final long slot)
+    {
+        final long position = (slot << 1) + 1;
+        return this.table[(int) (position >>> BLOCK_SHIFT)].get((int) (position & BLOCK_MASK));
+    }
+
+    /**
+     * @param key
+     *            The key to find, which is not {@link #FREE_KEY}
+     * @return The slot of the key, or -1 if the map does not contain it
+     */
+    private long findSlot(final long key)
+    {
+        final long mask = this.capacity - 1;
+        long slot = mix(key) & mask;
+        while (true)
+        {
+            final long candidate = keyAt(slot);
+            if (candidate == key)
+            {
+                return slot;
+            }
+            if (candidate == FREE_KEY)
+            {
+                return -1L;
+            }
+            slot = slot + 1 & mask;
+        }
+    }
+
+    private long nextUsedSlot(final long start)
+    {
+        long slot = start;
+        while (slot < this.capacity && keyAt(slot) == FREE_KEY)
+        {
+            slot++;
+        }
+        return slot;
+    }
+
+    private void readObject(final ObjectInputStream input)
+            throws IOException, ClassNotFoundException
+    {
+        input.defaultReadObject();
+        this.table = newTable(this.capacity);
+        for (long slot = 0; slot < this.capacity; slot++)
+        {
+            setKeyAt(slot, input.readLong());
+            setValueAt(slot, input.readLong());
+        }
+    }
+
+    private void resize(final long newCapacity)
+    {
+        final LongBuffer[] oldTable = this.table;
+        final long oldCapacity = this.capacity;
+        this.table = newTable(newCapacity);
+        this.capacity = newCapacity;
+        final long mask = newCapacity - 1;
+        for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++)
+        {
+            final long position = oldSlot << 1;
+            final LongBuffer block = oldTable[(int) (position >>> BLOCK_SHIFT)];
+            final long key = block.get((int) (position & BLOCK_MASK));
+            if (key != FREE_KEY)
+            {
+                long slot = mix(key) & mask;
+                while (keyAt(slot) != FREE_KEY)
+                {
+                    slot = slot + 1 & mask;
+                }
+                setKeyAt(slot, key);
+                setValueAt(slot, block.get((int) (position & BLOCK_MASK) + 1));
+            }
+        }
+    }
+
+    private void setKeyAt(final long slot, final long key)
+    {
+        final long position = slot << 1;
+        this.table[(int) (position >>> BLOCK_SHIFT)].put((int) (position & BLOCK_MASK), key);
+    }
+
+    private void setValueAt(final long slot, final long value)
+    {
+        final long position = (slot << 1) + 1;
+        this.table[(int) (position >>> BLOCK_SHIFT)].put((int) (position & BLOCK_MASK), value);
+    }
+
+    private void writeObject(final ObjectOutputStream output) throws IOException
+    {
+        output.defaultWriteObject();
+        for (long slot = 0; slot < this.capacity; slot++)
+        {
+            output.writeLong(keyAt(slot));
+            output.writeLong(valueAt(slot));
+        }
+    }
+}
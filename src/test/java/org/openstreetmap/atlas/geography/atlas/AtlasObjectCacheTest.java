@@ -0,0 +1,254 @@
+package org.openstreetmap.atlas.geography.atlas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.atlas.AtlasObjectCache.Lease;
+import org.openstreetmap.atlas.geography.atlas.AtlasObjectCache.LeasingFetcher;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+import org.openstreetmap.atlas.geography.sharding.Shard;
+import org.openstreetmap.atlas.geography.sharding.SlippyTile;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.utilities.collections.Maps;
+
+/**
+ * @author agent
+ */
+public class AtlasObjectCacheTest
+{
+    private static final long ATLAS_BYTES = 10L;
+    private static final long CAPACITY = 20L;
+    private static final int NUMBER_OF_THREADS = 8;
+    private static final long TIMEOUT_SECONDS = 10L;
+    private static final long POLL_MILLISECONDS = 10L;
+
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    @Test
+    public void testConcurrentSingleFlight() throws InterruptedException, ExecutionException
+    {
+        final AtlasObjectCache cache = new AtlasObjectCache(CAPACITY, atlas -> ATLAS_BYTES);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<Optional<Atlas>> loader = () ->
+        {
+            loading.countDown();
+            try
+            {
+                release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return this.loader("a").get();
+        };
+        final ExecutorService pool = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try
+        {
+            final List<Future<Atlas>> results = new ArrayList<>();
+            for (int index = 0; index < NUMBER_OF_THREADS; index++)
+            {
+                results.add(pool.submit(() -> cache.get("a", loader).orElseThrow()));
+            }
+            Assert.assertTrue(loading.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            // Let the load finish only once all the other requests wait for it
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (cache.getStatistics().hitCount() < NUMBER_OF_THREADS - 1
+                    && System.nanoTime() < deadline)
+            {
+                Thread.sleep(POLL_MILLISECONDS);
+            }
+            release.countDown();
+            final Atlas first = results.get(0).get();
+            for (final Future<Atlas> result : results)
+            {
+                Assert.assertSame(first, result.get());
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        Assert.assertEquals(1, this.loads.get("a").get());
+        Assert.assertEquals(NUMBER_OF_THREADS - 1, cache.getStatistics().hitCount());
+        Assert.assertEquals(1, cache.getStatistics().missCount());
+    }
+
+    @Test
+    public void testEmptyAndFailingLoads()
+    {
+        final AtlasObjectCache cache = new AtlasObjectCache(CAPACITY, atlas -> ATLAS_BYTES);
+        Assert.assertTrue(cache.get("empty", Optional::empty).isEmpty());
+        // The empty result is cached, without any weight
+        Assert.assertTrue(cache.acquire("empty", this.loader("empty")).isEmpty());
+        Assert.assertNull(this.loads.get("empty"));
+        Assert.assertEquals(1, cache.getStatistics().hitCount());
+        try
+        {
+            cache.get("failing", () ->
+            {
+                throw new CoreException("Unable to load");
+            });
+            Assert.fail("The load failure should be thrown");
+        }
+        catch (final CoreException e)
+        {
+            Assert.assertEquals("Unable to load", e.getMessage());
+        }
+        // The failure is not cached
+        Assert.assertEquals(0L, cache.getTotalBytes());
+        Assert.assertTrue(cache.get("failing", this.loader("failing")).isPresent());
+        Assert.assertEquals(1, cache.getStatistics().loadExceptionCount());
+        Assert.assertEquals(2, cache.getStatistics().loadSuccessCount());
+    }
+
+    @Test
+    public void testErrorLoads()
+    {
+        final AtlasObjectCache cache = new AtlasObjectCache(CAPACITY, atlas -> ATLAS_BYTES);
+        try
+        {
+            cache.get("error", () ->
+            {
+                throw new AssertionError("Unable to load");
+            });
+            Assert.fail("The load error should be thrown");
+        }
+        catch (final AssertionError e)
+        {
+            Assert.assertEquals("Unable to load", e.getMessage());
+        }
+        final AtlasObjectCache failingWeigher = new AtlasObjectCache(CAPACITY, atlas ->
+        {
+            throw new CoreException("Unable to weigh");
+        });
+        try
+        {
+            failingWeigher.get("a", this.loader("a"));
+            Assert.fail("The weigher failure should be thrown");
+        }
+        catch (final CoreException e)
+        {
+            Assert.assertEquals("Unable to weigh", e.getMessage());
+        }
+        // The failed loads are not cached, and do not block the next requests of their keys
+        Assert.assertTrue(cache.get("error", this.loader("error")).isPresent());
+        Assert.assertEquals(0L, failingWeigher.getTotalBytes());
+        Assert.assertEquals(1, failingWeigher.getStatistics().loadExceptionCount());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        final AtlasObjectCache cache = new AtlasObjectCache(CAPACITY, atlas -> ATLAS_BYTES);
+        final Lease leased = cache.acquire("a", this.loader("a")).orElseThrow();
+        cache.get("b", this.loader("b"));
+        // Over capacity: a is the least recently used, but it is leased, so b is evicted
+        cache.get("c", this.loader("c"));
+        Assert.assertEquals(CAPACITY, cache.getTotalBytes());
+        Assert.assertEquals(1, cache.getStatistics().evictionCount());
+        Assert.assertSame(leased.getAtlas(), cache.get("a", this.loader("a")).orElseThrow());
+        Assert.assertEquals(1, this.loads.get("a").get());
+
+        // Once released, a can be evicted
+        leased.close();
+        leased.close();
+        cache.get("c", this.loader("c"));
+        cache.get("d", this.loader("d"));
+        cache.get("a", this.loader("a"));
+        Assert.assertEquals(2, this.loads.get("a").get());
+        cache.get("b", this.loader("b"));
+        Assert.assertEquals(2, this.loads.get("b").get());
+    }
+
+    @Test
+    public void testLeasingFetcher()
+    {
+        final AtlasObjectCache cache = new AtlasObjectCache(CAPACITY, atlas -> ATLAS_BYTES);
+        final Shard shard = new SlippyTile(0, 0, 1);
+        final AtomicInteger fetches = new AtomicInteger();
+        final Function<Shard, Optional<Resource>> resourceFetcher = fetched ->
+        {
+            fetches.incrementAndGet();
+            final ByteArrayResource resource = new ByteArrayResource(1 << 16)
+                    .withName(fetched.getName() + ".atlas");
+            this.loader(fetched.getName()).get().orElseThrow().save(resource);
+            return Optional.of(resource);
+        };
+        final Function<Shard, Optional<Atlas>> unleased = cache.atlasFetcher("source",
+                resourceFetcher);
+        final LeasingFetcher leasing = cache.leasingFetcher("source", resourceFetcher);
+        final Atlas leased = leasing.apply(shard).orElseThrow();
+        Assert.assertSame(leased, leasing.apply(shard).orElseThrow());
+
+        // The leased atlas stays cached while other atlases come and go
+        cache.get("b", this.loader("b"));
+        cache.get("c", this.loader("c"));
+        Assert.assertSame(leased, unleased.apply(shard).orElseThrow());
+        Assert.assertEquals(1, fetches.get());
+
+        // Once the fetcher is closed, it can be evicted
+        leasing.close();
+        cache.get("b", this.loader("b"));
+        cache.get("c", this.loader("c"));
+        Assert.assertNotSame(leased, unleased.apply(shard).orElseThrow());
+        Assert.assertEquals(2, fetches.get());
+        try
+        {
+            leasing.apply(shard);
+            Assert.fail("A closed fetcher should not lease shards any more");
+        }
+        catch (final CoreException e)
+        {
+            Assert.assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+
+    @Test
+    public void testSharing()
+    {
+        final AtlasObjectCache cache = new AtlasObjectCache(CAPACITY, atlas -> ATLAS_BYTES);
+        final Atlas first = cache.get("a", this.loader("a")).orElseThrow();
+        try (Lease lease = cache.acquire("a", this.loader("a")).orElseThrow())
+        {
+            Assert.assertSame(first, lease.getAtlas());
+        }
+        Assert.assertEquals(1, this.loads.get("a").get());
+        Assert.assertEquals(1, cache.getStatistics().hitCount());
+        Assert.assertEquals(1, cache.getStatistics().missCount());
+        Assert.assertEquals(ATLAS_BYTES, cache.getTotalBytes());
+
+        cache.invalidate();
+        Assert.assertEquals(0L, cache.getTotalBytes());
+        Assert.assertNotSame(first, cache.get("a", this.loader("a")).orElseThrow());
+    }
+
+    private Supplier<Optional<Atlas>> loader(final String key)
+    {
+        return () ->
+        {
+            this.loads.computeIfAbsent(key, name -> new AtomicInteger()).incrementAndGet();
+            final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+            builder.addPoint(1L, Location.TEST_1, Maps.hashMap("name", key));
+            return Optional.of(builder.get());
+        };
+    }
+}
@@ -12,9 +12,11 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
 import org.openstreetmap.atlas.geography.atlas.items.ItemType;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
 
 /**
  * @author Yazad Khambata
@@ -60,4 +62,24 @@ public class AtlasTest
         final long count = StreamSupport.stream(nodes.spliterator(), false).count();
         Assert.assertEquals(2, count);
     }
+
+    @Test
+    public void spatialIndicesBuiltAsync()
+    {
+        final AbstractAtlas atlas = (AbstractAtlas) this.rule.getAtlas();
+        atlas.buildSpatialIndicesAsync().join();
+        final Rectangle bounds = atlas.bounds();
+        Assert.assertEquals(atlas.numberOfNodes(),
+                Iterables.size(atlas.getNodeSpatialIndex().get(bounds)));
+        Assert.assertEquals(atlas.numberOfEdges(),
+                Iterables.size(atlas.getEdgeSpatialIndex().get(bounds)));
+        Assert.assertEquals(atlas.numberOfAreas(),
+                Iterables.size(atlas.getAreaSpatialIndex().get(bounds)));
+        Assert.assertEquals(atlas.numberOfLines(),
+                Iterables.size(atlas.getLineSpatialIndex().get(bounds)));
+        Assert.assertEquals(atlas.numberOfPoints(),
+                Iterables.size(atlas.getPointSpatialIndex().get(bounds)));
+        Assert.assertEquals(atlas.numberOfRelations(),
+                Iterables.size(atlas.relationsWithEntitiesIntersecting(bounds)));
+    }
 }
@@ -55,6 +55,7 @@ import org.openstreetmap.atlas.utilities.tuples.Tuple;
 public class ChangeAtlasTest
 {
     private static final Location NEW_LOCATION = Location.forString("37.592796,-122.2457961");
+    private static final long NEW_POINT_IDENTIFIER = 100L;
 
     private static final CountryBoundaryMap boundary;
     static
@@ -445,6 +446,39 @@ public class ChangeAtlasTest
                 .map(Edge::getIdentifier).collect(Collectors.toSet()));
     }
 
+    @Test
+    public void testNumberOfEntities()
+    {
+        final Atlas atlas = this.rule.getAtlas();
+        final ChangeBuilder changeBuilder = new ChangeBuilder();
+        // Removes its connected edges indirectly, and relation 39008000000 with them
+        changeBuilder.add(new FeatureChange(ChangeType.REMOVE,
+                CompleteNode.shallowFrom(atlas.node(38984000000L))));
+        changeBuilder.add(new FeatureChange(ChangeType.REMOVE,
+                CompleteNode.shallowFrom(atlas.node(38982000000L))));
+        // Removes relations 41834000000, 41860000000 and 41861000000 indirectly
+        changeBuilder.add(new FeatureChange(ChangeType.REMOVE,
+                CompletePoint.shallowFrom(atlas.point(41822000000L))));
+        changeBuilder.add(new FeatureChange(ChangeType.REMOVE,
+                CompleteLine.shallowFrom(atlas.line(41771000000L))));
+        changeBuilder.add(new FeatureChange(ChangeType.REMOVE,
+                CompleteArea.shallowFrom(atlas.area(41795000000L))));
+        changeBuilder.add(FeatureChange.add(new CompletePoint(NEW_POINT_IDENTIFIER, NEW_LOCATION,
+                Maps.hashMap("k", "v"), new HashSet<>())));
+        final Atlas changeAtlas = new ChangeAtlas(atlas, changeBuilder.get());
+
+        Assert.assertEquals(Iterables.size(changeAtlas.nodes()), changeAtlas.numberOfNodes());
+        Assert.assertEquals(Iterables.size(changeAtlas.edges()), changeAtlas.numberOfEdges());
+        Assert.assertEquals(Iterables.size(changeAtlas.areas()), changeAtlas.numberOfAreas());
+        Assert.assertEquals(Iterables.size(changeAtlas.lines()), changeAtlas.numberOfLines());
+        Assert.assertEquals(Iterables.size(changeAtlas.points()), changeAtlas.numberOfPoints());
+        Assert.assertEquals(Iterables.size(changeAtlas.relations()),
+                changeAtlas.numberOfRelations());
+        Assert.assertEquals(atlas.numberOfPoints(), changeAtlas.numberOfPoints());
+        Assert.assertTrue(changeAtlas.numberOfEdges() < atlas.numberOfEdges());
+        Assert.assertTrue(changeAtlas.numberOfRelations() < atlas.numberOfRelations());
+    }
+
     @Test
     public void testRemovedEdgeWhenAConnectedNodeIsMissing()
     {
@@ -711,6 +745,32 @@ public class ChangeAtlasTest
                 changeAtlas8.point(1L).getTags());
     }
 
+    @Test
+    public void testStreams()
+    {
+        final Atlas atlas = this.rule.getPointAtlas();
+        final ChangeBuilder changeBuilder = new ChangeBuilder();
+        changeBuilder.add(FeatureChange.add(CompletePoint.shallowFrom(atlas.point(1L))
+                .withRelations(atlas.point(1L).relations()).withRemovedRelationIdentifier(1L)));
+        changeBuilder.add(FeatureChange.add(
+                new CompletePoint(NEW_POINT_IDENTIFIER, NEW_LOCATION, Maps.hashMap("k", "v"),
+                        new HashSet<>())));
+        final Atlas changeAtlas = new ChangeAtlas(atlas, changeBuilder.get());
+
+        for (final boolean parallel : new boolean[] { true, false })
+        {
+            final Set<Point> points = changeAtlas.pointsStream(parallel)
+                    .collect(Collectors.toSet());
+            Assert.assertEquals(Iterables.size(changeAtlas.points()), points.size());
+            Assert.assertEquals(Iterables.asSet(changeAtlas.points()), points);
+            Assert.assertTrue(points.contains(changeAtlas.point(NEW_POINT_IDENTIFIER)));
+            Assert.assertEquals(Iterables.asSet(changeAtlas.relations()),
+                    changeAtlas.relationsStream(parallel).collect(Collectors.toSet()));
+            Assert.assertEquals(Iterables.size(changeAtlas.edges()),
+                    changeAtlas.edgesStream(parallel).count());
+        }
+    }
+
     @Test
     public void testUpdateAreaGeometry()
     {
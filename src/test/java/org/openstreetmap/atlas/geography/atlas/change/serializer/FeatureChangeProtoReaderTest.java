@@ -0,0 +1,154 @@
+package org.openstreetmap.atlas.geography.atlas.change.serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Polygon;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.builder.RelationBean;
+import org.openstreetmap.atlas.geography.atlas.change.ChangeType;
+import org.openstreetmap.atlas.geography.atlas.change.FeatureChange;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteArea;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteEdge;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteLine;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteNode;
+import org.openstreetmap.atlas.geography.atlas.complete.CompletePoint;
+import org.openstreetmap.atlas.geography.atlas.complete.CompleteRelation;
+import org.openstreetmap.atlas.geography.atlas.items.ItemType;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
+import org.openstreetmap.atlas.utilities.collections.Maps;
+import org.openstreetmap.atlas.utilities.collections.Sets;
+
+import com.google.common.collect.Lists;
+
+/**
+ * @author agent
+ */
+public class FeatureChangeProtoReaderTest
+{
+    private static final Map<String, String> TAGS = Maps.hashMap("tagKey1", "tagValue1", "tagKey2",
+            "tagValue2");
+    private static final Set<Long> RELATIONS = Sets.hashSet(444L, 555L);
+
+    private static void assertSameFeatureChanges(final List<FeatureChange> expected,
+            final List<FeatureChange> actual)
+    {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++)
+        {
+            final FeatureChange expectedChange = expected.get(index);
+            final FeatureChange actualChange = actual.get(index);
+            Assert.assertEquals(expectedChange, actualChange);
+            Assert.assertEquals(expectedChange.getBeforeView(), actualChange.getBeforeView());
+            Assert.assertEquals(expectedChange.getAfterView().bounds(),
+                    actualChange.getAfterView().bounds());
+            Assert.assertEquals(expectedChange.getMetaData(), actualChange.getMetaData());
+            Assert.assertEquals(expectedChange.getOptions(), actualChange.getOptions());
+        }
+    }
+
+    private static ByteArrayResource write(final Iterable<FeatureChange> featureChanges)
+    {
+        final ByteArrayResource resource = new ByteArrayResource();
+        try (FeatureChangeProtoWriter writer = new FeatureChangeProtoWriter(resource))
+        {
+            writer.writeAll(featureChanges);
+        }
+        return resource;
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final CompleteNode beforeNode = new CompleteNode(123L, Location.COLOSSEUM,
+                Maps.hashMap("a", "1", "b", "2"), Sets.treeSet(1L, 2L, 3L),
+                Sets.treeSet(10L, 11L, 12L), null);
+        final FeatureChange first = new FeatureChange(ChangeType.ADD,
+                new CompleteNode(123L, Location.EIFFEL_TOWER, Maps.hashMap("a", "1", "c", "3"),
+                        Sets.treeSet(1L, 2L, 3L, 4L), Sets.treeSet(10L, 11L, 12L, 13L), null),
+                beforeNode);
+        final FeatureChange second = new FeatureChange(ChangeType.ADD,
+                new CompleteNode(123L, Location.EIFFEL_TOWER,
+                        Maps.hashMap("a", "1", "b", "2", "c", "3"), Sets.treeSet(1L, 2L, 3L, 5L),
+                        Sets.treeSet(10L, 11L), null),
+                beforeNode);
+        final FeatureChange point = FeatureChange
+                .add(new CompletePoint(456L, Location.EIFFEL_TOWER, TAGS, RELATIONS));
+        final FeatureChange removed = FeatureChange
+                .remove(new CompleteArea(789L, Polygon.SILICON_VALLEY, TAGS, RELATIONS));
+
+        final List<FeatureChange> merged = Iterables.asList(FeatureChangeProtoReader.merge(List.of(
+                new FeatureChangeProtoReader(write(List.of(first, point))),
+                new FeatureChangeProtoReader(write(List.of(second, removed))))));
+
+        Assert.assertEquals(3, merged.size());
+        Assert.assertEquals(first.merge(second), merged.get(0));
+        Assert.assertEquals(beforeNode, merged.get(0).getBeforeView());
+        Assert.assertEquals(point, merged.get(1));
+        Assert.assertEquals(removed, merged.get(2));
+    }
+
+    @Test(expected = CoreException.class)
+    public void testMergeUnsorted()
+    {
+        final FeatureChange first = FeatureChange
+                .add(new CompletePoint(1L, Location.EIFFEL_TOWER, TAGS, RELATIONS));
+        final FeatureChange second = FeatureChange
+                .add(new CompletePoint(2L, Location.EIFFEL_TOWER, TAGS, RELATIONS));
+        Iterables.asList(FeatureChangeProtoReader.merge(
+                List.of(new FeatureChangeProtoReader(write(List.of(second, first))))));
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        final RelationBean members = new RelationBean();
+        members.addItem(456L, "role1", ItemType.EDGE);
+        members.addItem(789L, "role2", ItemType.AREA);
+        members.addItemExplicitlyExcluded(790L, "role2", ItemType.AREA);
+
+        final CompleteNode node = new CompleteNode(123L, Location.COLOSSEUM, TAGS,
+                new TreeSet<>(Sets.hashSet(1L, 2L)), new TreeSet<>(Sets.hashSet(3L)), RELATIONS);
+        node.setExplicitlyExcludedInEdgeIdentifiers(Sets.hashSet(4L));
+        final FeatureChange nodeChange = FeatureChange.add(node);
+        nodeChange.addMetaData("key", "value");
+        nodeChange.setOptions(FeatureChange.Options.OSC_IF_POSSIBLE);
+
+        final List<FeatureChange> featureChanges = new ArrayList<>();
+        featureChanges.add(nodeChange);
+        featureChanges.add(FeatureChange.add(new CompleteNode(124L, null, TAGS, null, null, null)
+                .withBoundsExtendedBy(Rectangle.TEST_RECTANGLE)));
+        featureChanges.add(FeatureChange
+                .add(new CompleteEdge(123L, PolyLine.TEST_POLYLINE, TAGS, 456L, 789L, RELATIONS)
+                        .withGeometricRelationIdentifiers(Sets.hashSet(444L))));
+        featureChanges.add(FeatureChange
+                .add(new CompleteEdge(124L, PolyLine.TEST_POLYLINE, null, null, null, null)));
+        featureChanges.add(FeatureChange
+                .add(new CompleteLine(123L, PolyLine.TEST_POLYLINE, TAGS, RELATIONS)));
+        featureChanges.add(FeatureChange
+                .add(new CompleteArea(123L, Polygon.TEST_BUILDING, null, RELATIONS)));
+        featureChanges.add(FeatureChange
+                .add(new CompletePoint(123L, Location.EIFFEL_TOWER, TAGS, RELATIONS)));
+        featureChanges.add(FeatureChange.add(new CompleteRelation(123L, TAGS,
+                Rectangle.TEST_RECTANGLE, members, Lists.newArrayList(123L), members, 123L,
+                RELATIONS)));
+        featureChanges.add(FeatureChange
+                .remove(new CompleteArea(124L, Polygon.SILICON_VALLEY, TAGS, RELATIONS)));
+
+        final ByteArrayResource resource = write(featureChanges);
+        assertSameFeatureChanges(featureChanges,
+                Iterables.asList(new FeatureChangeProtoReader(resource)));
+        // Reading again starts from the beginning
+        Assert.assertEquals(featureChanges.size(),
+                Iterables.size(new FeatureChangeProtoReader(resource)));
+    }
+}
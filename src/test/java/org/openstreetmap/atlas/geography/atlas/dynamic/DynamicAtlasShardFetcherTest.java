@@ -0,0 +1,73 @@
+package org.openstreetmap.atlas.geography.atlas.dynamic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy;
+import org.openstreetmap.atlas.geography.sharding.Shard;
+import org.openstreetmap.atlas.geography.sharding.SlippyTile;
+import org.openstreetmap.atlas.geography.sharding.SlippyTileSharding;
+
+/**
+ * @author agent
+ */
+public class DynamicAtlasShardFetcherTest
+{
+    private static final int ZOOM = 12;
+
+    private final Map<Shard, AtomicInteger> fetches = new ConcurrentHashMap<>();
+
+    @Test
+    public void testPendingShardsAreBounded()
+    {
+        final DynamicAtlasShardFetcher fetcher = newFetcher();
+        final List<Shard> shards = new ArrayList<>();
+        for (int index = 0; index <= DynamicAtlasShardFetcher.MAXIMUM_PENDING_SHARDS; index++)
+        {
+            shards.add(new SlippyTile(index, 0, ZOOM));
+        }
+        fetcher.prefetch(shards);
+        fetcher.fetch(shards);
+
+        // The oldest prefetch was dropped, and that shard was fetched again
+        Assert.assertEquals(2, this.fetches.get(shards.get(0)).get());
+        shards.subList(1, shards.size())
+                .forEach(shard -> Assert.assertEquals(1, this.fetches.get(shard).get()));
+    }
+
+    @Test
+    public void testPrefetchIsReused()
+    {
+        final DynamicAtlasShardFetcher fetcher = newFetcher();
+        final Shard shard = new SlippyTile(0, 0, ZOOM);
+        fetcher.prefetch(List.of(shard));
+        fetcher.prefetch(List.of(shard));
+        Assert.assertTrue(fetcher.fetch(List.of(shard)).get(shard).isEmpty());
+        Assert.assertEquals(1, this.fetches.get(shard).get());
+
+        // Once requested, the prefetch is not kept any more
+        fetcher.fetch(List.of(shard));
+        Assert.assertEquals(2, this.fetches.get(shard).get());
+    }
+
+    /**
+     * @return A fetcher with a single background thread, which fetches the shards in the order
+     *         they are submitted
+     */
+    private DynamicAtlasShardFetcher newFetcher()
+    {
+        return new DynamicAtlasShardFetcher(new DynamicAtlasPolicy(shard ->
+        {
+            this.fetches.computeIfAbsent(shard, key -> new AtomicInteger()).incrementAndGet();
+            return Optional.empty();
+        }, new SlippyTileSharding(ZOOM), new SlippyTile(0, 0, ZOOM), Rectangle.MAXIMUM)
+                .withNeighboringShardsPrefetching(true));
+    }
+}
@@ -2,15 +2,22 @@ package org.openstreetmap.atlas.geography.atlas.dynamic;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.Atlas;
 import org.openstreetmap.atlas.geography.atlas.BareAtlas;
@@ -19,6 +26,7 @@ import org.openstreetmap.atlas.geography.atlas.dynamic.policy.DynamicAtlasPolicy
 import org.openstreetmap.atlas.geography.atlas.dynamic.rules.DynamicAtlasTestRule;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
 import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
@@ -39,6 +47,8 @@ import org.openstreetmap.atlas.utilities.scalars.Distance;
  */
 public class DynamicAtlasTest
 {
+    private static final long PREFETCH_TIMEOUT_SECONDS = 10;
+
     @Rule
     public DynamicAtlasTestRule rule = new DynamicAtlasTestRule();
 
@@ -304,6 +314,85 @@ public class DynamicAtlasTest
         Assert.assertEquals(8, this.dynamicAtlas.numberOfEdges());
     }
 
+    @Test
+    public void testNearest()
+    {
+        final Atlas atlas = this.rule.getAtlas();
+        final Location location = atlas.node(1L).getLocation();
+        final Distance maximumDistance = Distance.kilometers(100);
+        // Load all the shards, so the nearest items are the ones of the whole atlas. Items at the
+        // same distance can come in any order, so only their distances are compared.
+        Assert.assertEquals(9, Iterables.size(this.dynamicAtlas.edges()));
+
+        final List<Node> nodes = this.dynamicAtlas.nearestNodes(location, 3, maximumDistance,
+                node -> node instanceof DynamicNode && node.getIdentifier() != 1L);
+        Assert.assertEquals(distances(location, atlas.nearestNodes(location, 3,
+                maximumDistance, node -> node.getIdentifier() != 1L)),
+                distances(location, nodes));
+        Assert.assertFalse(nodes.contains(this.dynamicAtlas.node(1L)));
+        nodes.forEach(node -> Assert.assertTrue(node instanceof DynamicNode));
+
+        final List<Edge> edges = this.dynamicAtlas.nearestEdges(location, 4, maximumDistance,
+                Edge::isMainEdge);
+        Assert.assertEquals(distances(location,
+                atlas.nearestEdges(location, 4, maximumDistance, Edge::isMainEdge)),
+                distances(location, edges));
+        edges.forEach(edge -> Assert.assertTrue(edge.isMainEdge()));
+        edges.forEach(edge -> Assert.assertTrue(edge instanceof DynamicEdge));
+
+        final List<AtlasItem> items = this.dynamicAtlas.nearestItems(location, 5,
+                maximumDistance, item -> true);
+        Assert.assertEquals(distances(location,
+                atlas.nearestItems(location, 5, maximumDistance, item -> true)),
+                distances(location, items));
+        items.forEach(item -> Assert.assertTrue(atlasEntityIsADynamicEntity(item)));
+    }
+
+    @Test
+    public void testParallelShardFetching() throws InterruptedException
+    {
+        final Shard prefetchedShard = new SlippyTile(1350, 1869, 12);
+        final CountDownLatch prefetched = new CountDownLatch(1);
+        final Map<Shard, AtomicInteger> fetches = new ConcurrentHashMap<>();
+        prepare(new DynamicAtlasPolicy(shard ->
+        {
+            fetches.computeIfAbsent(shard, key -> new AtomicInteger()).incrementAndGet();
+            if (shard.equals(prefetchedShard))
+            {
+                prefetched.countDown();
+            }
+            return Optional.ofNullable(this.store.get(shard));
+        }, new SlippyTileSharding(12), new SlippyTile(1350, 1870, 12), Rectangle.MAXIMUM)
+                .withShardFetchingThreads(4).withNeighboringShardsPrefetching(true));
+        Assert.assertEquals(4, this.dynamicAtlas.numberOfEdges());
+        Assert.assertEquals(1, this.dynamicAtlas.getNumberOfShardsLoaded());
+        Assert.assertTrue(prefetched.await(PREFETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // Prompts load of 12-1350-1869, which was prefetched and is not fetched again
+        Assert.assertNotNull(this.dynamicAtlas.edge(2000000));
+        Assert.assertEquals(6, this.dynamicAtlas.numberOfEdges());
+        Assert.assertEquals(2, this.dynamicAtlas.getNumberOfShardsLoaded());
+        Assert.assertEquals(1, fetches.get(prefetchedShard).get());
+
+        // Prompts load of 12-1349-1869
+        Assert.assertNotNull(this.dynamicAtlas.edge(4000000));
+        Assert.assertEquals(8, this.dynamicAtlas.numberOfEdges());
+        Assert.assertEquals(3, this.dynamicAtlas.getNumberOfShardsLoaded());
+
+        // Prompts load of 12-1349-1870
+        Assert.assertNotNull(this.dynamicAtlas.edge(6000000));
+        Assert.assertEquals(9, this.dynamicAtlas.numberOfEdges());
+        Assert.assertEquals(4, this.dynamicAtlas.getNumberOfShardsLoaded());
+        // Prefetching never fetches a shard twice
+        fetches.forEach((shard, count) -> Assert.assertEquals(shard.getName(), 1, count.get()));
+
+        prepare(this.policySupplier.get().withShardFetchingThreads(4)
+                .withDeferredLoading(true));
+        this.dynamicAtlas.preemptiveLoad();
+        Assert.assertEquals(4, this.dynamicAtlas.getAtlasesLoaded().size());
+        Assert.assertEquals(9, this.dynamicAtlas.numberOfEdges());
+    }
+
     /**
      * Check to make sure that {@link Atlas#relationsLowerOrderFirst()} works when the {@link Atlas}
      * is a {@link DynamicAtlas}. In older versions of the code, any relations that had members
@@ -467,4 +556,11 @@ public class DynamicAtlasTest
         return isDynamicPoint || isDynamicLine || isDynamicArea || isDynamicNode || isDynamicEdge
                 || isDynamicRelation;
     }
+
+    private List<Distance> distances(final Location location,
+            final List<? extends AtlasItem> items)
+    {
+        return items.stream().map(item -> item.distanceTo(location))
+                .collect(Collectors.toList());
+    }
 }
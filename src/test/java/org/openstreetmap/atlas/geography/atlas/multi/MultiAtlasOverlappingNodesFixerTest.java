@@ -1,5 +1,6 @@
 package org.openstreetmap.atlas.geography.atlas.multi;
 
+import java.util.Arrays;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
@@ -90,6 +91,36 @@ public class MultiAtlasOverlappingNodesFixerTest extends Command
         Assert.assertEquals(2, route.size());
     }
 
+    @Test
+    public void testOverlappingNodesWhenAppending()
+    {
+        final Atlas subAtlas1 = this.setup.overlappingSubAtlas1();
+        final Atlas subAtlas2 = this.setup.overlappingSubAtlas2();
+        final MultiAtlas base = new MultiAtlas(subAtlas2);
+        final MultiAtlas multiAtlas = base.append(Arrays.asList(subAtlas1));
+        // The base is not changed
+        Assert.assertEquals(1, base.numberOfSubAtlas());
+        Assert.assertEquals(subAtlas2.numberOfEdges(), base.numberOfEdges());
+        Assert.assertEquals(subAtlas2.numberOfNodes(), base.numberOfNodes());
+        final MultiAtlas expected = new MultiAtlas(subAtlas1, subAtlas2);
+        expected.edges().forEach(edge ->
+        {
+            final Edge appendedEdge = multiAtlas.edge(edge.getIdentifier());
+            Assert.assertEquals(edge.start().getIdentifier(),
+                    appendedEdge.start().getIdentifier());
+            Assert.assertEquals(edge.end().getIdentifier(), appendedEdge.end().getIdentifier());
+        });
+
+        final Atlas eastAtlas = this.setup.subAtlasOnAntimeridianEast();
+        final Atlas westAtlas = this.setup.subAtlasOnAntimeridianWest();
+        final MultiAtlas antimeridianAtlas = new MultiAtlas(westAtlas)
+                .append(Arrays.asList(eastAtlas));
+        final Route route = AStarRouter.dijkstra(antimeridianAtlas, Distance.meters(40)).route(
+                Location.forString(MultiAtlasOverlappingNodesFixerTestRule.POINT_1_LOCATION),
+                Location.forString(MultiAtlasOverlappingNodesFixerTestRule.POINT_4_LOCATION));
+        Assert.assertEquals(2, route.size());
+    }
+
     @Override
     protected int onRun(final CommandMap command)
     {
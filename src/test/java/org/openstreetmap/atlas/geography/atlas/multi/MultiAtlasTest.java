@@ -1,8 +1,14 @@
 package org.openstreetmap.atlas.geography.atlas.multi;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -12,7 +18,9 @@ import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.PolyLine;
 import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
 import org.openstreetmap.atlas.geography.atlas.items.Relation;
 import org.openstreetmap.atlas.geography.atlas.items.RelationMemberList;
 import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
@@ -87,6 +95,93 @@ public class MultiAtlasTest
         Assert.assertFalse(edgeIterator.hasNext());
     }
 
+    @Test
+    public void testAppend()
+    {
+        final MultiAtlas appended = new MultiAtlas(this.base).append(Arrays.asList(this.other));
+
+        Assert.assertEquals(this.multi.numberOfNodes(), appended.numberOfNodes());
+        Assert.assertEquals(this.multi.numberOfEdges(), appended.numberOfEdges());
+        Assert.assertEquals(this.multi.numberOfRelations(), appended.numberOfRelations());
+        assertSameEntities(this.multi.nodes(), Iterables.asList(appended.nodes()).stream());
+        assertSameEntities(this.multi.edges(), Iterables.asList(appended.edges()).stream());
+        assertSameEntities(this.multi.relations(),
+                Iterables.asList(appended.relations()).stream());
+
+        // The spatial indices cover the appended atlas
+        final Rectangle ac2Box = Location.TEST_1.boxAround(Distance.ONE_METER);
+        assertSameEntities(this.multi.nodesWithin(ac2Box),
+                Iterables.asList(appended.nodesWithin(ac2Box)).stream());
+        assertSameEntities(this.multi.edgesIntersecting(ac2Box),
+                Iterables.asList(appended.edgesIntersecting(ac2Box)).stream());
+        assertSameEntities(this.multi.relationsWithEntitiesIntersecting(this.multi.bounds()),
+                Iterables.asList(appended.relationsWithEntitiesIntersecting(appended.bounds()))
+                        .stream());
+
+        // The relations sliced across both atlases have all their members
+        Assert.assertEquals(4, appended.relation(1L).members().size());
+        Assert.assertEquals(1, appended.edge(6).end().outEdges().size());
+        Assert.assertEquals(2, appended.edge(-9).end().inEdges().size());
+    }
+
+    @Test
+    public void testAppendManyAtlases()
+    {
+        final List<Atlas> atlases = new ArrayList<>();
+        for (int atlasIndex = 0; atlasIndex < 20; atlasIndex++)
+        {
+            final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+            for (int nodeIndex = 0; nodeIndex < 10; nodeIndex++)
+            {
+                builder.addNode(atlasIndex * 10L + nodeIndex,
+                        Location.forWkt("POINT (" + atlasIndex + " " + nodeIndex + ")"),
+                        new HashMap<>());
+            }
+            atlases.add(builder.get());
+        }
+        MultiAtlas appended = new MultiAtlas(atlases.get(0));
+        for (final Atlas atlas : atlases.subList(1, atlases.size()))
+        {
+            appended = appended.append(Arrays.asList(atlas));
+        }
+        final MultiAtlas expected = new MultiAtlas(atlases);
+
+        Assert.assertEquals(200, appended.numberOfNodes());
+        assertSameEntities(expected.nodes(), Iterables.asList(appended.nodes()).stream());
+        final Rectangle box = Rectangle.forLocated(Location.forWkt("POINT (4.5 2.5)"),
+                Location.forWkt("POINT (12.5 6.5)"));
+        assertSameEntities(expected.nodesWithin(box),
+                Iterables.asList(appended.nodesWithin(box)).stream());
+        Assert.assertEquals(32, Iterables.size(appended.nodesWithin(box)));
+    }
+
+    @Test
+    public void testAppendWhileReading()
+    {
+        final MultiAtlas original = new MultiAtlas(this.base);
+        final List<Edge> expectedEdges = Iterables.asList(original.edges());
+        final List<Edge> readEdges = new ArrayList<>();
+        MultiAtlas appended = null;
+        for (final Edge edge : original.edges())
+        {
+            if (appended == null)
+            {
+                appended = original.append(Arrays.asList(this.other));
+            }
+            readEdges.add(edge);
+        }
+
+        // The original is not changed by the append, even while it is being read
+        assertSameEntities(expectedEdges, readEdges.stream());
+        Assert.assertEquals(this.base.numberOfEdges(), original.numberOfEdges());
+        Assert.assertEquals(1, original.numberOfSubAtlas());
+        Assert.assertNull(original.edge(6));
+        Assert.assertEquals(1, original.edge(987).start().inEdges().size());
+        Assert.assertNotNull(appended);
+        Assert.assertEquals(this.multi.numberOfEdges(), appended.numberOfEdges());
+        Assert.assertEquals(2, appended.edge(987).start().inEdges().size());
+    }
+
     @Test
     public void testFilter()
     {
@@ -109,6 +204,31 @@ public class MultiAtlasTest
         logger.info("{}", multiFiltered.numberOfEdges());
     }
 
+    @Test
+    public void testNearest()
+    {
+        final Distance maximumDistance = Distance.meters(100000);
+        final List<Distance> expected = Iterables.asList(this.multi.edges()).stream()
+                .map(edge -> edge.distanceTo(Location.TEST_1))
+                .filter(distance -> distance.isLessThanOrEqualTo(maximumDistance))
+                .sorted(Comparator.comparingDouble(Distance::asMillimeters)).limit(3)
+                .collect(Collectors.toList());
+        final List<Edge> edges = this.multi.nearestEdges(Location.TEST_1, 3, maximumDistance,
+                edge -> true);
+        Assert.assertEquals(expected, edges.stream().map(edge -> edge.distanceTo(Location.TEST_1))
+                .collect(Collectors.toList()));
+        Assert.assertTrue(edges.stream().allMatch(MultiEdge.class::isInstance));
+        Assert.assertEquals(edges.size(), new HashSet<>(edges).size());
+
+        final List<Node> nodes = this.multi.nearestNodes(Location.TEST_1, 1, maximumDistance,
+                node -> true);
+        Assert.assertEquals(4, nodes.get(0).getIdentifier());
+        Assert.assertTrue(nodes.get(0) instanceof MultiNode);
+        Assert.assertTrue(this.multi.nearestNodes(Location.TEST_1, 1, maximumDistance,
+                node -> node.getIdentifier() != 4).stream()
+                .noneMatch(node -> node.getIdentifier() == 4));
+    }
+
     @Test
     public void testOverlappingMeridianNodes()
     {
@@ -156,6 +276,23 @@ public class MultiAtlasTest
         Assert.assertEquals(8, allMembers3.size());
     }
 
+    @Test
+    public void testStreams()
+    {
+        for (final boolean parallel : new boolean[] { true, false })
+        {
+            // Nodes shared by both sub atlases are streamed once
+            assertSameEntities(this.multi.nodes(), this.multi.nodesStream(parallel));
+            assertSameEntities(this.multi.edges(), this.multi.edgesStream(parallel));
+            assertSameEntities(this.multi.areas(), this.multi.areasStream(parallel));
+            assertSameEntities(this.multi.lines(), this.multi.linesStream(parallel));
+            assertSameEntities(this.multi.points(), this.multi.pointsStream(parallel));
+            assertSameEntities(this.multi.relations(), this.multi.relationsStream(parallel));
+            Assert.assertTrue(
+                    this.multi.edgesStream(parallel).allMatch(MultiEdge.class::isInstance));
+        }
+    }
+
     @Test
     public void totalTest()
     {
@@ -171,4 +308,15 @@ public class MultiAtlasTest
         Assert.assertEquals(4, Iterables.size(this.multi.nodes()));
         Assert.assertEquals(3, Iterables.size(this.multi.relations()));
     }
+
+    private void assertSameEntities(final Iterable<? extends AtlasEntity> expected,
+            final Stream<? extends AtlasEntity> actual)
+    {
+        final List<Long> identifiers = actual.map(AtlasEntity::getIdentifier)
+                .collect(Collectors.toList());
+        Assert.assertEquals(Iterables.size(expected), identifiers.size());
+        Assert.assertEquals(
+                Iterables.stream(expected).map(AtlasEntity::getIdentifier).collectToSet(),
+                new HashSet<>(identifiers));
+    }
 }
@@ -0,0 +1,164 @@
+package org.openstreetmap.atlas.geography.atlas.packed;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Area;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.LineItem;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas.AtlasSerializationFormat;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Checks that a {@link PackedAtlas} built with flat geometry has the same shapes as the one built
+ * with compressed shapes.
+ *
+ * @author agent
+ */
+public class PackedAtlasFlatGeometryTest
+{
+    private static final Distance QUERY_SIZE = Distance.meters(200);
+
+    @Rule
+    public final PackedAtlasTestRule rule = new PackedAtlasTestRule();
+
+    @Test
+    public void testFlatGeometry()
+    {
+        final Atlas expected = this.rule.getAtlas();
+        final PackedAtlas flat = new PackedAtlasCloner().withFlatGeometry().cloneFrom(expected);
+        Assert.assertNull(getField(flat, PackedAtlas.FIELD_EDGE_POLY_LINES));
+        Assert.assertNotNull(getField(flat, PackedAtlas.FIELD_EDGE_FLAT_POLY_LINES));
+        assertSameGeometry(expected, flat);
+    }
+
+    @Test
+    public void testMissingShapes() throws IOException
+    {
+        // Only the atlases with flat geometry can do without their compressed shapes
+        final PackedAtlas atlas = this.rule.getAtlas().cloneToPackedAtlas();
+        final ByteArrayResource resource = new ByteArrayResource(1 << 20)
+                .withName("testMissingShapes");
+        atlas.save(resource);
+        final File file = File.temporary();
+        try
+        {
+            try (ZipInputStream input = new ZipInputStream(resource.read());
+                    ZipOutputStream output = new ZipOutputStream(file.write()))
+            {
+                ZipEntry entry = input.getNextEntry();
+                while (entry != null)
+                {
+                    if (!PackedAtlas.FIELD_EDGE_POLY_LINES.equals(entry.getName()))
+                    {
+                        output.putNextEntry(new ZipEntry(entry.getName()));
+                        input.transferTo(output);
+                        output.closeEntry();
+                    }
+                    entry = input.getNextEntry();
+                }
+            }
+            final Edge edge = PackedAtlas.load(file).edges().iterator().next();
+            try
+            {
+                edge.asPolyLine();
+                Assert.fail("An atlas without edge shapes should not load its edges");
+            }
+            catch (final CoreException e)
+            {
+                Assert.assertNull(getField(edge.getAtlas(), PackedAtlas.FIELD_EDGE_POLY_LINES));
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSerialization()
+    {
+        final Atlas expected = this.rule.getAtlas();
+        final PackedAtlas flat = new PackedAtlasCloner().withFlatGeometry().cloneFrom(expected);
+        for (final AtlasSerializationFormat format : AtlasSerializationFormat.values())
+        {
+            final ByteArrayResource resource = new ByteArrayResource(1 << 20)
+                    .withName("testSerialization" + format);
+            flat.setSaveSerializationFormat(format);
+            flat.save(resource);
+            final PackedAtlas loaded = PackedAtlas.load(resource);
+            assertSameGeometry(expected, loaded);
+            Assert.assertNull(getField(loaded, PackedAtlas.FIELD_AREA_POLYGONS));
+        }
+    }
+
+    private void assertSameGeometry(final Atlas expected, final Atlas actual)
+    {
+        final Set<Rectangle> queries = Iterables.stream(expected.nodes())
+                .map(node -> node.getLocation().boxAround(QUERY_SIZE)).collectToSet();
+        queries.add(expected.bounds());
+        expected.edges().forEach(edge -> assertSameLineItem(edge,
+                actual.edge(edge.getIdentifier()), queries));
+        expected.lines().forEach(line -> assertSameLineItem(line,
+                actual.line(line.getIdentifier()), queries));
+        for (final Area area : expected.areas())
+        {
+            final Area other = actual.area(area.getIdentifier());
+            Assert.assertEquals(area.asPolygon(), other.asPolygon());
+            Assert.assertEquals(area.bounds(), other.bounds());
+            queries.forEach(query -> Assert.assertEquals(area.intersects(query),
+                    other.intersects(query)));
+        }
+        for (final Rectangle query : queries)
+        {
+            Assert.assertEquals(identifiers(expected.edgesIntersecting(query)),
+                    identifiers(actual.edgesIntersecting(query)));
+            Assert.assertEquals(identifiers(expected.areasIntersecting(query)),
+                    identifiers(actual.areasIntersecting(query)));
+        }
+    }
+
+    private void assertSameLineItem(final LineItem expected, final LineItem actual,
+            final Set<Rectangle> queries)
+    {
+        Assert.assertEquals(expected.asPolyLine(), actual.asPolyLine());
+        Assert.assertEquals(expected.bounds(), actual.bounds());
+        Assert.assertEquals(expected.length(), actual.length());
+        Assert.assertEquals(expected.numberOfShapePoints(), actual.numberOfShapePoints());
+        queries.forEach(query -> Assert.assertEquals(expected.intersects(query),
+                actual.intersects(query)));
+    }
+
+    private Object getField(final Atlas atlas, final String name)
+    {
+        try
+        {
+            final Field field = PackedAtlas.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(atlas);
+        }
+        catch (final Exception e)
+        {
+            throw new CoreException("Could not get field {}", name, e);
+        }
+    }
+
+    private Set<Long> identifiers(final Iterable<? extends AtlasEntity> entities)
+    {
+        return Iterables.stream(entities).map(AtlasEntity::getIdentifier).collectToSet();
+    }
+}
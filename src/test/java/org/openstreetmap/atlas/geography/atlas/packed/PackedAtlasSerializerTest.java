@@ -2,11 +2,16 @@ package org.openstreetmap.atlas.geography.atlas.packed;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -17,9 +22,12 @@ import org.openstreetmap.atlas.geography.Latitude;
 import org.openstreetmap.atlas.geography.Location;
 import org.openstreetmap.atlas.geography.Longitude;
 import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.AtlasMetaData;
 import org.openstreetmap.atlas.geography.atlas.AtlasResourceLoader;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.Node;
 import org.openstreetmap.atlas.geography.atlas.items.Route;
@@ -32,6 +40,8 @@ import org.openstreetmap.atlas.streaming.resource.File;
 import org.openstreetmap.atlas.utilities.arrays.ByteArray;
 import org.openstreetmap.atlas.utilities.collections.Iterables;
 import org.openstreetmap.atlas.utilities.collections.Maps;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongOpenHashMap;
 import org.openstreetmap.atlas.utilities.scalars.Distance;
 import org.openstreetmap.atlas.utilities.scalars.Surface;
 import org.openstreetmap.atlas.utilities.time.Time;
@@ -154,6 +164,52 @@ public class PackedAtlasSerializerTest
         this.atlas = this.rule.getAtlas().cloneToPackedAtlas();
     }
 
+    @Test
+    public void testCorruptOptionalField() throws IOException
+    {
+        // An optional field which is in the file but cannot be read is not taken as absent
+        final ByteArrayResource resource = new ByteArrayResource(524288)
+                .withName("testCorruptOptionalField");
+        this.atlas.save(resource);
+        final File file = File.temporary();
+        try
+        {
+            try (ZipInputStream input = new ZipInputStream(resource.read());
+                    ZipOutputStream output = new ZipOutputStream(file.write()))
+            {
+                ZipEntry entry = input.getNextEntry();
+                while (entry != null)
+                {
+                    output.putNextEntry(new ZipEntry(entry.getName()));
+                    if (PackedAtlas.FIELD_AREA_R_TREE.equals(entry.getName()))
+                    {
+                        output.write(new byte[] { 1, 2, 3 });
+                    }
+                    else
+                    {
+                        input.transferTo(output);
+                    }
+                    output.closeEntry();
+                    entry = input.getNextEntry();
+                }
+            }
+            final PackedAtlas deserialized = PackedAtlas.load(file);
+            try
+            {
+                deserialized.areasIntersecting(this.atlas.bounds()).iterator().hasNext();
+                Assert.fail("A corrupt area spatial index should not be ignored");
+            }
+            catch (final CoreException e)
+            {
+                Assert.assertTrue(e.getMessage().contains(PackedAtlas.FIELD_AREA_R_TREE));
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
     @Test
     public void testDeserializeThenSerialize()
     {
@@ -190,6 +246,165 @@ public class PackedAtlasSerializerTest
         atlas.metaData();
     }
 
+    @Test
+    public void testLegacyJavaIdentifierMaps() throws IOException
+    {
+        this.atlas.setSaveSerializationFormat(AtlasSerializationFormat.JAVA);
+        final ByteArrayResource java = new ByteArrayResource(524288)
+                .withName("testLegacyJavaIdentifierMaps");
+        this.atlas.save(java);
+
+        // Rewrite the identifier maps the way they were saved before they were open hash maps
+        final ByteArrayResource legacy = new ByteArrayResource(524288)
+                .withName("testLegacyJavaIdentifierMapsLegacy");
+        try (ZipInputStream input = new ZipInputStream(java.read());
+                ZipOutputStream output = new ZipOutputStream(legacy.write()))
+        {
+            ZipEntry entry = input.getNextEntry();
+            while (entry != null)
+            {
+                output.putNextEntry(new ZipEntry(entry.getName()));
+                final Object value = getField(this.atlas, entry.getName());
+                if (value instanceof LongToLongOpenHashMap)
+                {
+                    final LongToLongOpenHashMap map = (LongToLongOpenHashMap) value;
+                    final LongToLongMap legacyMap = new LongToLongMap(map.getName(), map.size(),
+                            1024);
+                    map.forEach(key -> legacyMap.put(key, map.get(key)));
+                    final ObjectOutputStream objects = new ObjectOutputStream(output);
+                    objects.writeObject(legacyMap);
+                    objects.flush();
+                }
+                else
+                {
+                    input.transferTo(output);
+                }
+                output.closeEntry();
+                entry = input.getNextEntry();
+            }
+        }
+
+        final PackedAtlas deserialized = PackedAtlas.load(legacy);
+        Assert.assertEquals(AtlasSerializationFormat.JAVA,
+                deserialized.getLoadSerializationFormat());
+        assertSameEntities(this.atlas, deserialized);
+        Assert.assertTrue(
+                getField(deserialized, PackedAtlas.FIELD_EDGE_IDENTIFIER_TO_EDGE_ARRAY_INDEX)
+                        instanceof LongToLongOpenHashMap);
+    }
+
+    @Test
+    public void testMappedFormat()
+    {
+        final File file = File.temporary();
+        try
+        {
+            this.atlas.setSaveSerializationFormat(AtlasSerializationFormat.MAPPED);
+            this.atlas.save(file);
+            final PackedAtlas deserialized = PackedAtlas.load(file);
+            Assert.assertEquals(AtlasSerializationFormat.MAPPED,
+                    deserialized.getSerializationFormat());
+
+            Assert.assertNull(getField(deserialized, PackedAtlas.FIELD_EDGE_IDENTIFIERS));
+            final Route route = AStarRouter.balanced(deserialized, Distance.meters(100))
+                    .route(deserialized.edge(9), deserialized.edge(98));
+            Assert.assertEquals(2, route.size());
+            Assert.assertNotNull(getField(deserialized, PackedAtlas.FIELD_EDGE_IDENTIFIERS));
+            Assert.assertNull(getField(deserialized, PackedAtlas.FIELD_AREA_POLYGONS));
+
+            Assert.assertEquals(2, Iterables.size(deserialized
+                    .areasIntersecting(Location.TEST_8.boxAround(Distance.ONE_METER))));
+            Assert.assertEquals(this.atlas.node(1234).toString(),
+                    deserialized.node(1234).toString());
+            Assert.assertEquals(this.atlas.edge(98).getTags(), deserialized.edge(98).getTags());
+            Assert.assertEquals(this.atlas.area(45).asPolygon(),
+                    deserialized.area(45).asPolygon());
+            Assert.assertEquals(this.atlas.size(), deserialized.size());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMappedFormatFromByteArray()
+    {
+        this.atlas.setSaveSerializationFormat(AtlasSerializationFormat.MAPPED);
+        final ByteArrayResource resource = new ByteArrayResource(524288)
+                .withName("testMappedFormatFromByteArray");
+        this.atlas.save(resource);
+        final PackedAtlas deserialized = PackedAtlas.load(resource);
+        Assert.assertEquals(AtlasSerializationFormat.MAPPED,
+                deserialized.getSerializationFormat());
+        Assert.assertEquals(this.atlas.edge(98).toString(), deserialized.edge(98).toString());
+        Assert.assertEquals(this.atlas.relation(1).members().size(),
+                deserialized.relation(1).members().size());
+
+        // Mapped atlases can be saved back to the other formats
+        deserialized.setSaveSerializationFormat(AtlasSerializationFormat.PROTOBUF);
+        final ByteArrayResource protoResource = new ByteArrayResource(524288)
+                .withName("testMappedFormatFromByteArrayProto");
+        deserialized.save(protoResource);
+        Assert.assertEquals(this.atlas.edge(98).toString(),
+                PackedAtlas.load(protoResource).edge(98).toString());
+    }
+
+    @Test
+    public void testMissingIdentifierMap()
+    {
+        // Only the types the meta data lists as sorted are looked up without an identifier map
+        final long identifier = this.atlas.edges().iterator().next().getIdentifier();
+        setField(this.atlas, PackedAtlas.FIELD_EDGE_IDENTIFIER_TO_EDGE_ARRAY_INDEX, null);
+        final Atlas deserialized = deserialized();
+        try
+        {
+            deserialized.edge(identifier);
+            Assert.fail("An atlas without an edge identifier map should not search its edges");
+        }
+        catch (final CoreException e)
+        {
+            Assert.assertTrue(e.getMessage().contains("identifier map"));
+        }
+    }
+
+    @Test
+    public void testPackedSpatialIndex()
+    {
+        final Rectangle aroundTest8 = Location.TEST_8.boxAround(Distance.ONE_METER);
+        for (final AtlasSerializationFormat format : AtlasSerializationFormat.values())
+        {
+            final File file = File.temporary();
+            try
+            {
+                this.atlas.setSaveSerializationFormat(format);
+                this.atlas.save(file);
+                final PackedAtlas deserialized = PackedAtlas.load(file);
+                Assert.assertNull(getField(deserialized, PackedAtlas.FIELD_AREA_R_TREE));
+
+                // The spatial index is read from the file, not re-built from the polygons
+                Assert.assertEquals(2,
+                        Iterables.size(deserialized.getAreaSpatialIndex().get(aroundTest8)));
+                Assert.assertNotNull(getField(deserialized, PackedAtlas.FIELD_AREA_R_TREE));
+                Assert.assertNull(getField(deserialized, PackedAtlas.FIELD_AREA_POLYGONS));
+
+                Assert.assertEquals(2, Iterables.size(deserialized.areasIntersecting(aroundTest8)));
+                Assert.assertEquals(identifiers(this.atlas.edgesIntersecting(this.atlas.bounds())),
+                        identifiers(deserialized.edgesIntersecting(this.atlas.bounds())));
+                Assert.assertEquals(identifiers(this.atlas.nodesAt(Location.TEST_1)),
+                        identifiers(deserialized.nodesAt(Location.TEST_1)));
+                Assert.assertEquals(this.atlas.numberOfLines(),
+                        Iterables.size(deserialized.linesIntersecting(this.atlas.bounds())));
+                Assert.assertEquals(this.atlas.numberOfPoints(),
+                        Iterables.size(deserialized.pointsWithin(this.atlas.bounds())));
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+    }
+
     @Test
     public void testPartialLoad() throws NoSuchFieldException, SecurityException
     {
@@ -308,6 +523,81 @@ public class PackedAtlasSerializerTest
         logger.info("Zipped Size: {}", zipped.length());
     }
 
+    @Test
+    public void testSortedIdentifiers()
+    {
+        final PackedAtlas sorted = new PackedAtlasCloner().withSortedIdentifiers()
+                .cloneFrom(this.atlas);
+        Assert.assertTrue(sorted.metaData().getTag(AtlasMetaData.SORTED_IDENTIFIERS).get()
+                .startsWith("NODE,EDGE,AREA,LINE,POINT"));
+        for (final String name : new String[] {
+                PackedAtlas.FIELD_NODE_IDENTIFIER_TO_NODE_ARRAY_INDEX,
+                PackedAtlas.FIELD_EDGE_IDENTIFIER_TO_EDGE_ARRAY_INDEX,
+                PackedAtlas.FIELD_AREA_IDENTIFIER_TO_AREA_ARRAY_INDEX,
+                PackedAtlas.FIELD_LINE_IDENTIFIER_TO_LINE_ARRAY_INDEX,
+                PackedAtlas.FIELD_POINT_IDENTIFIER_TO_POINT_ARRAY_INDEX })
+        {
+            Assert.assertNull(getField(sorted, name));
+        }
+        assertSameEntities(this.atlas, sorted);
+        Assert.assertNull(sorted.edge(Long.MAX_VALUE));
+        Assert.assertNull(sorted.node(Long.MIN_VALUE));
+
+        for (final AtlasSerializationFormat format : AtlasSerializationFormat.values())
+        {
+            final ByteArrayResource resource = new ByteArrayResource(524288)
+                    .withName("testSortedIdentifiers" + format);
+            sorted.setSaveSerializationFormat(format);
+            sorted.save(resource);
+            final PackedAtlas deserialized = PackedAtlas.load(resource);
+            assertSameEntities(this.atlas, deserialized);
+            Assert.assertNull(getField(deserialized,
+                    PackedAtlas.FIELD_EDGE_IDENTIFIER_TO_EDGE_ARRAY_INDEX));
+            Assert.assertEquals(sorted.metaData(), deserialized.metaData());
+        }
+    }
+
+    @Test
+    public void testWithoutPackedSpatialIndex()
+    {
+        // Atlases saved before the packed spatial indices existed do not have them
+        for (final String name : new String[] { PackedAtlas.FIELD_NODE_R_TREE,
+                PackedAtlas.FIELD_EDGE_R_TREE, PackedAtlas.FIELD_AREA_R_TREE,
+                PackedAtlas.FIELD_LINE_R_TREE, PackedAtlas.FIELD_POINT_R_TREE })
+        {
+            setField(this.atlas, name, null);
+        }
+        final File file = File.temporary();
+        try
+        {
+            this.atlas.save(file);
+            final PackedAtlas deserialized = PackedAtlas.load(file);
+            Assert.assertEquals(2, Iterables.size(deserialized
+                    .areasIntersecting(Location.TEST_8.boxAround(Distance.ONE_METER))));
+            Assert.assertEquals(this.atlas.numberOfEdges(),
+                    Iterables.size(deserialized.edgesIntersecting(this.atlas.bounds())));
+            Assert.assertNull(getField(deserialized, PackedAtlas.FIELD_AREA_R_TREE));
+
+            final ByteArrayResource resource = new ByteArrayResource(524288)
+                    .withName("testWithoutPackedSpatialIndex");
+            deserialized.save(resource);
+            Assert.assertEquals(this.atlas.numberOfNodes(),
+                    Iterables.size(PackedAtlas.load(resource).nodesWithin(this.atlas.bounds())));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private void assertSameEntities(final Atlas expected, final Atlas actual)
+    {
+        Assert.assertEquals(expected.size(), actual.size());
+        expected.entities().forEach(entity -> Assert.assertEquals(entity.toString(),
+                Objects.requireNonNull(actual.entity(entity.getIdentifier(), entity.getType()))
+                        .toString()));
+    }
+
     private Atlas deserialized()
     {
         final ByteArrayResource resource = new ByteArrayResource(524288)
@@ -329,4 +619,23 @@ public class PackedAtlasSerializerTest
             throw new CoreException("Could not get field {}", name, e);
         }
     }
+
+    private Set<Long> identifiers(final Iterable<? extends AtlasEntity> entities)
+    {
+        return Iterables.stream(entities).map(AtlasEntity::getIdentifier).collectToSet();
+    }
+
+    private void setField(final Atlas atlas, final String name, final Object value)
+    {
+        try
+        {
+            final Field field = PackedAtlas.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(atlas, value);
+        }
+        catch (final Exception e)
+        {
+            throw new CoreException("Could not set field {}", name, e);
+        }
+    }
 }
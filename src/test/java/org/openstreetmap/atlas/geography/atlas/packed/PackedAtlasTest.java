@@ -1,5 +1,9 @@
 package org.openstreetmap.atlas.geography.atlas.packed;
 
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -10,8 +14,10 @@ import org.openstreetmap.atlas.geography.PolyLine;
 import org.openstreetmap.atlas.geography.Polygon;
 import org.openstreetmap.atlas.geography.Rectangle;
 import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.AtlasMetaData;
 import org.openstreetmap.atlas.geography.atlas.builder.RelationBean;
 import org.openstreetmap.atlas.geography.atlas.items.Area;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasItem;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
 import org.openstreetmap.atlas.geography.atlas.items.ItemType;
 import org.openstreetmap.atlas.geography.atlas.items.Line;
@@ -269,6 +275,35 @@ public class PackedAtlasTest
                 + Iterables.size(this.atlas.pointsAt(Location.TEST_6)));
     }
 
+    @Test
+    public void testNearest()
+    {
+        final Location location = this.atlas.node(12345L).getLocation();
+        final Distance maximumDistance = Distance.meters(100000);
+        final List<Distance> expectedEdges = Iterables.asList(this.atlas.edges()).stream()
+                .map(edge -> edge.distanceTo(location))
+                .filter(distance -> distance.isLessThanOrEqualTo(maximumDistance))
+                .sorted(Comparator.comparingDouble(Distance::asMillimeters)).limit(3)
+                .collect(Collectors.toList());
+        Assert.assertEquals(expectedEdges,
+                this.atlas.nearestEdges(location, 3, maximumDistance, edge -> true).stream()
+                        .map(edge -> edge.distanceTo(location)).collect(Collectors.toList()));
+
+        final List<Node> nodes = this.atlas.nearestNodes(location, 2, maximumDistance,
+                node -> node.getIdentifier() != 12345L);
+        Assert.assertEquals(2, nodes.size());
+        Assert.assertFalse(nodes.stream().anyMatch(node -> node.getIdentifier() == 12345L));
+        Assert.assertTrue(nodes.get(0).distanceTo(location)
+                .isLessThanOrEqualTo(nodes.get(1).distanceTo(location)));
+
+        final List<AtlasItem> items = this.atlas.nearestItems(location, 1, maximumDistance,
+                item -> true);
+        Assert.assertEquals(Distance.ZERO, items.get(0).distanceTo(location));
+        Assert.assertTrue(this.atlas
+                .nearestItems(location, 10, Distance.ZERO, item -> item instanceof Area)
+                .stream().allMatch(item -> item.distanceTo(location).equals(Distance.ZERO)));
+    }
+
     @Test
     public void testNode()
     {
@@ -382,6 +417,45 @@ public class PackedAtlasTest
                 .snaps(this.atlas.node(12345L).getLocation(), Distance.meters(100000)).size());
     }
 
+    @Test
+    public void testSortedIdentifiers()
+    {
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder().withSortedIdentifiers();
+        builder.addNode(3L, Location.TEST_1, Maps.hashMap());
+        builder.addNode(1L, Location.TEST_2, Maps.hashMap());
+        builder.addNode(2L, Location.TEST_3, Maps.hashMap());
+        builder.addEdge(20L, new PolyLine(Location.TEST_1, Location.TEST_2), Maps.hashMap());
+        builder.addEdge(-20L, new PolyLine(Location.TEST_2, Location.TEST_1), Maps.hashMap());
+        builder.addEdge(10L, new PolyLine(Location.TEST_2, Location.TEST_3), Maps.hashMap());
+        builder.addPoint(5L, Location.TEST_3, Maps.hashMap("name", "five"));
+        builder.addPoint(4L, Location.TEST_1, Maps.hashMap("name", "four"));
+        final RelationBean bean = new RelationBean();
+        bean.addItem(20L, "forward", ItemType.EDGE);
+        bean.addItem(5L, "point", ItemType.POINT);
+        builder.addRelation(7L, 7L, bean, Maps.hashMap());
+        final PackedAtlas result = (PackedAtlas) builder.get();
+
+        for (final ItemType type : ItemType.values())
+        {
+            Assert.assertTrue(result.hasSortedIdentifiers(type));
+        }
+        Assert.assertEquals("NODE,EDGE,AREA,LINE,POINT,RELATION",
+                result.metaData().getTag(AtlasMetaData.SORTED_IDENTIFIERS).get());
+        Assert.assertEquals(1L, result.nodeIdentifier(0));
+        Assert.assertEquals(-20L, result.edgeIdentifier(0));
+        Assert.assertEquals(3L, result.edge(20L).start().getIdentifier());
+        Assert.assertEquals(1L, result.edge(20L).end().getIdentifier());
+        Assert.assertEquals(2L, result.edge(10L).end().getIdentifier());
+        Assert.assertEquals(3, result.node(1L).connectedEdges().size());
+        Assert.assertEquals("five", result.point(5L).getTag("name").get());
+        Assert.assertEquals(2, result.relation(7L).members().size());
+        Assert.assertEquals(7L, result.edge(20L).relations().iterator().next().getIdentifier());
+        Assert.assertNull(result.node(0L));
+        Assert.assertNull(result.node(4L));
+        Assert.assertNull(result.edge(15L));
+        Assert.assertNull(result.area(1L));
+    }
+
     @Test
     public void testValence()
     {
@@ -0,0 +1,181 @@
+package org.openstreetmap.atlas.geography.atlas.packed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.AtlasEntity;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas.AtlasSerializationFormat;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+import org.openstreetmap.atlas.tags.filters.TaggableFilter;
+import org.openstreetmap.atlas.utilities.collections.Iterables;
+import org.openstreetmap.atlas.utilities.collections.Maps;
+
+/**
+ * Checks that the entities found with the {@link PackedTagIndex} are the ones that the
+ * {@link TaggableFilter}s accept.
+ *
+ * @author agent
+ */
+public class PackedTagIndexTest
+{
+    private static final int SIZE = 2_000;
+    private static final String[] HIGHWAYS = { "motorway", "primary", "residential", "footway" };
+    private static final String[] BUILDINGS = { "yes", "house" };
+    private static final List<String> DEFINITIONS = Arrays.asList("", "highway->motorway",
+            "building->*", "name->!", "highway->!motorway", "highway->motorway,primary&building->!",
+            "amenity->*|highway->residential", "oneway->yes", "oneway->!yes",
+            "highway->motorway|building->*||name->*&amenity->!", "highway->motor*",
+            "addr:city->Cupertino", "highway->turning_circle|natural->*");
+
+    @Rule
+    public final PackedAtlasTestRule rule = new PackedAtlasTestRule();
+
+    @Test
+    public void testJavaSerialization() throws IOException, ClassNotFoundException
+    {
+        // The locks of the tag indices are transient, and are restored when reading the atlas
+        final PackedAtlas indexed = randomAtlas();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes))
+        {
+            output.writeObject(indexed);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            final PackedAtlas deserialized = (PackedAtlas) input.readObject();
+            Assert.assertNotNull(getField(deserialized, PackedAtlas.FIELD_LINE_TAG_INDEX));
+            assertSameAsFilters(deserialized);
+        }
+    }
+
+    @Test
+    public void testMatching()
+    {
+        final PackedAtlas indexed = new PackedAtlasCloner().withTagIndex()
+                .cloneFrom(this.rule.getAtlas());
+        Assert.assertNotNull(getField(indexed, PackedAtlas.FIELD_EDGE_TAG_INDEX));
+        assertSameAsFilters(indexed);
+        final PackedAtlas random = randomAtlas();
+        assertSameAsFilters(random);
+        // The filters are all evaluated with the index, without falling back to testing the tags
+        final PackedTagIndex pointTagIndex = (PackedTagIndex) getField(random,
+                PackedAtlas.FIELD_POINT_TAG_INDEX);
+        DEFINITIONS.forEach(definition -> Assert.assertTrue(definition,
+                TaggableFilter.forDefinition(definition).evaluate(pointTagIndex).isPresent()));
+    }
+
+    @Test
+    public void testSerialization()
+    {
+        final PackedAtlas indexed = randomAtlas();
+        for (final AtlasSerializationFormat format : AtlasSerializationFormat.values())
+        {
+            final ByteArrayResource resource = new ByteArrayResource(1 << 20)
+                    .withName("testSerialization" + format);
+            indexed.setSaveSerializationFormat(format);
+            indexed.save(resource);
+            final PackedAtlas loaded = PackedAtlas.load(resource);
+            assertSameAsFilters(loaded);
+            Assert.assertNotNull(getField(loaded, PackedAtlas.FIELD_POINT_TAG_INDEX));
+        }
+    }
+
+    @Test
+    public void testWithoutTagIndex()
+    {
+        final PackedAtlas atlas = this.rule.getAtlas().cloneToPackedAtlas();
+        Assert.assertNull(getField(atlas, PackedAtlas.FIELD_NODE_TAG_INDEX));
+        assertSameAsFilters(atlas);
+        final ByteArrayResource resource = new ByteArrayResource(1 << 20)
+                .withName("testWithoutTagIndex");
+        atlas.save(resource);
+        assertSameAsFilters(PackedAtlas.load(resource));
+    }
+
+    private void assertSame(final Iterable<? extends AtlasEntity> expected,
+            final Iterable<? extends AtlasEntity> actual, final String definition)
+    {
+        final Function<Iterable<? extends AtlasEntity>, Set<Long>> identifiers = entities ->
+                Iterables.stream(entities).map(AtlasEntity::getIdentifier).collectToSet();
+        Assert.assertEquals(definition, identifiers.apply(expected), identifiers.apply(actual));
+    }
+
+    private void assertSameAsFilters(final Atlas atlas)
+    {
+        for (final String definition : DEFINITIONS)
+        {
+            final TaggableFilter filter = TaggableFilter.forDefinition(definition);
+            assertSame(atlas.nodes(filter::test), atlas.nodesMatching(filter), definition);
+            assertSame(atlas.edges(filter::test), atlas.edgesMatching(filter), definition);
+            assertSame(atlas.areas(filter::test), atlas.areasMatching(filter), definition);
+            assertSame(atlas.lines(filter::test), atlas.linesMatching(filter), definition);
+            assertSame(atlas.points(filter::test), atlas.pointsMatching(filter), definition);
+            assertSame(atlas.relations(filter::test), atlas.relationsMatching(filter),
+                    definition);
+        }
+    }
+
+    private Object getField(final Atlas atlas, final String name)
+    {
+        try
+        {
+            final Field field = PackedAtlas.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(atlas);
+        }
+        catch (final Exception e)
+        {
+            throw new CoreException("Could not get field {}", name, e);
+        }
+    }
+
+    private PackedAtlas randomAtlas()
+    {
+        final Random random = new Random(3L);
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder().withTagIndex();
+        for (int index = 0; index < SIZE; index++)
+        {
+            final Location location = Location.random(Rectangle.TEST_RECTANGLE);
+            final Map<String, String> tags = Maps.hashMap();
+            if (random.nextBoolean())
+            {
+                tags.put("highway", HIGHWAYS[random.nextInt(HIGHWAYS.length)]);
+            }
+            if (random.nextInt(HIGHWAYS.length) == 0)
+            {
+                tags.put("building", BUILDINGS[random.nextInt(BUILDINGS.length)]);
+            }
+            if (random.nextBoolean())
+            {
+                tags.put("name", "name" + random.nextInt(SIZE));
+            }
+            if (random.nextInt(SIZE) == 0)
+            {
+                tags.put("amenity", "bench");
+            }
+            builder.addPoint(index, location, tags);
+            builder.addLine(index,
+                    new PolyLine(location, Location.random(Rectangle.TEST_RECTANGLE)), tags);
+        }
+        return (PackedAtlas) builder.get();
+    }
+}
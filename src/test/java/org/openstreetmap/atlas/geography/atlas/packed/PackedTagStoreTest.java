@@ -0,0 +1,144 @@
+package org.openstreetmap.atlas.geography.atlas.packed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.proto.ProtoPackedTagStore;
+import org.openstreetmap.atlas.proto.adapters.ProtoPackedTagStoreAdapter;
+import org.openstreetmap.atlas.proto.converters.ProtoIntegerArrayOfArraysConverter;
+import org.openstreetmap.atlas.utilities.arrays.IntegerArrayOfArrays;
+import org.openstreetmap.atlas.utilities.collections.Maps;
+import org.openstreetmap.atlas.utilities.compression.IntegerDictionary;
+
+/**
+ * @author agent
+ */
+public class PackedTagStoreTest
+{
+    private static final int MAXIMUM_SIZE = 10;
+
+    private static void assertSorted(final int[] keyIndices)
+    {
+        for (int position = 1; position < keyIndices.length; position++)
+        {
+            Assert.assertTrue(keyIndices[position - 1] < keyIndices[position]);
+        }
+    }
+
+    /**
+     * @return The saved sorted flag of a store, without computing it
+     */
+    private static Boolean sortedKeys(final PackedTagStore store)
+            throws ReflectiveOperationException
+    {
+        final Field field = PackedTagStore.class.getDeclaredField(PackedTagStore.FIELD_SORTED_KEYS);
+        field.setAccessible(true);
+        return (Boolean) field.get(store);
+    }
+
+    @Test
+    public void testLookups()
+    {
+        final IntegerDictionary<String> dictionary = new IntegerDictionary<>();
+        // Add the words in reverse order so that the keys are not added sorted
+        dictionary.add("name");
+        dictionary.add("highway");
+        final PackedTagStore store = new PackedTagStore(MAXIMUM_SIZE, MAXIMUM_SIZE, MAXIMUM_SIZE,
+                dictionary);
+        final Map<String, String> tags = new HashMap<>();
+        tags.put("highway", "primary");
+        tags.put("name", "Main Street");
+        tags.put("oneway", "yes");
+        store.add(0, tags);
+        store.add(1, "highway", "residential");
+        store.add(1, "name", "Side Street");
+        store.add(2, new HashMap<>());
+
+        for (long index = 0; index < store.size(); index++)
+        {
+            assertSorted(store.keyIndices(index));
+        }
+        Assert.assertEquals(tags, store.keyValuePairs(0));
+        Assert.assertEquals(Maps.hashMap("highway", "residential", "name", "Side Street"),
+                store.keyValuePairs(1));
+
+        Assert.assertEquals("primary", store.get(0, "highway"));
+        Assert.assertEquals("Side Street", store.get(1, "name"));
+        Assert.assertNull(store.get(1, "oneway"));
+        Assert.assertNull(store.get(0, "unknown"));
+        Assert.assertTrue(store.containsKey(0, "oneway"));
+        Assert.assertFalse(store.containsKey(2, "highway"));
+
+        final int highway = store.keyIndex("highway");
+        Assert.assertTrue(store.containsKeyIndex(1, highway));
+        Assert.assertEquals(store.valueIndex("residential"), store.valueIndex(1, highway));
+        Assert.assertEquals(PackedTagStore.NO_INDEX, store.keyIndex("unknown"));
+        Assert.assertFalse(store.containsKeyIndex(0, PackedTagStore.NO_INDEX));
+        Assert.assertArrayEquals(
+                new int[] { store.valueIndex("primary"), store.valueIndex("residential"),
+                        PackedTagStore.NO_INDEX },
+                store.valueIndexColumn(highway));
+    }
+
+    @Test
+    public void testSortedKeysAreSaved() throws Exception
+    {
+        final PackedTagStore store = new PackedTagStore(MAXIMUM_SIZE, MAXIMUM_SIZE, MAXIMUM_SIZE,
+                new IntegerDictionary<>());
+        store.add(0, "highway", "primary");
+
+        final ProtoPackedTagStoreAdapter adapter = new ProtoPackedTagStoreAdapter();
+        final PackedTagStore protoStore = (PackedTagStore) adapter
+                .deserialize(adapter.serialize(store));
+        Assert.assertEquals(Boolean.TRUE, sortedKeys(protoStore));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes))
+        {
+            output.writeObject(store);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            Assert.assertEquals(Boolean.TRUE, sortedKeys((PackedTagStore) input.readObject()));
+        }
+    }
+
+    @Test
+    public void testUnsortedKeys() throws ReflectiveOperationException
+    {
+        final IntegerDictionary<String> dictionary = new IntegerDictionary<>();
+        final int highway = dictionary.add("highway");
+        final int primary = dictionary.add("primary");
+        final int name = dictionary.add("name");
+        final int mainStreet = dictionary.add("Main Street");
+        // Keys stored in insertion order, like in the stores saved before the keys were sorted
+        final IntegerArrayOfArrays keys = new IntegerArrayOfArrays(MAXIMUM_SIZE);
+        keys.add(new int[] { name, highway });
+        final IntegerArrayOfArrays values = new IntegerArrayOfArrays(MAXIMUM_SIZE);
+        values.add(new int[] { mainStreet, primary });
+        final ProtoIntegerArrayOfArraysConverter converter =
+                new ProtoIntegerArrayOfArraysConverter();
+        final ProtoPackedTagStore protoStore = ProtoPackedTagStore.newBuilder().setIndex(1)
+                .setKeys(converter.backwardConvert(keys))
+                .setValues(converter.backwardConvert(values)).build();
+        final PackedTagStore store = (PackedTagStore) new ProtoPackedTagStoreAdapter()
+                .deserialize(protoStore.toByteArray());
+        store.setDictionary(dictionary);
+        // Legacy stores do not say, so the first lookup finds out
+        Assert.assertNull(sortedKeys(store));
+
+        Assert.assertEquals("primary", store.get(0, "highway"));
+        Assert.assertEquals(Boolean.FALSE, sortedKeys(store));
+        Assert.assertEquals("Main Street", store.get(0, "name"));
+        Assert.assertEquals(primary, store.valueIndex(0, highway));
+        Assert.assertFalse(store.containsKey(0, "oneway"));
+    }
+}
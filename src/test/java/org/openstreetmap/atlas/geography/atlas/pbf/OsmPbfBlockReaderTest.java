@@ -0,0 +1,135 @@
+package org.openstreetmap.atlas.geography.atlas.pbf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Latitude;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Longitude;
+import org.openstreetmap.atlas.geography.atlas.raw.creation.RawAtlasGeneratorTest;
+import org.openstreetmap.atlas.geography.atlas.raw.sectioning.TagMap;
+import org.openstreetmap.atlas.streaming.resource.InputStreamResource;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Bound;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Relation;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+
+/**
+ * Checks that {@link OsmPbfBlockReader} decodes exactly what Osmosis decodes.
+ *
+ * @author agent
+ */
+public class OsmPbfBlockReaderTest
+{
+    @Test
+    public void testSameAsOsmosis()
+    {
+        for (final String name : new String[] { "9-433-268.osm.pbf",
+                "nestedSingleRelations.osm.pbf" })
+        {
+            final Resource resource = new InputStreamResource(
+                    () -> RawAtlasGeneratorTest.class.getResourceAsStream(name));
+            final List<Entity> expected = osmosisEntities(resource);
+            final List<OsmPbfBlock> blocks = new ArrayList<>();
+            try (OsmPbfBlockReader reader = new OsmPbfBlockReader(resource, 2))
+            {
+                reader.read(blocks::add);
+            }
+            int position = 0;
+            for (final OsmPbfBlock block : blocks)
+            {
+                for (int index = 0; index < block.size(); index++)
+                {
+                    assertSame(expected.get(position++), block, index);
+                }
+            }
+            Assert.assertEquals(expected.size(), position);
+        }
+    }
+
+    private void assertSame(final Entity expected, final OsmPbfBlock block, final int index)
+    {
+        Assert.assertEquals(expected.getType(), block.type(index));
+        Assert.assertEquals(expected.getId(), block.identifier(index));
+        final Map<String, String> expectedTags = new TagMap(expected.getTags()).getTags();
+        Assert.assertEquals(expectedTags, block.tags(index));
+        Assert.assertEquals(expected.getVersion(), block.version(index));
+        Assert.assertEquals(expected.getTimestamp().getTime(), block.timestamp(index));
+        Assert.assertEquals(expected.getChangesetId(), block.changeset(index));
+        Assert.assertEquals(expected.getUser().getId(), block.userIdentifier(index));
+        Assert.assertEquals(expected.getUser().getName(), block.userName(index));
+        if (expected instanceof Node)
+        {
+            final Node node = (Node) expected;
+            Assert.assertEquals(new Location(Latitude.degrees(node.getLatitude()),
+                    Longitude.degrees(node.getLongitude())), block.location(index));
+        }
+        else if (expected instanceof Way)
+        {
+            Assert.assertArrayEquals(((Way) expected).getWayNodes().stream()
+                    .mapToLong(wayNode -> wayNode.getNodeId()).toArray(),
+                    block.wayNodeIdentifiers(index));
+        }
+        else
+        {
+            final Relation relation = block.relation(index);
+            // RelationMember has no equals
+            Assert.assertEquals(((Relation) expected).getMembers().toString(),
+                    relation.getMembers().toString());
+            Assert.assertEquals(expectedTags, new TagMap(relation.getTags()).getTags());
+            Assert.assertEquals(expected.getTimestamp(), relation.getTimestamp());
+            Assert.assertEquals(expected.getUser(), relation.getUser());
+        }
+    }
+
+    private List<Entity> osmosisEntities(final Resource resource)
+    {
+        final List<Entity> result = new ArrayList<>();
+        try (CloseableOsmosisReader reader = new CloseableOsmosisReader(resource.read()))
+        {
+            reader.setSink(new Sink()
+            {
+                @Override
+                public void close()
+                {
+                    // No-op
+                }
+
+                @Override
+                public void complete()
+                {
+                    // No-op
+                }
+
+                @Override
+                public void initialize(final Map<String, Object> metaData)
+                {
+                    // No-op
+                }
+
+                @Override
+                public void process(final EntityContainer entityContainer)
+                {
+                    if (!(entityContainer.getEntity() instanceof Bound))
+                    {
+                        result.add(entityContainer.getEntity());
+                    }
+                }
+            });
+            reader.run();
+        }
+        catch (final Exception e)
+        {
+            throw new CoreException("Unable to read {}", resource, e);
+        }
+        return result;
+    }
+}
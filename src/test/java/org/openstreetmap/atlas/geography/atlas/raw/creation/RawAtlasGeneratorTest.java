@@ -19,6 +19,7 @@ import org.openstreetmap.atlas.geography.atlas.builder.store.AtlasPrimitiveObjec
 import org.openstreetmap.atlas.geography.atlas.builder.store.AtlasPrimitiveRelation;
 import org.openstreetmap.atlas.geography.atlas.items.ItemType;
 import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
+import org.openstreetmap.atlas.geography.atlas.pbf.CloseableOsmosisReader;
 import org.openstreetmap.atlas.geography.atlas.pbf.OsmosisReaderMock;
 import org.openstreetmap.atlas.streaming.resource.File;
 import org.openstreetmap.atlas.streaming.resource.InputStreamResource;
@@ -106,6 +107,27 @@ public class RawAtlasGeneratorTest
         Assert.assertEquals(0, atlas.numberOfRelations());
     }
 
+    @Test
+    public void testNativeDecodingSameAsOsmosis()
+    {
+        final File pbf = new File(
+                RawAtlasGeneratorTest.class.getResource("9-433-268.osm.pbf").getPath());
+        final MultiPolygon boundingBox = MultiPolygon.forPolygon(Location
+                .forWkt("POINT (124.9721500 -8.9466200)").bounds().expand(Distance.kilometers(5)));
+        final Atlas nativeAtlas = new RawAtlasGenerator(pbf,
+                AtlasLoadingOption.createOptionWithOnlySectioning(), boundingBox).build();
+        final Atlas osmosisAtlas = new RawAtlasGenerator(
+                () -> new CloseableOsmosisReader(pbf.read()),
+                AtlasLoadingOption.createOptionWithOnlySectioning(), boundingBox).build();
+
+        Assert.assertTrue(nativeAtlas.numberOfPoints() > 0);
+        Assert.assertEquals(osmosisAtlas.numberOfPoints(), nativeAtlas.numberOfPoints());
+        Assert.assertEquals(osmosisAtlas.numberOfLines(), nativeAtlas.numberOfLines());
+        Assert.assertEquals(osmosisAtlas.numberOfAreas(), nativeAtlas.numberOfAreas());
+        Assert.assertEquals(osmosisAtlas.numberOfRelations(), nativeAtlas.numberOfRelations());
+        Assert.assertEquals(osmosisAtlas, nativeAtlas);
+    }
+
     @Test
     public void testNestedSingleRelations()
     {
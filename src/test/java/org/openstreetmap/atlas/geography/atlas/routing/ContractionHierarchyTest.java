@@ -0,0 +1,167 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Segment;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.geography.atlas.items.Route;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * @author agent
+ */
+public class ContractionHierarchyTest
+{
+    private static final int GRID_SIZE = 7;
+    private static final double DELTA = 1E-6;
+
+    private final Distance threshold = Distance.meters(40);
+
+    @Test
+    public void testDifferentAtlas()
+    {
+        final Atlas grid = RoutingTestGrid.grid(GRID_SIZE);
+        final Atlas other = RoutingTestGrid.grid(2);
+        final ContractionHierarchyRouter router = new ContractionHierarchyRouter(other,
+                this.threshold, ContractionHierarchy.build(grid));
+        // Node 1 to 2 is edge 1 in both atlases
+        Assert.assertEquals(Route.forEdge(other.edge(1)),
+                router.route(other.node(1), other.node(2)));
+        try
+        {
+            // The path from 1 to 4 in the grid is made of edges 1, 3 and 5
+            router.route(other.node(1), other.node(4));
+            Assert.fail("Expected the edges of the hierarchy to be missing");
+        }
+        catch (final CoreException e)
+        {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testEdgeCases()
+    {
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+        final Map<String, String> tags = new HashMap<>();
+        builder.addNode(1, Location.TEST_6, tags);
+        builder.addNode(2, Location.TEST_2, tags);
+        builder.addNode(3, Location.TEST_1, tags);
+        builder.addEdge(1, new Segment(Location.TEST_6, Location.TEST_2), tags);
+        builder.addEdge(2, new Segment(Location.TEST_2, Location.TEST_1), tags);
+        final Atlas atlas = builder.get();
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(atlas);
+        final ContractionHierarchyRouter router = new ContractionHierarchyRouter(atlas,
+                this.threshold, hierarchy);
+
+        Assert.assertEquals(Route.forEdges(atlas.edge(1), atlas.edge(2)),
+                router.route(atlas.node(1), atlas.node(3)));
+        Assert.assertEquals(Route.forEdges(atlas.edge(1), atlas.edge(2)),
+                router.route(atlas.edge(1), atlas.edge(2)));
+        Assert.assertNull(router.route(atlas.node(1), atlas.node(1)));
+        Assert.assertNull(router.route(atlas.node(3), atlas.node(1)));
+        Assert.assertEquals(0, hierarchy.shortestPath(1, 1).length);
+        Assert.assertNull(hierarchy.shortestPath(1, 4));
+        Assert.assertEquals(Double.POSITIVE_INFINITY, hierarchy.distance(2, 1), DELTA);
+    }
+
+    @Test
+    public void testSaveAndLoad()
+    {
+        final Atlas grid = RoutingTestGrid.grid(GRID_SIZE);
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(grid);
+        final ByteArrayResource resource = new ByteArrayResource();
+        hierarchy.save(resource);
+        final ContractionHierarchy loaded = ContractionHierarchy.load(resource);
+        Assert.assertEquals(hierarchy.toString(), loaded.toString());
+        for (final Node start : grid.nodes())
+        {
+            for (final Node end : grid.nodes())
+            {
+                Assert.assertArrayEquals(
+                        hierarchy.shortestPath(start.getIdentifier(), end.getIdentifier()),
+                        loaded.shortestPath(start.getIdentifier(), end.getIdentifier()));
+            }
+        }
+    }
+
+    @Test
+    public void testShortestPaths()
+    {
+        final Atlas grid = RoutingTestGrid.grid(GRID_SIZE);
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(grid);
+        final Router router = new ContractionHierarchyRouter(grid, this.threshold, hierarchy);
+        final Map<Long, Integer> indices = new HashMap<>();
+        for (final Node node : grid.nodes())
+        {
+            indices.put(node.getIdentifier(), indices.size());
+        }
+        final double[][] distances = allDistances(grid, indices);
+        for (final Node start : grid.nodes())
+        {
+            for (final Node end : grid.nodes())
+            {
+                final double expected = distances[indices.get(start.getIdentifier())][indices
+                        .get(end.getIdentifier())];
+                Assert.assertEquals(expected,
+                        hierarchy.distance(start.getIdentifier(), end.getIdentifier()), DELTA);
+                final Route route = router.route(start, end);
+                if (start.equals(end) || Double.isInfinite(expected))
+                {
+                    Assert.assertNull(route);
+                    continue;
+                }
+                Assert.assertEquals(start, route.start().start());
+                Assert.assertEquals(end, route.end().end());
+                double length = 0.0;
+                for (final Edge edge : route)
+                {
+                    length += edge.length().asMeters();
+                }
+                Assert.assertEquals(expected, length, DELTA);
+            }
+        }
+    }
+
+    /**
+     * @return The shortest distances between all the nodes, with Floyd-Warshall
+     */
+    private double[][] allDistances(final Atlas atlas, final Map<Long, Integer> indices)
+    {
+        final int size = indices.size();
+        final double[][] result = new double[size][size];
+        for (int index = 0; index < size; index++)
+        {
+            Arrays.fill(result[index], Double.POSITIVE_INFINITY);
+            result[index][index] = 0.0;
+        }
+        for (final Edge edge : atlas.edges())
+        {
+            final int start = indices.get(edge.start().getIdentifier());
+            final int end = indices.get(edge.end().getIdentifier());
+            result[start][end] = Math.min(result[start][end], edge.length().asMeters());
+        }
+        for (int middle = 0; middle < size; middle++)
+        {
+            for (int start = 0; start < size; start++)
+            {
+                for (int end = 0; end < size; end++)
+                {
+                    result[start][end] = Math.min(result[start][end],
+                            result[start][middle] + result[middle][end]);
+                }
+            }
+        }
+        return result;
+    }
+}
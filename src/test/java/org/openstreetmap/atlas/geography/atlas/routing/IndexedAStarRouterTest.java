@@ -0,0 +1,110 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.atlas.geography.Heading;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Segment;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Node;
+import org.openstreetmap.atlas.geography.atlas.items.Route;
+import org.openstreetmap.atlas.geography.atlas.multi.MultiAtlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+import org.openstreetmap.atlas.geography.atlas.routing.AStarRouter.Heuristic;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * @author agent
+ */
+public class IndexedAStarRouterTest
+{
+    private static final int GRID_SIZE = 8;
+    private static final double DELTA = 1E-6;
+
+    @Rule
+    public final AStarRouterTestRule rule = new AStarRouterTestRule();
+
+    private final Distance threshold = Distance.meters(40);
+
+    @Test
+    public void testEdgeCases()
+    {
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+        final Map<String, String> tags = new HashMap<>();
+        builder.addNode(1, Location.TEST_6, tags);
+        builder.addNode(2, Location.TEST_2, tags);
+        builder.addNode(3, Location.TEST_1, tags);
+        builder.addEdge(1, new Segment(Location.TEST_6, Location.TEST_2), tags);
+        builder.addEdge(2, new Segment(Location.TEST_2, Location.TEST_1), tags);
+        final Atlas routeAtlas = builder.get();
+
+        final IndexedAStarRouter router = IndexedAStarRouter.dijkstra(routeAtlas, this.threshold);
+        Assert.assertEquals(Route.forEdges(routeAtlas.edge(1), routeAtlas.edge(2)),
+                router.route(routeAtlas.node(1), routeAtlas.node(3)));
+        Assert.assertEquals(Route.forEdge(routeAtlas.edge(1)),
+                router.route(routeAtlas.node(1), routeAtlas.node(2)));
+        Assert.assertNull(router.route(routeAtlas.node(1), routeAtlas.node(1)));
+        Assert.assertNull(router.route(routeAtlas.node(3), routeAtlas.node(1)));
+        Assert.assertNull(router.route(routeAtlas.node(2), routeAtlas.node(1)));
+    }
+
+    @Test
+    public void testFallback()
+    {
+        final Atlas multiAtlas = new MultiAtlas(this.rule.getAtlas1(), this.rule.getAtlas2());
+        final Location start = Location.TEST_6.shiftAlongGreatCircle(Heading.NORTH,
+                Distance.ONE_METER);
+        final Location end = Location.TEST_2.shiftAlongGreatCircle(Heading.EAST,
+                Distance.ONE_METER);
+        Assert.assertEquals(AStarRouter.dijkstra(multiAtlas, this.threshold).route(start, end),
+                IndexedAStarRouter.dijkstra(multiAtlas, this.threshold).route(start, end));
+    }
+
+    @Test
+    public void testSameCostAsAStarRouter()
+    {
+        final Atlas grid = RoutingTestGrid.grid(GRID_SIZE);
+        assertSameCosts(grid, AStarRouter.DIJKSTRA, AStarRouter.dijkstra(grid, this.threshold),
+                IndexedAStarRouter.dijkstra(grid, this.threshold));
+        assertSameCosts(grid, AStarRouter.BALANCED, AStarRouter.balanced(grid, this.threshold),
+                IndexedAStarRouter.balanced(grid, this.threshold));
+    }
+
+    private void assertSameCosts(final Atlas atlas, final Heuristic heuristic,
+            final Router expected, final Router actual)
+    {
+        for (final Node start : atlas.nodes())
+        {
+            for (final Node end : atlas.nodes())
+            {
+                final Route expectedRoute = expected.route(start, end);
+                final Route actualRoute = actual.route(start, end);
+                if (expectedRoute == null)
+                {
+                    Assert.assertNull(actualRoute);
+                    continue;
+                }
+                Assert.assertEquals(start, actualRoute.start().start());
+                Assert.assertEquals(end, actualRoute.end().end());
+                Assert.assertEquals(cost(heuristic, expectedRoute, start, end),
+                        cost(heuristic, actualRoute, start, end), DELTA);
+            }
+        }
+    }
+
+    private double cost(final Heuristic heuristic, final Route route, final Node start,
+            final Node end)
+    {
+        double result = 0.0;
+        for (final Edge edge : route)
+        {
+            result += heuristic.cost(start, edge.end(), end);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package org.openstreetmap.atlas.geography.atlas.routing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.atlas.geography.Latitude;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Longitude;
+import org.openstreetmap.atlas.geography.Segment;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+
+/**
+ * Square grid {@link Atlas} to compare routers on. Edges are two way, except for a one way column,
+ * and the middle row is missing, to make detours.
+ *
+ * @author agent
+ */
+final class RoutingTestGrid
+{
+    private static final double SPACING = 0.001;
+
+    static Atlas grid(final int size)
+    {
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+        final Map<String, String> tags = new HashMap<>();
+        for (int row = 0; row < size; row++)
+        {
+            for (int column = 0; column < size; column++)
+            {
+                builder.addNode(row * size + column + 1, location(row, column), tags);
+            }
+        }
+        long identifier = 1;
+        for (int row = 0; row < size; row++)
+        {
+            for (int column = 0; column < size; column++)
+            {
+                if (column + 1 < size && row != size / 2)
+                {
+                    final Segment east = new Segment(location(row, column),
+                            location(row, column + 1));
+                    builder.addEdge(identifier, east, tags);
+                    builder.addEdge(-identifier, east.reversed(), tags);
+                    identifier++;
+                }
+                if (row + 1 < size)
+                {
+                    final Segment north = new Segment(location(row, column),
+                            location(row + 1, column));
+                    builder.addEdge(identifier, north, tags);
+                    if (column != 1)
+                    {
+                        builder.addEdge(-identifier, north.reversed(), tags);
+                    }
+                    identifier++;
+                }
+            }
+        }
+        return builder.get();
+    }
+
+    private static Location location(final int row, final int column)
+    {
+        return new Location(Latitude.degrees(row * SPACING),
+                Longitude.degrees(column * SPACING));
+    }
+
+    private RoutingTestGrid()
+    {
+    }
+}
@@ -1,17 +1,27 @@
 package org.openstreetmap.atlas.geography.boundary;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
+import org.openstreetmap.atlas.geography.Heading;
+import org.openstreetmap.atlas.geography.Latitude;
 import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Longitude;
 import org.openstreetmap.atlas.geography.MultiPolygon;
 import org.openstreetmap.atlas.geography.PolyLine;
 import org.openstreetmap.atlas.geography.Rectangle;
@@ -22,6 +32,7 @@ import org.openstreetmap.atlas.geography.atlas.pbf.AtlasLoadingOption;
 import org.openstreetmap.atlas.geography.atlas.raw.slicing.CountryCodeProperties;
 import org.openstreetmap.atlas.geography.atlas.raw.slicing.RawAtlasSlicer;
 import org.openstreetmap.atlas.geography.converters.jts.JtsPointConverter;
+import org.openstreetmap.atlas.geography.converters.jts.JtsPolyLineConverter;
 import org.openstreetmap.atlas.geography.converters.jts.JtsPolygonToMultiPolygonConverter;
 import org.openstreetmap.atlas.streaming.compression.Decompressor;
 import org.openstreetmap.atlas.streaming.resource.InputStreamResource;
@@ -29,6 +40,7 @@ import org.openstreetmap.atlas.streaming.resource.StringResource;
 import org.openstreetmap.atlas.tags.ISOCountryTag;
 import org.openstreetmap.atlas.test.TestUtility;
 import org.openstreetmap.atlas.utilities.maps.MultiMap;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +55,16 @@ public class CountryBoundaryMapTest
 {
     private static final Logger logger = LoggerFactory.getLogger(CountryBoundaryMapTest.class);
     private static final JtsPointConverter JTS_POINT_CONVERTER = new JtsPointConverter();
+    private static final JtsPolyLineConverter JTS_LINE_CONVERTER = new JtsPolyLineConverter();
+    private static final long RANDOM_SEED = 42L;
+    private static final int NUMBER_OF_LOCATIONS = 5000;
+    private static final int BORDER_STEP = 40;
+    private static final int HEADINGS = 360;
+    private static final int MAXIMUM_SEGMENT_METERS = 2000;
+    private static final double MINIMUM_LATITUDE = 17.0;
+    private static final double MAXIMUM_LATITUDE = 20.5;
+    private static final double MINIMUM_LONGITUDE = -75.0;
+    private static final double MAXIMUM_LONGITUDE = -68.0;
 
     @Test
     public void testAntiMeridian()
@@ -229,8 +251,68 @@ public class CountryBoundaryMapTest
         Assert.assertEquals("HTI,DOM", countryDetails.getIso3CountryCode());
     }
 
+    @Test
+    public void testGridIndexSameAsGeometryTests()
+    {
+        final CountryBoundaryMap map = CountryBoundaryMap
+                .fromPlainText(new InputStreamResource(() -> CountryBoundaryMapTest.class
+                        .getResourceAsStream("HTI_DOM_osm_boundaries.txt.gz"))
+                                .withDecompressor(Decompressor.GZIP));
+        final CountryBoundaryMap exact = CountryBoundaryMap
+                .fromPlainText(new InputStreamResource(() -> CountryBoundaryMapTest.class
+                        .getResourceAsStream("HTI_DOM_osm_boundaries.txt.gz"))
+                                .withDecompressor(Decompressor.GZIP));
+        exact.useGridIndex(false);
+
+        // Random locations around both countries, and a dense walk across their border
+        final Random random = new Random(RANDOM_SEED);
+        final List<Location> locations = new ArrayList<>();
+        for (int index = 0; index < NUMBER_OF_LOCATIONS; index++)
+        {
+            locations.add(new Location(
+                    Latitude.degrees(MINIMUM_LATITUDE
+                            + random.nextDouble() * (MAXIMUM_LATITUDE - MINIMUM_LATITUDE)),
+                    Longitude.degrees(MINIMUM_LONGITUDE
+                            + random.nextDouble() * (MAXIMUM_LONGITUDE - MINIMUM_LONGITUDE))));
+        }
+        final Location borderStart = Location.forString("19.0681781, -71.7175623");
+        for (int index = 0; index < NUMBER_OF_LOCATIONS; index++)
+        {
+            locations.add(new Location(borderStart.getLatitude(),
+                    Longitude.dm7(borderStart.getLongitude().asDm7() + index * BORDER_STEP)));
+        }
+
+        final CountryCodeProperties[] batch = map
+                .getCountryCodeISO3(locations.toArray(new Location[0]));
+        final Set<String> countries = new HashSet<>();
+        for (int index = 0; index < locations.size(); index++)
+        {
+            final Location location = locations.get(index);
+            final String expected = exact.getCountryCodeISO3(location).getIso3CountryCode();
+            Assert.assertEquals(location.toString(), expected,
+                    map.getCountryCodeISO3(location).getIso3CountryCode());
+            Assert.assertEquals(location.toString(), expected, batch[index].getIso3CountryCode());
+            Assert.assertEquals(location.toString(), exact.boundaries(location),
+                    map.boundaries(location));
+            countries.add(expected);
+
+            // Short line segments go through the same envelope lookup
+            final LineString line = JTS_LINE_CONVERTER.convert(new PolyLine(location,
+                    location.shiftAlongGreatCircle(Heading.degrees(random.nextInt(HEADINGS)),
+                            Distance.meters(random.nextInt(MAXIMUM_SEGMENT_METERS)))));
+            Assert.assertEquals(line.toString(), geometries(exact.query(line)),
+                    geometries(map.query(line)));
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("", "HTI", "DOM", "HTI,DOM")), countries);
+    }
+
     private String firstCountryName(final CountryBoundaryMap map)
     {
         return map.boundaries(Rectangle.MAXIMUM).keySet().iterator().next();
     }
+
+    private Set<Geometry> geometries(final List<PreparedPolygon> polygons)
+    {
+        return polygons.stream().map(PreparedPolygon::getGeometry).collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,168 @@
+package org.openstreetmap.atlas.geography.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.geography.Latitude;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Longitude;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.proto.adapters.ProtoPackedRTreeAdapter;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * @author agent
+ */
+public class PackedRTreeTest
+{
+    private static final int NUMBER_OF_ITEMS = 2_000;
+    private static final int NUMBER_OF_QUERIES = 200;
+    private static final long SEED = 42L;
+    private static final double MAXIMUM_DEGREES = 10.0;
+    private static final double MAXIMUM_SIZE_METERS = 5_000.0;
+    private static final double MAXIMUM_QUERY_METERS = 50_000.0;
+    private static final int NEAREST_COUNT = 10;
+
+    @Test
+    public void testEmpty()
+    {
+        final PackedRTree tree = PackedRTree.build(0, index -> null);
+        Assert.assertEquals(0, tree.size());
+        Assert.assertNull(tree.bounds());
+        final Set<Long> found = new HashSet<>();
+        tree.search(Rectangle.MAXIMUM, found::add);
+        Assert.assertTrue(found.isEmpty());
+    }
+
+    @Test
+    public void testNearest()
+    {
+        final Random random = new Random(SEED);
+        final List<Location> items = new ArrayList<>();
+        for (int index = 0; index < NUMBER_OF_ITEMS; index++)
+        {
+            items.add(randomLocation(random));
+        }
+        final PackedRTree tree = PackedRTree.forLocated(items);
+        for (int query = 0; query < NUMBER_OF_QUERIES; query++)
+        {
+            final Location location = randomLocation(random);
+            final Distance maximumDistance = Distance
+                    .meters(random.nextDouble() * MAXIMUM_QUERY_METERS);
+            final List<Distance> expected = items.stream().map(location::distanceTo)
+                    .filter(distance -> distance.isLessThanOrEqualTo(maximumDistance))
+                    .sorted(Comparator.comparingDouble(Distance::asMillimeters))
+                    .limit(NEAREST_COUNT).collect(Collectors.toList());
+            final List<Distance> found = new ArrayList<>();
+            for (final long index : tree.nearest(location, NEAREST_COUNT, maximumDistance,
+                    candidate -> location.distanceTo(items.get((int) candidate))))
+            {
+                found.add(location.distanceTo(items.get((int) index)));
+            }
+            Assert.assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    public void testNearestWithExcludedItems()
+    {
+        final List<Location> items = List.of(Location.TEST_1, Location.TEST_2, Location.TEST_3);
+        final PackedRTree tree = PackedRTree.forLocated(items);
+        final long[] found = tree.nearest(Location.TEST_1, 2, Distance.TEN_MILES,
+                candidate -> candidate == 0 ? null
+                        : Location.TEST_1.distanceTo(items.get((int) candidate)));
+        Assert.assertArrayEquals(new long[] { 1L, 2L }, found);
+        Assert.assertEquals(0, tree.nearest(Location.TEST_1, 0, Distance.TEN_MILES,
+                candidate -> Distance.ZERO).length);
+    }
+
+    @Test
+    public void testProtoAdapter()
+    {
+        final List<Rectangle> items = randomRectangles(new Random(SEED), NUMBER_OF_ITEMS);
+        final PackedRTree tree = PackedRTree.build(items.size(),
+                index -> items.get((int) index));
+        final ProtoPackedRTreeAdapter adapter = new ProtoPackedRTreeAdapter();
+        final PackedRTree copy = (PackedRTree) adapter.deserialize(adapter.serialize(tree));
+        Assert.assertEquals(tree.toString(), copy.toString());
+        Assert.assertEquals(tree.bounds(), copy.bounds());
+        Assert.assertEquals(tree.getBoxes(), copy.getBoxes());
+        Assert.assertEquals(tree.getIndices(), copy.getIndices());
+    }
+
+    @Test
+    public void testSearch()
+    {
+        final Random random = new Random(SEED);
+        final List<Rectangle> items = randomRectangles(random, NUMBER_OF_ITEMS);
+        final PackedRTree tree = PackedRTree.build(items.size(),
+                index -> items.get((int) index));
+        Assert.assertEquals(NUMBER_OF_ITEMS, tree.size());
+        Assert.assertEquals(Rectangle.forLocated(items), tree.bounds());
+        for (int query = 0; query < NUMBER_OF_QUERIES; query++)
+        {
+            final Rectangle bounds = randomLocation(random)
+                    .boxAround(Distance.meters(random.nextDouble() * MAXIMUM_QUERY_METERS));
+            final Set<Long> expected = new HashSet<>();
+            for (int index = 0; index < items.size(); index++)
+            {
+                if (intersects(bounds, items.get(index)))
+                {
+                    expected.add((long) index);
+                }
+            }
+            final Set<Long> found = new HashSet<>();
+            tree.search(bounds, index -> Assert.assertTrue(found.add(index)));
+            Assert.assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    public void testSingleItem()
+    {
+        final Rectangle item = Location.TEST_1.boxAround(Distance.ONE_METER);
+        final PackedRTree tree = PackedRTree.forLocated(List.of(item));
+        Assert.assertEquals(item, tree.bounds());
+        final Set<Long> found = new HashSet<>();
+        tree.search(Location.TEST_1.bounds(), found::add);
+        Assert.assertEquals(Set.of(0L), found);
+        found.clear();
+        tree.search(Location.TEST_2.bounds(), found::add);
+        Assert.assertTrue(found.isEmpty());
+    }
+
+    private boolean intersects(final Rectangle one, final Rectangle other)
+    {
+        return one.lowerLeft().getLatitude().isLessThanOrEqualTo(other.upperRight().getLatitude())
+                && other.lowerLeft().getLatitude()
+                        .isLessThanOrEqualTo(one.upperRight().getLatitude())
+                && one.lowerLeft().getLongitude()
+                        .isLessThanOrEqualTo(other.upperRight().getLongitude())
+                && other.lowerLeft().getLongitude()
+                        .isLessThanOrEqualTo(one.upperRight().getLongitude());
+    }
+
+    private Location randomLocation(final Random random)
+    {
+        return new Location(Latitude.degrees(random.nextDouble() * MAXIMUM_DEGREES),
+                Longitude.degrees(random.nextDouble() * MAXIMUM_DEGREES));
+    }
+
+    private List<Rectangle> randomRectangles(final Random random, final int count)
+    {
+        final List<Rectangle> result = new ArrayList<>();
+        for (int index = 0; index < count; index++)
+        {
+            result.add(randomLocation(random)
+                    .boxAround(Distance.meters(random.nextDouble() * MAXIMUM_SIZE_METERS)));
+        }
+        return result;
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -99,6 +100,24 @@ public class SpatialIndexTest
         assertEquals(7, this.quadTreeRectangle.get(this.left).size());
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testBulkLoad()
+    {
+        final List<Rectangle> rectangles = locationToRectangle(
+                randomLocations(this.right, CASE_NUMBER_FOR_READ_TEST));
+        final RTree<Rectangle> bulkLoaded = RTree.bulkLoad(rectangles, Rectangle::bounds,
+                rectangle -> rectangle);
+        buildRectangleTree(this.rTreeRectangle, rectangles);
+        assertEquals(this.rTreeRectangle.size(), bulkLoaded.size());
+        assertEquals(this.rTreeRectangle.bounds(), bulkLoaded.bounds());
+        locationToRectangle(randomLocations(this.right, CASE_NUMBER_FOR_READ_TEST))
+                .forEach(query -> assertEquals(new HashSet<>(this.rTreeRectangle.get(query)),
+                        new HashSet<>(bulkLoaded.get(query))));
+        assertTrue(RTree.bulkLoad(new ArrayList<Rectangle>(), Rectangle::bounds,
+                rectangle -> rectangle).isEmpty());
+    }
+
     @Test
     public void testPerformance()
     {
@@ -0,0 +1,137 @@
+package org.openstreetmap.atlas.mapped;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive.BlockEncoding;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongArrayOfArraysAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongToLongMapAdapter;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongToLongMultiMapAdapter;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.streaming.resource.WritableResource;
+import org.openstreetmap.atlas.utilities.arrays.LongArrayOfArrays;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMap;
+import org.openstreetmap.atlas.utilities.maps.LongToLongMultiMap;
+
+/**
+ * @author agent
+ */
+public class MappedBlockArchiveTest
+{
+    private static final int SIZE = 1000;
+
+    @Test
+    public void testByteArray()
+    {
+        final ByteArrayResource resource = new ByteArrayResource(8192).withName("archive");
+        write(resource);
+        verify(resource);
+    }
+
+    @Test
+    public void testFile()
+    {
+        final File file = File.temporary();
+        try
+        {
+            write(file);
+            verify(file);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test(expected = CoreException.class)
+    public void testInvalidArchive()
+    {
+        final ByteArrayResource resource = new ByteArrayResource();
+        resource.writeAndClose(new byte[] { 1, 2, 3 });
+        new MappedBlockArchive(resource);
+    }
+
+    @Test(expected = CoreException.class)
+    public void testReadOnly()
+    {
+        final ByteArrayResource resource = new ByteArrayResource(8192).withName("archive");
+        write(resource);
+        try (MappedBlock block = new MappedBlockArchive(resource).block("map").get())
+        {
+            final LongToLongMap map = (LongToLongMap) new MappedLongToLongMapAdapter()
+                    .deserialize(block);
+            map.put(1L, 2L);
+        }
+    }
+
+    private void verify(final Resource resource)
+    {
+        final MappedBlockArchive archive = new MappedBlockArchive(resource);
+        Assert.assertEquals(4, archive.names().size());
+        Assert.assertEquals(BlockEncoding.PROTOBUF, archive.encoding("bytes"));
+        Assert.assertFalse(archive.block("missing").isPresent());
+
+        try (MappedBlock block = archive.block("bytes").get())
+        {
+            Assert.assertArrayEquals(new byte[] { 4, 5, 6 }, block.readBytes(3));
+        }
+        try (MappedBlock block = archive.block("map").get())
+        {
+            final LongToLongMap map = (LongToLongMap) new MappedLongToLongMapAdapter()
+                    .deserialize(block);
+            Assert.assertEquals("map", map.getName());
+            Assert.assertEquals(SIZE, map.size());
+            for (long key = 0; key < SIZE; key++)
+            {
+                Assert.assertEquals(Long.valueOf(key * 2), map.get(key * 3));
+            }
+            Assert.assertNull(map.get(1L));
+        }
+        try (MappedBlock block = archive.block("multiMap").get())
+        {
+            final LongToLongMultiMap map = (LongToLongMultiMap)
+                    new MappedLongToLongMultiMapAdapter().deserialize(block);
+            Assert.assertArrayEquals(new long[] { 1, 2 }, map.get(10L));
+            Assert.assertArrayEquals(new long[] { 3 }, map.get(20L));
+        }
+        try (MappedBlock block = archive.block("arrays").get())
+        {
+            final LongArrayOfArrays arrays = MappedLongArrayOfArraysAdapter.read(block);
+            Assert.assertEquals(3, arrays.size());
+            Assert.assertArrayEquals(new long[] { 1, 2, 3 }, arrays.get(0));
+            Assert.assertArrayEquals(new long[0], arrays.get(1));
+            Assert.assertArrayEquals(new long[] { 4 }, arrays.get(2));
+        }
+    }
+
+    private void write(final WritableResource resource)
+    {
+        final LongToLongMap map = new LongToLongMap("map", SIZE);
+        for (long key = 0; key < SIZE; key++)
+        {
+            map.put(key * 3, key * 2);
+        }
+        final LongToLongMultiMap multiMap = new LongToLongMultiMap("multiMap", 10);
+        multiMap.add(10L, 1);
+        multiMap.add(10L, 2);
+        multiMap.add(20L, 3);
+        final LongArrayOfArrays arrays = new LongArrayOfArrays(3);
+        arrays.add(new long[] { 1, 2, 3 });
+        arrays.add(null);
+        arrays.add(new long[] { 4 });
+
+        try (MappedBlockArchiveWriter writer = new MappedBlockArchiveWriter(resource))
+        {
+            writer.writeBlock("bytes", BlockEncoding.PROTOBUF,
+                    blockWriter -> blockWriter.writeBytes(new byte[] { 4, 5, 6 }));
+            writer.writeBlock("map", BlockEncoding.PRIMITIVE,
+                    blockWriter -> map.getMappedAdapter().serialize(map, blockWriter));
+            writer.writeBlock("multiMap", BlockEncoding.PRIMITIVE,
+                    blockWriter -> multiMap.getMappedAdapter().serialize(multiMap, blockWriter));
+            writer.writeBlock("arrays", BlockEncoding.PRIMITIVE,
+                    blockWriter -> arrays.getMappedAdapter().serialize(arrays, blockWriter));
+        }
+    }
+}
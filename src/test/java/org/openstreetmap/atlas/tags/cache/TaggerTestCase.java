@@ -5,9 +5,17 @@ import java.util.Optional;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.atlas.Atlas;
 import org.openstreetmap.atlas.geography.atlas.items.Edge;
+import org.openstreetmap.atlas.geography.atlas.items.Point;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlas;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
 import org.openstreetmap.atlas.tags.HighwayTag;
+import org.openstreetmap.atlas.tags.Taggable;
 import org.openstreetmap.atlas.tags.oneway.OneWayTag;
+import org.openstreetmap.atlas.utilities.collections.Maps;
 
 /**
  * Tagger tests.
@@ -19,6 +27,44 @@ public class TaggerTestCase
     @Rule
     public final TaggerTestRule rule = new TaggerTestRule();
 
+    @Test
+    public void testDictionaryTaggable()
+    {
+        final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+        builder.addPoint(1L, Location.TEST_1, Maps.hashMap("highway", "primary"));
+        builder.addPoint(2L, Location.TEST_2, Maps.hashMap("highway", "PRIMARY", "oneway", "yes"));
+        builder.addPoint(3L, Location.TEST_3, Maps.hashMap("highway", "not_a_highway"));
+        builder.addPoint(4L, Location.TEST_4, Maps.hashMap("name", "primary"));
+        final Atlas atlas = builder.get();
+        final Tagger<HighwayTag> highwayTagger = new Tagger<>(HighwayTag.class);
+        final Tagger<OneWayTag> onewayTagger = new Tagger<>(OneWayTag.class);
+
+        // The second pass reads the values resolved by the first one
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (final Point point : atlas.points())
+            {
+                Assert.assertTrue(point instanceof DictionaryTaggable);
+                final Taggable copy = Taggable.with(point.getTags());
+                Assert.assertEquals(highwayTagger.getTag(copy), highwayTagger.getTag(point));
+                Assert.assertEquals(onewayTagger.getTag(copy), onewayTagger.getTag(point));
+            }
+        }
+        Assert.assertEquals(Optional.of(HighwayTag.PRIMARY), highwayTagger.getTag(atlas.point(2L)));
+        Assert.assertEquals(Optional.of(OneWayTag.YES), onewayTagger.getTag(atlas.point(2L)));
+        Assert.assertFalse(highwayTagger.getTag(atlas.point(3L)).isPresent());
+        Assert.assertFalse(highwayTagger.getTag(atlas.point(4L)).isPresent());
+
+        // The tables are built again for each atlas, and are not saved with it
+        final ByteArrayResource resource = new ByteArrayResource(1 << 16)
+                .withName("testDictionaryTaggable");
+        atlas.save(resource);
+        final Atlas loaded = PackedAtlas.load(resource);
+        Assert.assertEquals(Optional.of(HighwayTag.PRIMARY),
+                highwayTagger.getTag(loaded.point(2L)));
+        Assert.assertFalse(highwayTagger.getTag(loaded.point(3L)).isPresent());
+    }
+
     @Test
     public void testTag()
     {
@@ -0,0 +1,112 @@
+package org.openstreetmap.atlas.utilities.arrays;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.PolyLine;
+import org.openstreetmap.atlas.geography.Polygon;
+import org.openstreetmap.atlas.geography.Rectangle;
+import org.openstreetmap.atlas.utilities.scalars.Distance;
+
+/**
+ * Checks that the {@link FlatPolyLineArray} accessors give the same results as the decoded
+ * {@link PolyLine}s and {@link Polygon}s.
+ *
+ * @author agent
+ */
+public class FlatPolyLineArrayTest
+{
+    private static final int SIZE = 500;
+    private static final int MAXIMUM_VERTICES = 8;
+    private static final int RECTANGLES = 20;
+
+    @Test
+    public void testAntimeridian()
+    {
+        final PolyLine crossing = PolyLine.wkt("LINESTRING (179.99 10, -179.99 10.01, -179.98 10)");
+        final FlatPolyLineArray flat = FlatPolyLineArray.build(1, index -> crossing, false);
+        Assert.assertEquals(crossing.length(), flat.length(0));
+    }
+
+    @Test
+    public void testPolyLines()
+    {
+        final List<PolyLine> polyLines = new ArrayList<>();
+        final Random random = new Random(2L);
+        for (int index = 0; index < SIZE; index++)
+        {
+            polyLines.add(new PolyLine(randomLocations(random)));
+        }
+        polyLines.add(new PolyLine(Location.TEST_1));
+        final FlatPolyLineArray flat = FlatPolyLineArray.build(polyLines.size(),
+                index -> polyLines.get((int) index), false);
+        assertSame(polyLines, flat, random);
+        Assert.assertEquals(polyLines.size(), flat.size());
+    }
+
+    @Test
+    public void testPolygons()
+    {
+        final List<Polygon> polygons = new ArrayList<>();
+        final Random random = new Random(1L);
+        for (int index = 0; index < SIZE; index++)
+        {
+            polygons.add(new Polygon(randomLocations(random)));
+        }
+        // A polygon that contains the whole rectangle, with no vertex in it
+        polygons.add(new Polygon(Rectangle.TEST_RECTANGLE.expand(Distance.ONE_METER)));
+        final FlatPolyLineArray flat = FlatPolyLineArray.build(polygons.size(),
+                index -> polygons.get((int) index), true);
+        assertSame(polygons, flat, random);
+        Assert.assertTrue(flat.intersects(polygons.size() - 1, Rectangle.TEST_RECTANGLE));
+    }
+
+    private void assertSame(final List<? extends PolyLine> shapes, final FlatPolyLineArray flat,
+            final Random random)
+    {
+        final List<Rectangle> rectangles = new ArrayList<>();
+        for (int index = 0; index < RECTANGLES; index++)
+        {
+            rectangles.add(Rectangle.forLocations(Location.random(Rectangle.TEST_RECTANGLE),
+                    Location.random(Rectangle.TEST_RECTANGLE)));
+        }
+        for (int index = 0; index < shapes.size(); index++)
+        {
+            final PolyLine shape = shapes.get(index);
+            Assert.assertEquals(shape, flat.polyLine(index));
+            Assert.assertEquals(shape.getClass(), flat.polyLine(index).getClass());
+            Assert.assertEquals(shape.bounds(), flat.bounds(index));
+            Assert.assertEquals(shape.length(), flat.length(index));
+            Assert.assertEquals(shape.size(), flat.numberOfVertices(index));
+            final List<Location> vertices = new ArrayList<>();
+            flat.forEachVertex(index, (latitude, longitude) -> vertices.add(
+                    new Location(((long) latitude << Integer.SIZE) | longitude & 0xFFFFFFFFL)));
+            Assert.assertEquals(new ArrayList<>(shape), vertices);
+            Assert.assertEquals(shape.first().getLatitude().asDm7(), flat.latitude(index, 0));
+            Assert.assertEquals(shape.first().getLongitude().asDm7(), flat.longitude(index, 0));
+            for (final Rectangle rectangle : rectangles)
+            {
+                // JTS does not take single point lines
+                final boolean expected = shape.size() == 1
+                        ? rectangle.fullyGeometricallyEncloses(shape.first())
+                        : rectangle.overlaps(shape);
+                Assert.assertEquals(expected, flat.intersects(index, rectangle));
+            }
+        }
+    }
+
+    private List<Location> randomLocations(final Random random)
+    {
+        final List<Location> result = new ArrayList<>();
+        final int size = 1 + random.nextInt(MAXIMUM_VERTICES);
+        for (int index = 0; index < size; index++)
+        {
+            result.add(Location.random(Rectangle.TEST_RECTANGLE));
+        }
+        return result;
+    }
+}
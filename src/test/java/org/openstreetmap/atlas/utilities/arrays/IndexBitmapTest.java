@@ -0,0 +1,120 @@
+package org.openstreetmap.atlas.utilities.arrays;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.LongStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+
+/**
+ * @author agent
+ */
+public class IndexBitmapTest
+{
+    private static final long RANGE = 300_000L;
+    private static final int SPARSE = 3_000;
+    private static final int DENSE = 120_000;
+
+    @Test
+    public void testAll()
+    {
+        Assert.assertTrue(IndexBitmap.all(0L).isEmpty());
+        final long size = 2 * 65_536L + 70;
+        final IndexBitmap all = IndexBitmap.all(size);
+        Assert.assertEquals(size, all.cardinality());
+        Assert.assertArrayEquals(LongStream.range(0, size).toArray(), all.stream().toArray());
+        Assert.assertTrue(all.contains(size - 1));
+        Assert.assertFalse(all.contains(size));
+        Assert.assertFalse(all.contains(-1L));
+    }
+
+    @Test(expected = CoreException.class)
+    public void testDecreasingIndices()
+    {
+        new IndexBitmap.Builder().add(10L).add(9L);
+    }
+
+    @Test
+    public void testOperations()
+    {
+        final Random random = new Random(42L);
+        final TreeSet<Long> sparse = randomSet(random, SPARSE);
+        final TreeSet<Long> dense = randomSet(random, DENSE);
+        final IndexBitmap sparseBitmap = bitmap(sparse);
+        final IndexBitmap denseBitmap = bitmap(dense);
+        assertSame(sparse, sparseBitmap);
+        assertSame(dense, denseBitmap);
+
+        for (final TreeSet<Long> other : Arrays.asList(sparse, dense, randomSet(random, SPARSE),
+                randomSet(random, DENSE)))
+        {
+            final IndexBitmap otherBitmap = bitmap(other);
+            for (final TreeSet<Long> left : Arrays.asList(sparse, dense))
+            {
+                final IndexBitmap leftBitmap = bitmap(left);
+                final TreeSet<Long> intersection = new TreeSet<>(left);
+                intersection.retainAll(other);
+                assertSame(intersection, leftBitmap.intersection(otherBitmap));
+                final TreeSet<Long> union = new TreeSet<>(left);
+                union.addAll(other);
+                assertSame(union, leftBitmap.union(otherBitmap));
+                final TreeSet<Long> difference = new TreeSet<>(left);
+                difference.removeAll(other);
+                assertSame(difference, leftBitmap.difference(otherBitmap));
+            }
+        }
+        Assert.assertTrue(sparseBitmap.difference(sparseBitmap).isEmpty());
+        assertSame(sparse, sparseBitmap.union(IndexBitmap.empty()));
+    }
+
+    @Test
+    public void testReadWrite()
+    {
+        final Random random = new Random(7L);
+        final IndexBitmap sparse = bitmap(randomSet(random, SPARSE));
+        final IndexBitmap dense = bitmap(randomSet(random, DENSE));
+        final LongArray data = new LongArray(Long.MAX_VALUE);
+        data.add(-1L);
+        sparse.write(data::add);
+        final long denseOffset = data.size();
+        dense.write(data::add);
+        IndexBitmap.empty().write(data::add);
+        Assert.assertArrayEquals(sparse.stream().toArray(),
+                IndexBitmap.read(data, 1L).stream().toArray());
+        Assert.assertArrayEquals(dense.stream().toArray(),
+                IndexBitmap.read(data, denseOffset).stream().toArray());
+        Assert.assertTrue(IndexBitmap.read(data, data.size() - 1).isEmpty());
+    }
+
+    private void assertSame(final TreeSet<Long> expected, final IndexBitmap actual)
+    {
+        Assert.assertEquals(expected.size(), actual.cardinality());
+        Assert.assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(),
+                actual.stream().toArray());
+        final LongArray forEach = new LongArray(Long.MAX_VALUE);
+        actual.forEach(forEach::add);
+        Assert.assertEquals(expected.size(), forEach.size());
+        expected.forEach(index -> Assert.assertTrue(actual.contains(index)));
+        Assert.assertFalse(actual.contains(RANGE));
+    }
+
+    private IndexBitmap bitmap(final TreeSet<Long> indices)
+    {
+        final IndexBitmap.Builder builder = new IndexBitmap.Builder();
+        indices.forEach(builder::add);
+        return builder.build();
+    }
+
+    private TreeSet<Long> randomSet(final Random random, final int count)
+    {
+        final TreeSet<Long> result = new TreeSet<>();
+        for (int index = 0; index < count; index++)
+        {
+            result.add((long) random.nextInt((int) RANGE));
+        }
+        return result;
+    }
+}
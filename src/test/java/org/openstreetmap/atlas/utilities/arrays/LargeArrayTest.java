@@ -77,6 +77,37 @@ public class LargeArrayTest
         Assert.assertEquals(new Long(97L), this.array.get(97));
     }
 
+    @Test
+    public void testSortedIndexOf()
+    {
+        Assert.assertTrue(this.array.isStrictlyIncreasing());
+        for (long value = 0; value < 100; value++)
+        {
+            Assert.assertEquals(value, this.array.sortedIndexOf(value));
+        }
+        Assert.assertEquals(-1L, this.array.sortedIndexOf(-1L));
+        Assert.assertEquals(-1L, this.array.sortedIndexOf(100L));
+
+        // Unevenly spread values, that defeat the interpolation
+        final LongArray uneven = new LongArray(101, 2, 15);
+        for (int i = 0; i < 100; i++)
+        {
+            uneven.add(2L * i * i * i - 1000L);
+        }
+        uneven.add(Long.MAX_VALUE);
+        Assert.assertTrue(uneven.isStrictlyIncreasing());
+        for (int i = 0; i < 100; i++)
+        {
+            Assert.assertEquals(i, uneven.sortedIndexOf(2L * i * i * i - 1000L));
+            Assert.assertEquals(-1L, uneven.sortedIndexOf(2L * i * i * i - 999L));
+        }
+        Assert.assertEquals(100L, uneven.sortedIndexOf(Long.MAX_VALUE));
+        Assert.assertEquals(-1L, uneven.sortedIndexOf(Long.MIN_VALUE));
+
+        this.array.set(50, 49L);
+        Assert.assertFalse(this.array.isStrictlyIncreasing());
+    }
+
     @Test
     public void testTrimming()
     {
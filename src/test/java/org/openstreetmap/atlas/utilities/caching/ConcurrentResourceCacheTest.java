@@ -1,16 +1,24 @@
 package org.openstreetmap.atlas.utilities.caching;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.openstreetmap.atlas.streaming.resource.Resource;
 import org.openstreetmap.atlas.streaming.resource.StringResource;
+import org.openstreetmap.atlas.utilities.caching.strategies.ByteArrayCachingStrategy;
 import org.openstreetmap.atlas.utilities.caching.strategies.CachingStrategy;
 
 /**
@@ -65,6 +73,8 @@ public class ConcurrentResourceCacheTest
     }
 
     private static final String RESOURCE_CONTENTS = "hello world";
+    private static final int THREADS = 8;
+    private static final int REQUESTS = 100;
 
     @Test
     public void testCache()
@@ -99,4 +109,37 @@ public class ConcurrentResourceCacheTest
         Assert.assertFalse(strategy.cacheContains(foo));
         Assert.assertFalse(strategy.cacheContains(bar));
     }
+
+    @Test
+    public void testSingleFlight() throws InterruptedException, ExecutionException
+    {
+        final AtomicInteger fetches = new AtomicInteger();
+        final Function<URI, Optional<Resource>> fetcher = uri ->
+        {
+            fetches.incrementAndGet();
+            return Optional.of(new StringResource(RESOURCE_CONTENTS));
+        };
+        final ConcurrentResourceCache cache = new ConcurrentResourceCache(
+                new ByteArrayCachingStrategy(), fetcher);
+        final URI foo = URI.create("scheme://foo");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            final List<Future<Optional<Resource>>> results = new ArrayList<>();
+            for (int request = 0; request < REQUESTS; request++)
+            {
+                results.add(executor.submit(() -> cache.get(foo)));
+            }
+            for (final Future<Optional<Resource>> result : results)
+            {
+                Assert.assertEquals(RESOURCE_CONTENTS, result.get().orElseThrow().all());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, fetches.get());
+    }
 }
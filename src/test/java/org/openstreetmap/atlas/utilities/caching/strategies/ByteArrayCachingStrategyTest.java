@@ -17,6 +17,7 @@ public class ByteArrayCachingStrategyTest
     private static final String RESOURCE_CONTENTS = "hello world";
     private static final URI DOES_NOT_EXIST = URI.create("scheme://DNE");
     private static final int NEW_ARRAY_SIZE = 1024;
+    private static final long CAPACITY = 25L;
 
     @Test
     public void test()
@@ -71,4 +72,34 @@ public class ByteArrayCachingStrategyTest
         final Optional<Resource> shouldBeEmpty = strategy.attemptFetch(DOES_NOT_EXIST, fetcher);
         Assert.assertTrue(shouldBeEmpty.isEmpty());
     }
+
+    @Test
+    public void testMaximumCapacity()
+    {
+        final Function<URI, Optional<Resource>> fetcher = uri -> Optional
+                .of(new StringResource(RESOURCE_CONTENTS));
+        final ByteArrayCachingStrategy strategy = new ByteArrayCachingStrategy()
+                .useExactResourceSize();
+        final URI foo = URI.create("scheme://foo");
+        final URI bar = URI.create("scheme://bar");
+        final URI baz = URI.create("scheme://baz");
+        strategy.attemptFetch(foo, fetcher);
+        // The resources already cached are kept
+        strategy.withMaximumCapacity(CAPACITY);
+        Assert.assertEquals(1, strategy.getResourceCache().size());
+
+        strategy.attemptFetch(bar, fetcher);
+        strategy.attemptFetch(foo, fetcher);
+        // Only two resources fit, so the least recently used one, bar, is evicted
+        strategy.attemptFetch(baz, fetcher);
+        Assert.assertEquals(2, strategy.getResourceCache().size());
+        Assert.assertTrue(strategy.getResourceCache()
+                .containsKey(strategy.getUUIDForResourceURI(foo)));
+        Assert.assertFalse(strategy.getResourceCache()
+                .containsKey(strategy.getUUIDForResourceURI(bar)));
+
+        Assert.assertEquals(1, strategy.getStatistics().hitCount());
+        Assert.assertEquals(2, strategy.getStatistics().missCount());
+        Assert.assertEquals(1, strategy.getStatistics().evictionCount());
+    }
 }
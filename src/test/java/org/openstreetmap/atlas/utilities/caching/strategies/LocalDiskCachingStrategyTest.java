@@ -0,0 +1,188 @@
+package org.openstreetmap.atlas.utilities.caching.strategies;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.streaming.resource.StringResource;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+
+/**
+ * @author agent
+ */
+public class LocalDiskCachingStrategyTest
+{
+    private static final String RESOURCE_CONTENTS = "hello world";
+    private static final long CAPACITY = 25L;
+    private static final URI FOO = URI.create("scheme://foo.txt");
+    private static final URI BAR = URI.create("scheme://bar");
+    private static final URI BAZ = URI.create("scheme://baz");
+
+    private static Function<URI, Optional<Resource>> countingFetcher(final AtomicInteger fetches)
+    {
+        return uri ->
+        {
+            fetches.incrementAndGet();
+            return Optional.of(new StringResource(RESOURCE_CONTENTS));
+        };
+    }
+
+    private static List<Path> files(final Path directory) throws IOException
+    {
+        try (Stream<Path> paths = Files.list(directory))
+        {
+            return paths.filter(path -> !"index".equals(path.getFileName().toString())
+                    && !"trash".equals(path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testChecksum() throws IOException
+    {
+        try (FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix()))
+        {
+            final Path directory = fileSystem.getPath("/cache");
+            final AtomicInteger fetches = new AtomicInteger();
+            new LocalDiskCachingStrategy(directory, CAPACITY).attemptFetch(FOO,
+                    countingFetcher(fetches));
+            // Corrupt the file, keeping its length
+            final Path cachedFile = files(directory).get(0);
+            Files.write(cachedFile,
+                    RESOURCE_CONTENTS.toUpperCase().getBytes(StandardCharsets.UTF_8));
+
+            final LocalDiskCachingStrategy restarted = new LocalDiskCachingStrategy(directory,
+                    CAPACITY);
+            final Optional<Resource> resource = restarted.attemptFetch(FOO,
+                    countingFetcher(fetches));
+            Assert.assertEquals(RESOURCE_CONTENTS, resource.orElseThrow().all());
+            Assert.assertEquals(2, fetches.get());
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException
+    {
+        try (FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix()))
+        {
+            final Path directory = fileSystem.getPath("/cache");
+            final AtomicInteger fetches = new AtomicInteger();
+            final Function<URI, Optional<Resource>> fetcher = countingFetcher(fetches);
+            final LocalDiskCachingStrategy strategy = new LocalDiskCachingStrategy(directory,
+                    CAPACITY);
+
+            Assert.assertEquals(RESOURCE_CONTENTS,
+                    strategy.attemptFetch(FOO, fetcher).orElseThrow().all());
+            final Resource bar = strategy.attemptFetch(BAR, fetcher).orElseThrow();
+            strategy.attemptFetch(FOO, fetcher);
+            Assert.assertEquals(2, fetches.get());
+
+            // Only two resources fit, so the least recently used one, bar, is evicted
+            strategy.attemptFetch(BAZ, fetcher);
+            Assert.assertEquals(3, fetches.get());
+            Assert.assertEquals(2, files(directory).size());
+            Assert.assertEquals(2L * RESOURCE_CONTENTS.length(), strategy.getTotalBytes());
+            strategy.attemptFetch(FOO, fetcher);
+            Assert.assertEquals(3, fetches.get());
+            strategy.attemptFetch(BAR, fetcher);
+            Assert.assertEquals(4, fetches.get());
+
+            // The evicted file can still be read from the resource handed out before, until the
+            // next start
+            Assert.assertEquals(RESOURCE_CONTENTS, bar.all());
+            Assert.assertEquals(2, files(directory.resolve("trash")).size());
+            new LocalDiskCachingStrategy(directory, CAPACITY);
+            Assert.assertFalse(Files.exists(directory.resolve("trash")));
+            Assert.assertEquals(2, files(directory).size());
+        }
+    }
+
+    @Test
+    public void testInvalidate() throws IOException
+    {
+        try (FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix()))
+        {
+            final Path directory = fileSystem.getPath("/cache");
+            final AtomicInteger fetches = new AtomicInteger();
+            final Function<URI, Optional<Resource>> fetcher = countingFetcher(fetches);
+            final LocalDiskCachingStrategy strategy = new LocalDiskCachingStrategy(directory,
+                    CAPACITY);
+            final Resource foo = strategy.attemptFetch(FOO, fetcher).orElseThrow();
+            strategy.attemptFetch(BAR, fetcher);
+
+            strategy.invalidate(FOO);
+            Assert.assertEquals(1, files(directory).size());
+            Assert.assertEquals(RESOURCE_CONTENTS, foo.all());
+            Assert.assertEquals(RESOURCE_CONTENTS.length(), strategy.getTotalBytes());
+            strategy.attemptFetch(FOO, fetcher);
+            Assert.assertEquals(3, fetches.get());
+
+            strategy.invalidate();
+            Assert.assertTrue(files(directory).isEmpty());
+            Assert.assertEquals(0L, strategy.getTotalBytes());
+        }
+    }
+
+    @Test
+    public void testNotACacheDirectory() throws IOException
+    {
+        try (FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix()))
+        {
+            final Path directory = fileSystem.getPath("/data");
+            Files.createDirectories(directory);
+            final Path file = directory.resolve("important.txt");
+            Files.write(file, RESOURCE_CONTENTS.getBytes(StandardCharsets.UTF_8));
+            try
+            {
+                new LocalDiskCachingStrategy(directory, CAPACITY);
+                Assert.fail("A directory without a cache index should be refused");
+            }
+            catch (final CoreException exception)
+            {
+                Assert.assertTrue(Files.exists(file));
+                Assert.assertFalse(Files.exists(directory.resolve("index")));
+            }
+        }
+    }
+
+    @Test
+    public void testRestart() throws IOException
+    {
+        try (FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix()))
+        {
+            final Path directory = fileSystem.getPath("/cache");
+            final AtomicInteger fetches = new AtomicInteger();
+            final LocalDiskCachingStrategy strategy = new LocalDiskCachingStrategy(directory,
+                    CAPACITY);
+            strategy.attemptFetch(FOO, countingFetcher(fetches));
+            strategy.attemptFetch(BAR, countingFetcher(fetches));
+            // A leftover from an interrupted copy
+            Files.write(directory.resolve("leftover.tmp"), new byte[] { 1 });
+
+            final LocalDiskCachingStrategy restarted = new LocalDiskCachingStrategy(directory,
+                    CAPACITY);
+            Assert.assertEquals(2, files(directory).size());
+            Assert.assertEquals(2L * RESOURCE_CONTENTS.length(), restarted.getTotalBytes());
+            final Resource resource = restarted.attemptFetch(FOO, countingFetcher(fetches))
+                    .orElseThrow();
+            Assert.assertEquals(RESOURCE_CONTENTS, resource.all());
+            Assert.assertTrue(resource.getName().endsWith(".txt"));
+            Assert.assertEquals(2, fetches.get());
+        }
+    }
+}
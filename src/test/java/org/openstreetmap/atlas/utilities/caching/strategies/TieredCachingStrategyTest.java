@@ -0,0 +1,66 @@
+package org.openstreetmap.atlas.utilities.caching.strategies;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.streaming.resource.Resource;
+import org.openstreetmap.atlas.streaming.resource.StringResource;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+
+/**
+ * @author agent
+ */
+public class TieredCachingStrategyTest
+{
+    private static final String RESOURCE_CONTENTS = "hello world";
+    private static final long MEMORY_CAPACITY = 25L;
+    private static final long DISK_CAPACITY = 100L;
+
+    @Test
+    public void testTiers() throws IOException
+    {
+        try (FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix()))
+        {
+            final Path directory = fileSystem.getPath("/cache");
+            final AtomicInteger fetches = new AtomicInteger();
+            final Function<URI, Optional<Resource>> fetcher = uri ->
+            {
+                fetches.incrementAndGet();
+                return Optional.of(new StringResource(RESOURCE_CONTENTS));
+            };
+            final URI foo = URI.create("scheme://foo");
+
+            final TieredCachingStrategy strategy = TieredCachingStrategy
+                    .memoryAndDisk(MEMORY_CAPACITY, directory, DISK_CAPACITY);
+            Assert.assertEquals(RESOURCE_CONTENTS,
+                    strategy.attemptFetch(foo, fetcher).orElseThrow().all());
+            Assert.assertEquals(RESOURCE_CONTENTS,
+                    strategy.attemptFetch(foo, fetcher).orElseThrow().all());
+            Assert.assertEquals(1, fetches.get());
+            final ByteArrayCachingStrategy memory = (ByteArrayCachingStrategy) strategy
+                    .getFirstTier();
+            Assert.assertEquals(1, memory.getStatistics().hitCount());
+
+            // A new strategy on the same directory starts with an empty memory tier, which is
+            // filled from the disk tier
+            final TieredCachingStrategy restarted = TieredCachingStrategy
+                    .memoryAndDisk(MEMORY_CAPACITY, directory, DISK_CAPACITY);
+            Assert.assertEquals(RESOURCE_CONTENTS,
+                    restarted.attemptFetch(foo, fetcher).orElseThrow().all());
+            Assert.assertEquals(1, fetches.get());
+
+            restarted.invalidate(foo);
+            restarted.attemptFetch(foo, fetcher);
+            Assert.assertEquals(2, fetches.get());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.openstreetmap.atlas.utilities.collections;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class IndexSpliteratorTest
+{
+    private static final long SIZE = 10_001L;
+
+    @Test
+    public void testParallelStream()
+    {
+        final List<Long> values = StreamSupport
+                .stream(new IndexSpliterator<>(SIZE, index -> index * 2), true)
+                .collect(Collectors.toList());
+        Assert.assertEquals(LongStream.range(0, SIZE).map(index -> index * 2).boxed()
+                .collect(Collectors.toList()), values);
+    }
+
+    @Test
+    public void testSplit()
+    {
+        final Spliterator<Long> right = new IndexSpliterator<>(SIZE, Long::valueOf);
+        Assert.assertTrue(right.hasCharacteristics(Spliterator.SUBSIZED));
+        final Spliterator<Long> left = right.trySplit();
+        Assert.assertEquals(SIZE / 2, left.getExactSizeIfKnown());
+        Assert.assertEquals(SIZE - SIZE / 2, right.getExactSizeIfKnown());
+
+        final long[] first = new long[1];
+        Assert.assertTrue(right.tryAdvance(value -> first[0] = value));
+        Assert.assertEquals(SIZE / 2, first[0]);
+        Assert.assertEquals(SIZE - SIZE / 2 - 1, right.estimateSize());
+
+        final Spliterator<Long> single = new IndexSpliterator<>(1L, Long::valueOf);
+        Assert.assertNull(single.trySplit());
+        Assert.assertNull(new IndexSpliterator<>(0L, Long::valueOf).trySplit());
+    }
+}
@@ -0,0 +1,60 @@
+package org.openstreetmap.atlas.utilities.command.subcommands;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystem;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.geography.Location;
+import org.openstreetmap.atlas.geography.Segment;
+import org.openstreetmap.atlas.geography.atlas.packed.PackedAtlasBuilder;
+import org.openstreetmap.atlas.geography.atlas.routing.ContractionHierarchy;
+import org.openstreetmap.atlas.streaming.resource.File;
+import org.openstreetmap.atlas.utilities.collections.Maps;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+
+/**
+ * @author agent
+ */
+public class ContractionHierarchyCommandTest
+{
+    @Test
+    public void testBuild()
+    {
+        try (FileSystem filesystem = Jimfs.newFileSystem(Configuration.osX()))
+        {
+            final PackedAtlasBuilder builder = new PackedAtlasBuilder();
+            builder.addNode(1, Location.TEST_6, Maps.hashMap());
+            builder.addNode(2, Location.TEST_2, Maps.hashMap());
+            builder.addNode(3, Location.TEST_1, Maps.hashMap());
+            builder.addEdge(1, new Segment(Location.TEST_6, Location.TEST_2), Maps.hashMap());
+            builder.addEdge(2, new Segment(Location.TEST_2, Location.TEST_1), Maps.hashMap());
+            builder.get().save(new File("/Users/foo/roads.atlas", filesystem));
+
+            final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+            final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+            final ContractionHierarchyCommand command = new ContractionHierarchyCommand();
+            command.setNewFileSystem(filesystem);
+            command.setNewOutStream(new PrintStream(outContent));
+            command.setNewErrStream(new PrintStream(errContent));
+
+            command.runSubcommand("/Users/foo/roads.atlas", "--output=/Users/foo");
+
+            Assert.assertTrue(outContent.toString().isEmpty());
+            Assert.assertTrue(errContent.toString().isEmpty());
+            final ContractionHierarchy hierarchy = ContractionHierarchy
+                    .load(new File("/Users/foo/roads.atlas.ch", filesystem));
+            Assert.assertEquals(3, hierarchy.numberOfNodes());
+            Assert.assertArrayEquals(new long[] { 1L, 2L }, hierarchy.shortestPath(1L, 3L));
+        }
+        catch (final IOException exception)
+        {
+            throw new CoreException("FileSystem operation failed", exception);
+        }
+    }
+}
@@ -4,6 +4,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.FileSystem;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -25,6 +28,9 @@ import com.google.common.jimfs.Jimfs;
  */
 public class PbfToAtlasCommandTest
 {
+    private static final Pattern SHARD_ATLAS = Pattern
+            .compile("/Users/foo/FRA_17-\\d+-\\d+\\.atlas");
+
     @Test
     public void test()
     {
@@ -62,6 +68,47 @@ public class PbfToAtlasCommandTest
         }
     }
 
+    @Test
+    public void testSharded()
+    {
+        try (FileSystem filesystem = Jimfs.newFileSystem(Configuration.osX()))
+        {
+            setupFilesystem1(filesystem);
+            new File("/Users/foo/boundary.txt", filesystem)
+                    .writeAndClose("FRA||POLYGON ((9 41, 9 42, 10 42, 10 41, 9 41))#");
+            final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+            final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+            final PbfToAtlasCommand command = new PbfToAtlasCommand();
+            command.setNewFileSystem(filesystem);
+            command.setNewOutStream(new PrintStream(outContent));
+            command.setNewErrStream(new PrintStream(errContent));
+
+            Assert.assertEquals(0,
+                    command.runSubcommand("--output=/Users/foo", "--countryName=FRA",
+                            "--sharding=slippy@17", "--boundaries=/Users/foo/boundary.txt",
+                            "--threads=2", "/Users/foo/PbfToAtlasCommandTest.pbf"));
+
+            final String[] outputs = outContent.toString().split("\n");
+            Assert.assertTrue(outputs.length > 0);
+            final Set<Long> edgeIdentifiers = new HashSet<>();
+            for (final String output : outputs)
+            {
+                Assert.assertTrue(output, SHARD_ATLAS.matcher(output).matches());
+                final File outputAtlasFile = new File(output, filesystem);
+                final Atlas outputAtlas = new AtlasResourceLoader()
+                        .load(new InputStreamResource(outputAtlasFile::read)
+                                .withName(outputAtlasFile.getAbsolutePathString()));
+                Assert.assertTrue(outputAtlas.numberOfNodes() > 0);
+                outputAtlas.edges().forEach(edge -> edgeIdentifiers.add(edge.getIdentifier()));
+            }
+            Assert.assertFalse(edgeIdentifiers.isEmpty());
+        }
+        catch (final IOException exception)
+        {
+            throw new CoreException("FileSystem operation failed", exception);
+        }
+    }
+
     private void setupFilesystem1(final FileSystem filesystem) throws IOException
     {
         final File pbfFile = new File("/Users/foo/PbfToAtlasCommandTest.pbf", filesystem);
@@ -0,0 +1,92 @@
+package org.openstreetmap.atlas.utilities.compression;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.proto.adapters.ProtoAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoIntegerStringDictionaryAdapter;
+
+/**
+ * @author agent
+ */
+public class IntegerDictionaryTest
+{
+    private static final int NUMBER_OF_THREADS = 4;
+    private static final int NUMBER_OF_WORDS = 10_000;
+
+    @Test
+    public void testAddAfterDeserialization()
+    {
+        final IntegerDictionary<String> dictionary = new IntegerDictionary<>();
+        final int first = dictionary.add("first");
+        final int nullWord = dictionary.add(null);
+        dictionary.trim();
+        final ProtoAdapter adapter = new ProtoIntegerStringDictionaryAdapter();
+        @SuppressWarnings("unchecked")
+        final IntegerDictionary<String> deserialized = (IntegerDictionary<String>) adapter
+                .deserialize(adapter.serialize(dictionary));
+
+        for (final IntegerDictionary<String> candidate : List.of(dictionary, deserialized))
+        {
+            Assert.assertEquals(first, candidate.add("first"));
+            Assert.assertEquals(nullWord, candidate.add(null));
+            Assert.assertEquals(2, candidate.add("second"));
+            Assert.assertEquals(3, candidate.size());
+        }
+        Assert.assertEquals(dictionary, deserialized);
+    }
+
+    @Test
+    public void testConcurrentAddAndRead() throws Exception
+    {
+        final IntegerDictionary<String> dictionary = new IntegerDictionary<>();
+        final ExecutorService pool = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try
+        {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < NUMBER_OF_THREADS; thread++)
+            {
+                results.add(pool.submit(() ->
+                {
+                    final int[] indices = new int[NUMBER_OF_WORDS + 1];
+                    for (int word = 0; word < NUMBER_OF_WORDS; word++)
+                    {
+                        indices[word] = dictionary.add("word" + word);
+                        // Read back while the other threads keep adding
+                        Assert.assertEquals(Integer.valueOf(indices[word]),
+                                dictionary.lookup("word" + word).orElseThrow());
+                        Assert.assertEquals("word" + word, dictionary.word(indices[word]));
+                    }
+                    indices[NUMBER_OF_WORDS] = dictionary.add(null);
+                    return indices;
+                }));
+            }
+            final int[] expected = results.get(0).get();
+            for (final Future<int[]> result : results)
+            {
+                Assert.assertArrayEquals(expected, result.get());
+            }
+            final Set<Integer> distinct = new HashSet<>();
+            for (int word = 0; word < NUMBER_OF_WORDS; word++)
+            {
+                Assert.assertEquals("word" + word, dictionary.word(expected[word]));
+                distinct.add(expected[word]);
+            }
+            Assert.assertNull(dictionary.word(expected[NUMBER_OF_WORDS]));
+            distinct.add(expected[NUMBER_OF_WORDS]);
+            Assert.assertEquals(NUMBER_OF_WORDS + 1, distinct.size());
+            Assert.assertEquals(NUMBER_OF_WORDS + 1, dictionary.size());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.openstreetmap.atlas.utilities.maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openstreetmap.atlas.exception.CoreException;
+import org.openstreetmap.atlas.mapped.MappedBlock;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive;
+import org.openstreetmap.atlas.mapped.MappedBlockArchive.BlockEncoding;
+import org.openstreetmap.atlas.mapped.MappedBlockArchiveWriter;
+import org.openstreetmap.atlas.mapped.MappedSerializable;
+import org.openstreetmap.atlas.mapped.adapters.MappedLongToLongOpenHashMapAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoLongToLongMapAdapter;
+import org.openstreetmap.atlas.proto.adapters.ProtoLongToLongOpenHashMapAdapter;
+import org.openstreetmap.atlas.streaming.resource.ByteArrayResource;
+
+/**
+ * @author agent
+ */
+public class LongToLongOpenHashMapTest
+{
+    private static final int SIZE = 10_000;
+    private static final long SEED = 17L;
+
+    @Test
+    public void testGrowAndLookUp()
+    {
+        final Map<Long, Long> expected = new HashMap<>();
+        final LongToLongOpenHashMap map = randomMap(expected, 1);
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertTrue(map.capacity() > map.size());
+        for (final Map.Entry<Long, Long> entry : expected.entrySet())
+        {
+            Assert.assertTrue(map.containsKey(entry.getKey()));
+            Assert.assertEquals(entry.getValue(), map.get(entry.getKey()));
+            Assert.assertEquals(entry.getValue().longValue(),
+                    map.getOrDefault(entry.getKey(), -1L));
+        }
+        final Set<Long> keys = new HashSet<>();
+        map.forEach(keys::add);
+        Assert.assertEquals(expected.keySet(), keys);
+
+        final long missing = Long.MAX_VALUE;
+        Assert.assertFalse(map.containsKey(missing));
+        Assert.assertNull(map.get(missing));
+        Assert.assertEquals(-1L, map.getOrDefault(missing, -1L));
+        Assert.assertFalse(map.containsKey(LongToLongOpenHashMap.FREE_KEY));
+    }
+
+    @Test
+    public void testJavaSerialization() throws IOException, ClassNotFoundException
+    {
+        final LongToLongOpenHashMap map = randomMap(new HashMap<>(), SIZE);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes))
+        {
+            output.writeObject(map);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            Assert.assertEquals(map, input.readObject());
+        }
+    }
+
+    @Test
+    public void testMappedAdapter()
+    {
+        final LongToLongOpenHashMap map = randomMap(new HashMap<>(), SIZE);
+        final LongToLongMap legacy = new LongToLongMap("test", SIZE);
+        map.forEach(key -> legacy.put(key, map.get(key)));
+
+        final ByteArrayResource resource = new ByteArrayResource().withName("archive");
+        try (MappedBlockArchiveWriter writer = new MappedBlockArchiveWriter(resource))
+        {
+            writer.writeBlock("map", BlockEncoding.PRIMITIVE,
+                    blockWriter -> map.getMappedAdapter().serialize(map, blockWriter));
+            writer.writeBlock("legacy", BlockEncoding.PRIMITIVE,
+                    blockWriter -> legacy.getMappedAdapter().serialize(legacy, blockWriter));
+        }
+        final MappedBlockArchive archive = new MappedBlockArchive(resource);
+        Assert.assertEquals(map, readMapped(archive, "map"));
+        Assert.assertEquals(map, readMapped(archive, "legacy"));
+    }
+
+    @Test(expected = CoreException.class)
+    public void testMappedIsReadOnly()
+    {
+        final LongToLongOpenHashMap map = randomMap(new HashMap<>(), SIZE);
+        final ByteArrayResource resource = new ByteArrayResource().withName("archive");
+        try (MappedBlockArchiveWriter writer = new MappedBlockArchiveWriter(resource))
+        {
+            writer.writeBlock("map", BlockEncoding.PRIMITIVE,
+                    blockWriter -> map.getMappedAdapter().serialize(map, blockWriter));
+        }
+        final LongToLongOpenHashMap mapped = (LongToLongOpenHashMap) readMapped(
+                new MappedBlockArchive(resource), "map");
+        mapped.put(1L, 1L);
+    }
+
+    @Test
+    public void testOverwrite()
+    {
+        final LongToLongOpenHashMap map = new LongToLongOpenHashMap("test", 2);
+        map.put(0L, 1L);
+        map.put(0L, 2L);
+        map.put(-1L, 3L);
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(Long.valueOf(2L), map.get(0L));
+        Assert.assertEquals(Long.valueOf(3L), map.get(-1L));
+    }
+
+    @Test
+    public void testProtoAdapter()
+    {
+        final LongToLongOpenHashMap map = randomMap(new HashMap<>(), SIZE);
+        final ProtoLongToLongOpenHashMapAdapter adapter = new ProtoLongToLongOpenHashMapAdapter();
+        Assert.assertEquals(map, adapter.deserialize(adapter.serialize(map)));
+
+        // The LongToLongMap has the same message
+        final LongToLongMap legacy = new LongToLongMap("test", SIZE);
+        map.forEach(key -> legacy.put(key, map.get(key)));
+        Assert.assertEquals(map,
+                adapter.deserialize(new ProtoLongToLongMapAdapter().serialize(legacy)));
+    }
+
+    @Test(expected = CoreException.class)
+    public void testReservedKey()
+    {
+        new LongToLongOpenHashMap(1).put(LongToLongOpenHashMap.FREE_KEY, 1L);
+    }
+
+    @Test
+    public void testTrim()
+    {
+        final Map<Long, Long> expected = new HashMap<>();
+        final LongToLongOpenHashMap map = randomMap(expected, SIZE * SIZE);
+        final long capacity = map.capacity();
+        map.trim();
+        Assert.assertTrue(map.capacity() < capacity);
+        expected.forEach((key, value) -> Assert.assertEquals(value, map.get(key)));
+    }
+
+    private LongToLongOpenHashMap randomMap(final Map<Long, Long> expected,
+            final long expectedSize)
+    {
+        final Random random = new Random(SEED);
+        final LongToLongOpenHashMap result = new LongToLongOpenHashMap("test", expectedSize);
+        for (int index = 0; index < SIZE; index++)
+        {
+            // Sequential identifiers, like the ones of an atlas, and random ones
+            final long key = index % 2 == 0 ? index : random.nextLong();
+            final long value = random.nextLong();
+            expected.put(key, value);
+            result.put(key, value);
+        }
+        return result;
+    }
+
+    private MappedSerializable readMapped(final MappedBlockArchive archive, final String name)
+    {
+        try (MappedBlock block = archive.block(name).get())
+        {
+            return new MappedLongToLongOpenHashMapAdapter().deserialize(block);
+        }
+    }
+}